@@ -0,0 +1,60 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.stanford.nlp.ie.crf.CRFClassifier;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.DefaultPaths;
+
+/**
+ * Runs CRFClassifier.classify over the sentences of a corpus.  classify
+ * writes its answers into the tokens, so each invocation works on a fresh
+ * copy of them; copying is cheap next to the Viterbi search.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class CRFClassifierBenchmark {
+
+  @Param({DefaultPaths.DEFAULT_NER_THREECLASS_MODEL})
+  public String model;
+
+  /** Whether features are looked up by hash (SeqClassifierFlags.hashFeatures). */
+  @Param({"false", "true"})
+  public boolean hashFeatures;
+
+  private CRFClassifier classifier;
+
+  @Setup
+  public void load() throws Exception {
+    classifier = CRFClassifier.getClassifier(model);
+    classifier.flags.hashFeatures = hashFeatures;
+  }
+
+  @Benchmark
+  @SuppressWarnings("unchecked")
+  public void classify(Corpus corpus, Tokens tokens, Blackhole bh) {
+    for (List<CoreLabel> sentence : corpus.copySentences()) {
+      bh.consume(classifier.classify(sentence));
+      tokens.tokens += sentence.size();
+    }
+  }
+
+}
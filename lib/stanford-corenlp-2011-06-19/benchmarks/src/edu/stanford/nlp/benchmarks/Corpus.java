@@ -0,0 +1,71 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.process.PTBTokenizer;
+import edu.stanford.nlp.process.WordToSentenceProcessor;
+
+/**
+ * One of the sample texts that ship with CoreNLP, read from the directory
+ * given by the <code>corenlp.home</code> system property (by default the
+ * parent of the directory the benchmarks are run from).  Benchmarks that
+ * work on sentences can limit themselves to the first
+ * {@link #maxSentences} of them.
+ */
+@State(Scope.Benchmark)
+public class Corpus {
+
+  @Param({"ww2sample.txt", "input.txt"})
+  public String corpus;
+
+  /** At most this many sentences go into {@link #sentences}; 0 for all. */
+  @Param({"0"})
+  public int maxSentences;
+
+  public String text;
+
+  public List<List<CoreLabel>> sentences;
+
+  public int tokens;
+
+  @Setup
+  public void load() throws IOException {
+    File file = new File(System.getProperty("corenlp.home", ".."), corpus);
+    text = IOUtils.slurpFile(file);
+    List<CoreLabel> words = PTBTokenizer.newPTBTokenizer(new StringReader(text), false, true).tokenize();
+    sentences = new ArrayList<List<CoreLabel>>();
+    tokens = 0;
+    for (List<CoreLabel> sentence : new WordToSentenceProcessor<CoreLabel>().process(words)) {
+      if (maxSentences > 0 && sentences.size() == maxSentences) {
+        break;
+      }
+      sentences.add(sentence);
+      tokens += sentence.size();
+    }
+  }
+
+  /** Fresh copies of the sentences, for annotators that change their tokens. */
+  public List<List<CoreLabel>> copySentences() {
+    List<List<CoreLabel>> copies = new ArrayList<List<CoreLabel>>(sentences.size());
+    for (List<CoreLabel> sentence : sentences) {
+      List<CoreLabel> copy = new ArrayList<CoreLabel>(sentence.size());
+      for (CoreLabel token : sentence) {
+        copy.add(new CoreLabel(token));
+      }
+      copies.add(copy);
+    }
+    return copies;
+  }
+
+}
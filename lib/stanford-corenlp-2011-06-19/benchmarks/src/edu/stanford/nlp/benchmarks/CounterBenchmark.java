@@ -0,0 +1,127 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.stanford.nlp.stats.ClassicCounter;
+import edu.stanford.nlp.stats.Counter;
+import edu.stanford.nlp.stats.Counters;
+import edu.stanford.nlp.stats.OpenHashCounter;
+
+/**
+ * Compares the Counter implementations on the operations feature scoring
+ * and dcoref lean on: counting into a fresh counter, and the Counters
+ * vector operations between two counters of the same kind.
+ * OpenAddressCounter is only compiled when fastutil 5 is available (see
+ * build.xml), so it is loaded by name, and left out unless asked for with
+ * <code>-p impl=OpenAddressCounter</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+@State(Scope.Benchmark)
+public class CounterBenchmark {
+
+  @Param({"ClassicCounter", "OpenHashCounter"})
+  public String impl;
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private String[] keys;
+  private Counter<String> a;
+  private Counter<String> b;
+
+  private Class<?> counterClass;
+
+  @SuppressWarnings("unchecked")
+  private Counter<String> newCounter() {
+    if (counterClass == ClassicCounter.class) {
+      return new ClassicCounter<String>();
+    } else if (counterClass == OpenHashCounter.class) {
+      return new OpenHashCounter<String>();
+    }
+    try {
+      return (Counter<String>) counterClass.newInstance();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Setup
+  public void fill() throws ClassNotFoundException {
+    counterClass = Class.forName("edu.stanford.nlp.stats." + impl);
+    keys = new String[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = "feature-" + i;
+    }
+    a = newCounter();
+    b = newCounter();
+    for (int i = 0; i < size; i++) {
+      a.incrementCount(keys[(i * 7) % size], 1.0 + i % 5);
+      // b has every other key of a
+      b.incrementCount(keys[(i * 2) % size], 0.5);
+    }
+  }
+
+  @Benchmark
+  public Counter<String> incrementCount() {
+    Counter<String> c = newCounter();
+    for (String key : keys) {
+      c.incrementCount(key);
+    }
+    return c;
+  }
+
+  @Benchmark
+  public double getCount() {
+    double sum = 0.0;
+    for (String key : keys) {
+      sum += a.getCount(key);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double dotProduct() {
+    return Counters.dotProduct(a, b);
+  }
+
+  @Benchmark
+  public double cosine() {
+    return Counters.cosine(a, b);
+  }
+
+  @Benchmark
+  public double l2Norm() {
+    return Counters.L2Norm(a);
+  }
+
+  @Benchmark
+  public Counter<String> addInPlace() {
+    Counter<String> c = newCounter();
+    Counters.addInPlace(c, a);
+    Counters.addInPlace(c, b, -1.0);
+    return c;
+  }
+
+  @Benchmark
+  public Counter<String> multiplyInPlace() {
+    // scaling by one leaves a as it was for the next call
+    return Counters.multiplyInPlace(a, 1.0);
+  }
+
+}
@@ -0,0 +1,68 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.pipeline.DefaultPaths;
+
+/**
+ * Parses sentences with a PCFG grammar, which LexicalizedParser hands to
+ * ExhaustivePCFGParser.  Parsing a whole corpus takes minutes, so pass
+ * <code>-p maxSentences=N</code> to parse only the first N sentences.
+ * Sentences longer than maxLength are skipped, as the parser would only
+ * refuse them, and their tokens are not counted.  <code>-p pcfgBeam=20</code>
+ * parses with the per-cell beam of <code>-pcfgBeam</code>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 20)
+@Measurement(iterations = 5, time = 20)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class ExhaustivePCFGParserBenchmark {
+
+  @Param({DefaultPaths.DEFAULT_PARSER_MODEL})
+  public String model;
+
+  @Param({"40"})
+  public int maxLength;
+
+  @Param({"0"})
+  public double pcfgBeam;
+
+  private LexicalizedParser parser;
+
+  @Setup
+  public void load() {
+    parser = new LexicalizedParser(model);
+    parser.setOptionFlags("-maxLength", Integer.toString(maxLength), "-retainTmpSubcategories",
+                          "-pcfgBeam", Double.toString(pcfgBeam));
+  }
+
+  @Benchmark
+  public void parse(Corpus corpus, Tokens tokens, Blackhole bh) {
+    for (List<CoreLabel> sentence : corpus.sentences) {
+      if (sentence.size() > maxLength) {
+        continue;
+      }
+      bh.consume(parser.apply(sentence));
+      tokens.tokens += sentence.size();
+    }
+  }
+
+}
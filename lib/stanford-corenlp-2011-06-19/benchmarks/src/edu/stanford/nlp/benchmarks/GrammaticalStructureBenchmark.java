@@ -0,0 +1,66 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.pipeline.DefaultPaths;
+import edu.stanford.nlp.trees.EnglishGrammaticalStructure;
+import edu.stanford.nlp.trees.Tree;
+
+/**
+ * Converts parse trees to collapsed, CC-processed dependencies with
+ * EnglishGrammaticalStructure.  The trees are parsed once, in setup;
+ * sentences longer than 40 tokens are left out.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class GrammaticalStructureBenchmark {
+
+  @Param({DefaultPaths.DEFAULT_PARSER_MODEL})
+  public String model;
+
+  private List<Tree> trees;
+  private int numTokens;
+
+  @Setup
+  public void parse(Corpus corpus) {
+    LexicalizedParser parser = new LexicalizedParser(model);
+    parser.setOptionFlags("-maxLength", "40", "-retainTmpSubcategories");
+    trees = new ArrayList<Tree>();
+    for (List<CoreLabel> sentence : corpus.sentences) {
+      if (sentence.size() <= 40) {
+        trees.add(parser.apply(sentence));
+        numTokens += sentence.size();
+      }
+    }
+  }
+
+  @Benchmark
+  public void dependencies(Tokens tokens, Blackhole bh) {
+    for (Tree tree : trees) {
+      bh.consume(new EnglishGrammaticalStructure(tree).typedDependenciesCCprocessed(true));
+    }
+    tokens.tokens += numTokens;
+  }
+
+}
@@ -0,0 +1,50 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.DefaultPaths;
+import edu.stanford.nlp.tagger.maxent.MaxentTagger;
+
+/** Tags the sentences of a corpus with MaxentTagger. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class MaxentTaggerBenchmark {
+
+  @Param({DefaultPaths.DEFAULT_POS_MODEL})
+  public String model;
+
+  private MaxentTagger tagger;
+
+  @Setup
+  public void load() throws Exception {
+    tagger = new MaxentTagger(model);
+  }
+
+  @Benchmark
+  public void tagSentences(Corpus corpus, Tokens tokens, Blackhole bh) {
+    for (List<CoreLabel> sentence : corpus.sentences) {
+      bh.consume(tagger.tagSentence(sentence));
+      tokens.tokens += sentence.size();
+    }
+  }
+
+}
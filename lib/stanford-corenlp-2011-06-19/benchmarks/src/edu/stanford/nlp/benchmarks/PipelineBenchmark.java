@@ -0,0 +1,57 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+/**
+ * Runs a whole StanfordCoreNLP pipeline over a corpus, from raw text.
+ * The default pipelines are the tokenizer alone, everything up to NER,
+ * and everything including parsing and coreference.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 30)
+@Measurement(iterations = 5, time = 30)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+  @Param({"tokenize,ssplit", "tokenize,ssplit,pos,lemma,ner", "tokenize,ssplit,pos,lemma,ner,parse,dcoref"})
+  public String annotators;
+
+  private StanfordCoreNLP pipeline;
+
+  @Setup
+  public void load() {
+    Properties props = new Properties();
+    props.setProperty("annotators", annotators);
+    pipeline = new StanfordCoreNLP(props);
+  }
+
+  @Benchmark
+  public Annotation process(Corpus corpus, Tokens tokens) {
+    Annotation document = pipeline.process(corpus.text);
+    List<CoreLabel> words = document.get(CoreAnnotations.TokensAnnotation.class);
+    tokens.tokens += words.size();
+    return document;
+  }
+
+}
@@ -0,0 +1,62 @@
+package edu.stanford.nlp.benchmarks;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.DeterministicCorefAnnotator;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+
+/**
+ * Runs the deterministic coreference system (SieveCoreferenceSystem, by
+ * way of its annotator) over a corpus which has been tokenized, tagged,
+ * NER-tagged and parsed once, in setup.  The annotator copies the trees it
+ * changes and overwrites its own annotations, so the same document can be
+ * given to it again and again.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SieveCoreferenceSystemBenchmark {
+
+  private DeterministicCorefAnnotator coref;
+  private Annotation document;
+  private int numTokens;
+
+  @Setup
+  public void annotate(Corpus corpus) {
+    Properties props = new Properties();
+    props.setProperty("annotators", "tokenize, ssplit, pos, lemma, ner, parse");
+    document = new Annotation(corpus.text);
+    new StanfordCoreNLP(props).annotate(document);
+    List<CoreLabel> words = document.get(CoreAnnotations.TokensAnnotation.class);
+    numTokens = words.size();
+    coref = new DeterministicCorefAnnotator(new Properties());
+  }
+
+  @Benchmark
+  public void coref(Tokens tokens, Blackhole bh) {
+    coref.annotate(document);
+    bh.consume(document);
+    tokens.tokens += numTokens;
+  }
+
+}
@@ -0,0 +1,24 @@
+package edu.stanford.nlp.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the tokens a benchmark has processed, which JMH reports next to
+ * the operations as <code>tokens</code>, per second in throughput mode.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Tokens {
+
+  public long tokens;
+
+  @Setup(Level.Iteration)
+  public void clean() {
+    tokens = 0;
+  }
+
+}
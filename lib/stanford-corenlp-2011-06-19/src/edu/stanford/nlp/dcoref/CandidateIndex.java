@@ -0,0 +1,82 @@
+package edu.stanford.nlp.dcoref;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the mentions of a document by their head word, NER type, span or
+ * span without the phrase after the head, so that a sieve looking for an
+ * antecedent with the same string or head need not try every mention of
+ * every earlier sentence.  The index holds mentions, not clusters, since
+ * clusters are merged as the sieves go; the cluster of a mention found is
+ * looked up by its current corefClusterID.
+ * <p>
+ * The keys are worked out once for each document and are shared by all
+ * sieves, as none of the sieves change them.
+ *
+ * @see edu.stanford.nlp.dcoref.sievepasses.DeterministicCorefSieve#plausibleAntecedents
+ */
+public class CandidateIndex {
+
+  private final Map<String, List<Mention>> bySpan = new HashMap<String, List<Mention>>();
+  private final Map<String, List<Mention>> byRelaxedSpan = new HashMap<String, List<Mention>>();
+  private final Map<String, List<Mention>> byHead = new HashMap<String, List<Mention>>();
+  private final Map<String, List<Mention>> byNer = new HashMap<String, List<Mention>>();
+
+  /** Indexes the predicted mentions of the document. */
+  public CandidateIndex(Document document) {
+    for (List<Mention> sentence : document.getOrderedMentions()) {
+      for (Mention m : sentence) {
+        add(bySpan, m.spanToString().toLowerCase(), m);
+        String relaxed = m.removePhraseAfterHead();
+        if ( ! relaxed.equals("")) {
+          add(byRelaxedSpan, relaxed, m);
+        }
+        add(byHead, m.headString, m);
+        if (m.nerString != null && ! m.nerString.equals("O")) {
+          add(byNer, m.nerString, m);
+        }
+      }
+    }
+  }
+
+  private static void add(Map<String, List<Mention>> map, String key, Mention m) {
+    List<Mention> mentions = map.get(key);
+    if (mentions == null) {
+      mentions = new ArrayList<Mention>(2);
+      map.put(key, mentions);
+    }
+    mentions.add(m);
+  }
+
+  private static List<Mention> get(Map<String, List<Mention>> map, String key) {
+    List<Mention> mentions = map.get(key);
+    return (mentions == null) ? Collections.<Mention>emptyList() : mentions;
+  }
+
+  /** The mentions whose lowercased span is the given string. */
+  public List<Mention> withSpan(String lowercasedSpan) {
+    return get(bySpan, lowercasedSpan);
+  }
+
+  /** The mentions whose span, less any phrase after the head, is the given
+   *  string (see {@link Mention#removePhraseAfterHead}).
+   */
+  public List<Mention> withRelaxedSpan(String span) {
+    return get(byRelaxedSpan, span);
+  }
+
+  /** The mentions with the given head word. */
+  public List<Mention> withHead(String headString) {
+    return get(byHead, headString);
+  }
+
+  /** The mentions of the given NER type; none for "O". */
+  public List<Mention> withNer(String nerString) {
+    return get(byNer, nerString);
+  }
+
+}
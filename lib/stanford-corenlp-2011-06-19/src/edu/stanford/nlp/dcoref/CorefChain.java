@@ -95,6 +95,22 @@ public class CorefChain {
       
       m.headWord.set(CorefClusterIdAnnotation.class, corefClusterID);
     }
+    /** Rebuilds a mention from its fields, as when reading a saved annotation */
+    public CorefMention(MentionType mentionType, Number number, Gender gender, Animacy animacy,
+                        int startIndex, int endIndex, int headIndex, int corefClusterID,
+                        int mentionID, int sentNum, IntTuple position){
+      this.mentionType = mentionType;
+      this.number = number;
+      this.gender = gender;
+      this.animacy = animacy;
+      this.startIndex = startIndex;
+      this.endIndex = endIndex;
+      this.headIndex = headIndex;
+      this.corefClusterID = corefClusterID;
+      this.mentionID = mentionID;
+      this.sentNum = sentNum;
+      this.position = position;
+    }
     public String toString(){
       return position.toString();
     }
@@ -143,6 +159,16 @@ public class CorefChain {
     }
     Collections.sort(mentions, new MentionComparator());
   }
+  /** Rebuilds a chain from its mentions, as when reading a saved annotation */
+  public CorefChain(int chainID, List<CorefMention> mentions, CorefMention representative){
+    this.chainID = chainID;
+    this.mentions = mentions;
+    this.representative = representative;
+    mentionMap = new HashMap<IntPair, CorefMention>();
+    for(CorefMention men : mentions) {
+      mentionMap.put(new IntPair(men.sentNum, men.headIndex), men);
+    }
+  }
   public String toString(){
     return mentions.toString(); 
   }
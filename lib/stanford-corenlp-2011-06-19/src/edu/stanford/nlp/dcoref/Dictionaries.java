@@ -3,11 +3,9 @@ package edu.stanford.nlp.dcoref;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -122,7 +120,8 @@ public class Dictionaries {
   public final Set<String> inanimateWords = new HashSet<String>();
   public final Set<String> animateWords = new HashSet<String>();
 
-  public final Map<List<String>, int[]> genderNumber = new HashMap<List<String>, int[]>();
+  /** Gender and number counts of n-grams; empty unless the big list is loaded */
+  public final GenderNumberLexicon genderNumber;
 
   private void setPronouns() {
     for(String s: animatePronouns){
@@ -233,27 +232,6 @@ public class Dictionaries {
     }
   }
 
-  private void loadGenderNumber(String file){
-    try {
-      BufferedReader reader = new BufferedReader(new InputStreamReader(IOUtils.getInputStreamFromURLOrClasspathOrFileSystem(file)));
-      String line;
-      while ((line = reader.readLine())!=null){
-        String[] split = line.split("\t");
-        List<String> tokens = new ArrayList<String>(Arrays.asList(split[0].split(" ")));
-        String[] countStr = split[1].split(" ");
-        int[] counts = new int[4];
-        counts[0] = Integer.parseInt(countStr[0]);
-        counts[1] = Integer.parseInt(countStr[1]);
-        counts[2] = Integer.parseInt(countStr[2]);
-        counts[3] = Integer.parseInt(countStr[3]);
-
-        genderNumber.put(tokens, counts);
-      }
-      reader.close();
-    } catch (IOException e) {
-      throw new RuntimeIOException(e);
-    }
-  }
   private void loadExtraGender(String file){
     BufferedReader reader = null;
     try {
@@ -308,7 +286,8 @@ public class Dictionaries {
     if(Constants.USE_ANIMACY_LIST) loadAnimacyLists(animateWords, inanimateWords);
     if(Constants.USE_GENDER_LIST) loadGenderLists(maleWords, neutralWords, femaleWords);
     if(Constants.USE_NUMBER_LIST) loadNumberLists(pluralWords, singularWords);
-    if(loadBigGenderNumber) loadGenderNumber(genderNumber);
+    // the text list, or the binary lexicon made from it by GenderNumberLexicon.main
+    this.genderNumber = loadBigGenderNumber ? GenderNumberLexicon.load(genderNumber) : GenderNumberLexicon.EMPTY;
     loadCountriesLists(countries);
     loadStatesLists(states);
     loadExtraGender(extraGender);
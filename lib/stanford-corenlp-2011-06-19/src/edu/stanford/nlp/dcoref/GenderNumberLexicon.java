@@ -0,0 +1,360 @@
+package edu.stanford.nlp.dcoref;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.stanford.nlp.io.IOUtils;
+import edu.stanford.nlp.io.RuntimeIOException;
+
+/**
+ * The gender and number counts of n-grams (the "big gender number" list
+ * of Bergsma and Lin), kept compactly.  Each n-gram is kept as a 64-bit
+ * hash of its words, in a sorted array, next to its four counts (male,
+ * female, neutral, plural).  A table of where the keys starting with each
+ * value of their top bits begin, with about four keys to each, finds a key
+ * in one short scan.  That is 25 bytes an n-gram, where a HashMap of Lists
+ * of Strings takes hundreds.
+ * <p>
+ * The lexicon can be read from the text file, one n-gram a line as
+ * <pre>
+ *   word word ...\tmale female neutral plural
+ * </pre>
+ * or saved once in a binary form with {@link #main} and then mapped into
+ * memory rather than read: opening it is then immediate, and the pages of
+ * the file are shared by every JVM on the machine that maps it.  Within a
+ * JVM, each file is opened only once.  {@link #load} tells the two
+ * formats apart by the magic number at the start of the binary file.
+ * <p>
+ * As only the hashes are kept, an n-gram that is not in the lexicon could
+ * be taken for one that is if their hashes are the same, but with 64-bit
+ * hashes this is vanishingly unlikely.  Two n-grams of the lexicon with
+ * the same hash are caught when it is built.
+ */
+public class GenderNumberLexicon {
+
+  private static final int MAGIC = 0x474e4c58; // "GNLX"
+  private static final int VERSION = 1;
+  private static final int HEADER = 16; // magic, version, size, bits
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /** A lexicon with no n-grams, for when the list is not loaded */
+  public static final GenderNumberLexicon EMPTY =
+    new GenderNumberLexicon(LongBuffer.allocate(0), IntBuffer.allocate(0), IntBuffer.wrap(new int[2]), 0);
+
+  private static final Map<String, GenderNumberLexicon> opened = new HashMap<String, GenderNumberLexicon>();
+
+  private final LongBuffer keys; // sorted
+  private final IntBuffer counts; // four for each key
+  private final IntBuffer buckets; // where the keys with each value of the top bits start
+  private final int bits;
+
+  private GenderNumberLexicon(LongBuffer keys, IntBuffer counts, IntBuffer buckets, int bits) {
+    this.keys = keys;
+    this.counts = counts;
+    this.buckets = buckets;
+    this.bits = bits;
+  }
+
+  /**
+   * Returns the counts of an n-gram (male, female, neutral, plural), or
+   * null if it is not in the lexicon.  The array is a new one each time.
+   */
+  public int[] get(List<String> words) {
+    long key = hash(words);
+    int b = bucket(key, bits);
+    for (int i = buckets.get(b), end = buckets.get(b + 1); i < end; i++) {
+      long k = keys.get(i);
+      if (k == key) {
+        int[] result = new int[4];
+        for (int j = 0; j < 4; j++) {
+          result[j] = counts.get(4 * i + j);
+        }
+        return result;
+      }
+      if (k > key) {
+        break;
+      }
+    }
+    return null;
+  }
+
+  /** The bucket of a key: its top bits, taken so that buckets follow the order of the keys. */
+  private static int bucket(long key, int bits) {
+    return (bits == 0) ? 0 : (int) ((key ^ Long.MIN_VALUE) >>> (64 - bits));
+  }
+
+  /** Enough bits for about four keys a bucket. */
+  private static int bitsFor(int size) {
+    int bits = 0;
+    while (bits < 24 && (4L << bits) < size) {
+      bits++;
+    }
+    return bits;
+  }
+
+  /** Finds where each bucket starts in the sorted keys; the last entry is the number of keys. */
+  private static int[] buckets(long[] keys, int size, int bits) {
+    int[] buckets = new int[(1 << bits) + 1];
+    int b = 0;
+    for (int i = 0; i < size; i++) {
+      int kb = bucket(keys[i], bits);
+      while (b <= kb) {
+        buckets[b++] = i;
+      }
+    }
+    while (b < buckets.length) {
+      buckets[b++] = size;
+    }
+    return buckets;
+  }
+
+  /** The number of n-grams in the lexicon. */
+  public int size() {
+    return keys.limit();
+  }
+
+  /** Hashes the words of an n-gram (64-bit FNV-1a, with a 0 char after each word, then mixed). */
+  private static long hash(List<String> words) {
+    long h = FNV_OFFSET;
+    for (String word : words) {
+      for (int i = 0, len = word.length(); i < len; i++) {
+        h = (h ^ word.charAt(i)) * FNV_PRIME;
+      }
+      h *= FNV_PRIME;
+    }
+    // FNV leaves the high bits poorly mixed, and the search relies on
+    // the hashes being spread evenly; this is the finalizer of MurmurHash3
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+
+  /**
+   * Loads a lexicon from a file on the file system, the classpath or a URL.
+   * A binary lexicon on the file system is mapped into memory, and is only
+   * mapped once however many times it is loaded.
+   *
+   * @throws RuntimeIOException If the file cannot be read
+   */
+  public static GenderNumberLexicon load(String file) {
+    synchronized (opened) {
+      GenderNumberLexicon lexicon = opened.get(file);
+      if (lexicon == null) {
+        try {
+          lexicon = isBinary(file) ? map(file) : readText(file);
+        } catch (IOException e) {
+          throw new RuntimeIOException(e);
+        }
+        opened.put(file, lexicon);
+      }
+      return lexicon;
+    }
+  }
+
+  private static boolean isBinary(String file) throws IOException {
+    File f = new File(file);
+    if ( ! f.isFile() || f.length() < HEADER) {
+      return false;
+    }
+    DataInputStream in = new DataInputStream(new FileInputStream(f));
+    try {
+      return in.readInt() == MAGIC;
+    } finally {
+      in.close();
+    }
+  }
+
+  private static GenderNumberLexicon map(String file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException(file + " is too big to map");
+      }
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+        throw new IOException(file + " is not a version " + VERSION + " gender number lexicon");
+      }
+      int size = buffer.getInt(8);
+      int bits = buffer.getInt(12);
+      int keysStart = keysStart(bits);
+      if (bits < 0 || bits > 24 || channel.size() != keysStart + 24L * size) {
+        throw new IOException(file + " is truncated");
+      }
+      buffer.position(HEADER);
+      IntBuffer buckets = buffer.slice().asIntBuffer();
+      buckets.limit((1 << bits) + 1);
+      buffer.position(keysStart);
+      LongBuffer keys = buffer.slice().asLongBuffer();
+      keys.limit(size);
+      buffer.position(keysStart + 8 * size);
+      IntBuffer counts = buffer.slice().asIntBuffer();
+      counts.limit(4 * size);
+      return new GenderNumberLexicon(keys, counts, buckets, bits);
+    } finally {
+      raf.close(); // the mapping stays valid
+    }
+  }
+
+  private static GenderNumberLexicon readText(String file) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(IOUtils.getInputStreamFromURLOrClasspathOrFileSystem(file)));
+    try {
+      return readText(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Reads a lexicon in the text format.  If an n-gram is listed twice,
+   * the later counts are kept.
+   *
+   * @throws IllegalArgumentException If two different n-grams have the
+   *     same hash
+   */
+  public static GenderNumberLexicon readText(BufferedReader reader) throws IOException {
+    int n = 0;
+    long[] keys = new long[1 << 16];
+    int[] checks = new int[keys.length]; // a second hash, to tell collisions from repeats
+    int[] counts = new int[4 * keys.length];
+    String line;
+    while ((line = reader.readLine()) != null) {
+      String[] split = line.split("\t");
+      List<String> tokens = Arrays.asList(split[0].split(" "));
+      String[] countStr = split[1].split(" ");
+      if (n == keys.length) {
+        keys = Arrays.copyOf(keys, 2 * n);
+        checks = Arrays.copyOf(checks, 2 * n);
+        counts = Arrays.copyOf(counts, 8 * n);
+      }
+      keys[n] = hash(tokens);
+      checks[n] = tokens.hashCode();
+      for (int i = 0; i < 4; i++) {
+        counts[4 * n + i] = Integer.parseInt(countStr[i]);
+      }
+      n++;
+    }
+
+    int[] order = sortByKey(keys, n);
+    long[] sortedKeys = new long[n];
+    int[] sortedCounts = new int[4 * n];
+    int size = 0;
+    for (int j = 0; j < n; j++) {
+      int i = order[j];
+      if (size > 0 && sortedKeys[size - 1] == keys[i]) {
+        if (checks[order[j - 1]] != checks[i]) {
+          throw new IllegalArgumentException("Two n-grams of the gender number list have the same hash");
+        }
+        size--; // a repeated n-gram: the later line wins
+      }
+      sortedKeys[size] = keys[i];
+      System.arraycopy(counts, 4 * i, sortedCounts, 4 * size, 4);
+      size++;
+    }
+    int bits = bitsFor(size);
+    return new GenderNumberLexicon(LongBuffer.wrap(sortedKeys, 0, size).slice(),
+                                   IntBuffer.wrap(sortedCounts, 0, 4 * size).slice(),
+                                   IntBuffer.wrap(buckets(sortedKeys, size, bits)), bits);
+  }
+
+  /** Sorts the indices of the keys by key; indices with equal keys stay in order. */
+  private static int[] sortByKey(long[] keys, int n) {
+    int[] a = new int[n];
+    int[] b = new int[n];
+    for (int i = 0; i < n; i++) {
+      a[i] = i;
+    }
+    for (int width = 1; width < n; width *= 2) {
+      for (int lo = 0; lo < n; lo += 2 * width) {
+        int mid = Math.min(lo + width, n);
+        int hi = Math.min(lo + 2 * width, n);
+        int i = lo;
+        int j = mid;
+        int k = lo;
+        while (i < mid && j < hi) {
+          b[k++] = (keys[a[j]] < keys[a[i]]) ? a[j++] : a[i++];
+        }
+        while (i < mid) {
+          b[k++] = a[i++];
+        }
+        while (j < hi) {
+          b[k++] = a[j++];
+        }
+      }
+      int[] t = a;
+      a = b;
+      b = t;
+    }
+    return a;
+  }
+
+  /** Where the keys start in the binary form. */
+  private static int keysStart(int bits) {
+    int nBuckets = (1 << bits) + 1;
+    return HEADER + 4 * (nBuckets + nBuckets % 2);
+  }
+
+  /** Saves the lexicon in the binary form, which {@link #load} maps into memory. */
+  public void save(String file) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+    try {
+      int size = size();
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(size);
+      out.writeInt(bits);
+      int nBuckets = (1 << bits) + 1;
+      for (int i = 0; i < nBuckets; i++) {
+        out.writeInt(buckets.get(i));
+      }
+      if (nBuckets % 2 != 0) {
+        out.writeInt(0); // the keys start on a multiple of 8
+      }
+      for (int i = 0; i < size; i++) {
+        out.writeLong(keys.get(i));
+      }
+      for (int i = 0; i < 4 * size; i++) {
+        out.writeInt(counts.get(i));
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Converts the text gender number list to the binary form.
+   * Usage: <code>java edu.stanford.nlp.dcoref.GenderNumberLexicon gender.data.gz gender.lexicon</code>
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: java " + GenderNumberLexicon.class.getName() + " textFile binaryFile");
+      System.exit(1);
+    }
+    GenderNumberLexicon lexicon = readText(args[0]);
+    lexicon.save(args[1]);
+    System.err.println("Saved " + lexicon.size() + " n-grams to " + args[1]);
+  }
+
+}
@@ -180,23 +180,25 @@ public class Mention implements CoreAnnotation<Mention>, Serializable {
   }
   private int[] getNumberCount(Dictionaries dict, List<String> mStr) {
     int len = mStr.size();
+    int[] counts;
     if(len > 1) {
       for(int i = 0 ; i < len-1 ; i++) {
-        if(dict.genderNumber.containsKey(mStr.subList(i, len))) return dict.genderNumber.get(mStr.subList(i, len));
+        if((counts = dict.genderNumber.get(mStr.subList(i, len))) != null) return counts;
       }
 
       // find converted string with ! (e.g., "dr. martin luther king jr. boulevard" -> "! boulevard")
       List<String> convertedStr = new ArrayList<String>();
       convertedStr.add("!");
       convertedStr.add(mStr.get(len-1));
-      if(dict.genderNumber.containsKey(convertedStr)) return dict.genderNumber.get(convertedStr);
+      if((counts = dict.genderNumber.get(convertedStr)) != null) return counts;
     }
-    if(dict.genderNumber.containsKey(mStr.subList(len-1, len))) return dict.genderNumber.get(mStr.subList(len-1, len));
+    if((counts = dict.genderNumber.get(mStr.subList(len-1, len))) != null) return counts;
 
     return null;
   }
   private int[] getGenderCount(Dictionaries dict, List<String> mStr) {
     int len = mStr.size();
+    int[] counts;
     char firstLetter = headWord.get(TextAnnotation.class).charAt(0);
     if(len > 1 && Character.isUpperCase(firstLetter) && nerString.startsWith("PER")) {
       int firstNameIdx = len-2;
@@ -206,19 +208,19 @@ public class Mention implements CoreAnnotation<Mention>, Serializable {
       }
 
       for(int i = 0 ; i <= firstNameIdx ; i++){
-        if(dict.genderNumber.containsKey(mStr.subList(i, len))) return dict.genderNumber.get(mStr.subList(i, len));
+        if((counts = dict.genderNumber.get(mStr.subList(i, len))) != null) return counts;
       }
 
       // find converted string with ! (e.g., "dr. martin luther king jr. boulevard" -> "dr. !")
       List<String> convertedStr = new ArrayList<String>();
       convertedStr.add(mStr.get(firstNameIdx));
       convertedStr.add("!");
-      if(dict.genderNumber.containsKey(convertedStr)) return dict.genderNumber.get(convertedStr);
+      if((counts = dict.genderNumber.get(convertedStr)) != null) return counts;
 
-      if(dict.genderNumber.containsKey(mStr.subList(firstNameIdx, firstNameIdx+1))) return dict.genderNumber.get(mStr.subList(firstNameIdx, firstNameIdx+1));
+      if((counts = dict.genderNumber.get(mStr.subList(firstNameIdx, firstNameIdx+1))) != null) return counts;
     }
 
-    if(dict.genderNumber.containsKey(mStr.subList(len-1, len))) return dict.genderNumber.get(mStr.subList(len-1, len));
+    if((counts = dict.genderNumber.get(mStr.subList(len-1, len))) != null) return counts;
     return null;
   }
   private void setDiscourse() {
@@ -386,24 +388,20 @@ public class Mention implements CoreAnnotation<Mention>, Serializable {
         }
       }
 
-      String enumerationPattern = "NP < (NP=tmp $.. (/,|CC/ $.. NP))";
-      try {
-        TregexPattern tgrepPattern = TregexPattern.compile(enumerationPattern);
-        TregexMatcher m = tgrepPattern.matcher(this.mentionSubTree);
-        while (m.find()) {
-          //        Tree t = m.getMatch();
-          if(this.mentionSubTree==m.getNode("tmp")
-              && this.spanToString().toLowerCase().contains(" and ")) {
-            number = Number.PLURAL;
-          }
+      TregexMatcher m = enumerationPattern.matcher(this.mentionSubTree);
+      while (m.find()) {
+        //        Tree t = m.getMatch();
+        if(this.mentionSubTree==m.getNode("tmp")
+            && this.spanToString().toLowerCase().contains(" and ")) {
+          number = Number.PLURAL;
         }
-      } catch (edu.stanford.nlp.trees.tregex.ParseException e) {
-        e.printStackTrace();
-        System.exit(0);
       }
     }
   }
 
+  private static final TregexPattern enumerationPattern =
+    MentionExtractor.compilePattern("NP < (NP=tmp $.. (/,|CC/ $.. NP))");
+
   private void setAnimacy(Dictionaries dict) {
     if (mentionType == MentionType.PRONOMINAL) {
       if (dict.animatePronouns.contains(headString)) {
@@ -44,6 +44,7 @@ import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 import edu.stanford.nlp.trees.HeadFinder;
 import edu.stanford.nlp.trees.SemanticHeadFinder;
 import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.tregex.ParseException;
 import edu.stanford.nlp.trees.tregex.TregexMatcher;
 import edu.stanford.nlp.trees.tregex.TregexPattern;
 import edu.stanford.nlp.util.CoreMap;
@@ -261,22 +262,16 @@ public class MentionExtractor {
   }
 
   /** Find syntactic pattern in a sentence by tregex */
-  private void findTreePattern(Tree tree, String pattern, Set<Pair<Integer, Integer>> foundPairs) {
-    try {
-      TregexPattern tgrepPattern = TregexPattern.compile(pattern);
-      TregexMatcher m = tgrepPattern.matcher(tree);
-      while (m.find()) {
-        Tree t = m.getMatch();
-        Tree np1 = m.getNode("m1");
-        Tree np2 = m.getNode("m2");
-        Tree np3 = null;
-        if(pattern.contains("m3")) np3 = m.getNode("m3");
-        addFoundPair(np1, np2, t, foundPairs);
-        if(np3!=null) addFoundPair(np2, np3, t, foundPairs);
-      }
-    } catch (Exception e) {
-      e.printStackTrace();
-      System.exit(0);
+  private void findTreePattern(Tree tree, TregexPattern tgrepPattern, Set<Pair<Integer, Integer>> foundPairs) {
+    TregexMatcher m = tgrepPattern.matcher(tree);
+    while (m.find()) {
+      Tree t = m.getMatch();
+      Tree np1 = m.getNode("m1");
+      Tree np2 = m.getNode("m2");
+      Tree np3 = null;
+      if(tgrepPattern.pattern().contains("m3")) np3 = m.getNode("m3");
+      addFoundPair(np1, np2, t, foundPairs);
+      if(np3!=null) addFoundPair(np2, np3, t, foundPairs);
     }
   }
 
@@ -290,25 +285,46 @@ public class MentionExtractor {
     foundPairs.add(p);
   }
 
+  /**
+   * Compiles one of the patterns written into this package.  Such a pattern that does not
+   * parse is a bug, so it fails when the class is loaded instead of when the pattern is used.
+   */
+  static TregexPattern compilePattern(String pattern) {
+    try {
+      return TregexPattern.compile(pattern);
+    } catch (ParseException e) {
+      throw new RuntimeException("Could not parse tregex pattern " + pattern, e);
+    }
+  }
+
+  // compiled once: compiling is slow, and the default compiler is not safe to share between threads
+  private static final TregexPattern appositionPattern =
+    compilePattern("NP=m1 < (NP=m2 $.. (/,/ $.. NP=m3))");
+  private static final TregexPattern appositionPattern2 =
+    compilePattern("NP=m1 < (NP=m2 $.. (/,/ $.. (SBAR < (WHNP < WP|WDT=m3))))");
+  private static final TregexPattern appositionPattern3 =
+    compilePattern("/^NP(?:-TMP|-ADV)?$/=m1 < (NP=m2 $- /^,$/ $-- NP=m3 !$ CC|CONJP)");
+  private static final TregexPattern appositionPattern4 =
+    compilePattern("/^NP(?:-TMP|-ADV)?$/=m1 < (PRN=m2 < (NP < /^NNS?|CD$/ $-- /^-LRB-$/ $+ /^-RRB-$/))");
+  private static final TregexPattern predicateNominativePattern =
+    compilePattern("S < (NP=m1 $.. (VP < ((/VB/ < /^(am|are|is|was|were|'m|'re|'s|be)$/) $.. NP=m2)))");
+  private static final TregexPattern predicateNominativePattern2 =
+    compilePattern("S < (NP=m1 $.. (VP < (VP < ((/VB/ < /^(be|been|being)$/) $.. NP=m2))))");
+  //    String predicateNominativePattern2 = "NP=m1 $.. (VP < ((/VB/ < /^(am|are|is|was|were|'m|'re|'s|be)$/) $.. NP=m2))";
+  private static final TregexPattern relativePronounPattern =
+    compilePattern("NP < (NP=m1 $.. (SBAR < (WHNP < WP|WDT=m2)))");
+
   private void findAppositions(Tree tree, Set<Pair<Integer, Integer>> appos) {
-    String appositionPattern = "NP=m1 < (NP=m2 $.. (/,/ $.. NP=m3))";
-    String appositionPattern2 = "NP=m1 < (NP=m2 $.. (/,/ $.. (SBAR < (WHNP < WP|WDT=m3))))";
-    String appositionPattern3 = "/^NP(?:-TMP|-ADV)?$/=m1 < (NP=m2 $- /^,$/ $-- NP=m3 !$ CC|CONJP)";
-    String appositionPattern4 = "/^NP(?:-TMP|-ADV)?$/=m1 < (PRN=m2 < (NP < /^NNS?|CD$/ $-- /^-LRB-$/ $+ /^-RRB-$/))";
     findTreePattern(tree, appositionPattern, appos);
     findTreePattern(tree, appositionPattern2, appos);
     findTreePattern(tree, appositionPattern3, appos);
     findTreePattern(tree, appositionPattern4, appos);
   }
   private void findPredicateNominatives(Tree tree, Set<Pair<Integer, Integer>> preNomi) {
-    String predicateNominativePattern = "S < (NP=m1 $.. (VP < ((/VB/ < /^(am|are|is|was|were|'m|'re|'s|be)$/) $.. NP=m2)))";
-    String predicateNominativePattern2 = "S < (NP=m1 $.. (VP < (VP < ((/VB/ < /^(be|been|being)$/) $.. NP=m2))))";
-    //    String predicateNominativePattern2 = "NP=m1 $.. (VP < ((/VB/ < /^(am|are|is|was|were|'m|'re|'s|be)$/) $.. NP=m2))";
     findTreePattern(tree, predicateNominativePattern, preNomi);
     findTreePattern(tree, predicateNominativePattern2, preNomi);
   }
   private void findRelativePronouns(Tree tree, Set<Pair<Integer, Integer>> relativePronounPairs) {
-    String relativePronounPattern = "NP < (NP=m1 $.. (SBAR < (WHNP < WP|WDT=m2)))";
     findTreePattern(tree, relativePronounPattern, relativePronounPairs);
   }
   private static void markMentionRelation(List<Mention> orderedMentions, Set<Pair<Integer, Integer>> foundPairs, String flag) {
@@ -38,7 +38,6 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
   boolean assignIds = true;
   int maxID = -1;
   HeadFinder headFinder;
-  protected Annotator parserProcessor;
 
   public RuleBasedCorefMentionFinder() {
     SieveCoreferenceSystem.logger.fine("Using SEMANTIC HEAD FINDER!!!!!!!!!!!!!!!!!!!");
@@ -46,6 +45,7 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
   }
   /** When mention boundaries are given */
   public List<List<Mention>> filterPredictedMentions(List<List<Mention>> allGoldMentions, Annotation doc, Dictionaries dict){
+    Annotator parser = getParser();
     List<List<Mention>> predictedMentions = new ArrayList<List<Mention>>();
 
     for(int i = 0 ; i < allGoldMentions.size(); i++){
@@ -54,7 +54,7 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
       List<Mention> mentions = new ArrayList<Mention>();
       predictedMentions.add(mentions);
       mentions.addAll(goldMentions);
-      findHead(s, mentions);
+      findHead(s, mentions, parser);
 
       Set<IntPair> mentionSpanSet = new HashSet<IntPair>();
       Set<IntPair> namedEntitySpanSet = new HashSet<IntPair>();
@@ -73,6 +73,8 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
    * Extract all NP, PRP or NE, and filter out by manually written patterns */
   public List<List<Mention>> extractPredictedMentions(Annotation doc, int _maxID, Dictionaries dict){
     this.maxID = _maxID;
+    // looked up once per document: getExistingAnnotator locks the whole pool
+    Annotator parser = getParser();
     List<List<Mention>> predictedMentions = new ArrayList<List<Mention>>();
     for(CoreMap s : doc.get(SentencesAnnotation.class)) {
 
@@ -84,7 +86,7 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
       extractNamedEntityMentions(s, mentions, mentionSpanSet, namedEntitySpanSet);
       extractNPorPRP(s, mentions, mentionSpanSet, namedEntitySpanSet);
       extractEnumerations(s, mentions, mentionSpanSet, namedEntitySpanSet);
-      findHead(s, mentions);
+      findHead(s, mentions, parser);
       setBarePlural(mentions);
       removeSpuriousMentions(s, mentions, dict);
     }
@@ -136,71 +138,63 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
     }
   }
 
+  // compiled when the class is loaded rather than for every sentence
+  private static final TregexPattern npOrPrpMentionPattern = MentionExtractor.compilePattern("/^(?:NP|PRP)/");
+
   private void extractNPorPRP(CoreMap s, List<Mention> mentions, Set<IntPair> mentionSpanSet, Set<IntPair> namedEntitySpanSet) {
     List<CoreLabel> sent = s.get(TokensAnnotation.class);
     Tree tree = s.get(TreeAnnotation.class);
     tree.indexLeaves();
     SemanticGraph dependency = s.get(CollapsedDependenciesAnnotation.class);
-    try {
-      final String mentionPattern = "/^(?:NP|PRP)/";
-      TregexPattern tgrepPattern = TregexPattern.compile(mentionPattern);
-      TregexMatcher matcher = tgrepPattern.matcher(tree);
-      while (matcher.find()) {
-        Tree t = matcher.getMatch();
-        List<Tree> mLeaves = t.getLeaves();
-        int beginIdx = ((CoreLabel)mLeaves.get(0).label()).get(IndexAnnotation.class)-1;
-        int endIdx = ((CoreLabel)mLeaves.get(mLeaves.size()-1).label()).get(IndexAnnotation.class);
-        IntPair mSpan = new IntPair(beginIdx, endIdx);
-        if(!mentionSpanSet.contains(mSpan) && !insideNE(mSpan, namedEntitySpanSet)) {
-          int mentionID = assignIds? ++maxID:-1;
-          Mention m = new Mention(mentionID, beginIdx, endIdx, dependency, new ArrayList<CoreLabel>(sent.subList(beginIdx, endIdx)), t);
-          mentions.add(m);
-          mentionSpanSet.add(mSpan);
-        }
+    TregexMatcher matcher = npOrPrpMentionPattern.matcher(tree);
+    while (matcher.find()) {
+      Tree t = matcher.getMatch();
+      List<Tree> mLeaves = t.getLeaves();
+      int beginIdx = ((CoreLabel)mLeaves.get(0).label()).get(IndexAnnotation.class)-1;
+      int endIdx = ((CoreLabel)mLeaves.get(mLeaves.size()-1).label()).get(IndexAnnotation.class);
+      IntPair mSpan = new IntPair(beginIdx, endIdx);
+      if(!mentionSpanSet.contains(mSpan) && !insideNE(mSpan, namedEntitySpanSet)) {
+        int mentionID = assignIds? ++maxID:-1;
+        Mention m = new Mention(mentionID, beginIdx, endIdx, dependency, new ArrayList<CoreLabel>(sent.subList(beginIdx, endIdx)), t);
+        mentions.add(m);
+        mentionSpanSet.add(mSpan);
       }
-    } catch (edu.stanford.nlp.trees.tregex.ParseException e) {
-      e.printStackTrace();
-      System.exit(0);
     }
   }
+  private static final TregexPattern enumerationsMentionPattern =
+    MentionExtractor.compilePattern("NP < (/^(?:NP|NNP|NML)/=m1 $.. (/^CC|,/ $.. /^(?:NP|NNP|NML)/=m2))");
+
   /** Extract enumerations (A, B, and C) */
   private void extractEnumerations(CoreMap s, List<Mention> mentions, Set<IntPair> mentionSpanSet, Set<IntPair> namedEntitySpanSet){
     List<CoreLabel> sent = s.get(TokensAnnotation.class);
     Tree tree = s.get(TreeAnnotation.class);
     SemanticGraph dependency = s.get(CollapsedDependenciesAnnotation.class);
-    try {
-      final String mentionPattern = "NP < (/^(?:NP|NNP|NML)/=m1 $.. (/^CC|,/ $.. /^(?:NP|NNP|NML)/=m2))";
-      TregexPattern tgrepPattern = TregexPattern.compile(mentionPattern);
-      TregexMatcher matcher = tgrepPattern.matcher(tree);
-      Map<IntPair, Tree> spanToMentionSubTree = new HashMap<IntPair, Tree>();
-      while (matcher.find()) {
-        matcher.getMatch();
-        Tree m1 = matcher.getNode("m1");
-        Tree m2 = matcher.getNode("m2");
-
-        List<Tree> mLeaves = m1.getLeaves();
-        int beginIdx = ((CoreLabel)mLeaves.get(0).label()).get(IndexAnnotation.class)-1;
-        int endIdx = ((CoreLabel)mLeaves.get(mLeaves.size()-1).label()).get(IndexAnnotation.class);
-        spanToMentionSubTree.put(new IntPair(beginIdx, endIdx), m1);
-
-        mLeaves = m2.getLeaves();
-        beginIdx = ((CoreLabel)mLeaves.get(0).label()).get(IndexAnnotation.class)-1;
-        endIdx = ((CoreLabel)mLeaves.get(mLeaves.size()-1).label()).get(IndexAnnotation.class);
-        spanToMentionSubTree.put(new IntPair(beginIdx, endIdx), m2);
-      }
+    TregexMatcher matcher = enumerationsMentionPattern.matcher(tree);
+    Map<IntPair, Tree> spanToMentionSubTree = new HashMap<IntPair, Tree>();
+    while (matcher.find()) {
+      matcher.getMatch();
+      Tree m1 = matcher.getNode("m1");
+      Tree m2 = matcher.getNode("m2");
+
+      List<Tree> mLeaves = m1.getLeaves();
+      int beginIdx = ((CoreLabel)mLeaves.get(0).label()).get(IndexAnnotation.class)-1;
+      int endIdx = ((CoreLabel)mLeaves.get(mLeaves.size()-1).label()).get(IndexAnnotation.class);
+      spanToMentionSubTree.put(new IntPair(beginIdx, endIdx), m1);
+
+      mLeaves = m2.getLeaves();
+      beginIdx = ((CoreLabel)mLeaves.get(0).label()).get(IndexAnnotation.class)-1;
+      endIdx = ((CoreLabel)mLeaves.get(mLeaves.size()-1).label()).get(IndexAnnotation.class);
+      spanToMentionSubTree.put(new IntPair(beginIdx, endIdx), m2);
+    }
 
-      for(IntPair mSpan : spanToMentionSubTree.keySet()){
-        if(!mentionSpanSet.contains(mSpan) && !insideNE(mSpan, namedEntitySpanSet)) {
-          int mentionID = assignIds? ++maxID:-1;
-          Mention m = new Mention(mentionID, mSpan.get(0), mSpan.get(1), dependency,
-              new ArrayList<CoreLabel>(sent.subList(mSpan.get(0), mSpan.get(1))), spanToMentionSubTree.get(mSpan));
-          mentions.add(m);
-          mentionSpanSet.add(mSpan);
-        }
+    for(IntPair mSpan : spanToMentionSubTree.keySet()){
+      if(!mentionSpanSet.contains(mSpan) && !insideNE(mSpan, namedEntitySpanSet)) {
+        int mentionID = assignIds? ++maxID:-1;
+        Mention m = new Mention(mentionID, mSpan.get(0), mSpan.get(1), dependency,
+            new ArrayList<CoreLabel>(sent.subList(mSpan.get(0), mSpan.get(1))), spanToMentionSubTree.get(mSpan));
+        mentions.add(m);
+        mentionSpanSet.add(mSpan);
       }
-    } catch (edu.stanford.nlp.trees.tregex.ParseException e) {
-      e.printStackTrace();
-      System.exit(0);
     }
   }
 
@@ -212,12 +206,12 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
     return false;
   }
 
-  private void findHead(CoreMap s, List<Mention> mentions) {
+  private void findHead(CoreMap s, List<Mention> mentions, Annotator parser) {
     Tree tree = s.get(TreeAnnotation.class);
     List<CoreLabel> sent = s.get(TokensAnnotation.class);
     tree.indexSpans(0);
     for (Mention m : mentions){
-      Tree head = findSyntacticHead(m, tree, sent);
+      Tree head = findSyntacticHead(m, tree, sent, parser);
       m.headIndex = ((CoreLabel) head.label()).get(IndexAnnotation.class)-1;
       m.headWord = sent.get(m.headIndex);
       m.headString = m.headWord.get(TextAnnotation.class).toLowerCase();
@@ -225,6 +219,12 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
   }
 
   protected Tree findSyntacticHead(Mention m, Tree root, List<CoreLabel> tokens) {
+    return findSyntacticHead(m, root, tokens, null);
+  }
+
+  /** As above, with the parse annotator of the calling thread, or null to
+   *  look it up only if the mention's extent has to be parsed. */
+  private Tree findSyntacticHead(Mention m, Tree root, List<CoreLabel> tokens, Annotator parser) {
     // mention ends with 's
     int endIdx = m.endIndex;
     if(m.originalSpan.get(m.originalSpan.size()-1).get(TextAnnotation.class).equals("'s")
@@ -259,14 +259,19 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
     extentTokens.add(initCoreLabel("."));
 
     // constrain the parse to the part we're interested in.
-    // Using the dirty static variables for that purpose....
+    // The constraint holds for this thread's parses only, so that other
+    // threads' documents are parsed as usual.
     // Starting from ADDED_WORDS comes from skipping "It was".
     // -1 to exclude the period.
     // We now let it be any kind of nominal constituent, since there are VP and S ones
     Test.Constraint constraint = new Test.Constraint(ADDED_WORDS, extentTokens.size() - 1, Pattern.compile(".*"));
-    Test.constraints = Collections.singletonList(constraint);
-    Tree tree = parse(extentTokens);
-    Test.constraints = null;
+    Test.setThreadConstraints(Collections.singletonList(constraint));
+    Tree tree;
+    try {
+      tree = parse(extentTokens, (parser == null) ? getParser() : parser);
+    } finally {
+      Test.setThreadConstraints(null);
+    }
     convertToCoreLabels(tree);
     tree.indexSpans(m.startIndex - ADDED_WORDS);  // remember it has ADDED_WORDS extra words at the beginning
     Tree subtree = findPartialSpan(tree, m.startIndex);
@@ -316,22 +321,22 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
     label.set(TextAnnotation.class, token);
     return label;
   }
-  private Tree parse(List<CoreLabel> tokens) {
+  private static Tree parse(List<CoreLabel> tokens, Annotator parser) {
     CoreMap sent = new Annotation("");
     sent.set(TokensAnnotation.class, tokens);
     Annotation doc = new Annotation("");
     List<CoreMap> sents = new ArrayList<CoreMap>();
     sents.add(sent);
     doc.set(SentencesAnnotation.class, sents);
-    getParser().annotate(doc);
+    parser.annotate(doc);
     sents = doc.get(SentencesAnnotation.class);
     return sents.get(0).get(TreeAnnotation.class);
   }
-  private Annotator getParser() {
-    if(parserProcessor == null){
-      parserProcessor = StanfordCoreNLP.getExistingAnnotator("parse");
-      assert(parserProcessor != null);
-    }
+  /** The parser of the calling thread: not kept, as the parse annotator
+   *  may be a different one on each thread. */
+  private static Annotator getParser() {
+    Annotator parserProcessor = StanfordCoreNLP.getExistingAnnotator("parse");
+    assert(parserProcessor != null);
     return parserProcessor;
   }
   private static void convertToCoreLabels(Tree tree) {
@@ -460,33 +465,33 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
     return false;
   }
 
+  // the patterns with "$ .." do not parse; they are left null and never match, as before
+  private static final TregexPattern[] pleonasticPatterns = new TregexPattern[] {
+    TregexPattern.safeCompile("NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:is|was|become|became)/) $.. (VP < (VBN $.. /S|SBAR/))))", false),
+    TregexPattern.safeCompile("NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:is|was|become|became)/) $.. (ADJP $.. (/S|SBAR/))))", false),
+    TregexPattern.safeCompile("NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:is|was|become|became)/) $.. (ADJP < (/S|SBAR/))))", false),
+    TregexPattern.safeCompile("NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:is|was|become|became)/) $.. (NP < /S|SBAR/)))", false),
+    TregexPattern.safeCompile("NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:is|was|become|became)/) $.. (NP $.. ADVP $.. /S|SBAR/)))", false),
+    TregexPattern.safeCompile("NP < (PRP=m1) $.. (VP < (MD $ .. (VP < ((/^V.*/ < /^(?:be|become)/) $.. (VP < (VBN $.. /S|SBAR/))))))", false),
+    TregexPattern.safeCompile("NP < (PRP=m1) $.. (VP < (MD $ .. (VP < ((/^V.*/ < /^(?:be|become)/) $.. (ADJP $.. (/S|SBAR/))))))", false),
+    TregexPattern.safeCompile("NP < (PRP=m1) $.. (VP < (MD $ .. (VP < ((/^V.*/ < /^(?:be|become)/) $.. (ADJP < (/S|SBAR/))))))", false),
+    TregexPattern.safeCompile("NP < (PRP=m1) $.. (VP < (MD $ .. (VP < ((/^V.*/ < /^(?:be|become)/) $.. (NP < /S|SBAR/)))))", false),
+    TregexPattern.safeCompile("NP < (PRP=m1) $.. (VP < (MD $ .. (VP < ((/^V.*/ < /^(?:be|become)/) $.. (NP $.. ADVP $.. /S|SBAR/)))))", false),
+    TregexPattern.safeCompile("NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:seems|appears|means|follows)/) $.. /S|SBAR/))", false),
+    TregexPattern.safeCompile("NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:turns|turned)/) $.. PRT $.. /S|SBAR/))", false)
+  };
+
   /** Check whether pleonastic 'it'. E.g., It is possible that ... */
   private static boolean isPleonastic(Mention m, Tree tree) {
     if(!m.spanToString().equalsIgnoreCase("it")) return false;
-    final String[] patterns = {
-        "NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:is|was|become|became)/) $.. (VP < (VBN $.. /S|SBAR/))))",
-        "NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:is|was|become|became)/) $.. (ADJP $.. (/S|SBAR/))))",
-        "NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:is|was|become|became)/) $.. (ADJP < (/S|SBAR/))))",
-        "NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:is|was|become|became)/) $.. (NP < /S|SBAR/)))",
-        "NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:is|was|become|became)/) $.. (NP $.. ADVP $.. /S|SBAR/)))",
-        "NP < (PRP=m1) $.. (VP < (MD $ .. (VP < ((/^V.*/ < /^(?:be|become)/) $.. (VP < (VBN $.. /S|SBAR/))))))",
-        "NP < (PRP=m1) $.. (VP < (MD $ .. (VP < ((/^V.*/ < /^(?:be|become)/) $.. (ADJP $.. (/S|SBAR/))))))",
-        "NP < (PRP=m1) $.. (VP < (MD $ .. (VP < ((/^V.*/ < /^(?:be|become)/) $.. (ADJP < (/S|SBAR/))))))",
-        "NP < (PRP=m1) $.. (VP < (MD $ .. (VP < ((/^V.*/ < /^(?:be|become)/) $.. (NP < /S|SBAR/)))))",
-        "NP < (PRP=m1) $.. (VP < (MD $ .. (VP < ((/^V.*/ < /^(?:be|become)/) $.. (NP $.. ADVP $.. /S|SBAR/)))))",
-        "NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:seems|appears|means|follows)/) $.. /S|SBAR/))",
-        "NP < (PRP=m1) $.. (VP < ((/^V.*/ < /^(?:turns|turned)/) $.. PRT $.. /S|SBAR/))"
-    };
-
-    for(String p : patterns){
-      if(checkPleonastic(m, tree, p)) return true;
+    for(TregexPattern p : pleonasticPatterns){
+      if(p != null && checkPleonastic(m, tree, p)) return true;
     }
     return false;
   }
 
-  private static boolean checkPleonastic(Mention m, Tree tree, String pattern) {
+  private static boolean checkPleonastic(Mention m, Tree tree, TregexPattern tgrepPattern) {
     try {
-      TregexPattern tgrepPattern = TregexPattern.compile(pattern);
       TregexMatcher matcher = tgrepPattern.matcher(tree);
       while (matcher.find()) {
         Tree np1 = matcher.getNode("m1");
@@ -499,6 +504,7 @@ public class RuleBasedCorefMentionFinder implements CorefMentionFinder {
     }
     return false;
   }
+
 }
 
 
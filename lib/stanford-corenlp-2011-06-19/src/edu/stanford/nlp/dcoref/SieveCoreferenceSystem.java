@@ -40,6 +40,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
@@ -122,6 +123,9 @@ public class SieveCoreferenceSystem {
   private final DeterministicCorefSieve [] sieves;
   private final String [] sieveClassNames;
 
+  /** Time spent in each sieve, in nanoseconds, over all documents so far */
+  private final AtomicLongArray sieveTimes;
+
   /**
    * Dictionaries of all the useful goodies (gender, animacy, number etc. lists)
    */
@@ -132,7 +136,7 @@ public class SieveCoreferenceSystem {
    */
   private final Semantics semantics;
 
-  /** Current sieve index */
+  /** Current sieve index (only kept when scoring) */
   public int currentSieve;
 
   /** counter for links in passes (Pair<correct links, total links>)  */
@@ -152,7 +156,7 @@ public class SieveCoreferenceSystem {
 
   /** Semantic knowledge: currently WordNet is available */
   public class Semantics {
-    public WordNet wordnet;
+    public final WordNet wordnet;
 
     public Semantics(Dictionaries dict) throws Exception{
       wordnet = new WordNet();
@@ -184,6 +188,7 @@ public class SieveCoreferenceSystem {
     String sievePasses = props.getProperty(Constants.SIEVES_PROP, Constants.SIEVEPASSES);
     sieveClassNames = sievePasses.trim().split(",\\s*");
     sieves = new DeterministicCorefSieve[sieveClassNames.length];
+    sieveTimes = new AtomicLongArray(sieveClassNames.length);
     for(int i = 0; i < sieveClassNames.length; i ++){
       sieves[i] = (DeterministicCorefSieve) Class.forName("edu.stanford.nlp.dcoref.sievepasses."+sieveClassNames[i]).getConstructor().newInstance();
       sieves[i].init(props);
@@ -419,21 +424,31 @@ public class SieveCoreferenceSystem {
         }
       }
     }
+    corefSystem.printSieveTimes(logger);
     logger.info("done");
   }
 
   /**
    * Extracts coreference clusters
-   * This is the main API entry point for coreference resolution
+   * This is the main API entry point for coreference resolution.
+   * Unless scoring is on, several threads may call this at once, each on
+   * its own Document: all the state of a call is kept in the Document,
+   * and the dictionaries, semantics and sieves are only read.
    */
   public Map<Integer, CorefChain> coref(Document document) {
 
+    CandidateIndex index = new CandidateIndex(document);
+
     // Multi-pass sieve coreference resolution
     for (int i = 0; i < sieves.length ; i++){
-      currentSieve = i;
+      if(doScore()) currentSieve = i;
       DeterministicCorefSieve sieve = sieves[i];
       // Do coreference resolution using this pass
-      coreference(document, sieve);
+      long start = System.nanoTime();
+      coreference(document, sieve, index);
+      long elapsed = System.nanoTime() - start;
+      sieveTimes.addAndGet(i, elapsed);
+      logger.fine(sieveClassNames[i] + " took " + (elapsed / 1000000) + " ms");
     }
 
     // post processing (e.g., removing singletons, appositions for conll)
@@ -454,7 +469,8 @@ public class SieveCoreferenceSystem {
    */
   private void coreference(
       Document document,
-      DeterministicCorefSieve sieve) {
+      DeterministicCorefSieve sieve,
+      CandidateIndex index) {
 
     List<List<Mention>> orderedMentionsBySentence = document.getOrderedMentions();
     Map<Integer, CorefCluster> corefClusters = document.corefClusters;
@@ -466,8 +482,10 @@ public class SieveCoreferenceSystem {
     }
     logger.finest("-------------------------------------------------------");
 
-    additionalCorrectLinksCount = 0;
-    additionalLinksCount = 0;
+    if(doScore()){
+      additionalCorrectLinksCount = 0;
+      additionalLinksCount = 0;
+    }
 
     for (int sentI = 0; sentI < orderedMentionsBySentence.size(); sentI++) {
       List<Mention> orderedMentions = orderedMentionsBySentence.get(sentI);
@@ -481,10 +499,22 @@ public class SieveCoreferenceSystem {
           continue;
         }
 
+        // antecedents this sieve could link to, if it can only link to some (null: any)
+        Set<Mention> plausible = sieve.plausibleAntecedents(index, m1, corefClusters, dictionaries, roleSet);
+        Set<Integer> plausibleSentences = null;
+        if (plausible != null) {
+          if (plausible.isEmpty()) continue;
+          plausibleSentences = new HashSet<Integer>();
+          for (Mention m : plausible) {
+            plausibleSentences.add(m.sentNum);
+          }
+        }
+
         LOOP:
           for (int sentJ = sentI; sentJ >= 0; sentJ--) {
+            if(maxSentDist != -1 && sentI - sentJ > maxSentDist) break;
+            if(plausibleSentences != null && !plausibleSentences.contains(sentJ)) continue;
             List<Mention> l = sieve.getOrderedAntecedents(sentJ, sentI, orderedMentions, orderedMentionsBySentence, m1, mentionI, corefClusters, dictionaries);
-            if(maxSentDist != -1 && sentJ - sentI > maxSentDist) continue;
 
             // Sort mentions by length whenever we have two mentions beginning at the same position and having the same head
             for(int i = 0; i < l.size(); i++) {
@@ -503,6 +533,7 @@ public class SieveCoreferenceSystem {
               // m2 - antecedent of m1
 
               if (m1.corefClusterID == m2.corefClusterID) continue;
+              if (plausible != null && !plausible.contains(m2)) continue;
               CorefCluster c1 = corefClusters.get(m1.corefClusterID);
               CorefCluster c2 = corefClusters.get(m2.corefClusterID);
 
@@ -742,6 +773,17 @@ public class SieveCoreferenceSystem {
     scorePairwise.get(sieveClassNames.length - 1).printF1(logger, printF1First);
   }
 
+  /** Print the time spent in each sieve over all documents so far */
+  public void printSieveTimes(Logger logger) {
+    long total = 0;
+    for (int i = 0; i < sieveTimes.length(); i++) total += sieveTimes.get(i);
+    for (int i = 0; i < sieveClassNames.length; i++) {
+      logger.info(String.format("%-25s %8d ms  %5.1f%%", sieveClassNames[i], sieveTimes.get(i) / 1000000,
+          (total == 0) ? 0.0 : 100.0 * sieveTimes.get(i) / total));
+    }
+    logger.info(String.format("%-25s %8d ms", "total", total / 1000000));
+  }
+
   private void printSieveScore(Document document, DeterministicCorefSieve sieve) {
     logger.fine("===========================================");
     logger.fine("pass"+currentSieve+": "+ sieve.flagsToString());
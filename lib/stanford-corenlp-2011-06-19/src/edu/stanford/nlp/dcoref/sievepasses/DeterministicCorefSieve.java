@@ -28,11 +28,13 @@ package edu.stanford.nlp.dcoref.sievepasses;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
+import edu.stanford.nlp.dcoref.CandidateIndex;
 import edu.stanford.nlp.dcoref.Constants;
 import edu.stanford.nlp.dcoref.CorefCluster;
 import edu.stanford.nlp.dcoref.Dictionaries;
@@ -372,7 +374,89 @@ public abstract class DeterministicCorefSieve  {
     
     return orderedAntecedents;
   }
-  
+
+  /**
+   * Finds the antecedents this sieve could link the given mention to, or
+   * returns null if it could link it to any of them.  For an antecedent
+   * that is not in the set returned, coreferent is sure to be false, so it
+   * need not be tried.  Only sieves that match by string or head (and by
+   * nothing else) are narrowed down this way; the mentions of m1's own
+   * cluster are never in the set.  A sieve that overrides coreferent must
+   * override this method too.
+   */
+  public Set<Mention> plausibleAntecedents(
+      CandidateIndex index,
+      Mention m1,
+      Map<Integer, CorefCluster> corefClusters,
+      Dictionaries dict,
+      Set<Mention> roleSet) {
+    if(flags.DO_PRONOUN || flags.USE_DISCOURSEMATCH || flags.USE_APPOSITION
+        || flags.USE_PREDICATENOMINATIVES || flags.USE_ACRONYM || flags.USE_RELATIVEPRONOUN
+        || flags.USE_DEMONYM || flags.USE_ROLEAPPOSITION || flags.USE_WN_HYPERNYM
+        || flags.USE_WN_SYNONYM || flags.USE_ALIAS || flags.USE_ROLE_SKIP) {
+      return null;
+    }
+    if(!flags.USE_EXACTSTRINGMATCH && !flags.USE_RELAXED_EXACTSTRINGMATCH
+        && !flags.USE_INCLUSION_HEADMATCH && !flags.USE_RELAXED_HEADMATCH) {
+      return null;
+    }
+    CorefCluster mentionCluster = corefClusters.get(m1.corefClusterID);
+    Mention mention = mentionCluster.getRepresentativeMention();
+    Set<Mention> plausible = new HashSet<Mention>();
+    Set<Integer> clusters = new HashSet<Integer>();
+
+    // see CorefCluster.exactStringMatch: any two mentions of the clusters
+    if(flags.USE_EXACTSTRINGMATCH && Collections.disjoint(mentionCluster.getCorefMentions(), roleSet)) {
+      for(Mention m : mentionCluster.getCorefMentions()) {
+        String mSpan = m.spanToString().toLowerCase();
+        if(m.isPronominal() || dict.allPronouns.contains(mSpan)) continue;
+        addClusters(plausible, clusters, index.withSpan(mSpan), m1, corefClusters);
+        addClusters(plausible, clusters, index.withSpan(mSpan+" 's"), m1, corefClusters);
+        if(mSpan.endsWith(" 's")) {
+          addClusters(plausible, clusters, index.withSpan(mSpan.substring(0, mSpan.length()-3)), m1, corefClusters);
+        }
+      }
+    }
+    // see CorefCluster.relaxedExactStringMatch: the representative mention and the antecedent
+    if(flags.USE_RELAXED_EXACTSTRINGMATCH && !roleSet.contains(mention) && !mention.isPronominal()
+        && !dict.allPronouns.contains(mention.spanToString().toLowerCase())) {
+      String mentionSpan = mention.removePhraseAfterHead();
+      if(!mentionSpan.equals("")) {
+        addMentions(plausible, index.withRelaxedSpan(mentionSpan), m1);
+        addMentions(plausible, index.withRelaxedSpan(mentionSpan+" 's"), m1);
+        if(mentionSpan.endsWith(" 's")) {
+          addMentions(plausible, index.withRelaxedSpan(mentionSpan.substring(0, mentionSpan.length()-3)), m1);
+        }
+      }
+    }
+    // see CorefCluster.headsAgree: the representative mention and any mention of the antecedent's cluster
+    if(flags.USE_INCLUSION_HEADMATCH && !mention.isPronominal()
+        && !dict.allPronouns.contains(mention.spanToString().toLowerCase())) {
+      addClusters(plausible, clusters, index.withHead(mention.headString), m1, corefClusters);
+    }
+    // see Mention.headsAgree: the same head, or the same NER type and one head inside the other
+    if(flags.USE_RELAXED_HEADMATCH && !mention.isPronominal()) {
+      addMentions(plausible, index.withHead(mention.headString), m1);
+      addMentions(plausible, index.withNer(mention.nerString), m1);
+    }
+    return plausible;
+  }
+
+  private static void addMentions(Set<Mention> plausible, List<Mention> found, Mention m1) {
+    for(Mention m : found) {
+      if(m.corefClusterID != m1.corefClusterID) plausible.add(m);
+    }
+  }
+
+  private static void addClusters(Set<Mention> plausible, Set<Integer> clusters, List<Mention> found,
+      Mention m1, Map<Integer, CorefCluster> corefClusters) {
+    for(Mention m : found) {
+      if(m.corefClusterID != m1.corefClusterID && clusters.add(m.corefClusterID)) {
+        plausible.addAll(corefClusters.get(m.corefClusterID).getCorefMentions());
+      }
+    }
+  }
+
   /** Divides a sentence into clauses and sort the antecedents for pronoun matching  */
   private List<Mention> sortMentionsForPronoun(List<Mention> l, Mention m1, boolean sameSentence) {
     List<Mention> sorted = new ArrayList<Mention>();
@@ -4,6 +4,7 @@ import edu.stanford.nlp.ie.crf.CRFClassifier;
 import edu.stanford.nlp.ie.ner.CMMClassifier;
 import edu.stanford.nlp.ling.CoreAnnotations.AnswerAnnotation;
 import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.util.CoreMap;
 import edu.stanford.nlp.util.StringUtils;
 
 import java.io.FileNotFoundException;
@@ -36,7 +37,7 @@ import java.util.*;
 public class ClassifierCombiner extends AbstractSequenceClassifier<CoreLabel> {
 
   private static final boolean DEBUG = false;
-  private List<AbstractSequenceClassifier> baseClassifiers;
+  private List<AbstractSequenceClassifier<? extends CoreMap>> baseClassifiers;
 
   private static final String DEFAULT_AUX_CLASSIFIER_PATH="/u/nlp/data/ner/goodClassifiers/muc.7class.distsim.crf.ser.gz";
   private static final String DEFAULT_CLASSIFIER_PATH="/u/nlp/data/ner/goodClassifiers/all.3class.distsim.crf.ser.gz";
@@ -102,18 +103,29 @@ public class ClassifierCombiner extends AbstractSequenceClassifier<CoreLabel> {
    *
    * @param classifiers The base classifiers
    */
-  public ClassifierCombiner(AbstractSequenceClassifier... classifiers) {
+  @SuppressWarnings("unchecked")
+  public ClassifierCombiner(AbstractSequenceClassifier<? extends CoreMap>... classifiers) {
     super(new Properties());
-    baseClassifiers = new ArrayList<AbstractSequenceClassifier>();
-    for(AbstractSequenceClassifier cls: classifiers) baseClassifiers.add(cls);
+    baseClassifiers = new ArrayList<AbstractSequenceClassifier<? extends CoreMap>>();
+    for(AbstractSequenceClassifier<? extends CoreMap> cls: classifiers) baseClassifiers.add(cls);
     flags.backgroundSymbol = baseClassifiers.get(0).flags.backgroundSymbol;
   }
 
 
+  /** Sets flags on each of the base classifiers, as if they had been given
+   *  when it was loaded.  As there, only some flags can sensibly be changed.
+   */
+  public void setBaseClassifierProperties(Properties props) {
+    for (AbstractSequenceClassifier<? extends CoreMap> cls : baseClassifiers) {
+      cls.flags.setProperties(props, false);
+    }
+  }
+
+
   private void loadClassifiers(List<String> paths) throws FileNotFoundException {
-    baseClassifiers = new ArrayList<AbstractSequenceClassifier>();
+    baseClassifiers = new ArrayList<AbstractSequenceClassifier<? extends CoreMap>>();
     for(String path: paths){
-      AbstractSequenceClassifier cls = loadClassifierFromPath(path);
+      AbstractSequenceClassifier<? extends CoreMap> cls = loadClassifierFromPath(path);
       baseClassifiers.add(cls);
       if(DEBUG){
         System.err.printf("Successfully loaded classifier #%d from %s.\n", baseClassifiers.size(), path);
@@ -123,7 +135,7 @@ public class ClassifierCombiner extends AbstractSequenceClassifier<CoreLabel> {
   }
 
 
-  public static AbstractSequenceClassifier loadClassifierFromPath(String path)
+  public static AbstractSequenceClassifier<?> loadClassifierFromPath(String path)
       throws FileNotFoundException {
     //try loading as a CRFClassifier
     try {
@@ -146,7 +158,7 @@ public class ClassifierCombiner extends AbstractSequenceClassifier<CoreLabel> {
   @Override
   public Set<String> labels() {
     Set<String> labs = new HashSet<String>();
-    for(AbstractSequenceClassifier cls: baseClassifiers)
+    for(AbstractSequenceClassifier<? extends CoreMap> cls: baseClassifiers)
       labs.addAll(cls.labels());
     return labs;
   }
@@ -159,11 +171,10 @@ public class ClassifierCombiner extends AbstractSequenceClassifier<CoreLabel> {
    *   Writes the answer to AnswerAnnotation in the labeling at position 0 
    *   (considered to be the main document).
    *
-   *  @param baseDocuments Results of all base AbstractSequenceClassifier models
-   *  @return A List CoreLabel with the combined annotations.  (This is an
-   *     updating of baseDocuments.get(0), not a new List.)
+   *  @param baseDocuments Results of all base AbstractSequenceClassifier models.
+   *     The combined annotations are written to baseDocuments.get(0).
    */
-  private List<CoreLabel> mergeDocuments(List<List<CoreLabel>> baseDocuments){
+  private void mergeDocuments(List<List<? extends CoreMap>> baseDocuments){
     // we should only get here if there is something to merge
     assert(! baseClassifiers.isEmpty() && ! baseDocuments.isEmpty());
     // all base outputs MUST have the same length (we generated them internally!)
@@ -189,7 +200,7 @@ public class ClassifierCombiner extends AbstractSequenceClassifier<CoreLabel> {
       System.err.println("Base model outputs:");
       for(int i = 0; i < baseDocuments.size(); i ++){
         System.err.printf("Output of model #%d:", i);
-        for(CoreLabel l: baseDocuments.get(i)) System.err.print(" " + l.get(AnswerAnnotation.class));
+        for(CoreMap l: baseDocuments.get(i)) System.err.print(" " + l.get(AnswerAnnotation.class));
         System.err.println();
       }
     }
@@ -197,30 +208,28 @@ public class ClassifierCombiner extends AbstractSequenceClassifier<CoreLabel> {
     // incrementally merge each additional model with the main model (i.e., baseDocuments.get(0))
     // this keeps adding labels from the additional models to mainDocument
     // hence, when all is done, mainDocument contains the labels of all base models
-    List<CoreLabel> mainDocument = baseDocuments.get(0);
+    List<? extends CoreMap> mainDocument = baseDocuments.get(0);
     for(int i = 1; i < baseDocuments.size(); i ++){
       mergeTwoDocuments(mainDocument, baseDocuments.get(i), baseLabels.get(i), background);
     }
     
     if(DEBUG){
       System.err.print("Output of combined model:");
-      for(CoreLabel l: mainDocument) System.err.print(" " + l.get(AnswerAnnotation.class));
+      for(CoreMap l: mainDocument) System.err.print(" " + l.get(AnswerAnnotation.class));
       System.err.println("\n");
     }
-    
-    return mainDocument;
   }
   
-  private void mergeTwoDocuments(List<CoreLabel> mainDocument, List<CoreLabel> auxDocument, Set<String> auxLabels, String background) {    
+  private void mergeTwoDocuments(List<? extends CoreMap> mainDocument, List<? extends CoreMap> auxDocument, Set<String> auxLabels, String background) {    
     boolean insideAuxTag = false;
     boolean auxTagValid = true;
     String prevAnswer = background;
-    Collection <CoreLabel> constituents = new ArrayList<CoreLabel>();
+    Collection <CoreMap> constituents = new ArrayList<CoreMap>();
 
-    Iterator<CoreLabel> auxIterator = auxDocument.listIterator();
+    Iterator<? extends CoreMap> auxIterator = auxDocument.listIterator();
 
-    for (CoreLabel wMain : mainDocument) {
-      CoreLabel wAux = auxIterator.next();
+    for (CoreMap wMain : mainDocument) {
+      CoreMap wAux = auxIterator.next();
       String auxAnswer = wAux.get(AnswerAnnotation.class);
       String mainAnswer = wMain.get(AnswerAnnotation.class);
       boolean insideMainTag = !mainAnswer.equals(background);
@@ -230,11 +239,11 @@ public class ClassifierCombiner extends AbstractSequenceClassifier<CoreLabel> {
       if (auxLabels.contains(auxAnswer)) {
         if (!prevAnswer.equals(auxAnswer) && !prevAnswer.equals(background)) {
           if (auxTagValid){
-            for (CoreLabel wi : constituents) {
+            for (CoreMap wi : constituents) {
               wi.set(AnswerAnnotation.class, prevAnswer);
             }
           }
-          constituents = new ArrayList<CoreLabel>();
+          constituents = new ArrayList<CoreMap>();
         }
         insideAuxTag = true;
         if (insideMainTag) { auxTagValid = false; }
@@ -243,11 +252,11 @@ public class ClassifierCombiner extends AbstractSequenceClassifier<CoreLabel> {
       } else {
         if (insideAuxTag) {
           if (auxTagValid){
-            for (CoreLabel wi : constituents) {
+            for (CoreMap wi : constituents) {
               wi.set(AnswerAnnotation.class, prevAnswer);
             }
           }
-          constituents = new ArrayList<CoreLabel>();
+          constituents = new ArrayList<CoreMap>();
         }
         insideAuxTag=false;
         auxTagValid = true;
@@ -272,10 +281,10 @@ public class ClassifierCombiner extends AbstractSequenceClassifier<CoreLabel> {
   @Override
   public List<CoreLabel> classify(List<CoreLabel> tokens) {
     if(baseClassifiers.isEmpty()) return tokens;
-    List<List<CoreLabel>> baseOutputs = new ArrayList<List<CoreLabel>>();
+    List<List<? extends CoreMap>> baseOutputs = new ArrayList<List<? extends CoreMap>>();
     
     // the first base model works in place, modifying the original tokens
-    List<CoreLabel> output = baseClassifiers.get(0).classifySentence(tokens);
+    List<? extends CoreMap> output = baseClassifiers.get(0).classifySentence(tokens);
     // classify(List<CoreLabel>) is supposed to work in place, so add AnswerAnnotation to tokens!
     for(int i = 0; i < output.size(); i ++){
       tokens.get(i).set(AnswerAnnotation.class, output.get(i).get(AnswerAnnotation.class));
@@ -290,9 +299,9 @@ public class ClassifierCombiner extends AbstractSequenceClassifier<CoreLabel> {
       baseOutputs.add(output);
     }
     assert(baseOutputs.size() == baseClassifiers.size());
-    List<CoreLabel> finalAnswer = mergeDocuments(baseOutputs);
+    mergeDocuments(baseOutputs);
     
-    return finalAnswer;
+    return tokens;
   }
 
   // XXX: move this functionality to NERClassifierCombiner
@@ -9,6 +9,7 @@ import edu.stanford.nlp.ie.regexp.NumberSequenceClassifier;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.ling.CoreAnnotations.AnswerAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.NamedEntityTagAnnotation;
+import edu.stanford.nlp.util.CoreMap;
 import edu.stanford.nlp.util.StringUtils;
 
 /**
@@ -49,14 +50,16 @@ public class NERClassifierCombiner extends ClassifierCombiner {
     this.applyNumericClassifiers = applyNumericClassifiers;
   }
 
-  public NERClassifierCombiner(AbstractSequenceClassifier... classifiers) 
+  @SuppressWarnings("unchecked")
+  public NERClassifierCombiner(AbstractSequenceClassifier<? extends CoreMap>... classifiers) 
     throws FileNotFoundException 
   {
     this(APPLY_NUMERIC_CLASSIFIERS_DEFAULT, classifiers);
   }
 
+  @SuppressWarnings("unchecked")
   public NERClassifierCombiner(boolean applyNumericClassifiers,
-                               AbstractSequenceClassifier... classifiers) 
+                               AbstractSequenceClassifier<? extends CoreMap>... classifiers) 
     throws FileNotFoundException 
   {
     super(classifiers);
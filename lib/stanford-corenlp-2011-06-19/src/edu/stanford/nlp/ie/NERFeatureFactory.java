@@ -81,6 +81,7 @@ import edu.stanford.nlp.process.WordShapeClassifier;
 import edu.stanford.nlp.sequences.Clique;
 import edu.stanford.nlp.sequences.CoNLLDocumentReaderAndWriter;
 import edu.stanford.nlp.sequences.FeatureFactory;
+import edu.stanford.nlp.sequences.FeatureHasher;
 import edu.stanford.nlp.sequences.SeqClassifierFlags;
 import edu.stanford.nlp.trees.TreeCoreAnnotations;
 import edu.stanford.nlp.util.PaddedList;
@@ -563,7 +564,17 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
 
   private Map<String,Collection<String>> wordToSubstrings = new HashMap<String,Collection<String>>();
 
-  public void clearMemory() {
+  // the n-gram cache is the one thing classifying writes to, and one
+  // classifier may label several sentences at once (see NERCombinerAnnotator)
+  private synchronized Collection<String> cachedNGrams(String word) {
+    return wordToSubstrings.get(word);
+  }
+
+  private synchronized void cacheNGrams(String word, Collection<String> subs) {
+    wordToSubstrings.put(word, subs);
+  }
+
+  public synchronized void clearMemory() {
     wordToSubstrings = new HashMap<String,Collection<String>>();
     lexicon = null;
   }
@@ -760,20 +771,47 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
   private HashSet<Class<? extends GenericAnnotation<?>>> genericAnnotationKeys; // = null; //cache which keys are generic annotations so we don't have to do too many instanceof checks
 
   @SuppressWarnings({"unchecked", "SuspiciousMethodCalls"})
-  private void makeGenericKeyCache(CoreLabel c) {
-    genericAnnotationKeys = new HashSet<Class<? extends GenericAnnotation<?>>>();
+  private synchronized void makeGenericKeyCache(CoreLabel c) {
+    if (genericAnnotationKeys != null) {
+      return;
+    }
+    HashSet<Class<? extends GenericAnnotation<?>>> keys = new HashSet<Class<? extends GenericAnnotation<?>>>();
     for (Class<?> key : c.keySet()) {
       if (CoreLabel.genericValues.containsKey(key)) {
         Class<? extends GenericAnnotation<?>> genKey = (Class<? extends GenericAnnotation<?>>) key;
-        genericAnnotationKeys.add(genKey);
+        keys.add(genKey);
       }
     }
+    genericAnnotationKeys = keys;
   }
 
   private HashSet<String> lastNames; // = null;
   private HashSet<String> maleNames; // = null;
   private HashSet<String> femaleNames; // = null;
 
+  /** Loads the name lists on first use; femaleNames is set last, once all are loaded */
+  private synchronized void loadNameLists() {
+    if (femaleNames != null) {
+      return;
+    }
+    lastNames = new HashSet<String>();
+    for (String line : ObjectBank.getLineIterator(flags.lastNameList)) {
+      String[] cols = line.split("\\s+");
+      lastNames.add(cols[0]);
+    }
+    maleNames = new HashSet<String>();
+    for (String line : ObjectBank.getLineIterator(flags.maleNameList)) {
+      String[] cols = line.split("\\s+");
+      maleNames.add(cols[0]);
+    }
+    HashSet<String> names = new HashSet<String>();
+    for (String line : ObjectBank.getLineIterator(flags.femaleNameList)) {
+      String[] cols = line.split("\\s+");
+      names.add(cols[0]);
+    }
+    femaleNames = names;
+  }
+
   private final Pattern titlePattern = Pattern.compile("(Mr|Ms|Mrs|Dr|Miss|Sen|Judge|Sir)\\.?"); // todo: should make static final and add more titles
 
 
@@ -856,27 +894,8 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
 
       if (flags.checkNameList) {
         try {
-          if (lastNames == null) {
-            lastNames = new HashSet<String>();
-
-            for (String line : ObjectBank.getLineIterator(flags.lastNameList)) {
-              String[] cols = line.split("\\s+");
-              lastNames.add(cols[0]);
-            }
-          }
-          if (maleNames == null) {
-            maleNames = new HashSet<String>();
-            for (String line : ObjectBank.getLineIterator(flags.maleNameList)) {
-              String[] cols = line.split("\\s+");
-              maleNames.add(cols[0]);
-            }
-          }
           if (femaleNames == null) {
-            femaleNames = new HashSet<String>();
-            for (String line : ObjectBank.getLineIterator(flags.femaleNameList)) {
-              String[] cols = line.split("\\s+");
-              femaleNames.add(cols[0]);
-            }
+            loadNameLists();
           }
 
           String name = cWord.toUpperCase();
@@ -1215,7 +1234,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
 
       if (flags.useNGrams) {
-        Collection<String> subs = wordToSubstrings.get(cWord);
+        Collection<String> subs = flags.cacheNGrams ? cachedNGrams(cWord) : null;
         if (subs == null) {
           subs = new ArrayList<String>();
           String word = '<' + cWord + '>';
@@ -1240,7 +1259,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
             }
           }
           if (flags.cacheNGrams) {
-            wordToSubstrings.put(cWord, subs);
+            cacheNGrams(cWord, subs);
           }
         }
         featuresC.addAll(subs);
@@ -1371,7 +1390,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
       }
 
       if (flags.useNGrams) {
-        Collection<String> subs = wordToSubstrings.get(cWord);
+        Collection<String> subs = flags.cacheNGrams ? cachedNGrams(cWord) : null;
         if (subs == null) {
           subs = new ArrayList<String>();
           String word = '<' + cWord + '>';
@@ -1397,7 +1416,7 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
             }
           }
           if (flags.cacheNGrams) {
-            wordToSubstrings.put(cWord, subs);
+            cacheNGrams(cWord, subs);
           }
         }
         featuresC.addAll(subs);
@@ -2046,6 +2065,235 @@ public class NERFeatureFactory<IN extends CoreLabel> extends FeatureFactory<IN>
   }
 
 
+  /**
+   * Whether {@link #hashCliqueFeatures} gives the same features as
+   * {@link #getCliqueFeatures} for this document.  It does for the
+   * features of the usual distsim NER models (words, previous and next
+   * words, tags, n-grams, word shapes and their sequences, disjunctions
+   * and distsim classes) in the cliques of a model with maxLeft of at
+   * most 1; any other feature flag, a domain, or stacked NER tags mean
+   * the features have to be made as Strings.
+   */
+  public boolean canHashFeatures(List<IN> document) {
+    if ( ! (flags.useInternal && flags.useExternal) || flags.binnedLengths != null ||
+        flags.checkNameList || flags.conjoinShapeNGrams || flags.dehyphenateNGrams ||
+        flags.greekifyNGrams || flags.lowercaseNGrams || flags.twoStage || flags.use2W ||
+        flags.useABGENE || flags.useABSTR || flags.useABSTRFreq || flags.useABSTRFreqDict ||
+        flags.useAbbr || flags.useAbbr1 || flags.useBeginSent || flags.useChunks ||
+        flags.useChunkySequences || flags.useDisjShape || flags.useEitherSideDisjunctive ||
+        flags.useEitherSideWord || flags.useEntityRule || flags.useEntityTypeSequences ||
+        flags.useEntityTypes || flags.useExtraTaggySequences || flags.useFREQ ||
+        flags.useFirstWord || flags.useGENIA || flags.useGazFeatures || flags.useGazettes ||
+        flags.useGenericFeatures || flags.useHeadGov || flags.useIfInteger ||
+        flags.useIsDateRange || flags.useIsURL || flags.useLC || flags.useLemmas ||
+        flags.useMUCFeatures || flags.useMinimalAbbr || flags.useMinimalAbbr1 ||
+        flags.useMoreGazFeatures || flags.useMoreTags || flags.useNPGovernor ||
+        flags.useNPHead || flags.useNextVB || flags.useOccurrencePatterns ||
+        flags.useOrdinal || flags.useParenMatching || flags.usePosition ||
+        flags.usePrevNextLemmas || flags.usePrevVB || flags.useProtoFeatures ||
+        flags.useShapeConjunctions || flags.useSymTags || flags.useSymWordPairs ||
+        flags.useTitle || flags.useTopics || flags.useTypeSeqs3 || flags.useURLSequences ||
+        flags.useUnknown || flags.useVB || flags.useWEB || flags.useWEBFreqDict ||
+        flags.useWideDisjunctive || flags.useWordPairs || flags.useWordTag ||
+        flags.useWordnetFeatures || flags.useYetMoreCpCShapes) {
+      return false;
+    }
+    if ( ! document.isEmpty() && document.get(0).containsKey(DomainAnnotation.class)) {
+      return false;
+    }
+    for (IN fl : document) {
+      if (fl.get(StackedNamedEntityTagAnnotation.class) != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * Hashes the features that {@link #getCliqueFeatures} would make for
+   * cliqueC or cliqueCpC, without making them, into the given hasher.
+   * It should only be used for documents that {@link #canHashFeatures}
+   * accepts; the cases below follow featuresC, featuresCpC and featuresCnC.
+   */
+  public void hashCliqueFeatures(PaddedList<IN> cInfo, int loc, Clique clique, FeatureHasher h) {
+    if (clique == cliqueC) {
+      h.setSuffix("C");
+      hashFeaturesC(cInfo, loc, h);
+    } else if (clique == cliqueCpC) {
+      h.setSuffix("CpC");
+      hashFeaturesCpC(cInfo, loc, h);
+      h.setSuffix("CnC");
+      hashFeaturesCnC(cInfo, loc-1, h);
+    } else {
+      throw new IllegalArgumentException("Features of clique " + clique + " cannot be hashed");
+    }
+  }
+
+  private void hashFeaturesC(PaddedList<IN> cInfo, int loc, FeatureHasher h) {
+    CoreLabel c = cInfo.get(loc);
+    CoreLabel n = cInfo.get(loc + 1);
+    CoreLabel n2 = cInfo.get(loc + 2);
+    CoreLabel p = cInfo.get(loc - 1);
+    CoreLabel p2 = cInfo.get(loc - 2);
+
+    String cWord = c.getString(TextAnnotation.class);
+    String pWord = p.getString(TextAnnotation.class);
+    String nWord = n.getString(TextAnnotation.class);
+    String cShape = c.getString(ShapeAnnotation.class);
+
+    if (flags.useDistSim) {
+      distSimAnnotate(cInfo);
+      h.begin().add(c.get(DistSimAnnotation.class)).add("-DISTSIM").end();
+    }
+
+    if (flags.useWord) {
+      h.begin().add(cWord).add("-WORD").end();
+    }
+    if (flags.useTags) {
+      h.begin().add(c.getString(PartOfSpeechAnnotation.class)).add("-TAG").end();
+    }
+
+    if (flags.usePrev) {
+      h.begin().add(pWord).add("-PW").end();
+      if (flags.useTags) {
+        h.begin().add(p.getString(PartOfSpeechAnnotation.class)).add("-PTAG").end();
+      }
+      if (flags.useDistSim) {
+        h.begin().add(p.get(DistSimAnnotation.class)).add("-PDISTSIM").end();
+      }
+    }
+    if (flags.useNext) {
+      h.begin().add(nWord).add("-NW").end();
+      if (flags.useTags) {
+        h.begin().add(n.getString(PartOfSpeechAnnotation.class)).add("-NTAG").end();
+      }
+      if (flags.useDistSim) {
+        h.begin().add(n.get(DistSimAnnotation.class)).add("-NDISTSIM").end();
+      }
+    }
+
+    if (flags.useClassFeature) {
+      h.begin().add("###").end();
+    }
+
+    if (flags.useNGrams) {
+      // the n-grams of '<' + cWord + '>', without making that String
+      int len = cWord.length() + 2;
+      for (int i = 0; i < len; i++) {
+        for (int j = i + 2; j <= len; j++) {
+          if (flags.noMidNGrams && i != 0 && j != len) {
+            continue;
+          }
+          if (flags.maxNGramLeng >= 0 && j - i > flags.maxNGramLeng) {
+            continue;
+          }
+          h.begin().add('#');
+          if (i == 0) {
+            h.add('<');
+          }
+          h.add(cWord, Math.max(i - 1, 0), Math.min(j - 1, len - 2));
+          if (j == len) {
+            h.add('>');
+          }
+          h.add('#').end();
+        }
+      }
+    }
+
+    if ((flags.wordShape > WordShapeClassifier.NOWORDSHAPE) || (flags.useShapeStrings)) {
+      h.begin().add(cShape).add("-TYPE").end();
+      if (flags.useTypeSeqs) {
+        String pShape = p.get(ShapeAnnotation.class);
+        String nShape = n.get(ShapeAnnotation.class);
+        h.begin().add(pShape).add("-PTYPE").end();
+        h.begin().add(nShape).add("-NTYPE").end();
+        h.begin().add(pWord).add("...").add(cShape).add("-PW_CTYPE").end();
+        h.begin().add(cShape).add("...").add(nWord).add("-NW_CTYPE").end();
+        h.begin().add(pShape).add("...").add(cShape).add("-PCTYPE").end();
+        h.begin().add(cShape).add("...").add(nShape).add("-CNTYPE").end();
+        h.begin().add(pShape).add("...").add(cShape).add("...").add(nShape).add("-PCNTYPE").end();
+      }
+    }
+
+    if (flags.useLastRealWord && pWord.length() <= 3) {
+      h.begin().add(p2.getString(TextAnnotation.class)).add("...").add(cShape).add("-PPW_CTYPE").end();
+    }
+    if (flags.useNextRealWord && nWord.length() <= 3) {
+      h.begin().add(n2.getString(TextAnnotation.class)).add("...").add(cShape).add("-NNW_CTYPE").end();
+    }
+
+    if (flags.useDisjunctive) {
+      for (int i = 1; i <= flags.disjunctionWidth; i++) {
+        String dn = cInfo.get(loc + i).getString(TextAnnotation.class);
+        String dp = cInfo.get(loc - i).getString(TextAnnotation.class);
+        h.begin().add(dn).add("-DISJN").end();
+        if (flags.useDisjunctiveShapeInteraction) {
+          h.begin().add(dn).add('-').add(cShape).add("-DISJN-CS").end();
+        }
+        h.begin().add(dp).add("-DISJP").end();
+        if (flags.useDisjunctiveShapeInteraction) {
+          h.begin().add(dp).add('-').add(cShape).add("-DISJP-CS").end();
+        }
+      }
+    }
+  }
+
+  private void hashFeaturesCpC(PaddedList<IN> cInfo, int loc, FeatureHasher h) {
+    CoreLabel c = cInfo.get(loc);
+    CoreLabel n = cInfo.get(loc + 1);
+    CoreLabel p = cInfo.get(loc - 1);
+
+    String cWord = c.getString(TextAnnotation.class);
+    String pWord = p.getString(TextAnnotation.class);
+    String cDS = c.getString(DistSimAnnotation.class);
+    String pDS = p.getString(DistSimAnnotation.class);
+    String cShape = c.getString(ShapeAnnotation.class);
+    String pShape = p.getString(ShapeAnnotation.class);
+    boolean useShapes = (flags.wordShape > WordShapeClassifier.NOWORDSHAPE) || flags.useShapeStrings;
+
+    if (flags.usePrev && flags.useSequences && flags.usePrevSequences) {
+      h.begin().add("PSEQ").end();
+      h.begin().add(cWord).add("-PSEQW").end();
+      h.begin().add(pWord).add('-').add(cWord).add("-PSEQW2").end();
+      h.begin().add(pWord).add("-PSEQpW").end();
+      h.begin().add(pDS).add("-PSEQpDS").end();
+      h.begin().add(cDS).add("-PSEQcDS").end();
+      h.begin().add(pDS).add('-').add(cDS).add("-PSEQpcDS").end();
+      if (useShapes) {
+        h.begin().add(pShape).add("-PSEQpS").end();
+        h.begin().add(cShape).add("-PSEQcS").end();
+        h.begin().add(pShape).add('-').add(cShape).add("-PSEQpcS").end();
+      }
+    }
+
+    if (useShapes && flags.useTypeSeqs && flags.useTypeSeqs2) {
+      h.begin().add(pShape).add('-').add(cShape).add("-TYPES").end();
+    }
+
+    if (flags.useTypeySequences) {
+      h.begin().add(c.get(ShapeAnnotation.class)).add("-TPS2").end();
+      h.begin().add(n.get(ShapeAnnotation.class)).add("-TNS1").end();
+    }
+
+    if (flags.useTaggySequences) {
+      if (flags.useTags) {
+        h.begin().add(p.getString(PartOfSpeechAnnotation.class)).add('-').add(c.getString(PartOfSpeechAnnotation.class)).add("-TS").end();
+      }
+      if (flags.useDistSim) {
+        h.begin().add(p.get(DistSimAnnotation.class)).add('-').add(c.get(DistSimAnnotation.class)).add("-DISTSIM_TS1").end();
+      }
+    }
+  }
+
+  private void hashFeaturesCnC(PaddedList<IN> cInfo, int loc, FeatureHasher h) {
+    if (flags.useNext && flags.useSequences && flags.useNextSequences) {
+      h.begin().add("NSEQ").end();
+      h.begin().add(cInfo.get(loc).getString(TextAnnotation.class)).add("-NSEQW").end();
+    }
+  }
+
+
   int reverse(int i) {
     return (flags.useReverse ? -1 * i : i);
   }
@@ -47,7 +47,13 @@ public class QuantifiableEntityNormalizer {
 
   private static final Pattern moneyPattern = Pattern.compile("([$\u00A3\u00A5\u20AC#]?)(-?[0-9,]*)(\\.[0-9]*)?+");
   private static final Pattern scorePattern = Pattern.compile(" *([0-9]+) *- *([0-9]+) *");
-  private static final EditDistance ed = new EditDistance();
+  // EditDistance keeps its score table between calls, so each NER thread gets its own
+  private static final ThreadLocal<EditDistance> ed = new ThreadLocal<EditDistance>() {
+    @Override
+    protected EditDistance initialValue() {
+      return new EditDistance();
+    }
+  };
 
 
   //Collections of entity types
@@ -226,7 +232,7 @@ public class QuantifiableEntityNormalizer {
     if(word.equalsIgnoreCase(match))
       return true;
     if(match.length() > 3) {
-      if(ed.score(word, match) <= 1)
+      if(ed.get().score(word, match) <= 1)
         return true;
     }
     return false;
@@ -32,6 +32,7 @@ import edu.stanford.nlp.io.IOUtils;
 import edu.stanford.nlp.ling.CoreAnnotations.AnswerAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.TextAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.math.ArrayMath;
 import edu.stanford.nlp.maxent.Convert;
 import edu.stanford.nlp.objectbank.ObjectBank;
@@ -126,6 +127,9 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
   double[][] weights;
   Index<String> featureIndex;
   int[] map;  // caches the featureIndex
+  /** Hashes of the features in featureIndex, made when first needed if flags.hashFeatures is set;
+   *  not usable if two of the features share a hash, which turns hashing off for that featureIndex */
+  private volatile FeatureHashIndex featureHashIndex;
 
   /** Name of default serialized classifier resource to look for in a jar file.
    */
@@ -401,6 +405,12 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
    *         and the second element is an int[] representing the labels
    */
   public Pair<int[][][],int[]> documentToDataAndLabels(List<IN> document) {
+    if (flags.hashFeatures && canHashFeatures(document)) {
+      FeatureHashIndex hashIndex = featureHashIndex();
+      if (hashIndex != null) {
+        return hashedDocumentToDataAndLabels(document, hashIndex);
+      }
+    }
 
     int docSize = document.size();
     // first index is position in the document also the index of the clique/factor table
@@ -458,6 +468,96 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
     return new Pair<int[][][],int[]>(data, labels);
   }
 
+  /**
+   * Whether the features of this document can be found by hashing, without
+   * making their Strings: the feature factory must be able to hash all of
+   * them, and the window may only hold cliqueC and cliqueCpC.
+   */
+  private boolean canHashFeatures(List<IN> document) {
+    NERFeatureFactory<CoreLabel> ner = nerFeatureFactory();
+    return ner != null && windowSize <= 2 && flags.printFeatures == null &&
+        ner.canHashFeatures(asCoreLabels(document));
+  }
+
+  /** The feature factory if it is a NERFeatureFactory, or else null. */
+  @SuppressWarnings("unchecked")
+  private NERFeatureFactory<CoreLabel> nerFeatureFactory() {
+    if (featureFactory instanceof NERFeatureFactory) {
+      return (NERFeatureFactory<CoreLabel>) (FeatureFactory<?>) featureFactory;
+    }
+    return null;
+  }
+
+  /** A NERFeatureFactory only makes features of CoreLabels, so the
+   *  documents it is given hold CoreLabels whatever IN is.
+   */
+  @SuppressWarnings("unchecked")
+  private static List<CoreLabel> asCoreLabels(List<? extends CoreMap> document) {
+    return (List<CoreLabel>) (List<?>) document;
+  }
+
+  /** Returns the feature hashes for the current featureIndex, making them if
+   *  need be, or null if two features share a hash (which turns hashing off
+   *  until featureIndex changes).
+   */
+  private FeatureHashIndex featureHashIndex() {
+    FeatureHashIndex hashIndex = featureHashIndex;
+    if (hashIndex == null || ! hashIndex.isFor(featureIndex)) {
+      synchronized (this) {
+        hashIndex = featureHashIndex;
+        if (hashIndex == null || ! hashIndex.isFor(featureIndex)) {
+          hashIndex = FeatureHashIndex.build(featureIndex);
+          if ( ! hashIndex.isUsable()) {
+            System.err.println("CRFClassifier: two features have the same hash; not hashing features");
+          }
+          featureHashIndex = hashIndex;
+        }
+      }
+    }
+    return hashIndex.isUsable() ? hashIndex : null;
+  }
+
+  /**
+   * Does what {@link #documentToDataAndLabels} does, but finds the indices of
+   * features by hashing them as the feature factory goes, so that no feature
+   * Strings are made.  The features of each position are the same, though
+   * they may be listed in another order.
+   */
+  private Pair<int[][][],int[]> hashedDocumentToDataAndLabels(List<IN> document, FeatureHashIndex hashIndex) {
+    NERFeatureFactory<CoreLabel> ner = nerFeatureFactory();
+    int docSize = document.size();
+    int[][][] data = new int[docSize][windowSize][];
+    int[] labels = new int[docSize];
+
+    if (flags.useReverse) {
+      Collections.reverse(document);
+    }
+
+    // as in makeDatum
+    if ( ! flags.backgroundSymbol.equals(pad.get(AnswerAnnotation.class))) {
+      pad.set(AnswerAnnotation.class, flags.backgroundSymbol);
+    }
+    PaddedList<CoreLabel> pInfo = new PaddedList<CoreLabel>(asCoreLabels(document), (CoreLabel) pad);
+    // getCliques(k, 0), less the cliques of smaller k, for each k < windowSize
+    Clique[] windowCliques = { FeatureFactory.cliqueC, FeatureFactory.cliqueCpC };
+    FeatureHasher hasher = new FeatureHasher(hashIndex);
+
+    for (int j = 0; j < docSize; j++) {
+      for (int k = 0; k < windowSize; k++) {
+        ner.hashCliqueFeatures(pInfo, j, windowCliques[k], hasher);
+        data[j][k] = hasher.indices();
+      }
+      IN wi = document.get(j);
+      labels[j] = classIndex.indexOf(wi.get(AnswerAnnotation.class));
+    }
+
+    if (flags.useReverse) {
+      Collections.reverse(document);
+    }
+
+    return new Pair<int[][][],int[]>(data, labels);
+  }
+
 
   public void printLabelInformation(String testFile) throws Exception {
     ObjectBank<List<IN>> documents = makeObjectBankFromFile(testFile);
@@ -786,7 +886,11 @@ public class CRFClassifier<IN extends CoreMap> extends AbstractSequenceClassifie
    *  @return The constructed CRFDatum
    */
   public CRFDatum<List<String>,CRFLabel> makeDatum(List<IN> info, int loc, edu.stanford.nlp.sequences.FeatureFactory<IN> featureFactory) {
-    pad.set(AnswerAnnotation.class, flags.backgroundSymbol);
+    // the pad is shared by every sentence being labeled, so only write it
+    // when it needs changing
+    if ( ! flags.backgroundSymbol.equals(pad.get(AnswerAnnotation.class))) {
+      pad.set(AnswerAnnotation.class, flags.backgroundSymbol);
+    }
     PaddedList<IN> pInfo = new PaddedList<IN>(info, pad);
 
     ArrayList<List<String>> features = new ArrayList<List<String>>();
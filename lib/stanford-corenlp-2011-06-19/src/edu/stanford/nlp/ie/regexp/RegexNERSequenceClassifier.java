@@ -11,8 +11,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Properties;
 
@@ -43,12 +45,24 @@ import edu.stanford.nlp.ling.CoreAnnotations.NamedEntityTagAnnotation;
  * separate regular expression tokens; within tokens \\s should be used instead. Genitives and commas
  * at the end of words should be tokenized in the input file.
  *
+ * Most entries of a large gazetteer are plain phrases rather than regular expressions.  These are
+ * kept in a trie over tokens, so that finding them costs about the same however many entries there
+ * are; only the entries that really are regular expressions are tried at every position of the
+ * document.  The matches are then labeled in the same order, with the same checks, as if every entry
+ * had been tried in turn.
+ *
  * @author jtibs
  * @author Mihai
  *
  */
 public class RegexNERSequenceClassifier extends AbstractSequenceClassifier<CoreLabel> {
   private List<Entry> entries;
+
+  /** The positions in entries of the entries that are regular expressions */
+  private int[] regexEntries;
+
+  /** The entries that are plain phrases, by their words */
+  private TrieNode phrases;
   
   /** 
    * If true, it overwrites NE labels generated through this regex NER 
@@ -70,6 +84,7 @@ public class RegexNERSequenceClassifier extends AbstractSequenceClassifier<CoreL
   public RegexNERSequenceClassifier(String mapping, boolean ignoreCase, boolean overwriteMyLabels) {
     super(new Properties());
     entries = readEntries(mapping, ignoreCase);
+    indexEntries();
     this.ignoreCase = ignoreCase;
     this.overwriteMyLabels = overwriteMyLabels;
     myLabels = new HashSet<String>();
@@ -80,13 +95,15 @@ public class RegexNERSequenceClassifier extends AbstractSequenceClassifier<CoreL
   }
 
   private static class Entry implements Comparable<Entry> {
-    public List<Pattern> regex; // the regex, tokenized by splitting on white space
+    public List<Pattern> regex; // the regex, tokenized by splitting on white space; null for a phrase
+    public String[] words; // the words of a phrase, which is a regex matching only these words; or null
     public String type; // the associated type
     public Set<String> overwritableTypes;
     public double priority;
 
-    public Entry(List<Pattern> regex, String type, Set<String> overwritableTypes, double priority) {
+    public Entry(List<Pattern> regex, String[] words, String type, Set<String> overwritableTypes, double priority) {
       this.regex = regex;
+      this.words = words;
       this.type = type.intern();
       this.overwritableTypes = overwritableTypes;
       this.priority = priority;
@@ -99,7 +116,49 @@ public class RegexNERSequenceClassifier extends AbstractSequenceClassifier<CoreL
         return -1;
       if (this.priority < other.priority)
         return 1;
-      return other.regex.size() - this.regex.size();
+      return other.length() - this.length();
+    }
+
+    /** The number of tokens the entry matches */
+    public int length() {
+      return (words != null) ? words.length : regex.size();
+    }
+  }
+
+  /** A node of the trie of phrases.  Most nodes have one child, which is kept without a Map. */
+  private static class TrieNode {
+    private static final int[] NO_ENTRIES = new int[0];
+
+    private String onlyWord;
+    private TrieNode onlyChild;
+    private Map<String, TrieNode> children; // made when a second child is added
+
+    /** The positions in entries of the phrases that end here */
+    public int[] entries = NO_ENTRIES;
+
+    public TrieNode next(String word) {
+      if (children != null) return children.get(word);
+      if (onlyChild != null && onlyWord.equals(word)) return onlyChild;
+      return null;
+    }
+
+    public TrieNode add(String word) {
+      TrieNode child = next(word);
+      if (child != null) return child;
+      child = new TrieNode();
+      if (onlyChild == null && children == null) {
+        onlyWord = word;
+        onlyChild = child;
+      } else {
+        if (children == null) {
+          children = new HashMap<String, TrieNode>();
+          children.put(onlyWord, onlyChild);
+          onlyWord = null;
+          onlyChild = null;
+        }
+        children.put(word, child);
+      }
+      return child;
     }
   }
   
@@ -120,29 +179,81 @@ public class RegexNERSequenceClassifier extends AbstractSequenceClassifier<CoreL
 
   @Override
   public List<CoreLabel> classify(List<CoreLabel> document) {
-    for (Entry entry : entries) {
-      int start = 0; // the index of the token from which we begin our search each iteration
-
-      while (true) {
-        // only search the part of the document that we haven't yet considered
-        // System.err.println("REGEX FIND MATCH FOR " + entry.regex.toString());
-        start = findStartIndex(entry, document, start, myLabels);
-        if (start == -1) break; // no match found
-
-        // if case insensitive, make sure we annotate only valid POS tags
-        if(! ignoreCase || containsValidPos(document, start, start + entry.regex.size())) {
-          // annotate each matching token
-          for (int i = start; i < start + entry.regex.size(); i++) {
-            CoreLabel token = document.get(i);
-            token.set(AnswerAnnotation.class, entry.type);
+    // The entries are tried in order, as if each was searched for in the whole document.  Only the
+    // regular expressions are, though: a phrase can only match where the trie found it.
+    long[] found = findPhrases(document);
+    int next = 0; // the next of the phrases found
+    int r = 0; // the next of the regular expressions
+    while (next < found.length || r < regexEntries.length) {
+      int e = (next < found.length) ? (int) (found[next] >>> 32) : Integer.MAX_VALUE;
+      if (r < regexEntries.length && regexEntries[r] < e) {
+        e = regexEntries[r++];
+        Entry entry = entries.get(e);
+        int start = 0; // the index of the token from which we begin our search each iteration
+
+        while (true) {
+          // only search the part of the document that we haven't yet considered
+          // System.err.println("REGEX FIND MATCH FOR " + entry.regex.toString());
+          start = findStartIndex(entry, document, start, myLabels);
+          if (start == -1) break; // no match found
+          annotate(entry, document, start);
+          start++;
+        }
+      } else {
+        Entry entry = entries.get(e);
+        // the places where this phrase was found, from left to right
+        for ( ; next < found.length && (int) (found[next] >>> 32) == e; next++) {
+          int start = (int) found[next];
+          if (canLabel(entry, document, start, myLabels)) {
+            annotate(entry, document, start);
           }
-        } 
-        start++;
+        }
       }
     }
     return document;
   }
 
+  private void annotate(Entry entry, List<CoreLabel> document, int start) {
+    // if case insensitive, make sure we annotate only valid POS tags
+    if(! ignoreCase || containsValidPos(document, start, start + entry.length())) {
+      // annotate each matching token
+      for (int i = start; i < start + entry.length(); i++) {
+        CoreLabel token = document.get(i);
+        token.set(AnswerAnnotation.class, entry.type);
+      }
+    }
+  }
+
+  /**
+   * Finds every place in the document where a phrase entry matches the words.
+   *
+   * @return The places, each as the position of the entry in entries (in the high 32 bits) and the
+   *     index of the first token, sorted so that the entries come in order and the places of each
+   *     entry from left to right
+   */
+  private long[] findPhrases(List<CoreLabel> document) {
+    long[] found = new long[16];
+    int size = 0;
+    String[] words = new String[document.size()];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = phraseWord(document.get(i).word(), ignoreCase);
+    }
+    for (int start = 0; start < words.length; start++) {
+      TrieNode node = phrases;
+      for (int i = start; i < words.length; i++) {
+        node = node.next(words[i]);
+        if (node == null) break;
+        for (int e : node.entries) {
+          if (size == found.length) found = Arrays.copyOf(found, 2 * size);
+          found[size++] = ((long) e << 32) | start;
+        }
+      }
+    }
+    found = Arrays.copyOf(found, size);
+    Arrays.sort(found);
+    return found;
+  }
+
   public void train(Collection<List<CoreLabel>> docs) {}
 
   public void printProbsDocument(List<CoreLabel> document) {}
@@ -186,13 +297,23 @@ public class RegexNERSequenceClassifier extends AbstractSequenceClassifier<CoreL
         if (split.length == 4)
           priority = Double.parseDouble(split[3].trim());
 
-        List<Pattern> tokens = new ArrayList<Pattern>();
-        for (String str : regexes) {
-          if(ignoreCase) tokens.add(Pattern.compile(str, Pattern.CASE_INSENSITIVE));
-          else tokens.add(Pattern.compile(str));
+        // a plain phrase is only looked up in the trie, so it needs no Patterns
+        String[] words = new String[regexes.length];
+        for (int i = 0; i < regexes.length && words != null; i++) {
+          String word = literal(regexes[i]);
+          if (word == null) words = null;
+          else words[i] = phraseWord(word, ignoreCase);
+        }
+        List<Pattern> tokens = null;
+        if (words == null) {
+          tokens = new ArrayList<Pattern>();
+          for (String str : regexes) {
+            if(ignoreCase) tokens.add(Pattern.compile(str, Pattern.CASE_INSENSITIVE));
+            else tokens.add(Pattern.compile(str));
+          }
         }
 
-        entries.add(new Entry(tokens, type, overwritableTypes, priority));
+        entries.add(new Entry(tokens, words, type, overwritableTypes, priority));
       }
       rd.close();
       is.close();
@@ -204,6 +325,68 @@ public class RegexNERSequenceClassifier extends AbstractSequenceClassifier<CoreL
     return entries;
   }
 
+  /**
+   * Puts the phrases in the trie and notes which entries are regular expressions.
+   * Must be called after the entries are sorted.
+   */
+  private void indexEntries() {
+    phrases = new TrieNode();
+    int[] regexes = new int[entries.size()];
+    int n = 0;
+    for (int e = 0; e < entries.size(); e++) {
+      Entry entry = entries.get(e);
+      if (entry.words == null) {
+        regexes[n++] = e;
+      } else {
+        TrieNode node = phrases;
+        for (String word : entry.words) {
+          node = node.add(word);
+        }
+        node.entries = Arrays.copyOf(node.entries, node.entries.length + 1);
+        node.entries[node.entries.length - 1] = e;
+      }
+    }
+    regexEntries = Arrays.copyOf(regexes, n);
+  }
+
+  /**
+   * Returns the one String a regex token matches, or null if it can match anything else (or if it
+   * is too hard to tell).  Backslashes before characters that are not letters or digits are
+   * escapes; any other use of a character that means something in a regex makes it a real regex.
+   */
+  private static String literal(String regex) {
+    StringBuilder sb = new StringBuilder(regex.length());
+    for (int i = 0; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        if (++i == regex.length()) return null;
+        c = regex.charAt(i);
+        if (Character.isLetterOrDigit(c)) return null; // \s, \d, \Q, \1, ...
+      } else if ("[](){}.*+?^$|".indexOf(c) >= 0) {
+        return null;
+      }
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns the word as it is kept in the trie.  When case is ignored, ASCII letters are lowercased,
+   * since a CASE_INSENSITIVE Pattern ignores the case of ASCII letters only.
+   */
+  private static String phraseWord(String word, boolean ignoreCase) {
+    if (! ignoreCase || word == null) return word;
+    char[] chars = null;
+    for (int i = 0; i < word.length(); i++) {
+      char c = word.charAt(i);
+      if (c >= 'A' && c <= 'Z') {
+        if (chars == null) chars = word.toCharArray();
+        chars[i] = (char) (c + ('a' - 'A'));
+      }
+    }
+    return (chars == null) ? word : new String(chars);
+  }
+
   /**
    * Checks if the entry's regex sequence is contained in the tokenized document, starting the search
    * from index searchStart. Also requires that each token's current NER-type be overwritable,
@@ -219,14 +402,9 @@ public class RegexNERSequenceClassifier extends AbstractSequenceClassifier<CoreL
       for (int i = 0; i < regex.size(); i++) {
         Pattern pattern = regex.get(i);
         CoreLabel token = document.get(start + i);
-        String NERType = token.get(NamedEntityTagAnnotation.class);
-        String currentType = token.get(AnswerAnnotation.class);
 
         if (! pattern.matcher(token.word()).matches() || 
-            currentType != null ||
-            ! (entry.overwritableTypes.contains(NERType) ||
-               myLabels.contains(NERType) ||
-               NERType.equals("O"))) {
+            ! canLabel(entry, token, myLabels)) {
           failed = true;
           break;
         }
@@ -240,4 +418,28 @@ public class RegexNERSequenceClassifier extends AbstractSequenceClassifier<CoreL
     }
     return -1;
   }
+
+  /**
+   * Checks that each token from start on may get the type of the entry, as findStartIndex does for
+   * a phrase that is known to match the words there.
+   */
+  private static boolean canLabel(Entry entry, List<CoreLabel> document, int start, Set<String> myLabels) {
+    for (int i = start; i < start + entry.length(); i++) {
+      if (! canLabel(entry, document.get(i), myLabels)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Checks that the token has not yet been Answer-annotated and that its current NER-type is
+   * overwritable.
+   */
+  private static boolean canLabel(Entry entry, CoreLabel token, Set<String> myLabels) {
+    String NERType = token.get(NamedEntityTagAnnotation.class);
+    String currentType = token.get(AnswerAnnotation.class);
+    return currentType == null &&
+        (entry.overwritableTypes.contains(NERType) ||
+         myLabels.contains(NERType) ||
+         NERType.equals("O"));
+  }
 }
@@ -500,19 +500,20 @@ public class BaseLexicon implements Lexicon {
     // both actual
     double c_TW = seenCounter.getCount(iTW);
     // double x_TW = xferCounter.getCount(iTW);
-    iTW.tag = nullTag;
+    // the other counts are looked up with a scratch IntTaggedWord rather
+    // than by mutating iTW, which may be shared with other parsing threads
+    IntTaggedWord temp = new IntTaggedWord(word, nullTag);
     // word counts
-    double c_W = seenCounter.getCount(iTW);
-    // double x_W = xferCounter.getCount(iTW);
-    iTW.word = nullWord;
+    double c_W = seenCounter.getCount(temp);
+    // double x_W = xferCounter.getCount(temp);
+    temp.word = nullWord;
     // totals
-    double total = seenCounter.getCount(iTW);
-    double totalUnseen = uwModel.unSeenCounter().getCount(iTW);
-    iTW.tag = tag;
+    double total = seenCounter.getCount(temp);
+    double totalUnseen = uwModel.unSeenCounter().getCount(temp);
+    temp.tag = tag;
     // tag counts
-    double c_T = seenCounter.getCount(iTW);
-    double c_Tunseen = uwModel.unSeenCounter().getCount(iTW);
-    iTW.word = word;
+    double c_T = seenCounter.getCount(temp);
+    double c_Tunseen = uwModel.unSeenCounter().getCount(temp);
 
     double pb_W_T; // always set below
 
@@ -37,6 +37,10 @@ public class BinaryGrammar implements Serializable, Iterable<BinaryRule> {
     return allRules.size();
   }
 
+  public int numStates() {
+    return numStates;
+  }
+
   public List<BinaryRule> rules() {
     return allRules;
   }
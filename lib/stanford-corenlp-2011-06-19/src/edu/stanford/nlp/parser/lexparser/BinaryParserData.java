@@ -0,0 +1,408 @@
+package edu.stanford.nlp.parser.lexparser;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.stanford.nlp.io.RuntimeIOException;
+import edu.stanford.nlp.stats.Counter;
+import edu.stanford.nlp.util.Numberer;
+import edu.stanford.nlp.util.Timing;
+
+
+/**
+ * Reads and writes {@link ParserData} in a flat binary format which is
+ * memory-mapped when it is read.  Unlike a serialized grammar, the bulk of
+ * the file is plain arrays (the Numberer string tables, the binary and unary
+ * rules, and the lexicon counts), so loading it doesn't go through Java
+ * serialization or gzip.
+ * <p>
+ * The lexicon counts of a BaseLexicon, which are the largest part of a
+ * loaded grammar, are not copied: the lexicon reads them straight from the
+ * mapped file (see {@link MappedTaggingCounter}), so their pages are shared
+ * by every JVM on the host that maps the same file.  The Numberers and the
+ * binary and unary grammars are still built as ordinary objects from the
+ * mapped arrays, since the parser's inner loops work on their rule
+ * objects; each JVM keeps its own copy of those.  (Parsers within one JVM
+ * share one ParserData; see {@link LexicalizedParser#parserQuery()}.)  The
+ * Options and the dependency grammar (and a lexicon that isn't a plain
+ * BaseLexicon) are stored as serialized objects inside the file.
+ * <p>
+ * The file layout is, in big-endian order:
+ * <pre>
+ * int magic, int version
+ * Options                    (serialized object)
+ * int n, then n Numberers:   UTF name, boolean locked, int size, size strings
+ * UTF stateSpace, int numStates
+ * int n, int[3n] (parent, left, right), float[n] binary rule scores
+ * int n, int[2n] (parent, child), float[n] unary rule scores
+ * byte lexicon kind, then either the lexicon counts or a serialized Lexicon:
+ *   seen counts, unseen counts  (each int n, padding to a multiple of 8,
+ *                               long[n] sorted keys word &lt;&lt; 32 | tag,
+ *                               double[n] counts)
+ *   int n, double[n] smoothing parameters
+ * DependencyGrammar          (serialized object, empty if none)
+ * </pre>
+ * where a string is an int byte length followed by UTF-8 bytes, and a
+ * serialized object is an int byte length followed by the object.
+ * <p>
+ * Usage: <code>java edu.stanford.nlp.parser.lexparser.BinaryParserData
+ * serializedGrammar binaryGrammar</code> converts a grammar, and
+ * <code>java edu.stanford.nlp.parser.lexparser.BinaryParserData -timeLoad
+ * grammarFile+</code> times loading grammars in either format.
+ */
+public class BinaryParserData {
+
+  private static final int MAGIC = 0x4c504244; // "LPBD"
+  private static final int VERSION = 2;
+
+  private static final byte LEXICON_COUNTS = 1;
+  private static final byte LEXICON_SERIALIZED = 2;
+
+  private BinaryParserData() {} // static methods only
+
+
+  /**
+   * Returns whether the given name is a local file in this format.  URLs
+   * and classpath resources never are, since they can't be mapped.
+   */
+  public static boolean isBinaryFile(String filename) {
+    File file = new File(filename);
+    if ( ! file.isFile() || file.length() < 8) {
+      return false;
+    }
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new FileInputStream(file));
+      return in.readInt() == MAGIC;
+    } catch (IOException e) {
+      return false;
+    } finally {
+      closeQuietly(in);
+    }
+  }
+
+
+  /**
+   * Writes the parser data to the given file.
+   * If there is an error, a RuntimeIOException is thrown.
+   */
+  public static void save(ParserData pd, String filename) {
+    DataOutputStream out = null;
+    try {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      writeObject(out, pd.pt);
+
+      out.writeInt(pd.numbs.size());
+      for (Map.Entry<String,Numberer> entry : pd.numbs.entrySet()) {
+        Numberer numberer = entry.getValue();
+        out.writeUTF(entry.getKey());
+        out.writeBoolean(numberer.isLocked());
+        int size = numberer.total();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+          Object o = numberer.object(i);
+          if ( ! (o instanceof String)) {
+            throw new IllegalArgumentException("Numberer " + entry.getKey() + " holds a " + o.getClass().getName() + "; only Strings can be written");
+          }
+          writeString(out, (String) o);
+        }
+      }
+
+      out.writeUTF(pd.bg.stateSpace());
+      out.writeInt(pd.bg.numStates());
+      List<BinaryRule> binaryRules = pd.bg.rules();
+      out.writeInt(binaryRules.size());
+      for (BinaryRule br : binaryRules) {
+        out.writeInt(br.parent);
+        out.writeInt(br.leftChild);
+        out.writeInt(br.rightChild);
+      }
+      for (BinaryRule br : binaryRules) {
+        out.writeFloat(br.score);
+      }
+      List<UnaryRule> unaryRules = pd.ug.rules();
+      out.writeInt(unaryRules.size());
+      for (UnaryRule ur : unaryRules) {
+        out.writeInt(ur.parent);
+        out.writeInt(ur.child);
+      }
+      for (UnaryRule ur : unaryRules) {
+        out.writeFloat(ur.score);
+      }
+
+      if (canWriteCounts(pd)) {
+        BaseLexicon lex = (BaseLexicon) pd.lex;
+        out.writeByte(LEXICON_COUNTS);
+        writeCounter(out, lex.seenCounter);
+        writeCounter(out, lex.getUnknownWordModel().unSeenCounter());
+        out.writeInt(lex.smooth.length);
+        for (double d : lex.smooth) {
+          out.writeDouble(d);
+        }
+      } else {
+        out.writeByte(LEXICON_SERIALIZED);
+        writeObject(out, pd.lex);
+      }
+      writeObject(out, pd.dg);
+      out.close();
+      out = null;
+    } catch (IOException e) {
+      throw new RuntimeIOException(e);
+    } finally {
+      closeQuietly(out);
+    }
+  }
+
+  /** A BaseLexicon can be rebuilt from its counts, as for a text grammar,
+   *  provided the Options build the same kind of lexicon again.
+   */
+  private static boolean canWriteCounts(ParserData pd) {
+    if (pd.lex == null || pd.lex.getClass() != BaseLexicon.class) {
+      return false;
+    }
+    Lexicon fresh = pd.pt.tlpParams.lex(pd.pt.lexOptions);
+    return fresh.getClass() == BaseLexicon.class &&
+        fresh.getUnknownWordModel() instanceof BaseUnknownWordModel &&
+        fresh.getUnknownWordModel().getClass() == pd.lex.getUnknownWordModel().getClass();
+  }
+
+
+  /**
+   * Reads parser data from a file written by {@link #save}.  As for a
+   * serialized grammar, the Numberers read are not installed globally until
+   * a parser is made from the data.
+   *
+   * @throws RuntimeIOException If the file can't be read
+   * @throws IllegalArgumentException If the file isn't in this format
+   */
+  public static ParserData load(String filename) {
+    Timing tim = new Timing();
+    System.err.print("Loading parser from binary file " + filename + " ...");
+    RandomAccessFile file = null;
+    try {
+      file = new RandomAccessFile(filename, "r");
+      FileChannel channel = file.getChannel();
+      MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buf.getInt() != MAGIC) {
+        throw new IllegalArgumentException(filename + " is not a binary parser file");
+      }
+      int version = buf.getInt();
+      if (version != VERSION) {
+        throw new IllegalArgumentException(filename + " has binary parser format version " + version + "; expected " + VERSION);
+      }
+      Options op = (Options) readObject(buf);
+
+      Map<String,Numberer> numbs = new HashMap<String,Numberer>();
+      int numNumberers = buf.getInt();
+      for (int n = 0; n < numNumberers; n++) {
+        String name = readUTF(buf);
+        boolean locked = buf.get() != 0;
+        int size = buf.getInt();
+        Numberer numberer = new Numberer();
+        for (int i = 0; i < size; i++) {
+          numberer.number(readString(buf));
+        }
+        if (locked) {
+          numberer.lock();
+        }
+        numbs.put(name, numberer);
+      }
+
+      String stateSpace = readUTF(buf);
+      int numStates = buf.getInt();
+      BinaryGrammar bg = new BinaryGrammar(numStates, stateSpace);
+      int numBinary = buf.getInt();
+      int[] binaryStates = new int[3 * numBinary];
+      buf.asIntBuffer().get(binaryStates);
+      buf.position(buf.position() + 4 * binaryStates.length);
+      float[] binaryScores = new float[numBinary];
+      buf.asFloatBuffer().get(binaryScores);
+      buf.position(buf.position() + 4 * binaryScores.length);
+      for (int i = 0, j = 0; i < numBinary; i++, j += 3) {
+        bg.addRule(new BinaryRule(binaryStates[j], binaryStates[j + 1], binaryStates[j + 2], binaryScores[i]));
+      }
+      UnaryGrammar ug = new UnaryGrammar(numStates, stateSpace);
+      int numUnary = buf.getInt();
+      int[] unaryStates = new int[2 * numUnary];
+      buf.asIntBuffer().get(unaryStates);
+      buf.position(buf.position() + 4 * unaryStates.length);
+      float[] unaryScores = new float[numUnary];
+      buf.asFloatBuffer().get(unaryScores);
+      buf.position(buf.position() + 4 * unaryScores.length);
+      for (int i = 0, j = 0; i < numUnary; i++, j += 2) {
+        ug.addRule(new UnaryRule(unaryStates[j], unaryStates[j + 1], unaryScores[i]));
+      }
+      ug.purgeRules();
+
+      Lexicon lex;
+      byte lexiconKind = buf.get();
+      if (lexiconKind == LEXICON_COUNTS) {
+        BaseLexicon baseLex = (BaseLexicon) op.tlpParams.lex(op.lexOptions);
+        baseLex.seenCounter = readCounter(buf);
+        ((BaseUnknownWordModel) baseLex.getUnknownWordModel()).unSeenCounter = readCounter(buf);
+        int numSmooth = buf.getInt();
+        baseLex.smooth = new double[numSmooth];
+        for (int i = 0; i < numSmooth; i++) {
+          baseLex.smooth[i] = buf.getDouble();
+        }
+        lex = baseLex;
+      } else if (lexiconKind == LEXICON_SERIALIZED) {
+        lex = (Lexicon) readObject(buf);
+      } else {
+        throw new IllegalArgumentException(filename + ": unknown lexicon kind " + lexiconKind);
+      }
+      DependencyGrammar dg = (DependencyGrammar) readObject(buf);
+      System.err.println(" done [" + tim.toSecondsString() + " sec].");
+      return new ParserData(lex, bg, ug, dg, numbs, op);
+    } catch (IOException e) {
+      System.err.println();
+      throw new RuntimeIOException(e);
+    } catch (ClassNotFoundException e) {
+      System.err.println();
+      throw new RuntimeException("Invalid class in file: " + filename, e);
+    } finally {
+      closeQuietly(file); // the mapping stays valid
+    }
+  }
+
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    byte[] bytes = s.getBytes("UTF-8");
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buf) throws IOException {
+    byte[] bytes = new byte[buf.getInt()];
+    buf.get(bytes);
+    return new String(bytes, "UTF-8");
+  }
+
+  /** Reads a String written by DataOutput.writeUTF (for ASCII names). */
+  private static String readUTF(ByteBuffer buf) throws IOException {
+    byte[] bytes = new byte[buf.getShort() & 0xffff];
+    buf.get(bytes);
+    return new String(bytes, "UTF-8");
+  }
+
+  private static void writeObject(DataOutputStream out, Object o) throws IOException {
+    if (o == null) {
+      out.writeInt(0);
+      return;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(bytes);
+    oos.writeObject(o);
+    oos.close();
+    out.writeInt(bytes.size());
+    bytes.writeTo(out);
+  }
+
+  private static Object readObject(ByteBuffer buf) throws IOException, ClassNotFoundException {
+    int length = buf.getInt();
+    if (length == 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buf.get(bytes);
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+    Object o = in.readObject();
+    in.close();
+    return o;
+  }
+
+  /** Writes the counts sorted by key, aligned for {@link #readCounter}. */
+  private static void writeCounter(DataOutputStream out, Counter<IntTaggedWord> counter) throws IOException {
+    List<IntTaggedWord> keys = new ArrayList<IntTaggedWord>(counter.keySet());
+    Collections.sort(keys, new Comparator<IntTaggedWord>() {
+      public int compare(IntTaggedWord a, IntTaggedWord b) {
+        long ka = MappedTaggingCounter.key(a);
+        long kb = MappedTaggingCounter.key(b);
+        return ka < kb ? -1 : (ka == kb ? 0 : 1);
+      }
+    });
+    out.writeInt(keys.size());
+    while (out.size() % 8 != 0) {
+      out.writeByte(0);
+    }
+    for (IntTaggedWord itw : keys) {
+      out.writeLong(MappedTaggingCounter.key(itw));
+    }
+    for (IntTaggedWord itw : keys) {
+      out.writeDouble(counter.getCount(itw));
+    }
+  }
+
+  /** Returns a counter that reads its keys and counts in place from buf. */
+  private static MappedTaggingCounter readCounter(ByteBuffer buf) {
+    int size = buf.getInt();
+    buf.position((buf.position() + 7) & ~7);
+    LongBuffer keys = buf.slice().asLongBuffer();
+    keys.limit(size);
+    buf.position(buf.position() + 8 * size);
+    DoubleBuffer counts = buf.slice().asDoubleBuffer();
+    counts.limit(size);
+    buf.position(buf.position() + 8 * size);
+    return new MappedTaggingCounter(keys, counts);
+  }
+
+  private static void closeQuietly(Closeable c) {
+    if (c != null) {
+      try {
+        c.close();
+      } catch (IOException e) {
+        // nothing more to do
+      }
+    }
+  }
+
+
+  /**
+   * Converts a grammar to the binary format, or times loading grammars.
+   * <p>
+   * Usage: <code>BinaryParserData grammarIn binaryGrammarOut</code> or
+   * <code>BinaryParserData -timeLoad grammarFile+</code>.  The input grammar
+   * may be serialized, text, or binary.  Timing loads each grammar three
+   * times and builds a parser from it, as StanfordCoreNLP does.
+   */
+  public static void main(String[] args) {
+    if (args.length >= 2 && args[0].equalsIgnoreCase("-timeLoad")) {
+      for (int i = 1; i < args.length; i++) {
+        for (int trial = 0; trial < 3; trial++) {
+          Runtime rt = Runtime.getRuntime();
+          rt.gc();
+          long mem = rt.totalMemory() - rt.freeMemory();
+          long start = System.currentTimeMillis();
+          LexicalizedParser lp = new LexicalizedParser(args[i]);
+          long elapsed = System.currentTimeMillis() - start;
+          rt.gc();
+          mem = rt.totalMemory() - rt.freeMemory() - mem;
+          System.out.println(args[i] + " trial " + trial + ": " + elapsed + " ms, " + (mem >> 20) + " MB retained");
+          lp = null;
+          Numberer.clearGlobalNumberers();
+        }
+      }
+    } else if (args.length == 2) {
+      ParserData pd = LexicalizedParser.getParserDataFromFile(args[0], new Options());
+      System.err.print("Writing parser in binary format to file " + args[1] + ' ');
+      save(pd, args[1]);
+      System.err.println("done.");
+    } else {
+      System.err.println("usage: java edu.stanford.nlp.parser.lexparser.BinaryParserData grammarIn binaryGrammarOut");
+      System.err.println("       java edu.stanford.nlp.parser.lexparser.BinaryParserData -timeLoad grammarFile+");
+    }
+  }
+
+}
@@ -257,15 +257,15 @@ public class EnglishUnknownWordModel extends BaseUnknownWordModel {
 
     // unknown word model for P(T|S)
 
-    iTW.word = getSignatureIndex(iTW.word, loc);
-    double c_TS = unSeenCounter.getCount(iTW);
-    iTW.tag = nullTag;
-    double c_S = unSeenCounter.getCount(iTW);
-    iTW.word = nullWord;
-    double c_U = unSeenCounter.getCount(iTW);
-    iTW.tag = tag;
-    double c_T = unSeenCounter.getCount(iTW);
-    iTW.word = word;
+    // use a scratch IntTaggedWord so that iTW is never modified
+    IntTaggedWord temp = new IntTaggedWord(getSignatureIndex(word, loc), tag);
+    double c_TS = unSeenCounter.getCount(temp);
+    temp.tag = nullTag;
+    double c_S = unSeenCounter.getCount(temp);
+    temp.word = nullWord;
+    double c_U = unSeenCounter.getCount(temp);
+    temp.tag = tag;
+    double c_T = unSeenCounter.getCount(temp);
 
     double p_T_U = c_T / c_U;
     if (unknownLevel == 0) {
@@ -297,11 +297,12 @@ public class EnglishUnknownWordModel extends BaseUnknownWordModel {
   /**
    * Returns the index of the signature of the word numbered wordIndex, where
    * the signature is the String representation of unknown word features.
-   * Caches the last signature index returned.
+   * Caches the last signature index returned.  Synchronized so that
+   * the three cache fields stay consistent when several threads parse.
    */
   // TODO: Move this out of UnknownWordModel interface; it seems like it should have just stayed a performance optimization in BaseLexicon
   @Override
-  public int getSignatureIndex(int wordIndex, int sentencePosition) {
+  public synchronized int getSignatureIndex(int wordIndex, int sentencePosition) {
     if (wordIndex == lastWordToSignaturize && sentencePosition == lastSentencePosition) {
       if (DEBUG_UWM) {
         System.err.println("Signature: cache mapped " + wordIndex + " to " + lastSignatureIndex);
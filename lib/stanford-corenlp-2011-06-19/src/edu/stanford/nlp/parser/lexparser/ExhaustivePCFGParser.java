@@ -98,6 +98,10 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
 
   protected int numStates;
   protected int arraySize = 0;
+  /** True if the current chart is larger than Test.maxChartMemory allows */
+  private boolean chartOverCap = false;
+  /** True if doInsideScores is pruning each cell to Test.pcfgBeam */
+  private boolean pruning = false;
 
   private CoreLabel getCoreLabel(int labelIndex) {
     if (originalCoreLabels[labelIndex] != null) {
@@ -301,6 +305,8 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
   }
 
   protected boolean floodTags = false;
+  /** True if the beam lost every parse of this sentence, so it is parsed without */
+  private boolean beamFailed = false;
   protected List sentence = null;
   protected Lattice lr = null;
 
@@ -318,6 +324,7 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
     if (sentence != this.sentence) {
       this.sentence = sentence;
       floodTags = false;
+      beamFailed = false;
     }
     if (Test.verbose) {
       Timing.tick("Starting pcfg parse.");
@@ -326,7 +333,7 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
       tick("Starting PCFG parse...");
     }
     length = sentence.size();
-    if (length > arraySize) {
+    if (length > arraySize || chartOverCap) {
       considerCreatingArrays(length);
     }
     int goal = stateNumberer.number(goalStr);
@@ -417,6 +424,7 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
       System.err.print("Starting insides...");
     }
     // do the inside probabilities
+    pruning = Test.pcfgBeam > 0.0 && ! beamFailed && ! Test.lengthNormalization;
     doInsideScores();
     if (Test.verbose) {
       // insideTime += Timing.tick("done.");
@@ -425,6 +433,10 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
     }
     bestScore = iScore[0][length][goal];
     boolean succeeded = hasParse();
+    if (pruning && ! succeeded) {
+      beamFailed = true; // sentence will be reparsed without the beam
+      return parse(sentence);
+    }
     if (Test.doRecovery && !succeeded && !floodTags) {
       floodTags = true; // sentence will try to reparse
       // ms: disabled message. this is annoying and it doesn't really provide much information
@@ -565,6 +577,7 @@ public class ExhaustivePCFGParser implements Scorer, KBestViterbiParser {
 
     initializeChart(lr);
 
+    pruning = false;
     doInsideScores();
     bestScore = iScore[0][length][goal];
 
@@ -789,6 +802,7 @@ oScore[split][end][br.rightChild] = totR;
    *  of length 2 or more.
    */
   void doInsideScores() {
+    List<Test.Constraint> constraints = Test.constraints();
 
     for (int diff = 2; diff <= length; diff++) {
       // usually stop one short because boundary symbol only combines
@@ -800,9 +814,9 @@ oScore[split][end][br.rightChild] = totR;
         }
         int end = start + diff;
 
-        if (Test.constraints != null) {
+        if (constraints != null) {
           boolean skip = false;
-          for (Test.Constraint c : Test.constraints) {
+          for (Test.Constraint c : constraints) {
             if ((start > c.start && start < c.end && end > c.end) || (end > c.start && end < c.end && start < c.start)) {
               skip = true;
               break;
@@ -850,9 +864,9 @@ oScore[split][end][br.rightChild] = totR;
               // find the split that can use this rule to make the max score
               for (int split = min; split <= max; split++) {
 
-                if (Test.constraints != null) {
+                if (constraints != null) {
                   boolean skip = false;
-                  for (Test.Constraint c : Test.constraints) {
+                  for (Test.Constraint c : constraints) {
                     if (((start < c.start && end >= c.end) || (start <= c.start && end > c.end)) && split > c.start && split < c.end) {
                       skip = true;
                       break;
@@ -927,7 +941,7 @@ oScore[split][end][br.rightChild] = totR;
               iScore[start][end][parentState] = bestIScore;
 
               if (spillGuts) System.err.println("Could build " + stateNumberer.object(parentState) + " from " + start + " to " + end + " score " + bestIScore);
-              if (oldIScore == Float.NEGATIVE_INFINITY) {
+              if (oldIScore == Float.NEGATIVE_INFINITY && ! pruning) {
                 if (start > narrowLExtent[end][parentState]) {
                   narrowLExtent[end][parentState] = start;
                   wideLExtent[end][parentState] = start;
@@ -987,9 +1001,9 @@ oScore[split][end][br.rightChild] = totR;
               // find the split that can use this rule to make the max score
               for (int split = min; split <= max; split++) {
 
-                if (Test.constraints != null) {
+                if (constraints != null) {
                   boolean skip = false;
-                  for (Test.Constraint c : Test.constraints) {
+                  for (Test.Constraint c : constraints) {
                     if (((start < c.start && end >= c.end) || (start <= c.start && end > c.end)) && split > c.start && split < c.end) {
                       skip = true;
                       break;
@@ -1063,7 +1077,7 @@ oScore[split][end][br.rightChild] = totR;
             if (foundBetter) { // this way of making "parentState" is better than previous
               iScore[start][end][parentState] = bestIScore;
               if (spillGuts) System.err.println("Could build " + stateNumberer.object(parentState) + " from " + start + " to " + end + " with score " + bestIScore);
-              if (oldIScore == Float.NEGATIVE_INFINITY) {
+              if (oldIScore == Float.NEGATIVE_INFINITY && ! pruning) {
                 if (start > narrowLExtent[end][parentState]) {
                   narrowLExtent[end][parentState] = start;
                   wideLExtent[end][parentState] = start;
@@ -1097,9 +1111,9 @@ oScore[split][end][br.rightChild] = totR;
           UnaryRule[] unaries = ug.closedRulesByChild(state);
           for (UnaryRule ur : unaries) {
 
-            if (Test.constraints != null) {
+            if (constraints != null) {
               boolean skip = false;
-              for (Test.Constraint c : Test.constraints) {
+              for (Test.Constraint c : constraints) {
                 if ((start == c.start && end == c.end)) {
                   String tag = (String) stateNumberer.object(ur.parent);
                   Matcher m = c.state.matcher(tag);
@@ -1135,7 +1149,7 @@ oScore[split][end][br.rightChild] = totR;
             if (foundBetter) {
               if (spillGuts) System.err.println("Could build " + stateNumberer.object(parentState) + " from " + start + " to " + end + " with score " + tot);
               iScore[start][end][parentState] = tot;
-              if (cur == Float.NEGATIVE_INFINITY) {
+              if (cur == Float.NEGATIVE_INFINITY && ! pruning) {
                 if (start > narrowLExtent[end][parentState]) {
                   narrowLExtent[end][parentState] = start;
                   wideLExtent[end][parentState] = start;
@@ -1156,11 +1170,59 @@ oScore[split][end][br.rightChild] = totR;
             } // end if foundBetter
           } // for UnaryRule r
         } // for unary rules
+        if (pruning) {
+          pruneCell(start, end);
+        }
       } // for start
     } // for diff (i.e., span)
   } // end doInsideScores()
 
 
+  /** Drops the states over [start,end) whose inside score is more than
+   *  Test.pcfgBeam below the best one there, and only then records the
+   *  extents of the states that are left.  The extents are what let the
+   *  rule loops of doInsideScores skip a child state, so a pruned state
+   *  costs nothing in the larger spans.  (While pruning, doInsideScores
+   *  leaves the extents of the cell it is filling alone; no rule over that
+   *  cell can use them.)
+   */
+  private void pruneCell(int start, int end) {
+    float[] scores = iScore[start][end];
+    float best = Float.NEGATIVE_INFINITY;
+    for (int state = 0; state < numStates; state++) {
+      if (scores[state] > best) {
+        best = scores[state];
+      }
+    }
+    float cutoff = best - (float) Test.pcfgBeam;
+    if (start == 0 && end == length) {
+      cutoff = Float.NEGATIVE_INFINITY; // the goal cell is kept whole
+    }
+    for (int state = 0; state < numStates; state++) {
+      float iS = scores[state];
+      if (iS == Float.NEGATIVE_INFINITY) {
+        continue;
+      }
+      if (iS < cutoff) {
+        scores[state] = Float.NEGATIVE_INFINITY;
+        continue;
+      }
+      if (start > narrowLExtent[end][state]) {
+        narrowLExtent[end][state] = start;
+      }
+      if (start < wideLExtent[end][state]) {
+        wideLExtent[end][state] = start;
+      }
+      if (end < narrowRExtent[start][state]) {
+        narrowRExtent[start][state] = end;
+      }
+      if (end > wideRExtent[start][state]) {
+        wideRExtent[start][state] = end;
+      }
+    }
+  }
+
+
   private void initializeChart(Lattice lr) {
     for (LatticeEdge edge : lr) {
       int start = edge.start;
@@ -2062,12 +2124,31 @@ oScore[split][end][br.rightChild] = totR;
     }
   }
 
+  /**
+   * Makes the chart arrays big enough for a sentence of the given length
+   * (the arrays are made for length + 1, to include the boundary symbol).
+   * When growing, the chart grows geometrically, so that a run of slowly
+   * lengthening sentences doesn't rebuild it every time.  The growth is
+   * limited by Test.maxChartMemory; a sentence whose chart alone is over
+   * that limit still gets a chart of exactly its size, which is shrunk
+   * again at the next parse.
+   */
   private void considerCreatingArrays(int length) {
     if (length > Test.maxLength + 1 || length >= myMaxLength) {
       throw new OutOfMemoryError("Refusal to create such large arrays.");
     } else {
+      int size = chartSize(length);
       try {
-        createArrays(length + 1);
+        try {
+          createArrays(size);
+        } catch (OutOfMemoryError e) {
+          if (size == length + 1) {
+            throw e;
+          }
+          // give up the headroom before giving up the sentence
+          size = length + 1;
+          createArrays(size);
+        }
       } catch (OutOfMemoryError e) {
         myMaxLength = length;
         if (arraySize > 0) {
@@ -2079,14 +2160,50 @@ oScore[split][end][br.rightChild] = totR;
         }
         throw e;
       }
-      arraySize = length + 1;
+      arraySize = size;
+      long cap = Test.maxChartMemory * 1024L * 1024L;
+      chartOverCap = cap > 0 && chartMemory(arraySize) > cap;
       if (Test.verbose) {
         System.err.println("Created PCFG parser arrays of size " + arraySize);
       }
     }
   }
 
+  /**
+   * Returns the chart size to allocate for a sentence of the given length.
+   */
+  private int chartSize(int length) {
+    int size = length + 1;
+    if (size > arraySize) {
+      size = Math.max(size, arraySize + arraySize / 2);
+      size = Math.min(size, Math.max(length + 1, Test.maxLength + 2));
+    }
+    long cap = Test.maxChartMemory * 1024L * 1024L;
+    if (cap > 0) {
+      while (size > length + 1 && chartMemory(size) > cap) {
+        size--;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Approximate number of bytes used by the inside and outside score
+   * arrays for a chart of the given size.
+   */
+  private long chartMemory(int size) {
+    long cells = ((long) size * (size + 1)) / 2;
+    int scoreArrays = (op.doDep && ! Test.useFastFactored) ? 2 : 1;
+    return cells * scoreArrays * (4L * numStates + 16);
+  }
+
   protected void createArrays(int length) {
+    // keep the score rows of the old chart, so they can be reused below
+    // rather than being garbage collected and allocated again
+    List<float[]> spareRows = new ArrayList<float[]>();
+    collectRows(iScore, spareRows);
+    collectRows(oScore, spareRows);
+
     // zero out some stuff first in case we recently ran out of memory and are reallocating
     clearArrays();
 
@@ -2096,7 +2213,7 @@ oScore[split][end][br.rightChild] = totR;
     iScore = new float[length + 1][length + 1][];
     for (int start = 0; start <= length; start++) {
       for (int end = start + 1; end <= length; end++) {
-        iScore[start][end] = new float[numStates];
+        iScore[start][end] = newRow(spareRows);
       }
     }
     //    System.out.println("finished initializing iScore arrays");
@@ -2105,7 +2222,7 @@ oScore[split][end][br.rightChild] = totR;
       oScore = new float[length + 1][length + 1][];
       for (int start = 0; start <= length; start++) {
         for (int end = start + 1; end <= length; end++) {
-          oScore[start][end] = new float[numStates];
+          oScore[start][end] = newRow(spareRows);
         }
       }
       //      System.out.println("finished initializing oScore arrays");
@@ -2136,6 +2253,27 @@ oScore[split][end][br.rightChild] = totR;
     //    System.out.println("ExhaustivePCFGParser constructor finished.");
   }
 
+  private static void collectRows(float[][][] scores, List<float[]> rows) {
+    if (scores == null) {
+      return;
+    }
+    for (float[][] byStart : scores) {
+      for (float[] row : byStart) {
+        if (row != null) {
+          rows.add(row);
+        }
+      }
+    }
+  }
+
+  /** Returns a score row for one chart cell, reusing a spare one if there is any */
+  private float[] newRow(List<float[]> spareRows) {
+    if (spareRows.isEmpty()) {
+      return new float[numStates];
+    }
+    return spareRows.remove(spareRows.size() - 1);
+  }
+
   private void clearArrays() {
     iScore = oScore = null;
     iPossibleByL = iPossibleByR = oFilteredEnd = oFilteredStart = oPossibleByL = oPossibleByR = tags = null;
@@ -1,5 +1,6 @@
 package edu.stanford.nlp.parser.lexparser;
 
+import java.util.List;
 import java.util.regex.Matcher;
 
 /** Does iterative deepening search inside the CKY algorithm for faster
@@ -39,6 +40,7 @@ public class IterativeCKYPCFGParser extends ExhaustivePCFGParser {
    *      it has been determined that no parse exists.
    */
   private boolean doInsideScoresHelper(float threshold) {
+    List<Test.Constraint> constraints = Test.constraints();
     boolean prunedSomething = false;
     for (int diff = 2; diff <= length; diff++) {
       // usually stop one short because boundary symbol only combines
@@ -50,9 +52,9 @@ public class IterativeCKYPCFGParser extends ExhaustivePCFGParser {
         }
         int end = start + diff;
 
-        if (Test.constraints != null) {
+        if (constraints != null) {
           boolean skip = false;
-          for (Test.Constraint c : Test.constraints) {
+          for (Test.Constraint c : constraints) {
             if ((start > c.start && start < c.end && end > c.end) || (end > c.start && end < c.end && start < c.start)) {
               skip = true;
               break;
@@ -104,9 +106,9 @@ public class IterativeCKYPCFGParser extends ExhaustivePCFGParser {
               // find the split that can use this rule to make the max score
               for (int split = min; split <= max; split++) {
 
-                if (Test.constraints != null) {
+                if (constraints != null) {
                   boolean skip = false;
-                  for (Test.Constraint c : Test.constraints) {
+                  for (Test.Constraint c : constraints) {
                     if (((start < c.start && end >= c.end) || (start <= c.start && end > c.end)) && split > c.start && split < c.end) {
                       skip = true;
                       break;
@@ -248,9 +250,9 @@ public class IterativeCKYPCFGParser extends ExhaustivePCFGParser {
               // find the split that can use this rule to make the max score
               for (int split = min; split <= max; split++) {
 
-                if (Test.constraints != null) {
+                if (constraints != null) {
                   boolean skip = false;
-                  for (Test.Constraint c : Test.constraints) {
+                  for (Test.Constraint c : constraints) {
                     if (((start < c.start && end >= c.end) || (start <= c.start && end > c.end)) && split > c.start && split < c.end) {
                       skip = true;
                       break;
@@ -363,9 +365,9 @@ public class IterativeCKYPCFGParser extends ExhaustivePCFGParser {
 
             UnaryRule ur = unaries[r];
 
-            if (Test.constraints != null) {
+            if (constraints != null) {
               boolean skip = false;
-              for (Test.Constraint c : Test.constraints) {
+              for (Test.Constraint c : constraints) {
                 if ((start == c.start && end == c.end)) {
                   String tag = (String) stateNumberer.object(ur.parent);
                   Matcher m = c.state.matcher(tag);
@@ -109,7 +109,7 @@ public class LexicalizedParser implements ViterbiParserWithOptions, Function<Obj
   protected TreeTransformer debinarizer;
   private TreeTransformer subcategoryStripper;
 
-  private static boolean parseSucceeded = false;
+  private boolean parseSucceeded = false;
 
   private static int trainLengthLimit = 100000;
 
@@ -226,6 +226,39 @@ public class LexicalizedParser implements ViterbiParserWithOptions, Function<Obj
     this((ParserData) in.readObject());
   }
 
+  /**
+   * Construct a new LexicalizedParser which shares the grammar, lexicon
+   * and options of another parser, but has its own parsers and chart.
+   */
+  private LexicalizedParser(LexicalizedParser other) {
+    this.pd = other.pd;
+    this.op = other.op;
+    // the grammar and lexicon build some of their tables on first use; do
+    // it now, on this thread, so that the parsers sharing them only read them
+    if (pd.ug != null) {
+      pd.ug.closedRulesByChild(0);
+      pd.ug.closedRulesByParent(0);
+    }
+    if (pd.lex != null) {
+      pd.lex.isKnown(0);
+    }
+    makeParsers(false);
+  }
+
+  /**
+   * Returns a new parser to be used as a query object on another thread.
+   * It shares this parser's grammar, lexicon and options, which are only
+   * read while parsing once their lazily built tables are made (which
+   * this method does), but has its own parsers with their own chart
+   * arrays, so that the two can parse different sentences at the same time.
+   * Options should be set before the copies are made.
+   *
+   * @return A new LexicalizedParser sharing this parser's grammar
+   */
+  public LexicalizedParser parserQuery() {
+    return new LexicalizedParser(this);
+  }
+
   /**
    * Construct a new LexicalizedParser.
    *
@@ -597,6 +630,9 @@ public class LexicalizedParser implements ViterbiParserWithOptions, Function<Obj
   }
 
   public static ParserData getParserDataFromFile(String parserFileOrUrl, Options op) {
+    if (BinaryParserData.isBinaryFile(parserFileOrUrl)) {
+      return BinaryParserData.load(parserFileOrUrl);
+    }
     ParserData pd = getParserDataFromSerializedFile(parserFileOrUrl);
     if (pd == null) {
       pd = getParserDataFromTextFile(parserFileOrUrl, op);
@@ -1205,18 +1241,29 @@ public class LexicalizedParser implements ViterbiParserWithOptions, Function<Obj
   }
 
   private void makeParsers() {
+    makeParsers(true);
+  }
+
+  /**
+   * Builds the parsers over the grammar in pd.  If initGrammar is false,
+   * the grammar is assumed to have been prepared already by another parser
+   * sharing it, and is left untouched.
+   */
+  private void makeParsers(boolean initGrammar) {
     if (pd == null) {
       throw new IllegalArgumentException("Error loading parser data: pd null");
     }
-    Numberer.setNumberers(pd.numbs);
     BinaryGrammar bg = pd.bg;
-    bg.splitRules();
+    if (initGrammar) {
+      Numberer.setNumberers(pd.numbs);
+      bg.splitRules();
+    }
     UnaryGrammar ug = pd.ug;
     Lexicon lex = pd.lex;
     DependencyGrammar dg = pd.dg;
     //  This checks to see if commandline options for the arabic tokenizer, in which case they
     //      override the serialized versions.
-    if(pd.pt.tlpParams.treebankLanguagePack() instanceof ArabicTreebankLanguagePack){
+    if(initGrammar && pd.pt.tlpParams.treebankLanguagePack() instanceof ArabicTreebankLanguagePack){
       ArabicTreebankLanguagePack tlp = ((ArabicTreebankLanguagePack) op.tlpParams.treebankLanguagePack());
       if ( tlp.getTokenizerFactory() != null ){
         try {
@@ -2126,7 +2173,11 @@ public class LexicalizedParser implements ViterbiParserWithOptions, Function<Obj
    * <p>
    * <code>java edu.stanford.nlp.parser.lexparser.LexicalizedParser [-v] -train
    * trainFilesPath [fileRange] [-saveToSerializedFile grammarPath]
-   * [-saveToTextFile grammarPath]</code><p>
+   * [-saveToTextFile grammarPath] [-saveToBinaryFile grammarPath]</code><p>
+   * A binary grammar (see {@link BinaryParserData}) is recognized when
+   * loading from a file, and is read through a memory mapping rather than
+   * deserialized, which makes loading faster; its lexicon counts stay in
+   * the mapped file rather than being copied into the heap.<p>
    * If no files are supplied to parse, then a hardwired sentence
    * is parsed. <p>
    *
@@ -2260,6 +2311,7 @@ public class LexicalizedParser implements ViterbiParserWithOptions, Function<Obj
     String textInputFileOrUrl = null;
     String serializedOutputFileOrUrl = null;
     String textOutputFileOrUrl = null;
+    String binaryOutputFile = null;
     String treebankPath = null;
     Treebank testTreebank = null;
     Treebank tuneTreebank = null;
@@ -2395,6 +2447,10 @@ public class LexicalizedParser implements ViterbiParserWithOptions, Function<Obj
         saveToTextFile = true;
         textOutputFileOrUrl = args[argIndex + 1];
         argIndex += 2;
+      } else if (args[argIndex].equalsIgnoreCase("-saveToBinaryFile")) {
+        // save the parser to a memory-mappable binary file
+        binaryOutputFile = args[argIndex + 1];
+        argIndex += 2;
       } else if (args[argIndex].equalsIgnoreCase("-saveTrainTrees")) {
         // save the training trees to a binary file
         Train.trainTreeFile = args[argIndex + 1];
@@ -2585,6 +2641,11 @@ public class LexicalizedParser implements ViterbiParserWithOptions, Function<Obj
         System.err.println("Usage: must specify a text grammar output path");
       }
     }
+    if (binaryOutputFile != null) {
+      System.err.print("Writing parser in binary format to file " + binaryOutputFile + ' ');
+      BinaryParserData.save(lp.pd, binaryOutputFile);
+      System.err.println("done.");
+    }
     if (saveToSerializedFile) {
       if (serializedOutputFileOrUrl != null) {
         saveParserDataToSerialized(lp.pd, serializedOutputFileOrUrl);
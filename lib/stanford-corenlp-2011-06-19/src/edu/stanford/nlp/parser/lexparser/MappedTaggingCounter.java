@@ -0,0 +1,268 @@
+package edu.stanford.nlp.parser.lexparser;
+
+import java.io.ObjectStreamException;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import edu.stanford.nlp.stats.ClassicCounter;
+import edu.stanford.nlp.stats.Counter;
+import edu.stanford.nlp.stats.Counters;
+
+
+/**
+ * A read-only count of IntTaggedWords that reads its keys and counts
+ * straight out of two buffers, which {@link BinaryParserData} maps from
+ * a binary grammar file.  Each key is kept as the long
+ * <code>word &lt;&lt; 32 | tag</code>, in a sorted array, next to its
+ * count, and is found by binary search.  That is 16 bytes a tagging,
+ * outside the heap, where a ClassicCounter holds an IntTaggedWord, a
+ * MutableDouble and a HashMap entry for each.
+ * <p>
+ * It extends ClassicCounter only so that it can stand in for the
+ * ClassicCounters of BaseLexicon and BaseUnknownWordModel, whose field
+ * types are fixed by the serialized grammars.  The counts can't be
+ * changed, and it is written as an ordinary ClassicCounter if the
+ * lexicon is serialized.
+ */
+class MappedTaggingCounter extends ClassicCounter<IntTaggedWord> {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient LongBuffer keys; // sorted
+  private final transient DoubleBuffer counts;
+  private final double totalCount;
+
+  MappedTaggingCounter(LongBuffer keys, DoubleBuffer counts) {
+    this.keys = keys;
+    this.counts = counts;
+    double total = 0.0;
+    for (int i = 0, size = counts.limit(); i < size; i++) {
+      total += counts.get(i);
+    }
+    totalCount = total;
+  }
+
+  /** The key that a tagging is sorted and found by. */
+  static long key(IntTaggedWord itw) {
+    return ((long) itw.word << 32) | (itw.tag & 0xffffffffL);
+  }
+
+  private static IntTaggedWord tagging(long key) {
+    return new IntTaggedWord((int) (key >> 32), (int) key);
+  }
+
+  /** Where the key is in the sorted keys, or -1 if it isn't there. */
+  private int find(long key) {
+    int lo = 0;
+    int hi = keys.limit() - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      long k = keys.get(mid);
+      if (k < key) {
+        lo = mid + 1;
+      } else if (k > key) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public double getCount(Object key) {
+    if (key instanceof IntTaggedWord) {
+      int i = find(key((IntTaggedWord) key));
+      if (i >= 0) {
+        return counts.get(i);
+      }
+    }
+    return defaultReturnValue();
+  }
+
+  @Override
+  public boolean containsKey(IntTaggedWord key) {
+    return find(key(key)) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return keys.limit();
+  }
+
+  @Override
+  public double totalCount() {
+    return totalCount;
+  }
+
+  @Override
+  public Set<IntTaggedWord> keySet() {
+    return new AbstractSet<IntTaggedWord>() {
+      @Override
+      public Iterator<IntTaggedWord> iterator() {
+        return new Iterator<IntTaggedWord>() {
+          private int i; // = 0
+          public boolean hasNext() {
+            return i < keys.limit();
+          }
+          public IntTaggedWord next() {
+            if ( ! hasNext()) {
+              throw new NoSuchElementException();
+            }
+            return tagging(keys.get(i++));
+          }
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+      @Override
+      public boolean contains(Object o) {
+        return o instanceof IntTaggedWord && find(key((IntTaggedWord) o)) >= 0;
+      }
+      @Override
+      public int size() {
+        return keys.limit();
+      }
+    };
+  }
+
+  @Override
+  public Collection<Double> values() {
+    return new AbstractCollection<Double>() {
+      @Override
+      public Iterator<Double> iterator() {
+        return new Iterator<Double>() {
+          private int i; // = 0
+          public boolean hasNext() {
+            return i < counts.limit();
+          }
+          public Double next() {
+            if ( ! hasNext()) {
+              throw new NoSuchElementException();
+            }
+            return counts.get(i++);
+          }
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+      @Override
+      public int size() {
+        return counts.limit();
+      }
+    };
+  }
+
+  @Override
+  public Set<Map.Entry<IntTaggedWord,Double>> entrySet() {
+    return new AbstractSet<Map.Entry<IntTaggedWord,Double>>() {
+      @Override
+      public Iterator<Map.Entry<IntTaggedWord,Double>> iterator() {
+        return new Iterator<Map.Entry<IntTaggedWord,Double>>() {
+          private int i; // = 0
+          public boolean hasNext() {
+            return i < keys.limit();
+          }
+          public Map.Entry<IntTaggedWord,Double> next() {
+            if ( ! hasNext()) {
+              throw new NoSuchElementException();
+            }
+            Map.Entry<IntTaggedWord,Double> entry =
+              new AbstractMap.SimpleImmutableEntry<IntTaggedWord,Double>(tagging(keys.get(i)), counts.get(i));
+            i++;
+            return entry;
+          }
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+      @Override
+      public int size() {
+        return keys.limit();
+      }
+    };
+  }
+
+
+  // the counts are read-only
+
+  @Override
+  public void setCount(IntTaggedWord key, double count) {
+    throw new UnsupportedOperationException("The counts of a mapped grammar can't be changed");
+  }
+
+  @Override
+  public double incrementCount(IntTaggedWord key, double count) {
+    throw new UnsupportedOperationException("The counts of a mapped grammar can't be changed");
+  }
+
+  @Override
+  public double decrementCount(IntTaggedWord key, double count) {
+    throw new UnsupportedOperationException("The counts of a mapped grammar can't be changed");
+  }
+
+  @Override
+  public double logIncrementCount(IntTaggedWord key, double count) {
+    throw new UnsupportedOperationException("The counts of a mapped grammar can't be changed");
+  }
+
+  @Override
+  public double remove(IntTaggedWord key) {
+    throw new UnsupportedOperationException("The counts of a mapped grammar can't be changed");
+  }
+
+  @Override
+  public void removeAll(Collection<IntTaggedWord> keys) {
+    throw new UnsupportedOperationException("The counts of a mapped grammar can't be changed");
+  }
+
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException("The counts of a mapped grammar can't be changed");
+  }
+
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public boolean equals(Object o) {
+    return this == o || (o instanceof Counter && Counters.equals(this, (Counter<IntTaggedWord>) o));
+  }
+
+  @Override
+  public int hashCode() {
+    int h = 0;
+    for (int i = 0, size = keys.limit(); i < size; i++) {
+      h += tagging(keys.get(i)).hashCode() ^ Double.valueOf(counts.get(i)).hashCode();
+    }
+    return h;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    for (int i = 0, size = keys.limit(); i < size; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(tagging(keys.get(i))).append('=').append(counts.get(i));
+    }
+    return sb.append('}').toString();
+  }
+
+  /** The buffers can't be serialized, so a plain copy is written instead. */
+  private Object writeReplace() throws ObjectStreamException {
+    return new ClassicCounter<IntTaggedWord>(this);
+  }
+
+}
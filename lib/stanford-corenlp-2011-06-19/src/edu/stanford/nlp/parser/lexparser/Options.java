@@ -225,6 +225,12 @@ public class Options implements Serializable {
     } else if (args[i].equalsIgnoreCase("-maxLength") && (i + 1 < args.length)) {
       Test.maxLength = Integer.parseInt(args[i + 1]);
       i += 2;
+    } else if (args[i].equalsIgnoreCase("-maxChartMemory") && (i + 1 < args.length)) {
+      Test.maxChartMemory = Integer.parseInt(args[i + 1]);
+      i += 2;
+    } else if (args[i].equalsIgnoreCase("-pcfgBeam") && (i + 1 < args.length)) {
+      Test.pcfgBeam = Double.parseDouble(args[i + 1]);
+      i += 2;
     } else if (args[i].equalsIgnoreCase("-MAX_ITEMS") && (i + 1 < args.length)) {
       Test.MAX_ITEMS = Integer.parseInt(args[i + 1]);
       i += 2;
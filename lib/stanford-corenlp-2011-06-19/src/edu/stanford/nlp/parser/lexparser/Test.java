@@ -60,6 +60,24 @@ public class Test {
   public static int maxLength = -0xDEADBEEF;
   // initial value is -0xDEADBEEF (actually positive because of 2s complement)
 
+  /**
+   * The most memory, in megabytes, that the PCFG parser keeps allocated
+   * for its chart between sentences.  Sentences needing a larger chart
+   * are still parsed, but the chart is shrunk back to this size by the
+   * next parse.  If 0 or less, there is no limit.
+   */
+  public static int maxChartMemory = 0;
+
+  /**
+   * If greater than 0, the PCFG parser prunes each cell of its chart as
+   * soon as the cell is done: states whose inside score is more than this
+   * many log units below the best state over the same span are dropped, and
+   * larger spans are built only from the states that are left.  If the
+   * beam loses every parse of a sentence, the sentence is reparsed without
+   * it.  If 0 or less, the full chart is built.
+   */
+  public static double pcfgBeam = 0.0;
+
   /**
    * The maximum number of edges and hooks combined that the factored parser
    * will build before giving up.  This number should probably be relative to
@@ -205,6 +223,31 @@ public class Test {
    */
   public static List<Constraint> constraints = null;
 
+  private static final ThreadLocal<List<Constraint>> threadConstraints =
+    new ThreadLocal<List<Constraint>>();
+
+  /**
+   * Sets constraints for the parses made on the calling thread only, in
+   * place of {@link #constraints}, so that one thread can constrain a parse
+   * while others go on parsing freely.  Give null to clear them.
+   */
+  public static void setThreadConstraints(List<Constraint> c) {
+    if (c == null) {
+      threadConstraints.remove();
+    } else {
+      threadConstraints.set(c);
+    }
+  }
+
+  /**
+   * Returns the constraints for a parse on the calling thread: those given
+   * to {@link #setThreadConstraints}, or else {@link #constraints}.
+   */
+  public static List<Constraint> constraints() {
+    List<Constraint> c = threadConstraints.get();
+    return (c != null) ? c : constraints;
+  }
+
   /**
    * Used when you want to generate sample parses instead of finding the best
    * parse.  (NOT YET USED.)
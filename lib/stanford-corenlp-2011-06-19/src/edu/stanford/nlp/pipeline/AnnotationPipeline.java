@@ -1,8 +1,10 @@
 package edu.stanford.nlp.pipeline;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Iterator;
+import java.util.Set;
 import java.io.IOException;
 
 import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
@@ -37,6 +39,10 @@ public class AnnotationPipeline implements Annotator {
   private List<Annotator> annotators;
   private List<MutableInteger> accumulatedTime;
 
+  /** Null unless metrics were turned on with {@link #setMetrics}. */
+  private PipelineMetrics metrics;
+  private List<PipelineMetrics.AnnotatorStats> annotatorStats;
+
   public AnnotationPipeline(List<Annotator> annotators) {
     this.annotators = annotators;
     if (TIME) {
@@ -57,20 +63,87 @@ public class AnnotationPipeline implements Annotator {
     if (TIME) {
       accumulatedTime.add(new MutableInteger());
     }
+    if (metrics != null) {
+      setMetrics(metrics);
+    }
+  }
+
+  /** Records latency, counts and allocation of every document annotated
+   *  from now on in the given metrics, or stops recording if it is null.
+   *  Annotators are known to the metrics by their short class names, with
+   *  a number added to the second and later annotators of one class.
+   */
+  public void setMetrics(PipelineMetrics metrics) {
+    List<PipelineMetrics.AnnotatorStats> stats = null;
+    if (metrics != null) {
+      stats = new ArrayList<PipelineMetrics.AnnotatorStats>(annotators.size());
+      Set<String> names = new HashSet<String>();
+      for (Annotator annotator : annotators) {
+        String name = StringUtils.getShortClassName(annotator);
+        for (int i = 2; ! names.add(name); i++) {
+          name = StringUtils.getShortClassName(annotator) + '-' + i;
+        }
+        stats.add(metrics.annotator(name));
+      }
+    }
+    this.metrics = metrics;
+    this.annotatorStats = stats;
+  }
+
+  public PipelineMetrics getMetrics() {
+    return metrics;
   }
 
   public void annotate(Annotation annotation) {
     Iterator<MutableInteger> it = accumulatedTime.iterator();
     Timing t = new Timing();
-    for (Annotator annotator : annotators) {
-      if (TIME) {
-        t.start();
+    // read the fields once, in case setMetrics is called meanwhile
+    PipelineMetrics metrics = this.metrics;
+    List<PipelineMetrics.AnnotatorStats> stats = annotatorStats;
+    long[] nanos = null;
+    long[] allocated = null;
+    if (metrics != null) {
+      nanos = new long[annotators.size()];
+      if (metrics.startDocument()) {
+        allocated = new long[nanos.length];
       }
-      annotator.annotate(annotation);
-      if (TIME) {
-        int elapsed = (int) t.stop();
-        MutableInteger m = it.next();
-        m.incValue(elapsed);
+    }
+    boolean done = false;
+    try {
+      int i = 0;
+      for (Annotator annotator : annotators) {
+        if (TIME) {
+          t.start();
+        }
+        long start = 0;
+        if (nanos != null) {
+          if (allocated != null) {
+            allocated[i] = PipelineMetrics.allocatedBytes();
+          }
+          start = System.nanoTime();
+        }
+        annotator.annotate(annotation);
+        if (nanos != null) {
+          nanos[i] = System.nanoTime() - start;
+          if (allocated != null) {
+            allocated[i] = PipelineMetrics.allocatedBytes() - allocated[i];
+          }
+        }
+        if (TIME) {
+          int elapsed = (int) t.stop();
+          MutableInteger m = it.next();
+          m.incValue(elapsed);
+        }
+        i++;
+      }
+      done = true;
+    } finally {
+      if (metrics != null) {
+        if (done) {
+          metrics.endDocument(annotation, stats, nanos, allocated);
+        } else {
+          metrics.abandonDocument();
+        }
       }
     }
   }
@@ -1,7 +1,9 @@
 package edu.stanford.nlp.pipeline;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import edu.stanford.nlp.util.Factory;
 
@@ -14,11 +16,18 @@ import edu.stanford.nlp.util.Factory;
  * Instead, an AnnotatorPool will only create one Annotator and allow both
  * pipelines to share it.  
  * 
+ * Annotators which keep per-call state and are therefore not thread-safe
+ * can be registered with {@link #registerPerThread}.  For those, every
+ * thread that asks for the annotator gets its own instance, so several
+ * pipelines running on different threads can share one pool.
+ * 
  * @author bethard
  */
 public class AnnotatorPool {
   private Map<String, Annotator> annotators;
   private Map<String, Factory<Annotator>> factories;
+  private Set<String> perThread;
+  private ThreadLocal<Map<String, Annotator>> threadAnnotators;
   
   /**
    * Create an empty AnnotatorPool. 
@@ -26,6 +35,13 @@ public class AnnotatorPool {
   public AnnotatorPool() {
     this.annotators = new HashMap<String, Annotator>();
     this.factories = new HashMap<String, Factory<Annotator>>();
+    this.perThread = new HashSet<String>();
+    this.threadAnnotators = new ThreadLocal<Map<String, Annotator>>() {
+      @Override
+      protected Map<String, Annotator> initialValue() {
+        return new HashMap<String, Annotator>();
+      }
+    };
   }
   
   /**
@@ -46,21 +62,56 @@ public class AnnotatorPool {
     }
     this.factories.put(name, factory);
   }
+
+  /**
+   * Register an Annotator which is not thread-safe.  The pool will create
+   * one instance of it for each thread that requests it.
+   *
+   * @param name    The name to be associated with the Annotator.
+   * @param factory A factory that creates an instance of the desired Annotator.
+   */
+  public synchronized void registerPerThread(String name, Factory<Annotator> factory) {
+    register(name, factory);
+    this.perThread.add(name);
+  }
+
+  /**
+   * Returns true if the named Annotator was registered with
+   * {@link #registerPerThread}.
+   */
+  public synchronized boolean isPerThread(String name) {
+    return this.perThread.contains(name);
+  }
   
   /**
    * Retrieve an Annotator from the pool. If the named Annotator has not yet
    * been requested, it will be created. Otherwise, the existing instance of
    * the Annotator will be returned.   
-   * 
+   * For per-thread Annotators the existing instance is the one created for
+   * the calling thread.
    */
-  public synchronized Annotator get(String name) {
-    if (!this.annotators.containsKey(name)) {
-      Factory<Annotator> factory = this.factories.get(name);
+  public Annotator get(String name) {
+    Factory<Annotator> factory;
+    synchronized (this) {
+      factory = this.factories.get(name);
       if (factory == null) {
         throw new IllegalArgumentException("no annotator named " + name);
       }
-      this.annotators.put(name, factory.create());
+      if (!this.perThread.contains(name)) {
+        if (!this.annotators.containsKey(name)) {
+          this.annotators.put(name, factory.create());
+        }
+        return this.annotators.get(name);
+      }
+    }
+    // per-thread annotators are created outside the lock so that
+    // several threads can load their models at the same time
+    Map<String, Annotator> mine = this.threadAnnotators.get();
+    Annotator annotator = mine.get(name);
+    if (annotator == null) {
+      annotator = factory.create();
+      mine.put(name, annotator);
     }
-    return this.annotators.get(name);
+    return annotator;
   }
 }
@@ -0,0 +1,90 @@
+package edu.stanford.nlp.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The threads annotators use to work on the sentences of a document in
+ * parallel.  They are shared by all annotators, so an annotator does not
+ * own any threads and need not be shut down: a thread that has had nothing
+ * to do for a minute ends, and the threads are daemons, so they never keep
+ * the JVM running.
+ */
+class AnnotatorThreads {
+
+  private static final ExecutorService executor =
+    Executors.newCachedThreadPool(new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "AnnotatorThreads-worker");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+
+  private AnnotatorThreads() {} // static methods only
+
+  /**
+   * Runs the tasks on at most nThreads threads, the calling thread being
+   * one of them, and returns when all of them are done.  If a task fails,
+   * no more tasks are started, and once the running ones are done the
+   * failure is thrown again (wrapped in a RuntimeException if it is a
+   * checked exception).
+   *
+   * @param tasks The tasks, which must be independent of each other
+   * @param nThreads The largest number of tasks to run at a time
+   */
+  static void runAll(final List<? extends Runnable> tasks, int nThreads) {
+    final AtomicInteger next = new AtomicInteger();
+    Runnable worker = new Runnable() {
+      public void run() {
+        try {
+          for (int i = next.getAndIncrement(); i < tasks.size(); i = next.getAndIncrement()) {
+            tasks.get(i).run();
+          }
+        } catch (RuntimeException e) {
+          next.set(tasks.size());
+          throw e;
+        } catch (Error e) {
+          next.set(tasks.size());
+          throw e;
+        }
+      }
+    };
+    List<Future<?>> results = new ArrayList<Future<?>>();
+    int helpers = Math.min(nThreads, tasks.size()) - 1;
+    for (int i = 0; i < helpers; i++) {
+      results.add(executor.submit(worker));
+    }
+    Throwable failure = null;
+    try {
+      worker.run();
+    } catch (Throwable t) {
+      failure = t;
+    }
+    for (Future<?> result : results) {
+      try {
+        result.get();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      }
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new RuntimeException(failure);
+    }
+  }
+
+}
@@ -0,0 +1,812 @@
+package edu.stanford.nlp.pipeline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import edu.stanford.nlp.dcoref.CorefChain;
+import edu.stanford.nlp.dcoref.CorefChain.CorefMention;
+import edu.stanford.nlp.dcoref.Dictionaries.Animacy;
+import edu.stanford.nlp.dcoref.Dictionaries.Gender;
+import edu.stanford.nlp.dcoref.Dictionaries.MentionType;
+import edu.stanford.nlp.dcoref.Dictionaries.Number;
+import edu.stanford.nlp.io.RuntimeIOException;
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetBeginAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.CharacterOffsetEndAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.CopyAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.DocIDAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.LemmaAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.NamedEntityTagAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.NormalizedNamedEntityTagAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.PartOfSpeechAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.SentenceIndexAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TextAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TreeAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.ValueAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.CorefCoreAnnotations.CorefChainAnnotation;
+import edu.stanford.nlp.ling.CorefCoreAnnotations.CorefGraphAnnotation;
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.trees.GrammaticalRelation;
+import edu.stanford.nlp.trees.LabeledScoredTreeFactory;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.TreeFactory;
+import edu.stanford.nlp.trees.semgraph.SemanticGraph;
+import edu.stanford.nlp.trees.semgraph.SemanticGraphCoreAnnotations.BasicDependenciesAnnotation;
+import edu.stanford.nlp.trees.semgraph.SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation;
+import edu.stanford.nlp.trees.semgraph.SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation;
+import edu.stanford.nlp.trees.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.IntTuple;
+import edu.stanford.nlp.util.Pair;
+
+/**
+ * Serializes Annotation objects in a compact binary format.  It keeps what
+ * the XML output keeps (tokens, parse trees, the three dependency graphs and
+ * the coreference chains) in a fraction of the space, and is much faster to
+ * write and read than either the XML or {@link CustomAnnotationSerializer}.
+ * <p>
+ * A file is a header followed by records, one per sentence plus one for the
+ * coreference chains, so that it can be written while the document is
+ * annotated and read back one sentence at a time with a {@link Reader},
+ * without building an Annotation at all.
+ * <p>
+ * Format, version 1.  All integers are unsigned LEB128 varints, or zigzag
+ * varints where they may be negative.
+ * <pre>
+ *   header    "CNLP" version
+ *   record    type, then one of
+ *     SENTENCE      tokens tree graph graph graph  (basic, collapsed, cc-processed)
+ *     COREF_CHAINS  n, n * (chainID, m, representative+1, m * mention)
+ *     COREF_GRAPH   n, n * (4 ints)
+ *     DOC_ID        string
+ *     END
+ *   tokens    n, n * (word lemma pos ner normalizedNer, offsets)
+ *   offsets   0 if absent, else 1+zigzag(end-begin), zigzag(begin - previous end)
+ *   tree      0 if absent, else n, n * (label, children) in preorder
+ *   graph     0 if absent, else nodes+1, [docID, sentIndex+1],
+ *             nodes * (index*2+hasCopy, [copy]), edges, edges * (relation, gov, dep)
+ *             where gov and dep are positions in the node list
+ *   mention   type number gender animacy, sentNum start end head,
+ *             clusterID mentionID, position (0, or 1 and 2 ints)
+ *   string    0 for null, k for the k-th string seen so far, or
+ *             (strings seen)+1 followed by its length and UTF-8 bytes
+ * </pre>
+ * Every string (words, lemmas, tags, tree labels, relation names) goes
+ * through the one table, so each is written only once per file.
+ */
+public class BinaryAnnotationSerializer implements AnnotationSerializer {
+
+  public static final int VERSION = 1;
+
+  private static final byte[] MAGIC = { 'C', 'N', 'L', 'P' };
+
+  /** Record types, as returned by {@link Reader#next()} */
+  public static final int END = 0;
+  public static final int SENTENCE = 1;
+  public static final int COREF_CHAINS = 2;
+  public static final int COREF_GRAPH = 3;
+  public static final int DOC_ID = 4;
+
+  /** The dependency graphs of a sentence, in the order they are written */
+  public static final int BASIC_DEPENDENCIES = 0;
+  public static final int COLLAPSED_DEPENDENCIES = 1;
+  public static final int CC_PROCESSED_DEPENDENCIES = 2;
+  private static final int GRAPHS = 3;
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final boolean compress;
+
+  public BinaryAnnotationSerializer() {
+    this(true);
+  }
+
+  public BinaryAnnotationSerializer(boolean compress) {
+    this.compress = compress;
+  }
+
+  public void save(Annotation corpus, OutputStream os) throws IOException {
+    Writer writer = new Writer(os, compress);
+    String docId = corpus.get(DocIDAnnotation.class);
+    if (docId != null) writer.writeDocId(docId);
+    List<CoreMap> sentences = corpus.get(SentencesAnnotation.class);
+    if (sentences != null) {
+      for (CoreMap sentence : sentences) {
+        writer.writeSentence(sentence);
+      }
+    }
+    Map<Integer, CorefChain> chains = corpus.get(CorefChainAnnotation.class);
+    if (chains != null) writer.writeCorefChains(chains.values());
+    List<Pair<IntTuple, IntTuple>> corefGraph = corpus.get(CorefGraphAnnotation.class);
+    if (corefGraph != null) writer.writeCorefGraph(corefGraph);
+    writer.close();
+  }
+
+  /** Reads a document back; compressed input is recognized whatever the
+   *  compress flag of this serializer. */
+  public Annotation load(InputStream is) throws IOException {
+    Reader reader = new Reader(is);
+    Annotation doc = new Annotation("");
+    List<CoreMap> sentences = new ArrayList<CoreMap>();
+    int record;
+    while ((record = reader.next()) != END) {
+      switch (record) {
+      case SENTENCE:
+        sentences.add(reader.sentence());
+        break;
+      case COREF_CHAINS:
+        doc.set(CorefChainAnnotation.class, reader.corefChains());
+        break;
+      case COREF_GRAPH:
+        doc.set(CorefGraphAnnotation.class, reader.corefGraph());
+        break;
+      case DOC_ID:
+        doc.set(DocIDAnnotation.class, reader.docId());
+        break;
+      }
+    }
+    doc.set(SentencesAnnotation.class, sentences);
+    reader.close();
+    return doc;
+  }
+
+
+  /**
+   * Writes the records of one document.  Sentences can be written as they
+   * are annotated; {@link #close()} ends the document and closes the stream.
+   */
+  public static class Writer implements Closeable {
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+    private final List<Tree> nodes = new ArrayList<Tree>();
+    private final Map<IndexedWord, Integer> vertices = new HashMap<IndexedWord, Integer>();
+    private int lastEnd; // end offset of the last token written
+
+    public Writer(OutputStream os, boolean compress) throws IOException {
+      if (compress) os = new GZIPOutputStream(os, BUFFER_SIZE);
+      out = new DataOutputStream(new BufferedOutputStream(os, BUFFER_SIZE));
+      out.write(MAGIC);
+      writeInt(VERSION);
+    }
+
+    public void writeDocId(String docId) throws IOException {
+      writeInt(DOC_ID);
+      writeString(docId);
+    }
+
+    public void writeSentence(CoreMap sentence) throws IOException {
+      writeInt(SENTENCE);
+      List<CoreLabel> tokens = sentence.get(TokensAnnotation.class);
+      if (tokens == null) {
+        writeInt(0);
+      } else {
+        writeInt(tokens.size());
+        for (CoreLabel token : tokens) {
+          writeToken(token);
+        }
+      }
+      writeTree(sentence.get(TreeAnnotation.class));
+      writeGraph(sentence.get(BasicDependenciesAnnotation.class));
+      writeGraph(sentence.get(CollapsedDependenciesAnnotation.class));
+      writeGraph(sentence.get(CollapsedCCProcessedDependenciesAnnotation.class));
+    }
+
+    public void writeCorefChains(Collection<CorefChain> chains) throws IOException {
+      writeInt(COREF_CHAINS);
+      writeInt(chains.size());
+      for (CorefChain chain : chains) {
+        List<CorefMention> mentions = chain.getCorefMentions();
+        writeSigned(chain.getChainID());
+        writeInt(mentions.size());
+        writeInt(mentions.indexOf(chain.getRepresentativeMention()) + 1);
+        for (CorefMention m : mentions) {
+          writeString(m.mentionType == null ? null : m.mentionType.name());
+          writeString(m.number == null ? null : m.number.name());
+          writeString(m.gender == null ? null : m.gender.name());
+          writeString(m.animacy == null ? null : m.animacy.name());
+          writeInt(m.sentNum);
+          writeInt(m.startIndex);
+          writeInt(m.endIndex);
+          writeInt(m.headIndex);
+          writeSigned(m.corefClusterID);
+          writeSigned(m.mentionID);
+          if (m.position == null) {
+            writeInt(0);
+          } else {
+            writeInt(1);
+            writeSigned(m.position.get(0));
+            writeSigned(m.position.get(1));
+          }
+        }
+      }
+    }
+
+    public void writeCorefGraph(List<Pair<IntTuple, IntTuple>> corefGraph) throws IOException {
+      writeInt(COREF_GRAPH);
+      writeInt(corefGraph.size());
+      for (Pair<IntTuple, IntTuple> arc : corefGraph) {
+        writeSigned(arc.first.get(0));
+        writeSigned(arc.first.get(1));
+        writeSigned(arc.second.get(0));
+        writeSigned(arc.second.get(1));
+      }
+    }
+
+    /** Ends the document and closes the underlying stream */
+    public void close() throws IOException {
+      writeInt(END);
+      out.close();
+    }
+
+    private void writeToken(CoreLabel token) throws IOException {
+      writeString(token.get(TextAnnotation.class));
+      writeString(token.get(LemmaAnnotation.class));
+      writeString(token.get(PartOfSpeechAnnotation.class));
+      writeString(token.get(NamedEntityTagAnnotation.class));
+      writeString(token.get(NormalizedNamedEntityTagAnnotation.class));
+      Integer begin = token.get(CharacterOffsetBeginAnnotation.class);
+      Integer end = token.get(CharacterOffsetEndAnnotation.class);
+      if (begin == null || end == null) {
+        writeInt(0);
+      } else {
+        writeInt(zigzag(end - begin) + 1);
+        writeSigned(begin - lastEnd);
+        lastEnd = end;
+      }
+    }
+
+    private void writeTree(Tree tree) throws IOException {
+      if (tree == null) {
+        writeInt(0);
+        return;
+      }
+      nodes.clear();
+      for (Tree node : tree) {
+        nodes.add(node);
+      }
+      writeInt(nodes.size());
+      for (Tree node : nodes) {
+        writeString(node.value());
+        writeInt(node.numChildren());
+      }
+    }
+
+    private void writeGraph(SemanticGraph graph) throws IOException {
+      if (graph == null) {
+        writeInt(0);
+        return;
+      }
+      List<IndexedWord> vertexList = graph.vertexList();
+      writeInt(vertexList.size() + 1);
+      if (vertexList.isEmpty()) {
+        writeInt(0);
+        return;
+      }
+      IndexedWord first = vertexList.get(0);
+      writeString(first.get(DocIDAnnotation.class));
+      Integer sentIndex = first.get(SentenceIndexAnnotation.class);
+      writeInt(sentIndex == null ? 0 : sentIndex + 1);
+      vertices.clear();
+      for (IndexedWord node : vertexList) {
+        vertices.put(node, vertices.size());
+        Integer copy = node.get(CopyAnnotation.class);
+        if (copy == null) {
+          writeInt(node.index() << 1);
+        } else {
+          writeInt(node.index() << 1 | 1);
+          writeInt(copy);
+        }
+      }
+      List<SemanticGraphEdge> edges = graph.edgeList();
+      writeInt(edges.size());
+      for (SemanticGraphEdge edge : edges) {
+        writeString(edge.getRelation().toString());
+        writeInt(vertices.get(edge.getSource()));
+        writeInt(vertices.get(edge.getTarget()));
+      }
+    }
+
+    private void writeString(String s) throws IOException {
+      if (s == null) {
+        writeInt(0);
+        return;
+      }
+      Integer ref = strings.get(s);
+      if (ref != null) {
+        writeInt(ref);
+        return;
+      }
+      ref = strings.size() + 1;
+      strings.put(s, ref);
+      writeInt(ref);
+      byte[] bytes = s.getBytes(UTF8);
+      writeInt(bytes.length);
+      out.write(bytes);
+    }
+
+    private void writeSigned(int n) throws IOException {
+      writeInt(zigzag(n));
+    }
+
+    private void writeInt(int n) throws IOException {
+      while ((n & ~0x7f) != 0) {
+        out.write((n & 0x7f) | 0x80);
+        n >>>= 7;
+      }
+      out.write(n);
+    }
+
+  } // end class Writer
+
+
+  /**
+   * Reads a document one record at a time.  After {@link #next()} returns
+   * SENTENCE, the accessors give the tokens, tree and dependencies of that
+   * sentence without building any CoreLabels, and {@link #sentence()} builds
+   * the CoreMap if one is wanted; they are only valid until the next call
+   * to next().  Tokens are numbered from 0 here, but dependencies refer to
+   * tokens by their index, which starts at 1, as everywhere else.
+   */
+  public static class Reader implements Closeable {
+
+    private final DataInputStream in;
+    private final int version;
+    private String[] strings = new String[1024];
+    private int stringCount;
+    private byte[] bytes = new byte[256];
+    private boolean done;
+
+    private int sentenceIndex = -1;
+    private int lastEnd;
+    private int tokenCount;
+    private String[] words = new String[64], lemmas = new String[64], tags = new String[64],
+        ners = new String[64], normalizedNers = new String[64];
+    private int[] begins = new int[64], ends = new int[64];
+
+    private int treeSize;
+    private String[] treeLabels = new String[128];
+    private int[] treeChildren = new int[128];
+
+    private final int[] nodeCount = new int[GRAPHS];
+    private final String[] graphDocIds = new String[GRAPHS];
+    private final int[] graphSentIndices = new int[GRAPHS];
+    private final int[][] nodeIndices = new int[GRAPHS][64];
+    private final int[][] nodeCopies = new int[GRAPHS][64];
+    private final int[] edgeCount = new int[GRAPHS];
+    private final String[][] relations = new String[GRAPHS][64];
+    private final int[][] governors = new int[GRAPHS][64];
+    private final int[][] dependents = new int[GRAPHS][64];
+
+    private CorefChain[] chains;
+    private List<Pair<IntTuple, IntTuple>> corefGraph;
+    private String docId;
+
+    /** Opens a stream written by a {@link Writer}, compressed or not */
+    public Reader(InputStream is) throws IOException {
+      is = new BufferedInputStream(is, BUFFER_SIZE);
+      is.mark(2);
+      int b0 = is.read();
+      int b1 = is.read();
+      is.reset();
+      if (b0 == 0x1f && b1 == 0x8b) {
+        is = new BufferedInputStream(new GZIPInputStream(is, BUFFER_SIZE), BUFFER_SIZE);
+      }
+      in = new DataInputStream(is);
+      byte[] magic = new byte[MAGIC.length];
+      try {
+        in.readFully(magic);
+      } catch (EOFException e) {
+        throw new RuntimeIOException("ERROR: Not a binary annotation file: too short");
+      }
+      if ( ! Arrays.equals(magic, MAGIC)) {
+        throw new RuntimeIOException("ERROR: Not a binary annotation file");
+      }
+      version = readInt();
+      if (version > VERSION) {
+        throw new RuntimeIOException("ERROR: Binary annotation format version " + version +
+                                     " is newer than this reader (version " + VERSION + ")");
+      }
+    }
+
+    public int version() { return version; }
+
+    /** Reads the next record and returns its type; END once the document is over */
+    public int next() throws IOException {
+      if (done) return END;
+      int record = readInt();
+      switch (record) {
+      case END:
+        done = true;
+        break;
+      case SENTENCE:
+        readSentence();
+        break;
+      case COREF_CHAINS:
+        readCorefChains();
+        break;
+      case COREF_GRAPH:
+        readCorefGraph();
+        break;
+      case DOC_ID:
+        docId = readString();
+        break;
+      default:
+        throw new RuntimeIOException("ERROR: Unknown record type " + record + " in binary annotation");
+      }
+      return record;
+    }
+
+    /** The position of the current sentence in the document, from 0 */
+    public int sentenceIndex() { return sentenceIndex; }
+
+    public int tokenCount() { return tokenCount; }
+    public String word(int i) { return words[check(i, tokenCount)]; }
+    public String lemma(int i) { return lemmas[check(i, tokenCount)]; }
+    public String tag(int i) { return tags[check(i, tokenCount)]; }
+    public String ner(int i) { return ners[check(i, tokenCount)]; }
+    public String normalizedNer(int i) { return normalizedNers[check(i, tokenCount)]; }
+    /** The character offsets of token i, or -1 if the token has none */
+    public int beginPosition(int i) { return begins[check(i, tokenCount)]; }
+    public int endPosition(int i) { return ends[check(i, tokenCount)]; }
+
+    /** The number of nodes in the parse tree, 0 if the sentence has none */
+    public int treeSize() { return treeSize; }
+    /** The label and number of children of tree node n, in preorder */
+    public String treeLabel(int n) { return treeLabels[check(n, treeSize)]; }
+    public int treeChildren(int n) { return treeChildren[check(n, treeSize)]; }
+
+    /** The parse tree on one line, as Tree.toString() prints it, or null */
+    public String treeString() {
+      if (treeSize == 0) return null;
+      StringBuilder sb = new StringBuilder();
+      int[] open = new int[treeSize]; // children still to come, per open node
+      int depth = 0;
+      for (int n = 0; n < treeSize; n++) {
+        if (n > 0) sb.append(' ');
+        if (treeChildren[n] > 0) {
+          sb.append('(').append(treeLabels[n]);
+          open[depth++] = treeChildren[n];
+          continue;
+        }
+        sb.append(treeLabels[n]);
+        while (depth > 0 && --open[depth - 1] == 0) {
+          sb.append(')');
+          depth--;
+        }
+      }
+      return sb.toString();
+    }
+
+    /** Whether the sentence has the given graph, one of BASIC_DEPENDENCIES etc. */
+    public boolean hasDependencies(int graph) { return nodeCount[graph] >= 0; }
+    public int edgeCount(int graph) { return edgeCount[graph]; }
+    public String relation(int graph, int e) { return relations[graph][check(e, edgeCount[graph])]; }
+    /** The token index, from 1, of the governor of edge e */
+    public int governor(int graph, int e) { return nodeIndices[graph][governors[graph][check(e, edgeCount[graph])]]; }
+    public int dependent(int graph, int e) { return nodeIndices[graph][dependents[graph][check(e, edgeCount[graph])]]; }
+
+    /** Builds the current sentence as the pipeline would have annotated it */
+    public CoreMap sentence() {
+      CoreMap sentence = new Annotation("");
+      List<CoreLabel> tokens = new ArrayList<CoreLabel>(tokenCount);
+      for (int i = 0; i < tokenCount; i++) {
+        CoreLabel token = new CoreLabel();
+        token.set(TextAnnotation.class, words[i]);
+        if (lemmas[i] != null) token.set(LemmaAnnotation.class, lemmas[i]);
+        if (tags[i] != null) token.set(PartOfSpeechAnnotation.class, tags[i]);
+        if (ners[i] != null) token.set(NamedEntityTagAnnotation.class, ners[i]);
+        if (normalizedNers[i] != null) token.set(NormalizedNamedEntityTagAnnotation.class, normalizedNers[i]);
+        if (begins[i] >= 0) {
+          token.set(CharacterOffsetBeginAnnotation.class, begins[i]);
+          token.set(CharacterOffsetEndAnnotation.class, ends[i]);
+        }
+        tokens.add(token);
+      }
+      sentence.set(TokensAnnotation.class, tokens);
+      if (treeSize > 0) {
+        TreeFactory tf = new LabeledScoredTreeFactory(CoreLabel.factory());
+        sentence.set(TreeAnnotation.class, buildTree(tf, new int[1]));
+      }
+      if (hasDependencies(BASIC_DEPENDENCIES)) {
+        sentence.set(BasicDependenciesAnnotation.class, buildGraph(BASIC_DEPENDENCIES, tokens));
+      }
+      if (hasDependencies(COLLAPSED_DEPENDENCIES)) {
+        sentence.set(CollapsedDependenciesAnnotation.class, buildGraph(COLLAPSED_DEPENDENCIES, tokens));
+      }
+      if (hasDependencies(CC_PROCESSED_DEPENDENCIES)) {
+        sentence.set(CollapsedCCProcessedDependenciesAnnotation.class, buildGraph(CC_PROCESSED_DEPENDENCIES, tokens));
+      }
+      return sentence;
+    }
+
+    /** The chains of the last COREF_CHAINS record, in the order written */
+    public List<CorefChain> corefChainList() {
+      return Arrays.asList(chains);
+    }
+
+    /** The chains of the last COREF_CHAINS record, by chain id, as in CorefChainAnnotation */
+    public Map<Integer, CorefChain> corefChains() {
+      Map<Integer, CorefChain> map = new LinkedHashMap<Integer, CorefChain>();
+      for (CorefChain chain : chains) {
+        map.put(chain.getChainID(), chain);
+      }
+      return map;
+    }
+
+    public List<Pair<IntTuple, IntTuple>> corefGraph() { return corefGraph; }
+
+    public String docId() { return docId; }
+
+    public void close() throws IOException {
+      in.close();
+    }
+
+    private void readSentence() throws IOException {
+      sentenceIndex++;
+      tokenCount = readInt();
+      if (words.length < tokenCount) {
+        int n = Math.max(tokenCount, 2 * words.length);
+        words = new String[n];
+        lemmas = new String[n];
+        tags = new String[n];
+        ners = new String[n];
+        normalizedNers = new String[n];
+        begins = new int[n];
+        ends = new int[n];
+      }
+      for (int i = 0; i < tokenCount; i++) {
+        words[i] = readString();
+        lemmas[i] = readString();
+        tags[i] = readString();
+        ners[i] = readString();
+        normalizedNers[i] = readString();
+        int length = readInt();
+        if (length == 0) {
+          begins[i] = ends[i] = -1;
+        } else {
+          begins[i] = lastEnd + readSigned();
+          ends[i] = lastEnd = begins[i] + unzigzag(length - 1);
+        }
+      }
+
+      treeSize = readInt();
+      if (treeLabels.length < treeSize) {
+        treeLabels = new String[Math.max(treeSize, 2 * treeLabels.length)];
+        treeChildren = new int[treeLabels.length];
+      }
+      for (int n = 0; n < treeSize; n++) {
+        treeLabels[n] = readString();
+        treeChildren[n] = readInt();
+      }
+
+      for (int g = 0; g < GRAPHS; g++) {
+        readGraph(g);
+      }
+    }
+
+    private void readGraph(int g) throws IOException {
+      int nodes = readInt() - 1;
+      nodeCount[g] = nodes;
+      edgeCount[g] = 0;
+      if (nodes < 0) return;
+      if (nodes == 0) {
+        readInt(); // the edge count of an empty graph
+        return;
+      }
+      graphDocIds[g] = readString();
+      graphSentIndices[g] = readInt() - 1;
+      if (nodeIndices[g].length < nodes) {
+        nodeIndices[g] = new int[Math.max(nodes, 2 * nodeIndices[g].length)];
+        nodeCopies[g] = new int[nodeIndices[g].length];
+      }
+      for (int v = 0; v < nodes; v++) {
+        int index = readInt();
+        nodeIndices[g][v] = index >>> 1;
+        nodeCopies[g][v] = (index & 1) == 0 ? -1 : readInt();
+      }
+      int edges = readInt();
+      edgeCount[g] = edges;
+      if (relations[g].length < edges) {
+        relations[g] = new String[Math.max(edges, 2 * relations[g].length)];
+        governors[g] = new int[relations[g].length];
+        dependents[g] = new int[relations[g].length];
+      }
+      for (int e = 0; e < edges; e++) {
+        relations[g][e] = readString();
+        governors[g][e] = checkNode(readInt(), nodes);
+        dependents[g][e] = checkNode(readInt(), nodes);
+      }
+    }
+
+    private static final Object LOCK = new Object();
+
+    private SemanticGraph buildGraph(int g, List<CoreLabel> tokens) {
+      SemanticGraph graph = new SemanticGraph();
+      IndexedWord[] nodes = new IndexedWord[nodeCount[g]];
+      for (int v = 0; v < nodes.length; v++) {
+        int index = nodeIndices[g][v];
+        IndexedWord word = new IndexedWord(graphDocIds[g], graphSentIndices[g], index, tokens.get(index - 1));
+        word.set(ValueAnnotation.class, word.get(TextAnnotation.class));
+        if (nodeCopies[g][v] >= 0) {
+          word.set(CopyAnnotation.class, nodeCopies[g][v]);
+        }
+        nodes[v] = word;
+        graph.addVertex(word);
+      }
+      for (int e = 0; e < edgeCount[g]; e++) {
+        synchronized (LOCK) {
+          // this is not thread-safe: there are static fields in GrammaticalRelation
+          GrammaticalRelation rel = GrammaticalRelation.valueOf(relations[g][e]);
+          graph.addEdge(nodes[governors[g][e]], nodes[dependents[g][e]], rel, 1.0);
+        }
+      }
+      if ( ! graph.isEmpty()) {
+        graph.resetRoots();
+      }
+      return graph;
+    }
+
+    private Tree buildTree(TreeFactory tf, int[] next) {
+      int n = next[0]++;
+      if (treeChildren[n] == 0) {
+        return tf.newLeaf(treeLabels[n]);
+      }
+      List<Tree> children = new ArrayList<Tree>(treeChildren[n]);
+      for (int c = 0; c < treeChildren[n]; c++) {
+        children.add(buildTree(tf, next));
+      }
+      return tf.newTreeNode(treeLabels[n], children);
+    }
+
+    private void readCorefChains() throws IOException {
+      chains = new CorefChain[readInt()];
+      for (int c = 0; c < chains.length; c++) {
+        int chainID = readSigned();
+        int size = readInt();
+        int representative = readInt() - 1;
+        List<CorefMention> mentions = new ArrayList<CorefMention>(size);
+        for (int m = 0; m < size; m++) {
+          String type = readString();
+          String number = readString();
+          String gender = readString();
+          String animacy = readString();
+          int sentNum = readInt();
+          int start = readInt();
+          int end = readInt();
+          int head = readInt();
+          int clusterID = readSigned();
+          int mentionID = readSigned();
+          IntTuple position = null;
+          if (readInt() != 0) {
+            position = new IntTuple(2);
+            position.set(0, readSigned());
+            position.set(1, readSigned());
+          }
+          mentions.add(new CorefMention(type == null ? null : MentionType.valueOf(type),
+                                        number == null ? null : Number.valueOf(number),
+                                        gender == null ? null : Gender.valueOf(gender),
+                                        animacy == null ? null : Animacy.valueOf(animacy),
+                                        start, end, head, clusterID, mentionID, sentNum, position));
+        }
+        chains[c] = new CorefChain(chainID, mentions, representative < 0 ? null : mentions.get(representative));
+      }
+    }
+
+    private void readCorefGraph() throws IOException {
+      int n = readInt();
+      corefGraph = new ArrayList<Pair<IntTuple, IntTuple>>(n);
+      for (int i = 0; i < n; i++) {
+        IntTuple src = new IntTuple(2);
+        IntTuple dst = new IntTuple(2);
+        src.set(0, readSigned());
+        src.set(1, readSigned());
+        dst.set(0, readSigned());
+        dst.set(1, readSigned());
+        corefGraph.add(new Pair<IntTuple, IntTuple>(src, dst));
+      }
+    }
+
+    private String readString() throws IOException {
+      int ref = readInt();
+      if (ref == 0) return null;
+      if (ref <= stringCount) return strings[ref - 1];
+      if (ref != stringCount + 1) {
+        throw new RuntimeIOException("ERROR: Bad string reference " + ref + " in binary annotation");
+      }
+      int length = readInt();
+      if (bytes.length < length) bytes = new byte[Math.max(length, 2 * bytes.length)];
+      in.readFully(bytes, 0, length);
+      String s = new String(bytes, 0, length, UTF8);
+      if (stringCount == strings.length) strings = Arrays.copyOf(strings, 2 * stringCount);
+      strings[stringCount++] = s;
+      return s;
+    }
+
+    private int readSigned() throws IOException {
+      return unzigzag(readInt());
+    }
+
+    private int readInt() throws IOException {
+      int n = 0;
+      for (int shift = 0; shift < 35; shift += 7) {
+        int b = in.read();
+        if (b < 0) throw new EOFException("Binary annotation ends in the middle of a record");
+        n |= (b & 0x7f) << shift;
+        if ((b & 0x80) == 0) return n;
+      }
+      throw new RuntimeIOException("ERROR: Bad varint in binary annotation");
+    }
+
+    private static int check(int i, int size) {
+      if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i + " not in [0, " + size + ")");
+      return i;
+    }
+
+    private static int checkNode(int v, int nodes) {
+      if (v >= nodes) throw new RuntimeIOException("ERROR: Bad dependency node " + v + " in binary annotation");
+      return v;
+    }
+
+  } // end class Reader
+
+
+  private static int zigzag(int n) {
+    return (n << 1) ^ (n >> 31);
+  }
+
+  private static int unzigzag(int n) {
+    return (n >>> 1) ^ -(n & 1);
+  }
+
+  /**
+   * Converts a serialized annotation between formats:
+   * <code>BinaryAnnotationSerializer in.ser.gz out.bin</code> reads anything
+   * written with Java serialization or by this class (by its extension ".bin"
+   * or ".bin.gz") and writes the other; a ".gz" output name is compressed.
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length != 2) {
+      System.err.println("Usage: BinaryAnnotationSerializer input output");
+      System.exit(1);
+    }
+    Annotation doc;
+    if (isBinary(args[0])) {
+      doc = new BinaryAnnotationSerializer().load(new FileInputStream(args[0]));
+    } else {
+      doc = (Annotation) edu.stanford.nlp.io.IOUtils.readObjectFromFile(args[0]);
+    }
+    if (isBinary(args[1])) {
+      new BinaryAnnotationSerializer(args[1].endsWith(".gz")).save(doc, new FileOutputStream(args[1]));
+    } else {
+      edu.stanford.nlp.io.IOUtils.writeObjectToFile(doc, args[1]);
+    }
+  }
+
+  private static boolean isBinary(String filename) {
+    return filename.endsWith(".bin") || filename.endsWith(".bin.gz");
+  }
+
+}
@@ -35,6 +35,12 @@ import edu.stanford.nlp.util.Pair;
  * Implements the Annotator for the new deterministic coreference resolution system.
  * This requires: ParsePLAnnotation and WordsPLAnnotation, where each word must have the POS tag and NER label set.
  * In other words, this depends on: POSTaggerAnnotator, OldNERCombinerAnnotator (or equivalent), and ParserAnnotator.
+ * <p>
+ * The annotator is thread-safe: several threads may annotate different
+ * documents with one instance, sharing its dictionaries.  All the state of
+ * a call (mentions, clusters) is kept in the Document made for it.  The
+ * parses of mention extents made along the way use the calling thread's
+ * parse annotator.
  *
  * @author Mihai Surdeanu, based on the CorefAnnotator written by Marie-Catherine de Marneffe
  */
@@ -26,6 +26,14 @@ import java.util.Properties;
  * in the CoreLabel.NER_KEY field.  It uses
  * the NERClassifierCombiner class in the ie package.
  *
+ * If nThreads is greater than 1, the sentences of a document are labeled
+ * in parallel by that many threads, all using the one loaded classifier:
+ * the model weights and feature index are only read while classifying,
+ * and each sentence gets its own feature arrays and clique tree.  Each
+ * thread writes only to the tokens of its own sentence, so the output is
+ * the same as when labeling sequentially.  The threads are those of
+ * {@link AnnotatorThreads}, so the annotator need not be shut down.
+ *
  * @author Jenny Finkel
  * @author Mihai Surdeanu (modified it to work with the new NERClassifierCombiner)
  */
@@ -33,6 +41,9 @@ public class NERCombinerAnnotator implements Annotator {
 
   private NERClassifierCombiner ner;
 
+  /** Number of threads used to label the sentences of one document */
+  private final int nThreads;
+
   private Timing timer = new Timing();
   private boolean VERBOSE = true;
 
@@ -53,6 +64,7 @@ public class NERCombinerAnnotator implements Annotator {
   }
 
   public NERCombinerAnnotator(boolean verbose) throws IOException, ClassNotFoundException {
+    nThreads = 1;
     VERBOSE = verbose;
     timerStart("Loading NER combiner model...");
     ner = new NERClassifierCombiner(new Properties());
@@ -61,6 +73,7 @@ public class NERCombinerAnnotator implements Annotator {
 
   public NERCombinerAnnotator(boolean verbose, String... classifiers)
   throws IOException, ClassNotFoundException {
+    nThreads = 1;
     VERBOSE = verbose;
     timerStart("Loading NER combiner model...");
     ner = new NERClassifierCombiner(classifiers);
@@ -68,8 +81,13 @@ public class NERCombinerAnnotator implements Annotator {
   }
 
   public NERCombinerAnnotator(NERClassifierCombiner ner, boolean verbose) {
+    this(ner, verbose, 1);
+  }
+
+  public NERCombinerAnnotator(NERClassifierCombiner ner, boolean verbose, int nThreads) {
     VERBOSE = verbose;
     this.ner = ner;
+    this.nThreads = nThreads;
   }
 
   public void annotate(Annotation annotation) {
@@ -82,36 +100,12 @@ public class NERCombinerAnnotator implements Annotator {
     } else if (annotation.containsKey(CoreAnnotations.SentencesAnnotation.class)) {
 
       // classify tokens for each sentence
-      for (CoreMap sentence: annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
-        List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
-        List<CoreLabel> output = this.ner.classifySentence(tokens);
-        if (VERBOSE) {
-          boolean first = true;
-          System.err.print("NERCombinerAnnotator direct output: [");
-          for (CoreLabel w : output) {
-            if (first) { first = false; } else { System.err.print(", "); }
-            System.err.print(w.toString());
-          }
-          System.err.println(']');
-        }
-
-        for (int i = 0; i < tokens.size(); ++i) {
-
-          // add the named entity tag to each token
-          String neTag = output.get(i).get(NamedEntityTagAnnotation.class);
-          String normNeTag = output.get(i).get(NormalizedNamedEntityTagAnnotation.class);
-          tokens.get(i).setNER(neTag);
-          if(normNeTag != null) tokens.get(i).set(NormalizedNamedEntityTagAnnotation.class, normNeTag);
-        }
-
-        if (VERBOSE) {
-          boolean first = true;
-          System.err.print("NERCombinerAnnotator output: [");
-          for (CoreLabel w : tokens) {
-            if (first) { first = false; } else { System.err.print(", "); }
-            System.err.print(w.toShorterString("Word", "NamedEntityTag", "NormalizedNamedEntityTag"));
-          }
-          System.err.println(']');
+      List<CoreMap> sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
+      if (nThreads > 1 && sentences.size() > 1) {
+        classifyInParallel(sentences);
+      } else {
+        for (CoreMap sentence: sentences) {
+          doOneSentence(sentence);
         }
       }
     } else {
@@ -120,6 +114,55 @@ public class NERCombinerAnnotator implements Annotator {
     //timerStop("done.");
   }
 
+  private void doOneSentence(CoreMap sentence) {
+    List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+    List<CoreLabel> output = this.ner.classifySentence(tokens);
+    if (VERBOSE) {
+      boolean first = true;
+      System.err.print("NERCombinerAnnotator direct output: [");
+      for (CoreLabel w : output) {
+        if (first) { first = false; } else { System.err.print(", "); }
+        System.err.print(w.toString());
+      }
+      System.err.println(']');
+    }
+
+    for (int i = 0; i < tokens.size(); ++i) {
+
+      // add the named entity tag to each token
+      String neTag = output.get(i).get(NamedEntityTagAnnotation.class);
+      String normNeTag = output.get(i).get(NormalizedNamedEntityTagAnnotation.class);
+      tokens.get(i).setNER(neTag);
+      if(normNeTag != null) tokens.get(i).set(NormalizedNamedEntityTagAnnotation.class, normNeTag);
+    }
+
+    if (VERBOSE) {
+      boolean first = true;
+      System.err.print("NERCombinerAnnotator output: [");
+      for (CoreLabel w : tokens) {
+        if (first) { first = false; } else { System.err.print(", "); }
+        System.err.print(w.toShorterString("Word", "NamedEntityTag", "NormalizedNamedEntityTag"));
+      }
+      System.err.println(']');
+    }
+  }
+
+  /**
+   * Labels the sentences on up to nThreads threads and waits until all of
+   * them are done.
+   */
+  private void classifyInParallel(List<CoreMap> sentences) {
+    List<Runnable> tasks = new ArrayList<Runnable>();
+    for (final CoreMap sentence : sentences) {
+      tasks.add(new Runnable() {
+        public void run() {
+          doOneSentence(sentence);
+        }
+      });
+    }
+    AnnotatorThreads.runAll(tasks, nThreads);
+  }
+
   @Deprecated
   private void doOneSentence(List<? extends CoreLabel> words) {
     List<CoreLabel> newWords = new ArrayList<CoreLabel>();
@@ -42,6 +42,14 @@ public class PTBTokenizerAnnotator extends TokenizerAnnotator {
     factory = PTBTokenizer.factory(new CoreLabelTokenFactory(), options);
   }  
 
+  /**
+   * Makes tokens with room for tokenCapacity annotations.
+   */
+  public PTBTokenizerAnnotator(boolean verbose, String options, int tokenCapacity) {
+    super(verbose);
+    factory = PTBTokenizer.factory(new CoreLabelTokenFactory(true, tokenCapacity), options);
+  }
+
   @Override
   Tokenizer<CoreLabel> getTokenizer(Reader r) {
     return factory.getTokenizer(r);
@@ -0,0 +1,367 @@
+package edu.stanford.nlp.pipeline;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.stanford.nlp.io.RuntimeIOException;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.trees.LabeledScoredTreeFactory;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.TreeFactory;
+
+/**
+ * Remembers the parse trees of sentences, so that a sentence that occurs
+ * again, in the same document or another one, is not parsed again.
+ * Collections of articles repeat many sentences word for word (boilerplate,
+ * captions, quotations), and parsing is by far the slowest step of the
+ * pipeline.
+ * <p>
+ * A sentence is found by its key, a digest of its words and their POS
+ * tags (see {@link #key}), together with a context string naming the
+ * parser and its flags, so that the trees of one parser are never handed
+ * out for another.  Trees are kept in a compact one-line form and a new
+ * Tree is built for each hit, since the annotators change the trees they
+ * are given.  The dependency graphs are not kept: they are worked out from
+ * the tree, which is cheap next to parsing, and doing so gives graphs whose
+ * nodes are exactly those a fresh parse would have given.
+ * <p>
+ * There are two tiers.  The most recently used trees (up to a given number)
+ * are kept in memory.  If a file is given, every tree is also appended to
+ * it, and the trees in it are found again when the file is next opened, so
+ * a rerun over an overlapping corpus only parses the sentences it has not
+ * seen.  Only the keys and file positions of the trees on disk are kept in
+ * memory.  The file holds one tree per line: the key, a tab and the score
+ * of the tree, then the nodes of the tree in preorder, each as a tab, its
+ * number of children, a space and its label.  A line cut short (say by a crash) is ignored.
+ * <p>
+ * A ParseCache may be shared by several threads.  Hits in each tier and
+ * misses are counted.  Once it is closed, it only keeps trees in memory.
+ */
+public class ParseCache implements Closeable {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final byte[] context;
+  private final int maxSize;
+
+  private final Map<String, String> memory;
+  private final Map<String, long[]> disk; // key -> {position, length} of the tree
+  private final RandomAccessFile file;
+  private boolean closed; // = false; guarded by file
+  private final String filename;
+
+  private final AtomicLong memoryHits = new AtomicLong();
+  private final AtomicLong diskHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Makes a cache that only keeps trees in memory.
+   *
+   * @param size The number of trees to keep in memory
+   * @param context Names the parser and its settings, e.g. the model path
+   *     and the flags, so that trees made under other settings are not used
+   */
+  public ParseCache(int size, String context) {
+    this(size, context, null);
+  }
+
+  /**
+   * Makes a cache that keeps the trees in memory and in a file.
+   *
+   * @param size The number of trees to keep in memory
+   * @param context Names the parser and its settings, e.g. the model path
+   *     and the flags, so that trees made under other settings are not used
+   * @param filename The file of trees, which is made if it does not exist,
+   *     or null to keep trees in memory only
+   * @throws RuntimeIOException If the file cannot be read or written
+   */
+  public ParseCache(int size, String context, String filename) {
+    this.context = context.getBytes(UTF8);
+    this.maxSize = size;
+    this.memory = new LinkedHashMap<String, String>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+        return size() > maxSize;
+      }
+    };
+    this.filename = filename;
+    if (filename == null) {
+      disk = null;
+      file = null;
+    } else {
+      disk = new HashMap<String, long[]>();
+      try {
+        file = new RandomAccessFile(new File(filename), "rw");
+        readIndex();
+      } catch (IOException e) {
+        throw new RuntimeIOException("Cannot open parse cache " + filename, e);
+      }
+    }
+  }
+
+  /**
+   * Returns the key of a sentence: a digest of the context of the cache
+   * and the words of the sentence, with their POS tags if they have them.
+   */
+  public String key(List<? extends CoreLabel> words) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+    digest.update(context);
+    for (CoreLabel word : words) {
+      digest.update((byte) 0);
+      digest.update(String.valueOf(word.word()).getBytes(UTF8));
+      String tag = word.tag();
+      if (tag != null) {
+        digest.update((byte) 1);
+        digest.update(tag.getBytes(UTF8));
+      }
+    }
+    byte[] bytes = digest.digest();
+    StringBuilder sb = new StringBuilder(2 * bytes.length);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+      sb.append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Returns a new copy of the tree with the given key, or null if there is
+   * none.  The labels of the tree are CoreLabels holding only the value
+   * they were given by the parser, and the root has the parser's score.
+   */
+  public Tree get(String key) {
+    String encoded;
+    synchronized (memory) {
+      encoded = memory.get(key);
+    }
+    if (encoded != null) {
+      memoryHits.incrementAndGet();
+      return decode(encoded);
+    }
+    if (disk != null) {
+      encoded = readFromDisk(key);
+      if (encoded != null) {
+        synchronized (memory) {
+          memory.put(key, encoded);
+        }
+        diskHits.incrementAndGet();
+        return decode(encoded);
+      }
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /**
+   * Keeps the tree of a sentence under its key.  The tree itself is not
+   * kept, so it can be changed afterwards.  Trees with a tab or line break
+   * in a label are not kept.
+   */
+  public void put(String key, Tree tree) {
+    String encoded = encode(tree);
+    if (encoded == null) {
+      return;
+    }
+    synchronized (memory) {
+      memory.put(key, encoded);
+    }
+    if (disk != null) {
+      writeToDisk(key, encoded);
+    }
+  }
+
+
+  private static String encode(Tree tree) {
+    StringBuilder sb = new StringBuilder();
+    sb.append('\t').append(tree.score());
+    for (Tree node : tree) {
+      String label = node.value();
+      if (label == null) {
+        label = "";
+      } else if (label.indexOf('\t') >= 0 || label.indexOf('\n') >= 0 ||
+                 label.indexOf('\r') >= 0) {
+        return null;
+      }
+      sb.append('\t').append(node.numChildren()).append(' ').append(label);
+    }
+    return sb.toString();
+  }
+
+  private static Tree decode(String encoded) {
+    String[] nodes = encoded.substring(1).split("\t", -1);
+    TreeFactory tf = new LabeledScoredTreeFactory(CoreLabel.factory());
+    Tree tree = build(tf, nodes, new int[] { 1 });
+    tree.setScore(Double.parseDouble(nodes[0]));
+    return tree;
+  }
+
+  private static Tree build(TreeFactory tf, String[] nodes, int[] next) {
+    String node = nodes[next[0]++];
+    int space = node.indexOf(' ');
+    int children = Integer.parseInt(node.substring(0, space));
+    String label = node.substring(space + 1);
+    if (children == 0) {
+      return tf.newLeaf(label);
+    }
+    List<Tree> kids = new ArrayList<Tree>(children);
+    for (int i = 0; i < children; i++) {
+      kids.add(build(tf, nodes, next));
+    }
+    return tf.newTreeNode(label, kids);
+  }
+
+
+  /** Finds the trees already in the file.  A last line without its line
+   *  break is cut off, so that new trees start on a line of their own. */
+  private void readIndex() throws IOException {
+    long length = file.length();
+    long lineStart = 0;
+    long pos = 0;
+    byte[] buffer = new byte[1 << 16];
+    StringBuilder key = new StringBuilder();
+    boolean inKey = true;
+    file.seek(0);
+    while (pos < length) {
+      int n = file.read(buffer);
+      if (n < 0) {
+        break;
+      }
+      for (int i = 0; i < n; i++, pos++) {
+        byte b = buffer[i];
+        if (b == '\n') {
+          if ( ! inKey) {
+            long treeStart = lineStart + key.length();
+            disk.put(key.toString(), new long[] { treeStart, pos - treeStart });
+          }
+          key.setLength(0);
+          inKey = true;
+          lineStart = pos + 1;
+        } else if (inKey) {
+          if (b == '\t') {
+            inKey = false;
+          } else {
+            key.append((char) b);
+          }
+        }
+      }
+    }
+    if (lineStart < length) {
+      file.setLength(lineStart);
+    }
+  }
+
+  private String readFromDisk(String key) {
+    synchronized (file) {
+      long[] place = closed ? null : disk.get(key);
+      if (place == null) {
+        return null;
+      }
+      try {
+        byte[] bytes = new byte[(int) place[1]];
+        file.seek(place[0]);
+        file.readFully(bytes);
+        return new String(bytes, UTF8);
+      } catch (IOException e) {
+        throw new RuntimeIOException("Cannot read parse cache " + filename, e);
+      }
+    }
+  }
+
+  private void writeToDisk(String key, String encoded) {
+    synchronized (file) {
+      if (closed || disk.containsKey(key)) {
+        return;
+      }
+      try {
+        byte[] tree = encoded.getBytes(UTF8);
+        long pos = file.length();
+        file.seek(pos);
+        file.write(key.getBytes(UTF8));
+        file.write(tree);
+        file.write('\n');
+        disk.put(key, new long[] { pos + key.length(), tree.length });
+      } catch (IOException e) {
+        throw new RuntimeIOException("Cannot write parse cache " + filename, e);
+      }
+    }
+  }
+
+  /** Closes the file of trees, if there is one.  The trees in memory can
+   *  still be found, and new ones are still kept there. */
+  public void close() throws IOException {
+    if (file != null) {
+      synchronized (file) {
+        if ( ! closed) {
+          closed = true;
+          file.close();
+        }
+      }
+    }
+  }
+
+
+  /** The number of trees kept in memory. */
+  public int size() {
+    synchronized (memory) {
+      return memory.size();
+    }
+  }
+
+  /** The number of trees in the file, or 0 if there is none. */
+  public int diskSize() {
+    if (disk == null) {
+      return 0;
+    }
+    synchronized (file) {
+      return disk.size();
+    }
+  }
+
+  /** The number of lookups that found their tree in memory. */
+  public long memoryHits() {
+    return memoryHits.get();
+  }
+
+  /** The number of lookups that found their tree in the file. */
+  public long diskHits() {
+    return diskHits.get();
+  }
+
+  /** The number of lookups that did not find their tree. */
+  public long misses() {
+    return misses.get();
+  }
+
+  /** The fraction of lookups that found their tree, or 0 if there were none. */
+  public double hitRate() {
+    long hits = memoryHits.get() + diskHits.get();
+    long total = hits + misses.get();
+    return (total == 0) ? 0.0 : ((double) hits) / total;
+  }
+
+  @Override
+  public String toString() {
+    return "ParseCache[" + size() + '/' + maxSize + " trees in memory, " +
+        diskSize() + " on disk, " + memoryHits() + " memory hits, " +
+        diskHits() + " disk hits, " + misses() + " misses, hit rate " +
+        ((int) (hitRate() * 1000)) / 10.0 + "%]";
+  }
+
+}
@@ -2,11 +2,14 @@ package edu.stanford.nlp.pipeline;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.ling.CyclicCoreLabel;
 import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.parser.lexparser.Test;
 import edu.stanford.nlp.pipeline.DeprecatedAnnotations.ParsePLAnnotation;
 import edu.stanford.nlp.pipeline.DeprecatedAnnotations.WordsPLAnnotation;
 import edu.stanford.nlp.trees.Tree;
@@ -26,6 +29,18 @@ import edu.stanford.nlp.util.CoreMap;
  * {@code CoreAnnotations.SentencesAnnotation}) under
  * {@code CoreAnnotations.TreeAnnotation}).
  *
+ * If nThreads is greater than 1, the sentences of a document are parsed
+ * in parallel by that many threads (the calling thread and threads shared
+ * by all annotators; see {@link AnnotatorThreads}).  Each thread has its own
+ * LexicalizedParser query object (see {@link LexicalizedParser#parserQuery()})
+ * sharing the grammar of the loaded parser.  The trees and dependency
+ * graphs are stored in each sentence's coremap, so the output is the same
+ * as when parsing sequentially.
+ *
+ * If it is given a {@link ParseCache}, a sentence whose words and tags
+ * are in the cache gets its tree from there rather than being parsed
+ * again, and the trees of the sentences that are parsed are added to it.
+ *
  * @author Jenny Finkel
  */
 public class ParserAnnotator implements Annotator {
@@ -36,6 +51,14 @@ public class ParserAnnotator implements Annotator {
   /** Do not parse sentences larger than this sentence length */
   int maxSentenceLength;
 
+  /** Number of threads used to parse the sentences of one document */
+  private final int nThreads;
+  /** Parsers available to the worker threads; created on first use */
+  private BlockingQueue<LexicalizedParser> parserQueries;
+
+  /** Trees of sentences already parsed, or null */
+  private final ParseCache cache;
+
   public static final String[] DEFAULT_FLAGS = { "-retainTmpSubcategories" };
 
   public ParserAnnotator() {
@@ -54,13 +77,41 @@ public class ParserAnnotator implements Annotator {
                          boolean verbose,
                          int maxSent,
                          String[] flags) {
-    this(loadModel(parserLoc, verbose, flags), verbose, maxSent);
+    this(parserLoc, verbose, maxSent, flags, 1);
+  }
+
+  public ParserAnnotator(String parserLoc,
+                         boolean verbose,
+                         int maxSent,
+                         String[] flags,
+                         int nThreads) {
+    this(parserLoc, verbose, maxSent, flags, nThreads, null);
+  }
+
+  public ParserAnnotator(String parserLoc,
+                         boolean verbose,
+                         int maxSent,
+                         String[] flags,
+                         int nThreads,
+                         ParseCache cache) {
+    this(loadModel(parserLoc, verbose, flags), verbose, maxSent, nThreads, cache);
   }
 
   public ParserAnnotator(LexicalizedParser parser, boolean verbose, int maxSent) {
+    this(parser, verbose, maxSent, 1);
+  }
+
+  public ParserAnnotator(LexicalizedParser parser, boolean verbose, int maxSent, int nThreads) {
+    this(parser, verbose, maxSent, nThreads, null);
+  }
+
+  public ParserAnnotator(LexicalizedParser parser, boolean verbose, int maxSent, int nThreads,
+                         ParseCache cache) {
     VERBOSE = verbose;
     this.parser = parser;
     maxSentenceLength = maxSent;
+    this.nThreads = nThreads;
+    this.cache = cache;
   }
 
   private static LexicalizedParser loadModel(String parserLoc, 
@@ -99,21 +150,123 @@ public class ParserAnnotator implements Annotator {
       }
     } else if (annotation.containsKey(CoreAnnotations.SentencesAnnotation.class)) {
       // parse a tree for each sentence
-      for (CoreMap sentence: annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
-        Tree tree = null;
-        List<CoreLabel> words = sentence.get(CoreAnnotations.TokensAnnotation.class);
-        if (VERBOSE) {
-          System.err.println("Parsing: " + words);
+      List<CoreMap> sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
+      if (nThreads > 1 && sentences.size() > 1) {
+        parseInParallel(sentences);
+      } else {
+        for (CoreMap sentence: sentences) {
+          doOneSentence(parser, sentence);
         }
-        // generate the constituent tree
-        if(maxSentenceLength <= 0 || words.size() < maxSentenceLength) tree = parser.apply(words);
-        else tree = ParserAnnotatorUtils.xTree(words);
-
-        ParserAnnotatorUtils.fillInParseAnnotations(VERBOSE, sentence, tree);
       }
     } else {
       throw new RuntimeException("unable to find sentences in: " + annotation);
     }
+    if (VERBOSE && cache != null) {
+      System.err.println(cache);
+    }
+  }
+
+  /** Returns the cache of trees this annotator uses, or null if it has none. */
+  public ParseCache getParseCache() {
+    return cache;
+  }
+
+  private void doOneSentence(LexicalizedParser parser, CoreMap sentence) {
+    Tree tree = null;
+    List<CoreLabel> words = sentence.get(CoreAnnotations.TokensAnnotation.class);
+    if (VERBOSE) {
+      System.err.println("Parsing: " + words);
+    }
+    // generate the constituent tree
+    if(maxSentenceLength <= 0 || words.size() < maxSentenceLength) {
+      String key = null;
+      // a constrained parse (see Test.setThreadConstraints) is neither
+      // answered from the cache nor kept in it
+      if (cache != null && Test.constraints() == null) {
+        key = cache.key(words);
+        tree = cache.get(key);
+        if (tree != null) {
+          labelAsParsed(words, tree);
+        }
+      }
+      if (tree == null) {
+        tree = parser.apply(words);
+        // a tree without a score is the fall through tree of a failed parse
+        if (key != null && ! Double.isNaN(tree.score())) {
+          cache.put(key, tree);
+        }
+      }
+    }
+    else tree = ParserAnnotatorUtils.xTree(words);
+
+    ParserAnnotatorUtils.fillInParseAnnotations(VERBOSE, sentence, tree);
+  }
+
+  /**
+   * Gives a tree from the cache the labels the parser would have given it:
+   * the leaves get copies of the labels of the words, and the other nodes
+   * get a category but no word, tag or offsets.
+   */
+  private static void labelAsParsed(List<CoreLabel> words, Tree tree) {
+    int i = 0;
+    for (Tree node : tree) {
+      CoreLabel label;
+      if (node.isLeaf() && i < words.size()) {
+        label = new CoreLabel(words.get(i++));
+      } else {
+        label = new CoreLabel();
+        label.setWord(null);
+        label.setBeginPosition(-1);
+        label.setEndPosition(-1);
+        label.setTag(null);
+        label.setCategory(node.value());
+      }
+      label.setValue(node.value());
+      node.setLabel(label);
+    }
+  }
+
+  /**
+   * Parses each sentence on one of the worker threads and waits until
+   * all of them are done.  Each task writes only to its own sentence.
+   */
+  private void parseInParallel(List<CoreMap> sentences) {
+    makeParserQueries();
+    List<Runnable> tasks = new ArrayList<Runnable>();
+    for (final CoreMap sentence : sentences) {
+      tasks.add(new Runnable() {
+        public void run() {
+          LexicalizedParser query;
+          try {
+            query = parserQueries.take();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          try {
+            doOneSentence(query, sentence);
+          } finally {
+            parserQueries.add(query);
+          }
+        }
+      });
+    }
+    AnnotatorThreads.runAll(tasks, nThreads);
+  }
+
+  /**
+   * Creates the parser query objects of the worker threads.  The loaded
+   * parser is used as one of them.
+   */
+  private synchronized void makeParserQueries() {
+    if (parserQueries != null) {
+      return;
+    }
+    BlockingQueue<LexicalizedParser> queries = new ArrayBlockingQueue<LexicalizedParser>(nThreads);
+    queries.add(parser);
+    for (int i = 1; i < nThreads; i++) {
+      queries.add(parser.parserQuery());
+    }
+    parserQueries = queries;
   }
 
   private Tree doOneSentence(List<? extends CoreLabel> words) {
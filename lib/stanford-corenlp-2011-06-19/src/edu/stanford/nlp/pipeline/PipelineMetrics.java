@@ -0,0 +1,391 @@
+package edu.stanford.nlp.pipeline;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.util.CoreMap;
+
+
+/**
+ * Counts and latency histograms for the annotators of one or more
+ * {@link AnnotationPipeline}s.  Pipelines that ask {@link #get} for the
+ * same name share one PipelineMetrics, so the worker pipelines of a
+ * multithreaded run add up.  Each PipelineMetrics is registered as an MBean
+ * (see {@link PipelineMetricsMBean}) and can also print a summary to
+ * System.err at a fixed interval.
+ * <p>
+ * Recording a document costs a couple of atomic increments per annotator.
+ * Bytes allocated by each annotator are read from the JVM's per-thread
+ * counter, which is slower, so only one document in every
+ * {@link #setAllocationSampling allocationSampling} is measured.  That
+ * counter is an extension of the HotSpot JVMs; on a JVM without it,
+ * allocation is not measured and the summary says so.
+ *
+ * @see StanfordCoreNLP for the <code>metrics</code> properties
+ */
+public class PipelineMetrics implements PipelineMetricsMBean {
+
+  private static final Map<String,PipelineMetrics> registry = new HashMap<String,PipelineMetrics>();
+
+  private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+  /** getThreadAllocatedBytes(long) of com.sun.management.ThreadMXBean,
+   *  looked up by name so that this class loads on any JVM; null if the
+   *  JVM does not have it or does not count allocation.
+   */
+  private static final Method allocatedBytesMethod = allocatedBytesMethod();
+
+  private static Method allocatedBytesMethod() {
+    try {
+      Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+      if ( ! beanClass.isInstance(threadBean)) {
+        return null;
+      }
+      if ( ! (Boolean) beanClass.getMethod("isThreadAllocatedMemorySupported").invoke(threadBean) ||
+           ! (Boolean) beanClass.getMethod("isThreadAllocatedMemoryEnabled").invoke(threadBean)) {
+        return null;
+      }
+      return beanClass.getMethod("getThreadAllocatedBytes", long.class);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private final String name;
+  private final List<AnnotatorStats> annotators = new CopyOnWriteArrayList<AnnotatorStats>();
+
+  private final AtomicLong documents = new AtomicLong();
+  private final AtomicLong sentences = new AtomicLong();
+  private final AtomicLong tokens = new AtomicLong();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile long startTime = System.nanoTime();
+
+  private volatile int allocationSampling = 16;
+  private final AtomicLong sampleCounter = new AtomicLong();
+
+  private ScheduledExecutorService logger; // = null
+
+
+  private PipelineMetrics(String name) {
+    this.name = name;
+  }
+
+  /** Returns the metrics of this name, creating and registering them with
+   *  JMX the first time.
+   */
+  public static synchronized PipelineMetrics get(String name) {
+    PipelineMetrics metrics = registry.get(name);
+    if (metrics == null) {
+      metrics = new PipelineMetrics(name);
+      registry.put(name, metrics);
+      try {
+        ObjectName objectName = new ObjectName("edu.stanford.nlp.pipeline:type=PipelineMetrics,name=" +
+                                               ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+      } catch (JMException e) {
+        System.err.println("PipelineMetrics: could not register " + name + " with JMX: " + e);
+      }
+    }
+    return metrics;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** Measure the allocation of one document in every n; 0 turns it off. */
+  public void setAllocationSampling(int n) {
+    allocationSampling = n;
+  }
+
+  /** Prints {@link #summary()} to System.err every so many seconds, or
+   *  stops doing so if seconds is 0.
+   */
+  public synchronized void logEvery(long seconds) {
+    if (logger != null) {
+      logger.shutdownNow();
+      logger = null;
+    }
+    if (seconds <= 0) {
+      return;
+    }
+    logger = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "PipelineMetrics-" + name);
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    logger.scheduleAtFixedRate(new Runnable() {
+      public void run() {
+        System.err.println(summary());
+      }
+    }, seconds, seconds, TimeUnit.SECONDS);
+  }
+
+
+  // RECORDING, CALLED BY AnnotationPipeline
+
+  /** Returns the stats of the annotator of this name, adding them if there
+   *  are none yet.
+   */
+  synchronized AnnotatorStats annotator(String annotatorName) {
+    for (AnnotatorStats stats : annotators) {
+      if (stats.name.equals(annotatorName)) {
+        return stats;
+      }
+    }
+    AnnotatorStats stats = new AnnotatorStats(annotatorName);
+    annotators.add(stats);
+    return stats;
+  }
+
+  /** Notes that a document has started, and returns whether its
+   *  allocation should be measured.
+   */
+  boolean startDocument() {
+    inFlight.incrementAndGet();
+    int n = allocationSampling;
+    return allocatedBytesMethod != null && n > 0 && sampleCounter.getAndIncrement() % n == 0;
+  }
+
+  /** Bytes allocated so far by the current thread.  Only called for a
+   *  document {@link #startDocument} chose to measure.
+   */
+  static long allocatedBytes() {
+    try {
+      return (Long) allocatedBytesMethod.invoke(threadBean, Thread.currentThread().getId());
+    } catch (Exception e) {
+      throw new RuntimeException("PipelineMetrics: could not read the allocation counter", e);
+    }
+  }
+
+  /** Notes that an annotator failed on a document, which is not recorded. */
+  void abandonDocument() {
+    inFlight.decrementAndGet();
+  }
+
+  /** Records a finished document.  allocated is null if the document was
+   *  not sampled.
+   */
+  void endDocument(Annotation annotation, List<AnnotatorStats> stats, long[] nanos, long[] allocated) {
+    inFlight.decrementAndGet();
+    List<?> docTokens = annotation.get(CoreAnnotations.TokensAnnotation.class);
+    List<CoreMap> docSentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
+    int numTokens = docTokens == null ? 0 : docTokens.size();
+    documents.incrementAndGet();
+    tokens.addAndGet(numTokens);
+    sentences.addAndGet(docSentences == null ? 0 : docSentences.size());
+    for (int i = 0; i < nanos.length; i++) {
+      AnnotatorStats s = stats.get(i);
+      s.latency.record(nanos[i]);
+      s.nanos.addAndGet(nanos[i]);
+      s.tokens.addAndGet(numTokens);
+      if (allocated != null) {
+        s.allocatedBytes.addAndGet(allocated[i]);
+        s.allocationSamples.incrementAndGet();
+      }
+    }
+  }
+
+
+  // REPORTING
+
+  public long getDocuments() {
+    return documents.get();
+  }
+
+  public long getSentences() {
+    return sentences.get();
+  }
+
+  public long getTokens() {
+    return tokens.get();
+  }
+
+  public int getDocumentsInFlight() {
+    return inFlight.get();
+  }
+
+  public double getTokensPerSecond() {
+    double seconds = (System.nanoTime() - startTime) / 1e9;
+    return seconds > 0 ? tokens.get() / seconds : 0.0;
+  }
+
+  public String[] getAnnotatorNames() {
+    List<String> names = new ArrayList<String>();
+    for (AnnotatorStats stats : annotators) {
+      names.add(stats.name);
+    }
+    return names.toArray(new String[names.size()]);
+  }
+
+  public String[] getAnnotatorSummaries() {
+    List<String> lines = new ArrayList<String>();
+    for (AnnotatorStats stats : annotators) {
+      lines.add(stats.toString());
+    }
+    return lines.toArray(new String[lines.size()]);
+  }
+
+  public double latencyPercentile(String annotator, double percentile) {
+    for (AnnotatorStats stats : annotators) {
+      if (stats.name.equals(annotator)) {
+        return stats.latency.percentile(percentile) / 1e6;
+      }
+    }
+    return Double.NaN;
+  }
+
+  public void reset() {
+    documents.set(0);
+    sentences.set(0);
+    tokens.set(0);
+    for (AnnotatorStats stats : annotators) {
+      stats.reset();
+    }
+    startTime = System.nanoTime();
+  }
+
+  /** The totals on one line, followed by a line for each annotator. */
+  public String summary() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(name).append(": ").append(getDocuments()).append(" docs, ");
+    sb.append(getSentences()).append(" sentences, ").append(getTokens()).append(" tokens, ");
+    sb.append(String.format("%.1f tokens/sec, %d in flight", getTokensPerSecond(), getDocumentsInFlight()));
+    if (allocatedBytesMethod == null && allocationSampling > 0) {
+      sb.append(", allocation unsupported by this JVM");
+    }
+    for (AnnotatorStats stats : annotators) {
+      sb.append("\n  ").append(stats);
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public String toString() {
+    return summary();
+  }
+
+
+  /** What is known about one annotator. */
+  static class AnnotatorStats {
+
+    final String name;
+    final Histogram latency = new Histogram();
+    final AtomicLong nanos = new AtomicLong();
+    final AtomicLong tokens = new AtomicLong();
+    final AtomicLong allocatedBytes = new AtomicLong();
+    final AtomicLong allocationSamples = new AtomicLong();
+
+    AnnotatorStats(String name) {
+      this.name = name;
+    }
+
+    void reset() {
+      latency.reset();
+      nanos.set(0);
+      tokens.set(0);
+      allocatedBytes.set(0);
+      allocationSamples.set(0);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder(name);
+      sb.append(String.format(": %d docs, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms", latency.count(),
+                              latency.percentile(50) / 1e6, latency.percentile(95) / 1e6,
+                              latency.percentile(99) / 1e6));
+      long numTokens = tokens.get();
+      if (numTokens > 0) {
+        sb.append(String.format(", %.1f us/token", nanos.get() / 1e3 / numTokens));
+      }
+      long samples = allocationSamples.get();
+      if (samples > 0) {
+        sb.append(String.format(", %.0f KB/doc allocated", allocatedBytes.get() / 1024.0 / samples));
+      }
+      return sb.toString();
+    }
+
+  } // end static class AnnotatorStats
+
+
+  /** A histogram of non-negative longs with four buckets per power of two,
+   *  so a percentile is within about 12% of the true value.
+   */
+  static class Histogram {
+
+    private final AtomicLongArray counts = new AtomicLongArray(256);
+
+    static int bucket(long v) {
+      if (v < 4) {
+        return v < 0 ? 0 : (int) v;
+      }
+      int e = 63 - Long.numberOfLeadingZeros(v);
+      return 4 * (e - 1) + (int) ((v >>> (e - 2)) & 3);
+    }
+
+    /** The middle of the values that fall in bucket b. */
+    static double value(int b) {
+      if (b < 4) {
+        return b;
+      }
+      int e = b / 4 + 1;
+      long width = 1L << (e - 2);
+      return (4 + b % 4) * width + width / 2.0;
+    }
+
+    void record(long v) {
+      counts.incrementAndGet(bucket(v));
+    }
+
+    long count() {
+      long n = 0;
+      for (int b = 0; b < counts.length(); b++) {
+        n += counts.get(b);
+      }
+      return n;
+    }
+
+    double percentile(double p) {
+      long n = count();
+      if (n == 0) {
+        return 0.0;
+      }
+      long rank = (long) Math.ceil(p / 100.0 * n);
+      long seen = 0;
+      for (int b = 0; b < counts.length(); b++) {
+        seen += counts.get(b);
+        if (seen >= rank && seen > 0) {
+          return value(b);
+        }
+      }
+      return value(counts.length() - 1);
+    }
+
+    void reset() {
+      for (int b = 0; b < counts.length(); b++) {
+        counts.set(b, 0);
+      }
+    }
+
+  } // end static class Histogram
+
+}
@@ -0,0 +1,32 @@
+package edu.stanford.nlp.pipeline;
+
+/**
+ * The JMX view of a {@link PipelineMetrics}.  Latencies are in
+ * milliseconds; annotators are named as in {@link #getAnnotatorNames()}.
+ */
+public interface PipelineMetricsMBean {
+
+  public long getDocuments();
+
+  public long getSentences();
+
+  public long getTokens();
+
+  public int getDocumentsInFlight();
+
+  /** Tokens per second of wall clock time since the metrics were started or reset. */
+  public double getTokensPerSecond();
+
+  public String[] getAnnotatorNames();
+
+  /** One line per annotator, as in the periodic log line. */
+  public String[] getAnnotatorSummaries();
+
+  /** Returns the given percentile (0 to 100) of an annotator's latency per
+   *  document, or NaN if there is no such annotator.
+   */
+  public double latencyPercentile(String annotator, double percentile);
+
+  public void reset();
+
+}
@@ -32,9 +32,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
 
 import edu.stanford.nlp.io.EncodingFileWriter;
 import edu.stanford.nlp.io.FileSequentialCollection;
@@ -75,6 +78,7 @@ import edu.stanford.nlp.trees.semgraph.SemanticGraphEdge;
 import edu.stanford.nlp.util.CoreMap;
 import edu.stanford.nlp.util.Factory;
 import edu.stanford.nlp.util.IntTuple;
+import edu.stanford.nlp.util.KeyRegistry;
 import edu.stanford.nlp.util.Pair;
 import edu.stanford.nlp.util.PropertiesUtils;
 import edu.stanford.nlp.util.ReflectionLoading;
@@ -132,6 +136,53 @@ public class StanfordCoreNLP extends AnnotationPipeline {
 
   public static final String CUSTOM_ANNOTATOR_PREFIX = "customAnnotatorClass.";
 
+  /**
+   * The annotations that each annotator puts on every token.  A pipeline
+   * registers those of its annotators with {@link KeyRegistry}, in order,
+   * so that ArrayCoreMap finds them without searching, and its tokenizer
+   * makes tokens with room for all of them.
+   */
+  private static final Map<String, List<Class<?>>> tokenAnnotations = new HashMap<String, List<Class<?>>>();
+
+  static {
+    tokenAnnotations.put(STANFORD_TOKENIZE, Arrays.<Class<?>>asList(
+        TextAnnotation.class, CoreAnnotations.CurrentAnnotation.class,
+        CharacterOffsetBeginAnnotation.class, CharacterOffsetEndAnnotation.class,
+        CoreAnnotations.BeforeAnnotation.class, CoreAnnotations.AfterAnnotation.class));
+    tokenAnnotations.put(STANFORD_POS, Arrays.<Class<?>>asList(PartOfSpeechAnnotation.class));
+    tokenAnnotations.put(STANFORD_LEMMA, Arrays.<Class<?>>asList(LemmaAnnotation.class));
+    tokenAnnotations.put(STANFORD_NER, Arrays.<Class<?>>asList(
+        NamedEntityTagAnnotation.class, NormalizedNamedEntityTagAnnotation.class));
+    tokenAnnotations.put(STANFORD_REGEXNER, Arrays.<Class<?>>asList(NamedEntityTagAnnotation.class));
+    tokenAnnotations.put(STANFORD_GENDER, Arrays.<Class<?>>asList(MachineReadingAnnotations.GenderAnnotation.class));
+    tokenAnnotations.put(STANFORD_TRUECASE, Arrays.<Class<?>>asList(
+        TrueCaseAnnotation.class, TrueCaseTextAnnotation.class));
+    tokenAnnotations.put(STANFORD_PARSE, Arrays.<Class<?>>asList(CoreAnnotations.ValueAnnotation.class));
+    tokenAnnotations.put(STANFORD_DETERMINISTIC_COREF, Arrays.<Class<?>>asList(
+        CoreAnnotations.UtteranceAnnotation.class, CoreAnnotations.SpeakerAnnotation.class,
+        CorefCoreAnnotations.CorefClusterAnnotation.class));
+  }
+
+  /**
+   * Returns the annotations that the given comma separated annotators put
+   * on tokens, in the order of the annotators.
+   */
+  static List<Class<?>> tokenAnnotations(String annotators) {
+    LinkedHashSet<Class<?>> keys = new LinkedHashSet<Class<?>>();
+    for (String name : annotators.split("[, \t]+")) {
+      List<Class<?>> annotations = tokenAnnotations.get(name);
+      if (annotations != null) {
+        keys.addAll(annotations);
+      }
+    }
+    return new ArrayList<Class<?>>(keys);
+  }
+
+  /** The initial capacity of tokens made for the annotators in props. */
+  static int tokenCapacity(Properties props) {
+    return Math.max(8, tokenAnnotations(props.getProperty("annotators", "")).size());
+  }
+
   /** Formats the constituent parse trees for display */
   private TreePrint constituentTreePrinter;
   /** Formats the dependency parse trees for human-readable display */
@@ -147,6 +198,10 @@ public class StanfordCoreNLP extends AnnotationPipeline {
 
   private Properties properties;
 
+  /** The cache of the parser, if it has one; it is shared by the parsers
+   *  of all threads and is closed by {@link #closeParseCache} */
+  private ParseCache parseCache; // = null
+
   /**
    * Prints the list of properties required to run the pipeline
    * @param os PrintStream to print usage to
@@ -175,6 +230,8 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     os.println("\t\"ner.model.3class\" - path towards the three-class NER model");
     os.println("\t\"ner.model.7class\" - path towards the seven-class NER model");
     os.println("\t\"ner.model.MISCclass\" - path towards the NER model with a MISC class");
+    os.println("\t\"ner.nthreads\" - number of threads used to label the sentences of a document (defaults to 1)");
+    os.println("\t\"ner.hashFeatures\" - if true, find CRF features by hashing them rather than as Strings, where the model allows (defaults to false)");
 
     os.println("\n\tIf annotator \"truecase\" is defined:");
     os.println("\t\"truecase.model\" - path towards the true-casing model; default: " + DefaultPaths.DEFAULT_TRUECASE_MODEL);
@@ -187,6 +244,9 @@ public class StanfordCoreNLP extends AnnotationPipeline {
 
     os.println("\n\tIf annotator \"parse\" is defined:");
     os.println("\t\"parser.model\" - path towards the PCFG parser model");
+    os.println("\t\"parse.nthreads\" - number of threads used to parse the sentences of a document (defaults to 1); \"parser.nthreads\" is the same");
+    os.println("\t\"parser.cache.size\" - number of parse trees of repeated sentences kept in memory (defaults to 0)");
+    os.println("\t\"parser.cache.file\" - file that keeps the parse trees of all sentences across runs (optional)");
 
     /* XXX: unstable, do not use for now
     os.println("\n\tIf annotator \"srl\" is defined:");
@@ -204,10 +264,16 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     os.println("\t\"filelist\" - run the pipeline on the list of files given in this file");
     os.println("\t             output is generated for every input file as file.outputExtension");
     os.println("\t\"outputDirectory\" - where to put output (defaults to the current directory)");
-    os.println("\t\"outputExtension\" - extension to use for the output file (defaults to \".xml\" for XML, \".ser.gz\" for serialized).  Don't forget the dot!");
-    os.println("\t\"outputFormat\" - \"xml\" to output XML (default), \"serialized\" to output serialized Java objects");
+    os.println("\t\"outputExtension\" - extension to use for the output file (defaults to \".xml\" for XML, \".bin\" for binary, \".ser.gz\" for serialized).  Don't forget the dot!");
+    os.println("\t\"outputFormat\" - \"xml\" to output XML (default), \"binary\" for the compact format of BinaryAnnotationSerializer, \"serialized\" to output serialized Java objects");
     os.println("\t\"replaceExtension\" - flag to chop off the last extension before adding outputExtension to file");
     os.println("\t\"noClobber\" - don't automatically override (clobber) output files that already exist");
+    os.println("\t\"threads\" - number of files to process in parallel (defaults to 1)");
+    os.println("\t\"failureLog\" - if threads > 1, file where the names of files which could not be processed are written");
+    os.println("\t\"metrics\" - record per-annotator latency histograms, token and sentence counts, exposed via JMX (defaults to false)");
+    os.println("\t\"metrics.name\" - name of the metrics in JMX; pipelines with the same name share them (defaults to StanfordCoreNLP)");
+    os.println("\t\"metrics.logInterval\" - if metrics is set, print them to stderr every this many seconds (defaults to 0, never)");
+    os.println("\t\"metrics.allocationSampling\" - measure the bytes allocated by the annotators for one document in this many (defaults to 16, 0 to turn off)");
     os.println("\nIf none of the above are present, run the pipeline in an interactive shell (default properties will be loaded from the classpath).");
     os.println("The shell accepts input from stdin and displays the output at stdout.");
     os.println();
@@ -285,6 +351,7 @@ public class StanfordCoreNLP extends AnnotationPipeline {
       props = fromClassPath;
     }
     this.properties = props;
+    KeyRegistry.register(tokenAnnotations(getProperty(props, "annotators")));
     if(pool == null) {
       // if undefined, use the default pool
       pool = getDefaultAnnotatorPool(props);
@@ -324,6 +391,9 @@ public class StanfordCoreNLP extends AnnotationPipeline {
 
       Annotator an = pool.get(name);
       this.addAnnotator(an);
+      if (an instanceof ParserAnnotator) {
+        parseCache = ((ParserAnnotator) an).getParseCache();
+      }
 
       // the NFL domain requires several post-processing rules after
       // tokenization.  add these transparently if the NFL annotator
@@ -337,6 +407,13 @@ public class StanfordCoreNLP extends AnnotationPipeline {
 
       alreadyAddedAnnoNames.add(name);
     }
+
+    if (PropertiesUtils.getBool(props, "metrics", false)) {
+      PipelineMetrics metrics = PipelineMetrics.get(props.getProperty("metrics.name", "StanfordCoreNLP"));
+      metrics.setAllocationSampling(PropertiesUtils.getInt(props, "metrics.allocationSampling", 16));
+      metrics.logEvery(PropertiesUtils.getInt(props, "metrics.logInterval", 0));
+      setMetrics(metrics);
+    }
   }
 
   /**
@@ -410,12 +487,12 @@ public class StanfordCoreNLP extends AnnotationPipeline {
       public Annotator create() {
         if (Boolean.valueOf(props.getProperty("tokenize.whitespace",
                                               "false"))) {
-          return new WhitespaceTokenizerAnnotator(props);
+          return new WhitespaceTokenizerAnnotator(props, tokenCapacity(props));
         } else {
           String options =
             props.getProperty("tokenize.options",
                               PTBTokenizerAnnotator.DEFAULT_OPTIONS);
-          return new PTBTokenizerAnnotator(false, options);
+          return new PTBTokenizerAnnotator(false, options, tokenCapacity(props));
         }
       }
     });
@@ -486,7 +563,7 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     //
     // POS tagger
     //
-    pool.register(STANFORD_POS, new Factory<Annotator>() {
+    pool.registerPerThread(STANFORD_POS, new Factory<Annotator>() {
       private static final long serialVersionUID = 1L;
       public Annotator create() {
         try {
@@ -513,7 +590,7 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     //
     // NER
     //
-    pool.register(STANFORD_NER, new Factory<Annotator>() {
+    pool.registerPerThread(STANFORD_NER, new Factory<Annotator>() {
       private static final long serialVersionUID = 1L;
       public Annotator create() {
         List<String> models = new ArrayList<String>();
@@ -543,6 +620,11 @@ public class StanfordCoreNLP extends AnnotationPipeline {
         } catch (FileNotFoundException e) {
           throw new RuntimeException(e);
         }
+        if (PropertiesUtils.getBool(props, "ner.hashFeatures", false)) {
+          Properties nerProps = new Properties();
+          nerProps.setProperty("hashFeatures", "true");
+          nerCombiner.setBaseClassifierProperties(nerProps);
+        }
         // ms 2009, no longer needed: the functionality of all these annotators is now included in NERClassifierCombiner
         /*
         AnnotationPipeline pipeline = new AnnotationPipeline();
@@ -552,7 +634,8 @@ public class StanfordCoreNLP extends AnnotationPipeline {
         pipeline.addAnnotator(new QuantifiableEntityNormalizingAnnotator(false, false));
         return pipeline;
         */
-        return new NERCombinerAnnotator(nerCombiner, false);
+        int nThreads = PropertiesUtils.getInt(props, "ner.nthreads", 1);
+        return new NERCombinerAnnotator(nerCombiner, false, nThreads);
       }
     });
 
@@ -582,7 +665,7 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     //
     // True caser
     //
-    pool.register(STANFORD_TRUECASE, new Factory<Annotator>() {
+    pool.registerPerThread(STANFORD_TRUECASE, new Factory<Annotator>() {
       private static final long serialVersionUID = 1L;
       public Annotator create() {
         String model = props.getProperty("truecase.model", DefaultPaths.DEFAULT_TRUECASE_MODEL);
@@ -595,7 +678,7 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     //
     // Post-processing tokenization rules for the NFL domain
     //
-    pool.register(STANFORD_NFL_TOKENIZE, new Factory<Annotator>() {
+    pool.registerPerThread(STANFORD_NFL_TOKENIZE, new Factory<Annotator>() {
       private static final long serialVersionUID = 1L;
       public Annotator create() {
         final String className =
@@ -607,7 +690,7 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     //
     // Entity and relation extraction for the NFL domain
     //
-    pool.register(STANFORD_NFL, new Factory<Annotator>() {
+    pool.registerPerThread(STANFORD_NFL, new Factory<Annotator>() {
       private static final long serialVersionUID = 1L;
       public Annotator create() {
         // these paths now extracted inside c'tor
@@ -622,8 +705,19 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     //
     // Parser
     //
-    pool.register(STANFORD_PARSE, new Factory<Annotator>() {
+    pool.registerPerThread(STANFORD_PARSE, new Factory<Annotator>() {
       private static final long serialVersionUID = 1L;
+      // shared by the parsers of all threads
+      private transient ParseCache parseCache;
+      private synchronized ParseCache parseCache(String parserPath, String[] flags) {
+        int size = PropertiesUtils.getInt(props, "parser.cache.size", 0);
+        String file = props.getProperty("parser.cache.file");
+        if (parseCache == null && (size > 0 || file != null)) {
+          String context = parserPath + ' ' + Arrays.toString(flags);
+          parseCache = new ParseCache(size, context, file);
+        }
+        return parseCache;
+      }
       public Annotator create() {
         String parserType = props.getProperty("parser.type", "stanford");
         String maxLenStr = props.getProperty("parser.maxlen");
@@ -646,8 +740,13 @@ public class StanfordCoreNLP extends AnnotationPipeline {
           } else {
             parserFlagList = parserFlags.trim().split("\\s+");
           }
+          // parse.nthreads is named after the annotator; parser.nthreads matches the other parser.* keys
+          int nThreads = PropertiesUtils.getInt(props, "parse.nthreads",
+                                                PropertiesUtils.getInt(props, "parser.nthreads", 1));
           ParserAnnotator anno = new ParserAnnotator(parserPath, parserDebug,
-                                                     maxLen, parserFlagList);
+                                                     maxLen, parserFlagList,
+                                                     nThreads,
+                                                     parseCache(parserPath, parserFlagList));
           return anno;
         } else if (parserType.equalsIgnoreCase("charniak")) {
           String model = props.getProperty("parser.model");
@@ -671,6 +770,7 @@ public class StanfordCoreNLP extends AnnotationPipeline {
 
     //
     // Coreference resolution
+    // (thread-safe, so the dictionaries are loaded once for all threads)
     //
     pool.register(STANFORD_DETERMINISTIC_COREF, new Factory<Annotator>() {
       private static final long serialVersionUID = 1L;
@@ -691,7 +791,7 @@ public class StanfordCoreNLP extends AnnotationPipeline {
         final String customClassName = props.getProperty(property);
         System.err.println("Registering annotator " + customName +
                            " with class " + customClassName);
-        pool.register(customName, new Factory<Annotator>() {
+        pool.registerPerThread(customName, new Factory<Annotator>() {
           private static final long serialVersionUID = 1L;
           private final String name = customName;
           private final String className = customClassName;
@@ -711,6 +811,18 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     return pool;
   }
 
+  /**
+   * Closes the file of the parser's cache of trees, if it has one, once
+   * the run is over.  The cache is shared through the annotator pool, so
+   * the parsers of every pipeline that uses it keep only their trees in
+   * memory afterwards.
+   */
+  public void closeParseCache() throws IOException {
+    if (parseCache != null) {
+      parseCache.close();
+    }
+  }
+
   public static synchronized Annotator getExistingAnnotator(String name) {
     if(pool == null){
       System.err.println("ERROR: attempted to fetch annotator \"" + name + "\" before the annotator pool was created!");
@@ -1218,49 +1330,209 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     return ObjectBank.getLineIterator(fileName, new ObjectBank.PathToFileFunction());
   }
 
-  private static void processFiles(StanfordCoreNLP pipeline, Collection<File> files, Properties props) throws IOException {
-    for (File file : files) {
-      String outputFilename = new File(props.getProperty("outputDirectory", "."), file.getName()).getPath();
-      if (props.getProperty("replaceExtension") != null) {
-        int lastDot = outputFilename.lastIndexOf('.');
-        // for paths like "./zzz", lastDot will be 0
-        if (lastDot > 0) {
-          outputFilename = outputFilename.substring(0, lastDot);
-        }
+  /**
+   * Computes the name of the output file for the given input file, or
+   * returns null if the file should be skipped.
+   */
+  private static String getOutputFilename(File file, Properties props) throws IOException {
+    String outputFilename = new File(props.getProperty("outputDirectory", "."), file.getName()).getPath();
+    if (props.getProperty("replaceExtension") != null) {
+      int lastDot = outputFilename.lastIndexOf('.');
+      // for paths like "./zzz", lastDot will be 0
+      if (lastDot > 0) {
+        outputFilename = outputFilename.substring(0, lastDot);
+      }
+    }
+    String outputFormat = props.getProperty("outputFormat", "xml");
+    String defaultExtension;
+    if (outputFormat.equalsIgnoreCase("xml")) {
+      defaultExtension = ".xml";
+    } else if (outputFormat.equalsIgnoreCase("binary")) {
+      defaultExtension = ".bin";
+    } else {
+      defaultExtension = ".ser.gz";
+    }
+    String extension = props.getProperty("outputExtension", defaultExtension);
+    // ensure we don't make filenames with doubled extensions like .xml.xml
+    if (!outputFilename.endsWith(extension)) {
+      outputFilename += extension;
+    }
+    // normalize filename for the upcoming comparison
+    outputFilename = new File(outputFilename).getCanonicalPath();
+
+    // TODO this could fail if there are softlinks, etc. -- need some sort of sameFile tester
+    if (outputFilename.equals(file.getCanonicalPath())) {
+      System.out.println("Skipping " + file.getName() + ": output file " + outputFilename + " has the same filename as the input file -- assuming you don't actually want to do this.");
+      return null;
+    }
+    if (props.getProperty("noClobber") != null && new File(outputFilename).exists()) {
+      System.out.println("Skipping " + file.getName() + ": output file " + outputFilename + " as it already exists.  Don't use the noClobber option to override this.");
+      return null;
+    }
+    return outputFilename;
+  }
+
+  /**
+   * Annotates a single file and writes the result to outputFilename.
+   */
+  private static void processFile(StanfordCoreNLP pipeline, File file, String outputFilename, Properties props) throws IOException {
+    String outputFormat = props.getProperty("outputFormat", "xml");
+    String encoding = props.getProperty("encoding");
+    System.err.println("Processing file " + file.getAbsolutePath() + " ... (writing to " + outputFilename + ")");
+
+    String text = IOUtils.slurpFile(file, encoding);
+
+    Annotation annotation = pipeline.process(text);
+
+    if (outputFormat.equalsIgnoreCase("xml")) {
+      Writer writer = EncodingFileWriter.getWriter(outputFilename, encoding);
+      try {
+        pipeline.xmlPrint(annotation, writer);
+      } finally {
+        writer.close();
       }
-      String outputFormat = props.getProperty("outputFormat", "xml");
-      String defaultExtension = outputFormat.equalsIgnoreCase("xml") ? ".xml" : ".ser.gz";
-      String extension = props.getProperty("outputExtension", defaultExtension);
-      // ensure we don't make filenames with doubled extensions like .xml.xml
-      if (!outputFilename.endsWith(extension)) {
-        outputFilename += extension;
+    } else if (outputFormat.equalsIgnoreCase("binary")) {
+      OutputStream os = new FileOutputStream(outputFilename);
+      try {
+        // save closes os itself when it succeeds; closing it again is harmless
+        new BinaryAnnotationSerializer(outputFilename.endsWith(".gz")).save(annotation, os);
+      } finally {
+        os.close();
       }
-      // normalize filename for the upcoming comparison
-      outputFilename = new File(outputFilename).getCanonicalPath();
+    } else {
+      IOUtils.writeObjectToFile(annotation, outputFilename);
+    }
+  }
 
-      // TODO this could fail if there are softlinks, etc. -- need some sort of sameFile tester
-      if (outputFilename.equals(file.getCanonicalPath())) {
-        System.out.println("Skipping " + file.getName() + ": output file " + outputFilename + " has the same filename as the input file -- assuming you don't actually want to do this.");
+  private static void processFiles(StanfordCoreNLP pipeline, Collection<File> files, Properties props) throws IOException {
+    int numThreads = PropertiesUtils.getInt(props, "threads", 1);
+    if (numThreads > 1) {
+      processFilesThreaded(pipeline, files, props, numThreads);
+      return;
+    }
+    for (File file : files) {
+      String outputFilename = getOutputFilename(file, props);
+      if (outputFilename == null) {
         continue;
       }
-      if (props.getProperty("noClobber") != null && new File(outputFilename).exists()) {
-        System.out.println("Skipping " + file.getName() + ": output file " + outputFilename + " as it already exists.  Don't use the noClobber option to override this.");
-        continue;
+      processFile(pipeline, file, outputFilename, props);
+    }
+  }
+
+  /**
+   * Processes the files with numThreads workers.  Each worker takes the next
+   * file from the shared iterator, annotates it with its own pipeline and
+   * writes its own output file, so no reordering of the output is needed.
+   * Annotators registered as per-thread in the pool are instantiated once
+   * for each worker; the others are shared.  The calling thread is used as
+   * one of the workers, with the pipeline that was passed in.
+   * <br>
+   * A file which fails does not stop the other workers.  Failures are
+   * reported at the end, and also written to the file given by the
+   * "failureLog" property if it is set.  If a worker cannot build its
+   * pipeline, though, the other workers stop after the file they are on,
+   * and a RuntimeException is thrown once they have all finished.
+   */
+  private static void processFilesThreaded(StanfordCoreNLP pipeline, Collection<File> files,
+                                           final Properties props, int numThreads) throws IOException {
+    final Iterator<File> fileIterator = files.iterator();
+    final List<Pair<File, Throwable>> failures = new ArrayList<Pair<File, Throwable>>();
+    final AtomicReference<Throwable> setupFailure = new AtomicReference<Throwable>();
+
+    List<Thread> workers = new ArrayList<Thread>();
+    for (int i = 1; i < numThreads; i++) {
+      Thread worker = new Thread(new FileProcessor(null, fileIterator, props, failures, setupFailure),
+                                 "StanfordCoreNLP-worker-" + i);
+      workers.add(worker);
+      worker.start();
+    }
+    new FileProcessor(pipeline, fileIterator, props, failures, setupFailure).run();
+    for (Thread worker : workers) {
+      try {
+        worker.join();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
       }
+    }
 
-      String encoding = props.getProperty("encoding");
-      System.err.println("Processing file " + file.getAbsolutePath() + " ... (writing to " + outputFilename + ")");
+    if ( ! failures.isEmpty()) {
+      System.err.println(failures.size() + " file(s) failed:");
+      String failureLog = props.getProperty("failureLog");
+      PrintWriter log = null;
+      if (failureLog != null) {
+        log = new PrintWriter(EncodingFileWriter.getWriter(failureLog, props.getProperty("encoding")));
+      }
+      for (Pair<File, Throwable> failure : failures) {
+        System.err.println("\t" + failure.first().getPath() + ": " + failure.second());
+        if (log != null) {
+          log.println(failure.first().getPath() + "\t" + failure.second());
+          failure.second().printStackTrace(log);
+        }
+      }
+      if (log != null) {
+        log.close();
+      }
+    }
+    if (setupFailure.get() != null) {
+      throw new RuntimeException("A worker could not build its pipeline; not all files were processed",
+                                 setupFailure.get());
+    }
+  }
 
-      String text = IOUtils.slurpFile(file, encoding);
+  /**
+   * One worker of {@link #processFilesThreaded}.  If no pipeline is given,
+   * a new one is built on the worker's own thread, so that the per-thread
+   * annotators of the pool belong to this worker.
+   */
+  private static class FileProcessor implements Runnable {
+    private StanfordCoreNLP pipeline;
+    private final Iterator<File> files;
+    private final Properties props;
+    private final List<Pair<File, Throwable>> failures;
+    private final AtomicReference<Throwable> setupFailure;
+
+    FileProcessor(StanfordCoreNLP pipeline, Iterator<File> files, Properties props,
+                  List<Pair<File, Throwable>> failures, AtomicReference<Throwable> setupFailure) {
+      this.pipeline = pipeline;
+      this.files = files;
+      this.props = props;
+      this.failures = failures;
+      this.setupFailure = setupFailure;
+    }
 
-      Annotation annotation = pipeline.process(text);
+    /** The next file to process, or null if there are none left or a
+     *  worker has failed to build its pipeline. */
+    private File nextFile() {
+      if (setupFailure.get() != null) {
+        return null;
+      }
+      synchronized (files) {
+        return files.hasNext() ? files.next() : null;
+      }
+    }
 
-      if (outputFormat.equalsIgnoreCase("xml")) {
-        Writer writer = EncodingFileWriter.getWriter(outputFilename, encoding);
-        pipeline.xmlPrint(annotation, writer);
-        writer.close();
-      } else {
-        IOUtils.writeObjectToFile(annotation, outputFilename);
+    public void run() {
+      if (pipeline == null) {
+        try {
+          pipeline = new StanfordCoreNLP(props);
+        } catch (Throwable t) {
+          System.err.println("Failed to build the pipeline of " + Thread.currentThread().getName() + ": " + t);
+          setupFailure.compareAndSet(null, t);
+          return;
+        }
+      }
+      for (File file = nextFile(); file != null; file = nextFile()) {
+        try {
+          String outputFilename = getOutputFilename(file, props);
+          if (outputFilename != null) {
+            processFile(pipeline, file, outputFilename, props);
+          }
+        } catch (Throwable t) {
+          System.err.println("Failed to process " + file.getPath() + ": " + t);
+          synchronized (failures) {
+            failures.add(new Pair<File, Throwable>(file, t));
+          }
+        }
       }
     }
   }
@@ -1306,29 +1578,38 @@ public class StanfordCoreNLP extends AnnotationPipeline {
     // blank line after all the loading statements to make output more readable
     System.err.println();
 
-    //
-    // Process one file or a directory of files
-    //
-    if(props.containsKey("file")){
-      String fileName = props.getProperty("file");
-      Collection<File> files = new FileSequentialCollection(new File(fileName), props.getProperty("extension"), true);
-      processFiles(pipeline, files, props);
-    }
+    try {
+      //
+      // Process one file or a directory of files
+      //
+      if(props.containsKey("file")){
+        String fileName = props.getProperty("file");
+        Collection<File> files = new FileSequentialCollection(new File(fileName), props.getProperty("extension"), true);
+        processFiles(pipeline, files, props);
+      }
 
-    //
-    // Process a list of files
-    //
-    else if(props.containsKey("filelist")){
-      String fileName = props.getProperty("filelist");
-      Collection<File> files = readFileList(fileName);
-      processFiles(pipeline, files, props);
+      //
+      // Process a list of files
+      //
+      else if(props.containsKey("filelist")){
+        String fileName = props.getProperty("filelist");
+        Collection<File> files = readFileList(fileName);
+        processFiles(pipeline, files, props);
+      }
+
+      //
+      // Run the interactive shell
+      //
+      else {
+        shell(pipeline);
+      }
+    } finally {
+      pipeline.closeParseCache();
     }
 
-    //
-    // Run the interactive shell
-    //
-    else {
-      shell(pipeline);
+    if (pipeline.getMetrics() != null) {
+      System.err.println();
+      System.err.println(pipeline.getMetrics().summary());
     }
 
     if (TIME) {
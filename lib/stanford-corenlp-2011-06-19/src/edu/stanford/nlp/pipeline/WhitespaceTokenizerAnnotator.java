@@ -28,6 +28,13 @@ public class WhitespaceTokenizerAnnotator extends TokenizerAnnotator {
   final String EOL_PROPERTY = "tokenize.keepeol";
 
   public WhitespaceTokenizerAnnotator(Properties props) {
+    this(props, 8);
+  }
+
+  /**
+   * Makes tokens with room for tokenCapacity annotations.
+   */
+  public WhitespaceTokenizerAnnotator(Properties props, int tokenCapacity) {
     super(false);
     boolean eolIsSignificant = 
       Boolean.valueOf(props.getProperty(EOL_PROPERTY, "false"));
@@ -36,7 +43,7 @@ public class WhitespaceTokenizerAnnotator extends TokenizerAnnotator {
        Boolean.valueOf(props.getProperty
                        (StanfordCoreNLP.NEWLINE_SPLITTER_PROPERTY, "false")));
     factory = new WhitespaceTokenizer.WhitespaceTokenizerFactory<CoreLabel>
-              (new CoreLabelTokenFactory(), eolIsSignificant);
+              (new CoreLabelTokenFactory(true, tokenCapacity), eolIsSignificant);
   }
 
   @Override
@@ -22,6 +22,7 @@ import edu.stanford.nlp.ling.CoreLabel;
 public class CoreLabelTokenFactory implements CoreTokenFactory<CoreLabel>, LexedTokenFactory<CoreLabel> {
 
   final boolean addIndices;
+  final int tokenCapacity;
 
   /**
    * Constructor for a new token factory which will add in the word, the
@@ -38,8 +39,22 @@ public class CoreLabelTokenFactory implements CoreTokenFactory<CoreLabel>, Lexed
    * @param addIndices if true, begin and end position annotations will be included (this is the default)
    */
   public CoreLabelTokenFactory(boolean addIndices) {
+    // Save a reallocation, as there will be at least 5 keys
+    this(addIndices, addIndices ? 8 : 4);
+  }
+
+  /**
+   * Constructor that also sets how many annotations the tokens have room
+   * for before they need to grow.  A pipeline that knows which
+   * annotations its annotators will add can make room for all of them.
+   *
+   * @param addIndices if true, begin and end position annotations will be included (this is the default)
+   * @param tokenCapacity the initial capacity of each token
+   */
+  public CoreLabelTokenFactory(boolean addIndices, int tokenCapacity) {
     super();
     this.addIndices = addIndices;
+    this.tokenCapacity = tokenCapacity;
   }
 
   /**
@@ -47,12 +62,7 @@ public class CoreLabelTokenFactory implements CoreTokenFactory<CoreLabel>, Lexed
    * (Does not take substring).
    */
   public CoreLabel makeToken(String str, int begin, int length) {
-    CoreLabel cl;
-    if (addIndices) {
-      cl = new CoreLabel(8); // Save a reallocation, as there will be at least 5 keys
-    } else {
-      cl = new CoreLabel();
-    }
+    CoreLabel cl = new CoreLabel(tokenCapacity);
     cl.setWord(str);
     cl.set(TextAnnotation.class, str);
     cl.setCurrent(str);
@@ -0,0 +1,124 @@
+package edu.stanford.nlp.sequences;
+
+import edu.stanford.nlp.util.Index;
+
+/**
+ * Maps 64-bit hashes of feature names to their indices in a feature
+ * {@link Index}, so that a {@link FeatureFactory} that can hash its features
+ * as it goes (see {@link FeatureHasher}) never has to build the feature
+ * Strings to look them up.
+ * <p>
+ * The table is built once from the Index and never changed, so one can be
+ * shared by any number of threads.  Feature names are hashed with 64-bit
+ * FNV-1a over their chars, so hashing the pieces of a name in turn gives
+ * the same hash as hashing the whole name.  Two names in the Index with the
+ * same hash would make the table ambiguous, and {@link #build} then returns
+ * a table that is not {@link #isUsable usable}, which remembers that hashing
+ * is no good for that Index.  A feature that is not in the Index
+ * could still share the hash of one that is, but with 64-bit hashes this is
+ * vanishingly unlikely.
+ */
+public class FeatureHashIndex {
+
+  static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  static final long FNV_PRIME = 0x100000001b3L;
+
+  private final Index<String> index;
+  private final int indexSize;
+  private final boolean usable;
+
+  private final long[] keys; // 0 marks an empty slot
+  private final int[] values;
+  private final int mask;
+
+  private FeatureHashIndex(Index<String> index, boolean usable) {
+    this.index = index;
+    this.usable = usable;
+    indexSize = index.size();
+    int capacity = 16;
+    while (usable && capacity < 2 * indexSize) {
+      capacity <<= 1;
+    }
+    keys = new long[capacity];
+    values = new int[capacity];
+    mask = capacity - 1;
+  }
+
+  /**
+   * Builds the table for the features in an Index.
+   *
+   * @return The table, which is not {@link #isUsable usable} if two features
+   *     in the Index have the same hash
+   */
+  public static FeatureHashIndex build(Index<String> index) {
+    FeatureHashIndex table = new FeatureHashIndex(index, true);
+    for (int id = 0; id < table.indexSize; id++) {
+      if ( ! table.put(hash(index.get(id)), id)) {
+        // an empty table, so the large one can be collected
+        return new FeatureHashIndex(index, false);
+      }
+    }
+    return table;
+  }
+
+  /** Whether features may be looked up in this table: false if two
+   *  features of its Index have the same hash.
+   */
+  public boolean isUsable() {
+    return usable;
+  }
+
+  /** Whether this table was built from the given Index as it is now. */
+  public boolean isFor(Index<String> index) {
+    return this.index == index && indexSize == index.size();
+  }
+
+  /** Returns the index of the feature with this hash, or -1 if none has it. */
+  public int indexOf(long hash) {
+    int i = slot(hash);
+    while (true) {
+      long k = keys[i];
+      if (k == hash) {
+        return values[i];
+      }
+      if (k == 0) {
+        return -1;
+      }
+      i = (i + 1) & mask;
+    }
+  }
+
+  private boolean put(long hash, int id) {
+    int i = slot(hash);
+    while (keys[i] != 0) {
+      if (keys[i] == hash) {
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = hash;
+    values[i] = id;
+    return true;
+  }
+
+  private int slot(long hash) {
+    // FNV's low bits are poorly mixed, so fold the high bits in
+    long h = (hash ^ (hash >>> 32)) * 0x9e3779b97f4a7c15L;
+    return (int) (h >>> 32) & mask;
+  }
+
+  /** Returns the hash of a whole feature name. */
+  public static long hash(String feature) {
+    long h = FNV_OFFSET;
+    for (int i = 0, len = feature.length(); i < len; i++) {
+      h = (h ^ feature.charAt(i)) * FNV_PRIME;
+    }
+    return finish(h);
+  }
+
+  /** Keeps 0 free to mark empty slots. */
+  static long finish(long h) {
+    return (h == 0) ? 1 : h;
+  }
+
+}
@@ -0,0 +1,98 @@
+package edu.stanford.nlp.sequences;
+
+import java.util.Arrays;
+
+/**
+ * Collects the indices of the features of a clique by hashing each feature
+ * name from its pieces, in place of building the name as a String and
+ * looking it up in the feature Index.  A feature is written as
+ * <pre>
+ *   hasher.begin().add(word).add("-WORD").end();
+ * </pre>
+ * which finds the index of <code>word + "-WORD|" + suffix</code>, where the
+ * suffix is the clique name given to {@link #setSuffix}, just as
+ * {@link FeatureFactory#addAllInterningAndSuffixing} would have named it.
+ * Features that are not in the Index are dropped, and each index is kept
+ * once however many times it is found, as the HashSet of feature names
+ * used to do.
+ * <p>
+ * A FeatureHasher keeps the state of the features being hashed, so each
+ * thread needs its own; the {@link FeatureHashIndex} can be shared.
+ */
+public class FeatureHasher {
+
+  private final FeatureHashIndex index;
+  private String suffix = "";
+
+  private long hash;
+  private int[] found = new int[64];
+  private int size; // = 0
+
+  public FeatureHasher(FeatureHashIndex index) {
+    this.index = index;
+  }
+
+  /** Sets the clique name that is appended to each following feature. */
+  public void setSuffix(String suffix) {
+    this.suffix = (suffix == null) ? "" : suffix;
+  }
+
+  /** Starts a new feature. */
+  public FeatureHasher begin() {
+    hash = FeatureHashIndex.FNV_OFFSET;
+    return this;
+  }
+
+  /** Appends a String to the feature; null is appended as "null", as
+   *  String concatenation does.
+   */
+  public FeatureHasher add(String s) {
+    if (s == null) {
+      s = "null";
+    }
+    return add(s, 0, s.length());
+  }
+
+  /** Appends the chars of s from begin up to but not including end. */
+  public FeatureHasher add(String s, int begin, int end) {
+    long h = hash;
+    for (int i = begin; i < end; i++) {
+      h = (h ^ s.charAt(i)) * FeatureHashIndex.FNV_PRIME;
+    }
+    hash = h;
+    return this;
+  }
+
+  public FeatureHasher add(char c) {
+    hash = (hash ^ c) * FeatureHashIndex.FNV_PRIME;
+    return this;
+  }
+
+  /** Ends the feature, and keeps its index if it has one. */
+  public void end() {
+    if (suffix.length() > 0) {
+      add('|').add(suffix);
+    }
+    int id = index.indexOf(FeatureHashIndex.finish(hash));
+    if (id < 0) {
+      return; // this is where we end up when we do feature threshold cutoffs
+    }
+    for (int i = 0; i < size; i++) {
+      if (found[i] == id) {
+        return;
+      }
+    }
+    if (size == found.length) {
+      found = Arrays.copyOf(found, 2 * size);
+    }
+    found[size++] = id;
+  }
+
+  /** Returns the indices of the features found since the last call. */
+  public int[] indices() {
+    int[] result = Arrays.copyOf(found, size);
+    size = 0;
+    return result;
+  }
+
+}
@@ -485,6 +485,7 @@ public class SeqClassifierFlags implements Serializable {
   public int endFold = 1;
 
   public boolean cacheNGrams = false;
+  public boolean hashFeatures = false; // look up hashes of features rather than feature Strings, where the factory can
 
   public String outputFormat;
 
@@ -1506,6 +1507,8 @@ public class SeqClassifierFlags implements Serializable {
         useUnknown = Boolean.parseBoolean(val);
       } else if (key.equalsIgnoreCase("cacheNGrams")) {
         cacheNGrams = Boolean.parseBoolean(val);
+      } else if (key.equalsIgnoreCase("hashFeatures")) {
+        hashFeatures = Boolean.parseBoolean(val);
       } else if (key.equalsIgnoreCase("useNumberFeature")) {
         useNumberFeature = Boolean.parseBoolean(val);
       } else if (key.equalsIgnoreCase("annealingRate")) {
@@ -38,7 +38,8 @@ import edu.stanford.nlp.util.Factory;
  * {@link Counters}.  The class previously known as Counter has been
  * renamed to {@link ClassicCounter}.  An alternative Counter
  * implementation, which is more memory efficient but not necessarily faster,
- * is {@link OpenAddressCounter}.
+ * is {@link OpenAddressCounter}.  {@link OpenHashCounter} keeps its counts
+ * unboxed as well, and {@link Counters} has faster paths for it.
  * <p>
  * <i>Implementation note:</i> You shouldn't casually add further methods to
  * this interface. Rather, they should be added to the {@link Counters} class.
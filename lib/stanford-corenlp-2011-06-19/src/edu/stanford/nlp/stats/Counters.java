@@ -288,6 +288,10 @@ public class Counters {
    */
   // TODO: Rewrite to use arg.entrySet()
   public static <E> void addInPlace(Counter<E> target, Counter<E> arg, double scale) {
+    if (arg instanceof OpenHashCounter) {
+      addInPlace(target, (OpenHashCounter<E>) arg, scale, false);
+      return;
+    }
     for (E key : arg.keySet()) {
       target.incrementCount(key, scale * arg.getCount(key));
     }
@@ -297,6 +301,10 @@ public class Counters {
    * Sets each value of target to be target[k]+arg[k] for all keys k in arg.
    */
   public static <E> void addInPlace(Counter<E> target, Counter<E> arg) {
+    if (arg instanceof OpenHashCounter) {
+      addInPlace(target, (OpenHashCounter<E>) arg, 1.0, true);
+      return;
+    }
     for (Map.Entry<E, Double> entry : arg.entrySet()) {
       double count = entry.getValue();
       if (count != 0) {
@@ -305,6 +313,25 @@ public class Counters {
     }
   }
 
+  /** Reads the counts of arg straight from its table, so nothing is boxed.
+   *  Keys whose count is 0 are skipped only if skipZeros is true, as the
+   *  unscaled addInPlace does and the scaled one does not.
+   */
+  private static <E> void addInPlace(Counter<E> target, OpenHashCounter<E> arg, double scale, boolean skipZeros) {
+    if (target instanceof OpenHashCounter) {
+      // arg's keys come in the order of its slots; put into a smaller table
+      // in that order they pile up in long probe runs, so grow target first
+      ((OpenHashCounter<E>) target).ensureCapacity(Math.max(target.size(), arg.size()));
+    }
+    Object[] keys = arg.keys;
+    double[] values = arg.values;
+    for (int i = 0; i < keys.length; i++) {
+      if (OpenHashCounter.isKey(keys[i]) && ! (skipZeros && values[i] == 0.0)) {
+        target.incrementCount(OpenHashCounter.<E>unmask(keys[i]), scale * values[i]);
+      }
+    }
+  }
+
   /**
    * Sets each value of double[] target to be target[idx.indexOf(k)]+a.getCount(k) for all keys k in arg
    *
@@ -413,6 +440,19 @@ public class Counters {
    *     Counter
    */
   public static <E> Counter<E> multiplyInPlace(Counter<E> target, double multiplier) {
+    if (target instanceof OpenHashCounter) {
+      OpenHashCounter<E> c = (OpenHashCounter<E>) target;
+      Object[] keys = c.keys;
+      double[] values = c.values;
+      double total = 0.0;
+      for (int i = 0; i < keys.length; i++) {
+        if (OpenHashCounter.isKey(keys[i])) {
+          total += (values[i] *= multiplier);
+        }
+      }
+      c.total = total;
+      return target;
+    }
     for (Entry<E, Double> entry : target.entrySet()) {
       target.setCount(entry.getKey(), entry.getValue() * multiplier);
     }
@@ -967,6 +1007,9 @@ public class Counters {
    * @return The product of c1 and c2.
    */
   public static <E> double dotProduct(Counter<E> c1, Counter<E> c2) {
+    if (c1 instanceof OpenHashCounter && c2 instanceof OpenHashCounter) {
+      return dotProduct((OpenHashCounter<E>) c1, (OpenHashCounter<E>) c2);
+    }
     double dotProd = 0.0;
     Counter<E> tmpCnt;
     if (c1.size() > c2.size()) {
@@ -993,6 +1036,38 @@ public class Counters {
     return dotProd;
   }
 
+  /** The same as {@link #dotProduct(Counter, Counter)}, but walks the table
+   *  of the smaller counter instead of its key set.
+   */
+  private static <E> double dotProduct(OpenHashCounter<E> c1, OpenHashCounter<E> c2) {
+    if (c1.size() > c2.size()) {
+      OpenHashCounter<E> tmpCnt = c1;
+      c1 = c2;
+      c2 = tmpCnt;
+    }
+    double dotProd = 0.0;
+    Object[] keys = c1.keys;
+    double[] values = c1.values;
+    for (int i = 0; i < keys.length; i++) {
+      if ( ! OpenHashCounter.isKey(keys[i])) {
+        continue;
+      }
+      double count1 = values[i];
+      Object key = OpenHashCounter.unmask(keys[i]);
+      if (Double.isNaN(count1) || Double.isInfinite(count1)) {
+        throw new RuntimeException("Counters.dotProduct infinite or NaN value for key: " + key+ '\t' + count1 + '\t' + c2.getCount(key));
+      }
+      if (count1 != 0.0) {
+        double count2 = c2.getCount(key);
+        if (Double.isNaN(count2) || Double.isInfinite(count2)) {
+          throw new RuntimeException("Counters.dotProduct infinite or NaN value for key: " + key+ '\t' + count1 + '\t' + count2);
+        }
+        dotProd += (count1 * count2);
+      }
+    }
+    return dotProd;
+  }
+
 
   /**
    * Returns the product of Counter c and double[] a, using Index idx to map entries in C onto a.
@@ -1201,6 +1276,9 @@ public class Counters {
    * @return Its length
    */
   public static <E, C extends Counter<E>> double L2Norm(C c) {
+    if (c instanceof OpenHashCounter) {
+      return Math.sqrt(sumSquares((OpenHashCounter<?>) c));
+    }
     double lenSq = 0.0;
     for (E key : c.keySet()) {
       double count = c.getCount(key);
@@ -1285,6 +1363,9 @@ public class Counters {
 
 
   public static <E> double cosine(Counter<E> c1, Counter<E> c2) {
+    if (c1 instanceof OpenHashCounter && c2 instanceof OpenHashCounter) {
+      return cosine((OpenHashCounter<E>) c1, (OpenHashCounter<E>) c2);
+    }
     double dotProd = 0.0;
     double lsq1 = 0.0;
     double lsq2 = 0.0;
@@ -1312,6 +1393,51 @@ public class Counters {
     return 0.0;
   }
 
+  /** The same as {@link #cosine(Counter, Counter)}, but looks up only the
+   *  keys of the smaller counter in the other one, and sums the squares by
+   *  running down each table.
+   */
+  private static <E> double cosine(OpenHashCounter<E> c1, OpenHashCounter<E> c2) {
+    double lsq1 = sumSquares(c1);
+    double lsq2 = sumSquares(c2);
+    if (c1.size() > c2.size()) {
+      OpenHashCounter<E> tmpCnt = c1;
+      c1 = c2;
+      c2 = tmpCnt;
+    }
+    double dotProd = 0.0;
+    Object[] keys = c1.keys;
+    double[] values = c1.values;
+    for (int i = 0; i < keys.length; i++) {
+      double count1 = values[i];
+      if (count1 != 0.0 && OpenHashCounter.isKey(keys[i])) {
+        double count2 = c2.getCount(OpenHashCounter.unmask(keys[i]));
+        if (count2 != 0.0) {
+          // this is the inner product
+          dotProd += (count1 * count2);
+        }
+      }
+    }
+    if (lsq1 != 0.0 && lsq2 != 0.0) {
+      double denom = (Math.sqrt(lsq1) * Math.sqrt(lsq2));
+      return dotProd / denom;
+    }
+    return 0.0;
+  }
+
+  /** Sum of the squared counts of c, read straight from its table. */
+  private static double sumSquares(OpenHashCounter<?> c) {
+    double lenSq = 0.0;
+    Object[] keys = c.keys;
+    double[] values = c.values;
+    for (int i = 0; i < keys.length; i++) {
+      if (OpenHashCounter.isKey(keys[i])) {
+        lenSq += (values[i] * values[i]);
+      }
+    }
+    return lenSq;
+  }
+
   /**
    * Returns a new Counter with counts averaged from the two given Counters.
    * The average Counter will contain the union of keys in both
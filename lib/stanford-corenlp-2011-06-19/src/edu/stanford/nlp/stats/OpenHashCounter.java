@@ -0,0 +1,560 @@
+package edu.stanford.nlp.stats;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Map.Entry;
+
+import edu.stanford.nlp.util.Factory;
+
+/**
+ * A counter kept in an open address hash table of its own: the keys are in
+ * an <code>Object[]</code> and their counts in a parallel
+ * <code>double[]</code>, probed linearly.  Unlike {@link ClassicCounter}
+ * there is no boxed count or map entry per key, so reading and updating
+ * counts allocates nothing, and {@link Counters} methods whose arguments
+ * are both OpenHashCounters walk the two arrays directly.  Unlike
+ * {@link OpenAddressCounter} it needs no library beyond the JDK.
+ * <p>
+ * Removed keys leave a marker in their slot until the table is next
+ * rebuilt, so keys and entries can be removed through the iterators of the
+ * views without disturbing the iteration.  Adding keys while iterating is
+ * not supported.
+ *
+ * Do not add methods to this file.  Convenience methods should be
+ * added to {@link Counters}.
+ */
+public final class OpenHashCounter<E> extends AbstractCounter<E> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int DEFAULT_CAPACITY = 16;
+
+  /** Fraction of the table that may be in use (keys plus removal markers). */
+  private static final float LOAD_FACTOR = 0.6f;
+
+  /** Stands for the null key, since null marks a free slot. */
+  private static final Object NULL_KEY = new Object();
+
+  /** Left in the slot of a removed key, so that probing carries on past it. */
+  private static final Object REMOVED = new Object();
+
+  /** The table; null is a free slot.  Read directly by {@link Counters}. */
+  transient Object[] keys;
+
+  /** The count of the key in the same slot of keys. */
+  transient double[] values;
+
+  /** The mixed hash code of the key in the same slot of keys, so that
+   *  probing past other keys rarely has to call equals on them.
+   */
+  private transient int[] hashes;
+
+  private transient int size;
+
+  /** Slots holding a key or a removal marker. */
+  private transient int used;
+
+  private transient int maxFill;
+
+  /** Kept up to date by every change to values; {@link Counters} sets it
+   *  after scaling the values in place.
+   */
+  transient double total; // = 0.0
+
+  private double defaultValue; // = 0.0
+
+
+  public OpenHashCounter() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize How many keys the counter can take before its table
+   *     has to grow.
+   */
+  public OpenHashCounter(int expectedSize) {
+    allocate(tableSize(expectedSize));
+  }
+
+  public OpenHashCounter(Counter<E> c) {
+    this(c.size());
+    Counters.addInPlace(this, c);
+    setDefaultReturnValue(c.defaultReturnValue());
+  }
+
+  public OpenHashCounter(Collection<E> collection) {
+    this();
+    for (E key : collection) {
+      incrementCount(key);
+    }
+  }
+
+  private static int tableSize(int expectedSize) {
+    int n = DEFAULT_CAPACITY;
+    while (n * LOAD_FACTOR <= expectedSize) {
+      n <<= 1;
+    }
+    return n;
+  }
+
+  private void allocate(int capacity) {
+    keys = new Object[capacity];
+    values = new double[capacity];
+    hashes = new int[capacity];
+    maxFill = (int) (capacity * LOAD_FACTOR);
+    used = 0;
+    size = 0;
+  }
+
+  /** Spreads the bits of h so that linear probing does not cluster
+   *  (the finalizer of MurmurHash3).
+   */
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+
+  private static Object mask(Object key) {
+    return key == null ? NULL_KEY : key;
+  }
+
+  /** Whether slot holds a key, for code reading the table directly. */
+  static boolean isKey(Object slot) {
+    return slot != null && slot != REMOVED;
+  }
+
+  /** The key held in a slot for which {@link #isKey} is true. */
+  @SuppressWarnings("unchecked")
+  static <E> E unmask(Object slot) {
+    return slot == NULL_KEY ? null : (E) slot;
+  }
+
+  /** Returns the slot holding key, or -1 if it isn't in the table. */
+  private int find(Object key) {
+    Object k = mask(key);
+    Object[] keys = this.keys;
+    int[] hashes = this.hashes;
+    int m = keys.length - 1;
+    int h = mix(k.hashCode());
+    for (int i = h & m; ; i = (i + 1) & m) {
+      Object slot = keys[i];
+      if (slot == null) {
+        return -1;
+      }
+      if (slot == k || (hashes[i] == h && slot != REMOVED && slot.equals(k))) {
+        return i;
+      }
+    }
+  }
+
+  /** Returns the slot holding key, putting it there with a count of 0 if
+   *  it wasn't in the table.
+   */
+  private int insert(E key) {
+    Object k = mask(key);
+    int m = keys.length - 1;
+    int removed = -1;
+    int h = mix(k.hashCode());
+    int i = h & m;
+    for ( ; ; i = (i + 1) & m) {
+      Object slot = keys[i];
+      if (slot == null) {
+        break;
+      }
+      if (slot == REMOVED) {
+        if (removed < 0) {
+          removed = i;
+        }
+      } else if (slot == k || (hashes[i] == h && slot.equals(k))) {
+        return i;
+      }
+    }
+    if (removed >= 0) {
+      i = removed;
+    } else if (used >= maxFill) {
+      // grow only if live keys fill the table; otherwise just clear out the markers
+      rehash(size >= maxFill / 2 ? keys.length << 1 : keys.length);
+      return insert(key);
+    } else {
+      used++;
+    }
+    keys[i] = k;
+    values[i] = 0.0;
+    hashes[i] = h;
+    size++;
+    return i;
+  }
+
+  /** Makes room for n keys in all, so that adding them does not grow the
+   *  table again and again.
+   */
+  void ensureCapacity(int n) {
+    int capacity = tableSize(n);
+    if (capacity > keys.length) {
+      rehash(capacity);
+    }
+  }
+
+  private void rehash(int capacity) {
+    Object[] oldKeys = keys;
+    double[] oldValues = values;
+    int[] oldHashes = hashes;
+    allocate(capacity);
+    int m = capacity - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      Object k = oldKeys[j];
+      if (isKey(k)) {
+        int i = oldHashes[j] & m;
+        while (keys[i] != null) {
+          i = (i + 1) & m;
+        }
+        keys[i] = k;
+        values[i] = oldValues[j];
+        hashes[i] = oldHashes[j];
+        used++;
+        size++;
+      }
+    }
+  }
+
+  private double removeAt(int i) {
+    double rv = values[i];
+    keys[i] = REMOVED;
+    values[i] = 0.0;
+    size--;
+    total -= rv;
+    return rv;
+  }
+
+  /** {@inheritDoc} */
+  public Factory<Counter<E>> getFactory() {
+    return new Factory<Counter<E>>() {
+      private static final long serialVersionUID = 1L;
+
+      public Counter<E> create() {
+        return new OpenHashCounter<E>();
+      }
+    };
+  }
+
+  /** {@inheritDoc} */
+  public void setDefaultReturnValue(double rv) {
+    defaultValue = rv;
+  }
+
+  /** {@inheritDoc} */
+  public double defaultReturnValue() {
+    return defaultValue;
+  }
+
+  /** {@inheritDoc} */
+  public double getCount(Object key) {
+    int i = find(key);
+    return i < 0 ? defaultValue : values[i];
+  }
+
+  /** {@inheritDoc} */
+  public void setCount(E key, double value) {
+    int i = insert(key);
+    total += value - values[i];
+    values[i] = value;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public double incrementCount(E key, double amount) {
+    int i = insert(key);
+    total += amount;
+    return values[i] += amount;
+  }
+
+  /** {@inheritDoc} */
+  public double remove(E key) {
+    int i = find(key);
+    return i < 0 ? defaultValue : removeAt(i);
+  }
+
+  /** {@inheritDoc} */
+  public boolean containsKey(E key) {
+    return find(key) >= 0;
+  }
+
+  /** {@inheritDoc} */
+  public void clear() {
+    allocate(DEFAULT_CAPACITY);
+    total = 0.0;
+  }
+
+  /** {@inheritDoc} */
+  public int size() {
+    return size;
+  }
+
+  /** {@inheritDoc} */
+  public double totalCount() {
+    return total;
+  }
+
+  /** Walks the slots holding keys.  Subclasses say what each one yields. */
+  private abstract class SlotIterator<T> implements Iterator<T> {
+    private int next = advance(0);
+    int last = -1;
+
+    private int advance(int i) {
+      while (i < keys.length && ! isKey(keys[i])) {
+        i++;
+      }
+      return i;
+    }
+
+    public boolean hasNext() {
+      return next < keys.length;
+    }
+
+    public T next() {
+      if (next >= keys.length) {
+        throw new NoSuchElementException();
+      }
+      last = next;
+      next = advance(next + 1);
+      return at(last);
+    }
+
+    abstract T at(int i);
+
+    public void remove() {
+      if (last < 0) {
+        throw new IllegalStateException();
+      }
+      removeAt(last);
+      last = -1;
+    }
+  }
+
+  /** {@inheritDoc} */
+  public Set<E> keySet() {
+    return new AbstractSet<E>() {
+      @Override
+      public Iterator<E> iterator() {
+        return new SlotIterator<E>() {
+          @Override
+          E at(int i) {
+            return OpenHashCounter.<E>unmask(keys[i]);
+          }
+        };
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public boolean contains(Object o) {
+        return containsKey((E) o);
+      }
+
+      @Override
+      public boolean remove(Object o) {
+        int i = find(o);
+        if (i < 0) {
+          return false;
+        }
+        removeAt(i);
+        return true;
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /** {@inheritDoc} */
+  public Collection<Double> values() {
+    return new AbstractCollection<Double>() {
+      @Override
+      public Iterator<Double> iterator() {
+        return new SlotIterator<Double>() {
+          @Override
+          Double at(int i) {
+            return values[i];
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /** {@inheritDoc} */
+  public Set<Entry<E, Double>> entrySet() {
+    return new AbstractSet<Entry<E, Double>>() {
+      @Override
+      public Iterator<Entry<E, Double>> iterator() {
+        return new SlotIterator<Entry<E, Double>>() {
+          @Override
+          Entry<E, Double> at(int i) {
+            return new SlotEntry(i);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /** An entry that reads and writes through to its slot. */
+  private class SlotEntry implements Entry<E, Double> {
+    private final int slot;
+
+    SlotEntry(int slot) {
+      this.slot = slot;
+    }
+
+    public double getDoubleValue() {
+      return values[slot];
+    }
+
+    public double setValue(double value) {
+      double old = values[slot];
+      values[slot] = value;
+      total += value - old;
+      return old;
+    }
+
+    public E getKey() {
+      return OpenHashCounter.<E>unmask(keys[slot]);
+    }
+
+    public Double getValue() {
+      return getDoubleValue();
+    }
+
+    public Double setValue(Double value) {
+      return setValue(value.doubleValue());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if ( ! (o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+      Object key = getKey();
+      return (key == null ? e.getKey() == null : key.equals(e.getKey())) &&
+          getValue().equals(e.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      Object key = getKey();
+      return (key == null ? 0 : key.hashCode()) ^ getValue().hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return getKey() + "=" + getDoubleValue();
+    }
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeInt(size);
+    for (int i = 0; i < keys.length; i++) {
+      if (isKey(keys[i])) {
+        out.writeObject(unmask(keys[i]));
+        out.writeDouble(values[i]);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    int n = in.readInt();
+    allocate(tableSize(n));
+    for (int i = 0; i < n; i++) {
+      E key = (E) in.readObject();
+      setCount(key, in.readDouble());
+    }
+  }
+
+  // NOTE: Using @inheritdoc to get back to Object's javadoc doesn't work
+  // on a class that implements an interface in 1.6.  Weird, but there you go.
+
+  /** Equality is defined over all Counter implementations.
+   *  Two Counters are equal if they have the same keys explicitly stored
+   *  with the same values.
+   *  <p>
+   *  Note that a Counter with a key with value defaultReturnValue will not
+   *  be judged equal to a Counter that is lacking that key. In order for
+   *  two Counters to be correctly judged equal in such cases, you should
+   *  call Counters.retainNonDefaultValues() on both Counters first.
+   *
+   *  @param other Object to compare for equality
+   *  @return Whether this is equal to other
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } else if ( ! (other instanceof Counter)) {
+      return false;
+    }
+    return Counters.equals(this, (Counter<E>) other);
+  }
+
+  /** Returns a hashCode computed as that of a Map from the keys to their
+   *  counts would be.
+   *
+   *  @return A hashCode.
+   */
+  @Override
+  public int hashCode() {
+    int h = 0;
+    for (Entry<E, Double> e : entrySet()) {
+      h += e.hashCode();
+    }
+    return h;
+  }
+
+  /** Returns a String representation of the Counter, formatted as a Map
+   *  from the keys to their counts would be.
+   *
+   *  @return A String representation of the Counter.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    boolean first = true;
+    for (int i = 0; i < keys.length; i++) {
+      if (isKey(keys[i])) {
+        if ( ! first) {
+          sb.append(", ");
+        }
+        first = false;
+        sb.append(OpenHashCounter.<Object>unmask(keys[i])).append('=').append(values[i]);
+      }
+    }
+    return sb.append('}').toString();
+  }
+
+}
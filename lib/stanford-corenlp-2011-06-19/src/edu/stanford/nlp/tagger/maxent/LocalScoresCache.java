@@ -0,0 +1,141 @@
+package edu.stanford.nlp.tagger.maxent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Keeps the scores of the local features of words (those of the
+ * {@link Extractors#local} extractors, which look at nothing but the word)
+ * from one sentence to the next, so that a frequent word like "the" or ","
+ * has them worked out once rather than in every sentence it occurs in.
+ * Only the extractors that look at the context or the tags are then
+ * run for each token.
+ * <p>
+ * The cache holds a bounded number of words.  Each word has one slot,
+ * chosen by its hash.  Every hit on a word gives it some credit (up to
+ * a limit), and a new word whose slot is taken uses up one unit of the
+ * credit of the word there instead of replacing it; only a word with no
+ * credit left is evicted.  So frequent words stay put while the rare
+ * words between them come and go.
+ * <p>
+ * The cache may be used by several threads at once.  Entries never
+ * change once made, so a lookup takes no lock; the hit counts and credits
+ * are updated without synchronization and so are only approximate.
+ *
+ * @see MaxentTagger#setLocalScoresCacheSize
+ */
+public class LocalScoresCache {
+
+  private static final int MAX_CREDIT = 15;
+
+  private final Entry[] slots;
+  private final int shift; // 32 - log2(slots.length)
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+
+  /** Makes a cache for at least the given number of words (rounded up to a
+   *  power of two, and at least 16).
+   */
+  LocalScoresCache(int words) {
+    int bits = 4;
+    while (bits < 30 && (1 << bits) < words) {
+      bits++;
+    }
+    slots = new Entry[1 << bits];
+    shift = 32 - bits;
+  }
+
+
+  /** Returns the local scores of the word, or null if they aren't cached.
+   *  The array returned must not be changed.
+   */
+  double[] get(String word) {
+    Entry e = slots[slot(word)];
+    if (e != null && e.word.equals(word)) {
+      if (e.credit < MAX_CREDIT) {
+        e.credit++;
+      }
+      hits.incrementAndGet();
+      return e.scores;
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  /** Offers the local scores of a word to the cache, which keeps them if
+   *  the word's slot is free or the word there has no credit left.  The
+   *  cache keeps the array, which must not be changed afterwards.
+   */
+  void put(String word, double[] scores) {
+    int i = slot(word);
+    Entry e = slots[i];
+    if (e != null && e.credit > 0) {
+      e.credit--;
+    } else {
+      slots[i] = new Entry(word, scores);
+    }
+  }
+
+  private int slot(String word) {
+    // String hashes of similar words differ mostly in the low bits
+    return (word.hashCode() * 0x9e3779b9) >>> shift;
+  }
+
+
+  /** The number of words the cache can hold. */
+  public int capacity() {
+    return slots.length;
+  }
+
+  /** The number of words in the cache. */
+  public int size() {
+    int n = 0;
+    for (Entry e : slots) {
+      if (e != null) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  /** The number of lookups that found their word. */
+  public long hits() {
+    return hits.get();
+  }
+
+  /** The number of lookups that did not find their word. */
+  public long misses() {
+    return misses.get();
+  }
+
+  /** The fraction of lookups that found their word, or 0 if there were none. */
+  public double hitRate() {
+    long h = hits.get();
+    long total = h + misses.get();
+    return (total == 0) ? 0.0 : ((double) h) / total;
+  }
+
+  @Override
+  public String toString() {
+    return "LocalScoresCache[" + size() + '/' + capacity() + " words, " +
+        hits() + " hits, " + misses() + " misses, hit rate " +
+        ((int) (hitRate() * 1000)) / 10.0 + "%]";
+  }
+
+
+  private static class Entry {
+
+    final String word;
+    final double[] scores;
+    int credit; // = 0
+
+    Entry(String word, double[] scores) {
+      this.word = word;
+      this.scores = scores;
+    }
+
+  } // end class Entry
+
+}
@@ -352,6 +352,13 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
   int veryCommonWordThresh = VERY_COMMON_WORD_THRESH;
 
 
+  /** The number of words whose local scores are kept across sentences by default. */
+  public static final int DEFAULT_LOCAL_SCORES_CACHE_SIZE = 8192;
+
+  /** Scores of the local features of frequent words; null if not caching. */
+  volatile LocalScoresCache localScoresCache =
+    new LocalScoresCache(DEFAULT_LOCAL_SCORES_CACHE_SIZE);
+
   int xSize;
   int ySize;
   boolean occuringTagsOnly = OCCURRING_TAGS_ONLY;
@@ -754,6 +761,22 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
   }
 
 
+  /**
+   * Sets the number of words whose local feature scores the tagger keeps
+   * from one sentence to the next (see {@link LocalScoresCache}), emptying
+   * the cache.  A size of 0 turns the cache off.
+   */
+  public void setLocalScoresCacheSize(int words) {
+    localScoresCache = (words > 0) ? new LocalScoresCache(words) : null;
+  }
+
+  /** Returns the cache of local feature scores, for its statistics, or
+   *  null if there is none.
+   */
+  public LocalScoresCache getLocalScoresCache() {
+    return localScoresCache;
+  }
+
   /* Package access so it doesn't appear in public API. */
   boolean isRare(String word) {
     return dict.sum(word) < rareWordThresh;
@@ -1502,6 +1525,9 @@ public class MaxentTagger implements Function<List<? extends HasWord>,ArrayList<
     writer.flush();
     long millis = t.stop();
     printErrWordsPerSec(millis, numWords);
+    if (config != null && config.getVerbose() && localScoresCache != null) {
+      System.err.println(localScoresCache);
+    }
   }
 
 
@@ -63,6 +63,7 @@ public class TestSentence implements SequenceModel {
   private volatile History history;
   protected volatile Map<String,double[]> localScores = new HashMap<String,double[]>();
   protected volatile double[][] localContextScores;
+  private String[][] tagsAt; // the possible tags of each word, made when first needed
 
   protected final MaxentTagger maxentTagger;
 
@@ -131,6 +132,7 @@ public class TestSentence implements SequenceModel {
   protected void init() {
     //the eos are assumed already there
     localContextScores = new double[size][];
+    tagsAt = new String[size][];
     for (int i = 0; i < size - 1; i++) {
       if (maxentTagger.dict.isUnknown(sent.get(i))) {
         numUnknown++;
@@ -398,15 +400,20 @@ public class TestSentence implements SequenceModel {
     return scores;
   }
 
-  // This precomputes scores of local features (localScores).
+  // This precomputes scores of local features (localScores), which the
+  // tagger's LocalScoresCache keeps across sentences for frequent words.
   protected double[] getHistories(String[] tags, History h) {
     boolean rare = maxentTagger.isRare(ExtractorFrames.cWord.extract(h));
     Extractors ex = maxentTagger.extractors, exR = maxentTagger.extractorsRare;
     String w = pairs.getWord(h.current);
+    LocalScoresCache cache = maxentTagger.localScoresCache;
     double[] lS, lcS;
-    if((lS = localScores.get(w)) == null) {
+    if ((cache == null || (lS = cache.get(w)) == null) && (lS = localScores.get(w)) == null) {
       lS = getHistories(tags, h, ex.local, rare ? exR.local : null);
       localScores.put(w,lS);
+      if (cache != null) {
+        cache.put(w, lS);
+      }
     }
     if((lcS = localContextScores[h.current]) == null) {
       lcS = getHistories(tags, h, ex.localContext, rare ? exR.localContext : null);
@@ -686,12 +693,17 @@ public class TestSentence implements SequenceModel {
       arr1[0] = naTag;
       return arr1;
     }
+    // the search asks for the tags of each word many times over
+    if ((arr1 = tagsAt[pos - leftWindow()]) != null) {
+      return arr1;
+    }
     if (maxentTagger.dict.isUnknown(sent.get(pos - leftWindow()))) {
       arr1 = maxentTagger.tags.getOpenTags().toArray(new String[maxentTagger.tags.getOpenTags().size()]);
     } else {
       arr1 = maxentTagger.dict.getTags(sent.get(pos - leftWindow()));
     }
     arr1 = append(arr1, sent.get(pos - leftWindow()));
+    tagsAt[pos - leftWindow()] = arr1;
     return arr1;
   }
 }
@@ -2,9 +2,12 @@ package edu.stanford.nlp.trees.tregex;
 
 import edu.stanford.nlp.trees.Tree;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 class CoordinationPattern extends TregexPattern {
 
@@ -26,6 +29,31 @@ class CoordinationPattern extends TregexPattern {
     return children;
   }
 
+  @Override
+  void addRequiredLabels(List<Set<String>> required) {
+    if (isNegated() || isOptional()) {
+      return;
+    }
+    if (isConj) {
+      for (TregexPattern child : children) {
+        child.addRequiredLabels(required);
+      }
+    } else {
+      // one of the children has to match, so one of the labels it needs
+      // has to be there
+      Set<String> labels = new HashSet<String>();
+      for (TregexPattern child : children) {
+        List<Set<String>> childRequired = new ArrayList<Set<String>>();
+        child.addRequiredLabels(childRequired);
+        if (childRequired.isEmpty()) {
+          return;
+        }
+        labels.addAll(childRequired.get(0));
+      }
+      required.add(labels);
+    }
+  }
+
   @Override
   public String localString() {
     return (isConj ? "and" : "or");
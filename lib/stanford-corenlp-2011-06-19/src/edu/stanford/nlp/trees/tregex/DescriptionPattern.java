@@ -96,6 +96,38 @@ class DescriptionPattern extends TregexPattern {
     return sb.toString();
   }
 
+  @Override
+  void addRequiredLabels(List<Set<String>> required) {
+    if (isNegated() || isOptional()) {
+      return;
+    }
+    Set<String> labels = literalLabels();
+    if (labels != null) {
+      required.add(labels);
+    }
+    if (child != null) {
+      child.addRequiredLabels(required);
+    }
+  }
+
+  /**
+   * Returns the labels this node matches if its description is a plain
+   * list of labels, like <code>NP|NX</code>, or null if it is anything else:
+   * a regular expression, a basic category, a negated description, a
+   * backreference or <code>__</code>.
+   */
+  Set<String> literalLabels() {
+    if (descPattern == null || negDesc || basicCatFunction != null ||
+        ! variableGroups.isEmpty() || stringDesc.equals("__") ||
+        ! LITERAL_DESCRIPTION.matcher(stringDesc).matches()) {
+      return null;
+    }
+    return new HashSet<String>(Arrays.asList(stringDesc.split("\\|")));
+  }
+
+  private static final Pattern LITERAL_DESCRIPTION =
+    Pattern.compile("[-\\w,:;'`#%&]+(?:\\|[-\\w,:;'`#%&]+)*");
+
   public void setChild(TregexPattern n) {
     child = n;
   }
@@ -75,6 +75,15 @@ abstract class Relation implements Serializable {
    */
   abstract Iterator<Tree> searchNodeIterator(Tree t, Tree root);
 
+  /** The parent of t in the tree with the given root, looked up in the
+   *  {@link TreeIndex} of the tree if one is in use and found by searching
+   *  down from the root otherwise.
+   */
+  static Tree parent(Tree t, Tree root) {
+    TreeIndex index = TreeIndex.current(root);
+    return (index == null) ? t.parent(root) : index.parent(t);
+  }
+
   private static final Pattern parentOfLastChild = Pattern.compile("(<-|<`)");
 
   private static final Pattern lastChildOfParent = Pattern.compile("(>-|>`)");
@@ -414,12 +423,12 @@ abstract class Relation implements Serializable {
       return new SearchNodeIterator() {
         @Override
         void initialize() {
-          next = t.parent(root);
+          next = parent(t, root);
         }
 
         @Override
         public void advance() {
-          next = next.parent(root);
+          next = parent(next, root);
         }
       };
     }
@@ -482,7 +491,7 @@ abstract class Relation implements Serializable {
       return new SearchNodeIterator() {
         @Override
         void initialize() {
-          next = t.parent(root);
+          next = parent(t, root);
         }
       };
     }
@@ -508,13 +517,13 @@ abstract class Relation implements Serializable {
         public void initialize() {
           searchStack = new Stack<Tree>();
           Tree current = t;
-          Tree parent = t.parent(root);
+          Tree parent = parent(t, root);
           while (parent != null) {
             for (int i = parent.numChildren() - 1; parent.getChild(i) != current; i--) {
               searchStack.push(parent.getChild(i));
             }
             current = parent;
-            parent = parent.parent(root);
+            parent = parent(parent, root);
           }
           advance();
         }
@@ -555,7 +564,7 @@ abstract class Relation implements Serializable {
           Tree parent = t;
           do {
             current = parent;
-            parent = parent.parent(root);
+            parent = parent(parent, root);
             if (parent == null) {
               next = null;
               return;
@@ -602,13 +611,13 @@ abstract class Relation implements Serializable {
         public void initialize() {
           searchStack = new Stack<Tree>();
           Tree current = t;
-          Tree parent = t.parent(root);
+          Tree parent = parent(t, root);
           while (parent != null) {
             for (int i = 0; parent.getChild(i) != current; i++) {
               searchStack.push(parent.getChild(i));
             }
             current = parent;
-            parent = parent.parent(root);
+            parent = parent(parent, root);
           }
           advance();
         }
@@ -649,7 +658,7 @@ abstract class Relation implements Serializable {
           Tree parent = t;
           do {
             current = parent;
-            parent = parent.parent(root);
+            parent = parent(parent, root);
             if (parent == null) {
               next = null;
               return;
@@ -774,7 +783,7 @@ abstract class Relation implements Serializable {
         @Override
         public void advance() {
           Tree last = next;
-          next = next.parent(root);
+          next = parent(next, root);
           if (next != null && next.firstChild() != last) {
             next = null;
           }
@@ -807,7 +816,7 @@ abstract class Relation implements Serializable {
         @Override
         public void advance() {
           Tree last = next;
-          next = next.parent(root);
+          next = parent(next, root);
           if (next != null && next.lastChild() != last) {
             next = null;
           }
@@ -828,7 +837,7 @@ abstract class Relation implements Serializable {
       if (t1 == t2 || t1 == root) {
         return false;
       }
-      Tree parent = t1.parent(root);
+      Tree parent = parent(t1, root);
       return PARENT_OF.satisfies(parent, t2, root);
     }
 
@@ -841,7 +850,7 @@ abstract class Relation implements Serializable {
 
         @Override
         void initialize() {
-          parent = t.parent(root);
+          parent = parent(t, root);
           if (parent != null) {
             nextNum = 0;
             advance();
@@ -874,7 +883,7 @@ abstract class Relation implements Serializable {
       if (t1 == t2 || t1 == root) {
         return false;
       }
-      Tree parent = t1.parent(root);
+      Tree parent = parent(t1, root);
       Tree[] kids = parent.children();
       for (int i = kids.length - 1; i > 0; i--) {
         if (kids[i] == t1) {
@@ -896,7 +905,7 @@ abstract class Relation implements Serializable {
 
         @Override
         void initialize() {
-          parent = t.parent(root);
+          parent = parent(t, root);
           if (parent != null) {
             nextNum = parent.numChildren() - 1;
             advance();
@@ -934,7 +943,7 @@ abstract class Relation implements Serializable {
 
         @Override
         void initialize() {
-          parent = t.parent(root);
+          parent = parent(t, root);
           if (parent != null) {
             nextNum = 0;
             advance();
@@ -963,7 +972,7 @@ abstract class Relation implements Serializable {
       if (t1 == t2 || t1 == root) {
         return false;
       }
-      Tree[] sisters = t1.parent(root).children();
+      Tree[] sisters = parent(t1, root).children();
       for (int i = sisters.length - 1; i > 0; i--) {
         if (sisters[i] == t1) {
           return false;
@@ -981,7 +990,7 @@ abstract class Relation implements Serializable {
         @Override
         void initialize() {
           if (t != root) {
-            Tree parent = t.parent(root);
+            Tree parent = parent(t, root);
             int i = 0;
             while (parent.getChild(i) != t) {
               i++;
@@ -1012,7 +1021,7 @@ abstract class Relation implements Serializable {
         @Override
         void initialize() {
           if (t != root) {
-            Tree parent = t.parent(root);
+            Tree parent = parent(t, root);
             int i = 0;
             while (parent.getChild(i) != t) {
               i++;
@@ -1043,7 +1052,7 @@ abstract class Relation implements Serializable {
         @Override
         void initialize() {
           if (t != root) {
-            next = t.parent(root);
+            next = parent(t, root);
             if (next.numChildren() != 1) {
               next = null;
             }
@@ -1148,7 +1157,7 @@ abstract class Relation implements Serializable {
         @Override
         public void initialize() {
           searchStack = new Stack<Tree>();
-          Tree parent = t.parent(root);
+          Tree parent = parent(t, root);
           if (parent != null && !parent.isLeaf() && parent.children().length == 1)
             searchStack.push(parent);
           if (!searchStack.isEmpty()) {
@@ -1162,7 +1171,7 @@ abstract class Relation implements Serializable {
             next = null;
           } else {
             next = searchStack.pop();
-            Tree parent = next.parent(root);
+            Tree parent = parent(next, root);
             if (parent != null && !parent.isLeaf() && parent.children().length == 1)
               searchStack.push(parent);
           }
@@ -1261,7 +1270,7 @@ abstract class Relation implements Serializable {
         @Override
         public void advance() {
           Tree last = next;
-          next = next.parent(root);
+          next = parent(next, root);
           if (next != null && hf.determineHead(next) != last) {
             next = null;
           }
@@ -1390,7 +1399,7 @@ abstract class Relation implements Serializable {
         @Override
         void initialize() {
           if (t != root) {
-            next = t.parent(root);
+            next = parent(t, root);
             if (hf.determineHead(next) != t) {
               next = null;
             }
@@ -1531,7 +1540,7 @@ abstract class Relation implements Serializable {
         @Override
         void initialize() {
           if (t != root) {
-            next = t.parent(root);
+            next = parent(t, root);
             if (childNum > 0
                 && (next.numChildren() < childNum || next
                     .getChild(childNum - 1) != t)
@@ -1803,13 +1812,13 @@ abstract class Relation implements Serializable {
       return new SearchNodeIterator() {
         @Override
         void initialize() {
-          next = t.parent(root);
+          next = parent(t, root);
         }
 
         @Override
         public void advance() {
           if (unbrokenCategoryDominates.pathMatchesNode(next)) {
-            next = next.parent(root);
+            next = parent(next, root);
           } else {
             next = null;
           }
@@ -1928,11 +1937,11 @@ abstract class Relation implements Serializable {
           if (node==root) {
             return;
           }
-          Tree parent = node.parent(root);
+          Tree parent = parent(node, root);
           int i = parent.indexOf(node);
           while (i == parent.children().length-1 && parent != root) {
             node = parent;
-            parent = parent.parent(root);
+            parent = parent(parent, root);
             i = parent.indexOf(node);
           }
           Tree followingNode;
@@ -2055,11 +2064,11 @@ abstract class Relation implements Serializable {
           if (node==root) {
             return;
           }
-          Tree parent = node.parent(root);
+          Tree parent = parent(node, root);
           int i = parent.indexOf(node);
           while (i == 0 && parent != root) {
             node = parent;
-            parent = parent.parent(root);
+            parent = parent(parent, root);
             i = parent.indexOf(node);
           }
           Tree precedingNode;
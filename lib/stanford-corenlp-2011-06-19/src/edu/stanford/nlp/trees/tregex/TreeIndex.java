@@ -0,0 +1,109 @@
+package edu.stanford.nlp.trees.tregex;
+
+import java.util.*;
+
+import edu.stanford.nlp.trees.Tree;
+
+/**
+ * The nodes of one tree, in preorder, by label, together with the parent of
+ * each node.  Matching a pattern looks up parents all the time (for
+ * <code>&gt;&gt;</code>, <code>..</code>, <code>$</code> and the like), and
+ * {@link Tree#parent(Tree)} has to search down from the root each time, so
+ * when several patterns are run over a tree by a {@link TregexPatternSet} the
+ * parents are found once, here.
+ * <p>
+ * An index is made current for a thread while the patterns are matched, and
+ * {@link Relation} uses it for the tree it was made for.  The tree must not
+ * be changed while its index is in use.
+ */
+class TreeIndex {
+
+  private static final ThreadLocal<TreeIndex> currentIndex = new ThreadLocal<TreeIndex>();
+
+  private final Tree root;
+  private final Tree[] nodes;
+  private final Map<Tree, Tree> parents;
+  private final Map<String, List<Tree>> byLabel;
+
+  TreeIndex(Tree root) {
+    this.root = root;
+    List<Tree> nodeList = new ArrayList<Tree>();
+    parents = new IdentityHashMap<Tree, Tree>();
+    byLabel = new HashMap<String, List<Tree>>();
+    for (Tree node : root) {
+      nodeList.add(node);
+      for (Tree child : node.children()) {
+        parents.put(child, node);
+      }
+      String value = node.value();
+      if (value != null) {
+        List<Tree> labelled = byLabel.get(value);
+        if (labelled == null) {
+          labelled = new ArrayList<Tree>(2);
+          byLabel.put(value, labelled);
+        }
+        labelled.add(node);
+      }
+    }
+    nodes = nodeList.toArray(new Tree[nodeList.size()]);
+  }
+
+  /** The parent of the node, or null for the root or a node not in the tree. */
+  Tree parent(Tree t) {
+    return parents.get(t);
+  }
+
+  /** Whether the tree has a node with a label in each of the sets. */
+  boolean hasAll(List<Set<String>> required) {
+    for (Set<String> labels : required) {
+      boolean found = false;
+      for (String label : labels) {
+        if (byLabel.containsKey(label)) {
+          found = true;
+          break;
+        }
+      }
+      if ( ! found) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** The nodes with one of the given labels, in preorder. */
+  List<Tree> nodesWithLabels(Set<String> labels) {
+    if (labels.size() == 1) {
+      List<Tree> labelled = byLabel.get(labels.iterator().next());
+      return (labelled == null) ? Collections.<Tree>emptyList() : labelled;
+    }
+    List<Tree> labelled = new ArrayList<Tree>();
+    for (Tree node : nodes) {
+      if (labels.contains(node.value())) {
+        labelled.add(node);
+      }
+    }
+    return labelled;
+  }
+
+  /** The index in use by this thread if it was made for the tree with the
+   *  given root, or else null.
+   */
+  static TreeIndex current(Tree root) {
+    TreeIndex index = currentIndex.get();
+    return (index != null && index.root == root) ? index : null;
+  }
+
+  /** Makes the index current for this thread (or clears it if null), and
+   *  returns the index that was current before, to be restored afterwards.
+   */
+  static TreeIndex setCurrent(TreeIndex index) {
+    TreeIndex previous = currentIndex.get();
+    if (index == null) {
+      currentIndex.remove();
+    } else {
+      currentIndex.set(index);
+    }
+    return previous;
+  }
+
+}
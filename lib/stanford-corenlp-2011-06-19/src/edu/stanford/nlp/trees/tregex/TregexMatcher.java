@@ -134,6 +134,19 @@ public abstract class TregexMatcher {
     return false;
   }
 
+  /**
+   * Resets the matcher so that {@link #find()} only tries the given nodes
+   * of the tree, in the order given, rather than all of them.  Used to skip
+   * nodes that cannot match the root of the pattern.
+   *
+   * @param candidates The nodes where a match may be found
+   */
+  void findAmong(Iterator<Tree> candidates) {
+    reset();
+    findIterator = candidates;
+    findCurrent = null;
+  }
+
   /**
    * Find the next match of the pattern on the tree such that the matching node (that is, the tree node matching the
    * root node of the pattern) differs from the previous matching node.
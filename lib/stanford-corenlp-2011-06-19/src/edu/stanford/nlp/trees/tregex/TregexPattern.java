@@ -32,6 +32,12 @@ package edu.stanford.nlp.trees.tregex;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -336,6 +342,16 @@ public abstract class TregexPattern implements Serializable {
     return matcher(t, t, new HashMap<String, Tree>(), new VariableStrings());
   }
 
+  /**
+   * Adds to the list the labels a tree must have for this pattern to match
+   * in it: for each set added, one of the nodes of the tree must have one
+   * of the labels in the set.  Only nodes given by a plain list of labels
+   * (like <code>NP|NX</code>) are counted, so adding nothing is always safe.
+   * Used by {@link TregexPatternSet} to pass over patterns that cannot match.
+   */
+  void addRequiredLabels(List<Set<String>> required) {
+  }
+
   /**
    * Creates a pattern from the given string using the default Headfinder and
    * BasicCategoryFunction.  If you want to use a different HeadFinder or
@@ -478,6 +494,7 @@ public abstract class TregexPattern implements Serializable {
    * <li> <code>-extract &lt;code&gt; &lt;tree-file&gt;</code> extracts the subtree s:n specified by <tt>code</tt> from the specified <tt>tree-file</tt>.  Overrides all other behavior of tregex.  Can't specify multiple encodings etc. yet.
    * <li> <code>-extractFile &lt;code-file&gt; &lt;tree-file&gt;</code> extracts every subtree specified by the subtree codes in <tt>code-file</tt>, which must appear exactly one per line, from the specified <tt>tree-file</tt>.  Overrides all other behavior of tregex. Can't specify multiple encodings etc. yet.
    * <li> <code>-filter</code> causes this to act as a filter, reading tree input from stdin
+   * <li> <code>-threads &lt;n&gt;</code> matches the trees on <code>n</code> threads.  The output is the same, in the same order, as with one thread.
    *
    * </ul>
    */
@@ -500,6 +517,8 @@ public abstract class TregexPattern implements Serializable {
     String markHandleOption = "-k";
     String encodingOption = "-encoding";
     String encoding = "UTF-8";
+    String threadsOption = "-threads";
+    int numThreads = 1;
     Map<String,Integer> flagMap = new HashMap<String,Integer>();
     flagMap.put(extractSubtreesOption,2);
     flagMap.put(extractSubtreesFileOption,2);
@@ -512,6 +531,7 @@ public abstract class TregexPattern implements Serializable {
     flagMap.put(headFinderOption,1);
     flagMap.put(headFinderArgOption,1);
     flagMap.put(trfOption,1);
+    flagMap.put(threadsOption,1);
     Map<String, String[]> argsMap = StringUtils.argsToMap(args, flagMap);
     args = argsMap.get(null);
 
@@ -533,7 +553,7 @@ public abstract class TregexPattern implements Serializable {
     }
 
     if (args.length < 1) {
-      errPW.println("Usage: java edu.stanford.nlp.trees.tregex.TregexPattern [-T] [-C] [-w] [-f] [-o] [-n] [-s] [-filter]  [-hf class] [-trf class] [-h handle]* pattern [filepath]");
+      errPW.println("Usage: java edu.stanford.nlp.trees.tregex.TregexPattern [-T] [-C] [-w] [-f] [-o] [-n] [-s] [-filter]  [-hf class] [-trf class] [-threads n] [-h handle]* pattern [filepath]");
       return;
     }
     String matchString = args[0];
@@ -549,6 +569,10 @@ public abstract class TregexPattern implements Serializable {
       treeReaderFactoryClassName = argsMap.get(trfOption)[0];
       errPW.println("Using tree reader factory " + treeReaderFactoryClassName + "...");
     }
+    if (argsMap.containsKey(threadsOption)) {
+      numThreads = Integer.parseInt(argsMap.get(threadsOption)[0]);
+      errPW.println("Using " + numThreads + " threads...");
+    }
     if (argsMap.containsKey("-T")) {
       TRegexTreeVisitor.printTree = true;
     }
@@ -632,9 +656,10 @@ public abstract class TregexPattern implements Serializable {
         treebank = new DiskTreebank(trf, encoding);
         treebank.loadPath(args[last], null, true);
       }
-      TRegexTreeVisitor vis = new TRegexTreeVisitor(p, handles, encoding);
+      TRegexTreeVisitor vis = new TRegexTreeVisitor(p, handles, encoding, numThreads);
 
       treebank.apply(vis);
+      vis.finish();
       Timing.endTime();
       if (TRegexTreeVisitor.printMatches) {
         errPW.println("There were " + vis.numMatches() + " matches in total.");
@@ -682,11 +707,24 @@ public abstract class TregexPattern implements Serializable {
     int treeNumber = 0;
 
     TregexPattern p;
+    TregexPatternSet patterns;
     String[] handles;
     int numMatches;
 
+    // with more than one thread, the trees are matched by the pool and the
+    // output of each is printed in order as it is ready
+    private final ExecutorService pool;
+    private final int maxPending;
+    private final LinkedList<Future<Pair<Integer,String>>> pending =
+      new LinkedList<Future<Pair<Integer,String>>>();
+
     TRegexTreeVisitor(TregexPattern p, String[] handles, String encoding) {
+      this(p, handles, encoding, 1);
+    }
+
+    TRegexTreeVisitor(TregexPattern p, String[] handles, String encoding, int numThreads) {
       this.p = p;
+      this.patterns = new TregexPatternSet(Collections.singletonList(p));
       this.handles = handles;
       try {
         pw = new PrintWriter(new OutputStreamWriter(System.out, encoding),true);
@@ -696,67 +734,134 @@ public abstract class TregexPattern implements Serializable {
         pw = new PrintWriter(System.out,true);
       }
       tp.setPrintWriter(pw);
+      if (numThreads > 1) {
+        pool = Executors.newFixedThreadPool(numThreads, new ThreadFactory() {
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            return t;
+          }
+        });
+        maxPending = 4 * numThreads;
+      } else {
+        pool = null;
+        maxPending = 0;
+      }
     }
 
-    public void visitTree(Tree t) {
+    public void visitTree(final Tree t) {
       treeNumber++;
+      final String filename = (printFilename && treebank instanceof DiskTreebank) ?
+        String.valueOf(((DiskTreebank) treebank).getCurrentFile()) : null;
+      if (pool == null) {
+        numMatches += visitTree(t, treeNumber, filename, pw);
+        return;
+      }
+      final int number = treeNumber;
+      pending.add(pool.submit(new Callable<Pair<Integer,String>>() {
+        public Pair<Integer,String> call() {
+          StringWriter sw = new StringWriter();
+          PrintWriter out = new PrintWriter(sw);
+          int matches = visitTree(t, number, filename, out);
+          out.flush();
+          return new Pair<Integer,String>(matches, sw.toString());
+        }
+      }));
+      while (pending.size() >= maxPending) {
+        printNext();
+      }
+    }
+
+    /** Prints the output of the first tree still pending. */
+    private void printNext() {
+      Pair<Integer,String> result;
+      try {
+        result = pending.removeFirst().get();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        throw new RuntimeException(e.getCause());
+      }
+      numMatches += result.first();
+      pw.print(result.second());
+      pw.flush();
+    }
+
+    /** Waits for the trees still being matched, prints their output, and
+     *  stops the threads, if there are any. */
+    void finish() {
+      if (pool != null) {
+        while ( ! pending.isEmpty()) {
+          printNext();
+        }
+        pool.shutdown();
+      }
+    }
+
+    /** Matches the pattern on one tree, printing to pw, and returns the
+     *  number of matches.  The filename is printed before each match if
+     *  it isn't null. */
+    private int visitTree(final Tree t, final int treeNumber, final String filename, final PrintWriter pw) {
       if (printTree) {
         pw.print(treeNumber+":");
         pw.println("Next tree read:");
         tp.printTree(t,pw);
       }
-      TregexMatcher match = p.matcher(t);
       if(printNonMatchingTrees) {
-        if(match.find())
-          numMatches++;
-        else
-          tp.printTree(t,pw);
-        return;
-      }
-      Tree lastMatchingRootNode = null;
-      while (match.find()) {
-        if(oneMatchPerRootNode) {
-          if(lastMatchingRootNode == match.getMatch())
-            continue;
-          else
-            lastMatchingRootNode = match.getMatch();
-        }
-        numMatches++;
-        if (printFilename && treebank instanceof DiskTreebank) {
-          DiskTreebank dtb = (DiskTreebank) treebank;
-          pw.print("# ");
-          pw.println(dtb.getCurrentFile());
-        }
-        if(printSubtreeCode) {
-          pw.println(treeNumber + ":" + match.getMatch().nodeNumber(t));
+        if ( ! patterns.matching(t).isEmpty()) {
+          return 1;
         }
-        if (printMatches) {
-          if(reportTreeNumbers) {
-            pw.print(treeNumber + ": ");
+        tp.printTree(t,pw);
+        return 0;
+      }
+      final int[] numMatches = new int[1];
+      patterns.find(t, new TregexPatternSet.Handler() {
+        Tree lastMatchingRootNode = null;
+
+        public void handle(int pattern, TregexMatcher match) {
+          if(oneMatchPerRootNode) {
+            if(lastMatchingRootNode == match.getMatch())
+              return;
+            else
+              lastMatchingRootNode = match.getMatch();
+          }
+          numMatches[0]++;
+          if (filename != null) {
+            pw.print("# ");
+            pw.println(filename);
           }
-          if (printTree) {
-            pw.println("Found a full match:");
+          if(printSubtreeCode) {
+            pw.println(treeNumber + ":" + match.getMatch().nodeNumber(t));
           }
-          if (printWholeTree) {
-            tp.printTree(t,pw);
-          } else if (handles != null) {
+          if (printMatches) {
+            if(reportTreeNumbers) {
+              pw.print(treeNumber + ": ");
+            }
             if (printTree) {
-              pw.println("Here's the node you were interested in:");
+              pw.println("Found a full match:");
             }
-            for (String handle : handles) {
-              Tree labeledNode = match.getNode(handle);
-              if (labeledNode == null) {
-                System.err.println("Error!!  There is no matched node \"" + handle + "\"!  Did you specify such a label in the pattern?");
-              } else {
-                tp.printTree(labeledNode,pw);
+            if (printWholeTree) {
+              tp.printTree(t,pw);
+            } else if (handles != null) {
+              if (printTree) {
+                pw.println("Here's the node you were interested in:");
+              }
+              for (String handle : handles) {
+                Tree labeledNode = match.getNode(handle);
+                if (labeledNode == null) {
+                  System.err.println("Error!!  There is no matched node \"" + handle + "\"!  Did you specify such a label in the pattern?");
+                } else {
+                  tp.printTree(labeledNode,pw);
+                }
               }
+            } else {
+              tp.printTree(match.getMatch(),pw);
             }
-          } else {
-            tp.printTree(match.getMatch(),pw);
-          }
-          // pw.println();  // TreePrint already puts a blank line in
-        } // end if (printMatches)
-      } // end while match.find()
+            // pw.println();  // TreePrint already puts a blank line in
+          } // end if (printMatches)
+        }
+      });
+      return numMatches[0];
     } // end visitTree
 
     public int numMatches() {
@@ -93,16 +93,19 @@ public class TregexPatternCompiler {
    * @throws ParseException If the Tregex expression is syntactically invalid
    */
   public TregexPattern compile(String tregex) throws ParseException {
-    TregexPattern.setBasicCatFunction(basicCatFunction);
-    Relation.setHeadFinder(headFinder);
-    TregexPattern pattern;
-    try {
-      pattern = TregexParser.parse(tregex);
-    } catch (TokenMgrError tme) {
-      throw new ParseException(tme.toString());
+    // the parser and the functions set here are static, so only one pattern is compiled at a time
+    synchronized (TregexParser.class) {
+      TregexPattern.setBasicCatFunction(basicCatFunction);
+      Relation.setHeadFinder(headFinder);
+      TregexPattern pattern;
+      try {
+        pattern = TregexParser.parse(tregex);
+      } catch (TokenMgrError tme) {
+        throw new ParseException(tme.toString());
+      }
+      pattern.setPatternString(tregex);
+      return pattern;
     }
-    pattern.setPatternString(tregex);
-    return pattern;
   }
 
 }
@@ -0,0 +1,154 @@
+package edu.stanford.nlp.trees.tregex;
+
+import java.util.*;
+
+import edu.stanford.nlp.trees.Tree;
+
+/**
+ * Runs a list of patterns over trees, looking at each tree once for all of
+ * them.  For each tree the nodes are indexed by label and their parents
+ * are found (see {@link TreeIndex}); then a pattern is only tried if the tree
+ * has the labels the pattern needs, and the root of a pattern given by a plain
+ * list of labels (like <code>NP|NX</code>) is only tried at the nodes with
+ * those labels.  Over a large treebank most patterns looking for something
+ * rare fail at once this way.  The matches found, and their order, are
+ * those that {@link TregexMatcher#find()} finds for each pattern on its own.
+ * <p>
+ * Only a label that every match needs is used to pass over a tree: one
+ * under a negated or optional node, or given by a regular expression, is
+ * not, so such patterns are simply tried on every tree.
+ * <p>
+ * A TregexPatternSet does not change once made, and may be used by several
+ * threads at once.
+ * <p>
+ * Usage: <br>
+ * <code>
+ * TregexPatternSet patterns = new TregexPatternSet(patternList);<br>
+ * for (Tree tree : treebank) {<br>
+ * &nbsp;&nbsp;patterns.find(tree, handler);<br>
+ * }
+ * </code>
+ */
+public class TregexPatternSet {
+
+  /** Is given the matches found by {@link TregexPatternSet#find}. */
+  public interface Handler {
+
+    /**
+     * Called for each match: the matcher is at the match and may be asked
+     * for the matched node and the named nodes, but should not be moved on.
+     *
+     * @param pattern The number of the pattern in the set
+     * @param matcher The matcher of that pattern
+     */
+    void handle(int pattern, TregexMatcher matcher);
+
+  }
+
+  private final TregexPattern[] patterns;
+  /** For each pattern, the sets of labels of which the tree must have one each. */
+  private final List<List<Set<String>>> required;
+  /** For each pattern, the labels its root may have, or null if it may have any. */
+  private final List<Set<String>> rootLabels;
+
+  /**
+   * Makes a set of the given patterns, which are numbered in the order
+   * given.
+   */
+  public TregexPatternSet(List<TregexPattern> patterns) {
+    int n = patterns.size();
+    this.patterns = patterns.toArray(new TregexPattern[n]);
+    required = new ArrayList<List<Set<String>>>(n);
+    rootLabels = new ArrayList<Set<String>>(n);
+    for (TregexPattern p : this.patterns) {
+      List<Set<String>> labels = new ArrayList<Set<String>>();
+      p.addRequiredLabels(labels);
+      required.add(labels);
+      if (p instanceof DescriptionPattern && ! p.isNegated() && ! p.isOptional()) {
+        rootLabels.add(((DescriptionPattern) p).literalLabels());
+      } else {
+        rootLabels.add(null);
+      }
+    }
+  }
+
+  /** The number of patterns in the set. */
+  public int size() {
+    return patterns.length;
+  }
+
+  /** The pattern with the given number. */
+  public TregexPattern get(int pattern) {
+    return patterns[pattern];
+  }
+
+  /**
+   * Finds the matches of all the patterns in the tree, pattern by pattern,
+   * and gives each to the handler.
+   *
+   * @param tree The tree to search
+   * @param handler Is given each match
+   * @return The number of matches found
+   */
+  public int find(Tree tree, Handler handler) {
+    TreeIndex index = new TreeIndex(tree);
+    TreeIndex previous = TreeIndex.setCurrent(index);
+    int numMatches = 0;
+    try {
+      for (int i = 0; i < patterns.length; i++) {
+        TregexMatcher m = matcher(i, tree, index);
+        if (m == null) {
+          continue;
+        }
+        while (m.find()) {
+          handler.handle(i, m);
+          numMatches++;
+        }
+      }
+    } finally {
+      TreeIndex.setCurrent(previous);
+    }
+    return numMatches;
+  }
+
+  /** A matcher of the pattern that only tries the nodes the root of the
+   *  pattern may match, or null if the pattern cannot match the tree. */
+  private TregexMatcher matcher(int i, Tree tree, TreeIndex index) {
+    if ( ! index.hasAll(required.get(i))) {
+      return null;
+    }
+    TregexMatcher m = patterns[i].matcher(tree);
+    Set<String> labels = rootLabels.get(i);
+    if (labels != null) {
+      m.findAmong(index.nodesWithLabels(labels).iterator());
+    }
+    return m;
+  }
+
+  /**
+   * Returns which of the patterns match the tree somewhere.
+   *
+   * @param tree The tree to search
+   * @return The numbers of the patterns that match
+   */
+  public BitSet matching(Tree tree) {
+    TreeIndex index = new TreeIndex(tree);
+    TreeIndex previous = TreeIndex.setCurrent(index);
+    BitSet matching = new BitSet(patterns.length);
+    try {
+      for (int i = 0; i < patterns.length; i++) {
+        TregexMatcher m = matcher(i, tree, index);
+        if (m == null) {
+          continue;
+        }
+        if (m.find()) {
+          matching.set(i);
+        }
+      }
+    } finally {
+      TreeIndex.setCurrent(previous);
+    }
+    return matching;
+  }
+
+}
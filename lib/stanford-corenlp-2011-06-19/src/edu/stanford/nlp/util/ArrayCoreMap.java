@@ -1,7 +1,9 @@
 package edu.stanford.nlp.util;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.AbstractSet;
 import java.util.Iterator;
@@ -16,7 +18,13 @@ import java.util.Set;
  *
  * <p>
  * Reasonable care has been put into ensuring that this class is both fast and
- * has a light memory footprint.
+ * has a light memory footprint.  Each key class has a small integer id from
+ * {@link KeyRegistry}.  A bit mask records which of the first
+ * {@link KeyRegistry#DIRECT_KEYS} ids are present, and their values are kept
+ * in order of id, so the position of a value is the number of bits set
+ * below its key's.  Keys with larger ids are kept in a small array after
+ * them and searched.  The keys are iterated in the same order, which for
+ * maps filled in the same way is the order in which they were set.
  * </p>
  *
  * <p>
@@ -40,14 +48,20 @@ public class ArrayCoreMap implements CoreMap, Serializable {
   /** Initial capacity of the array */
   private static final int INITIAL_CAPACITY = 4;
 
-  /** Array of keys */
-  private Class<?>[] keys;
+  /** Bit i is set if the key with id i (see {@link KeyRegistry}) is here */
+  private transient long present; // = 0;
 
-  /** Array of values */
-  private Object[] values;
+  /**
+   * Array of values: first those of the keys in present, in order of id,
+   * then those of the keys in extraKeys, in the same order
+   */
+  private transient Object[] values;
 
-  /** Total number of elements actually in keys,values */
-  private int size; // = 0;
+  /** Keys with ids of KeyRegistry.DIRECT_KEYS or more, or null if none */
+  private transient Class<?>[] extraKeys;
+
+  /** Total number of elements actually in values */
+  private transient int size; // = 0;
 
   /**
    * Default constructor - initializes with default initial annotation
@@ -64,7 +78,6 @@ public class ArrayCoreMap implements CoreMap, Serializable {
    * @param capacity Initial capacity of object in key,value pairs
    */
   public ArrayCoreMap(int capacity) {
-    keys = new Class<?>[capacity];
     values = new Object[capacity];
   }
 
@@ -74,12 +87,12 @@ public class ArrayCoreMap implements CoreMap, Serializable {
    */
   public ArrayCoreMap(ArrayCoreMap other) {
     size = other.size;
-    keys = new Class<?>[size];
+    present = other.present;
     values = new Object[size];
-
-    for (int i = 0; i < size; i++) {
-      this.keys[i] = other.keys[i];
-      this.values[i] = other.values[i];
+    System.arraycopy(other.values, 0, values, 0, size);
+    if (other.extraKeys != null) {
+      extraKeys = new Class<?>[size - Long.bitCount(present)];
+      System.arraycopy(other.extraKeys, 0, extraKeys, 0, extraKeys.length);
     }
   }
 
@@ -89,18 +102,30 @@ public class ArrayCoreMap implements CoreMap, Serializable {
    */
   @SuppressWarnings("unchecked")
   public ArrayCoreMap(CoreMap other) {
-    Set<Class<?>> otherKeys = other.keySet();
-
-    size = otherKeys.size();
-    keys = new Class<?>[size];
-    values = new Object[size];
+    this(other.size());
+    for (Class<?> key : other.keySet()) {
+      put(key, other.get((Class)key));
+    }
+  }
 
-    int i = 0;
-    for (Class<?> key : otherKeys) {
-      this.keys[i] = key;
-      this.values[i] = other.get((Class)key);
-      i++;
+  /** The position in values of the key with the given id, or -1. */
+  private int indexOf(int id, Class<?> key) {
+    if (id < KeyRegistry.DIRECT_KEYS) {
+      if (id < 0) {
+        return -1;
+      }
+      long bit = 1L << id;
+      return (present & bit) == 0 ? -1 : Long.bitCount(present & (bit - 1));
+    }
+    if (extraKeys != null) {
+      int direct = Long.bitCount(present);
+      for (int i = size - direct; i > 0; ) {
+        if (extraKeys[--i] == key) {
+          return direct + i;
+        }
+      }
     }
+    return -1;
   }
 
   /**
@@ -109,12 +134,8 @@ public class ArrayCoreMap implements CoreMap, Serializable {
   @SuppressWarnings("unchecked")
   public <VALUE, KEY extends Key<CoreMap, VALUE>>
     VALUE get(Class<KEY> key) {
-    for (int i = size; i > 0; ) {
-      if (keys[--i] == key) {
-        return (VALUE)values[i];
-      }
-    }
-    return null;
+    int i = indexOf(KeyRegistry.find(key), key);
+    return i < 0 ? null : (VALUE)values[i];
   }
 
 
@@ -124,14 +145,7 @@ public class ArrayCoreMap implements CoreMap, Serializable {
    */
   public <VALUE, KEY extends Key<CoreMap, VALUE>>
     boolean has(Class<KEY> key) {
-
-    for (int i = 0; i < size; i++) {
-      if (keys[i] == key) {
-        return true;
-      }
-    }
-
-    return false;
+    return indexOf(KeyRegistry.find(key), key) >= 0;
   }
 
   /**
@@ -140,31 +154,51 @@ public class ArrayCoreMap implements CoreMap, Serializable {
   @SuppressWarnings("unchecked")
   public <VALUEBASE, VALUE extends VALUEBASE, KEY extends Key<CoreMap, VALUEBASE>>
     VALUE set(Class<KEY> key, VALUE value) {
+    return (VALUE)put(key, value);
+  }
 
-    // search array for existing value to replace
-    for (int i = 0; i < size; i++) {
-      if (keys[i] == key) {
-        VALUE rv = (VALUE)values[i];
-        values[i] = value;
-        return rv;
-      }
+  /** Does the work of set; it cannot be overridden, so readObject can use it. */
+  private Object put(Class<?> key, Object value) {
+
+    // replace an existing value
+    int id = KeyRegistry.id(key);
+    int i = indexOf(id, key);
+    if (i >= 0) {
+      Object rv = values[i];
+      values[i] = value;
+      return rv;
     }
-    // not found in arrays, add to end ...
 
     // increment capacity of arrays if necessary
-    if (size >= keys.length) {
-      int capacity = keys.length + (keys.length < 16 ? 4: 8);
-      Class<?>[] newKeys = new Class<?>[capacity];
+    if (size >= values.length) {
+      int capacity = values.length + (values.length < 16 ? 4: 8);
       Object[] newVals = new Object[capacity];
-      System.arraycopy(keys, 0, newKeys, 0, size);
       System.arraycopy(values, 0, newVals, 0, size);
-      keys = newKeys;
       values = newVals;
     }
 
+    if (id < KeyRegistry.DIRECT_KEYS) {
+      // insert in order of id, before the extra keys
+      long bit = 1L << id;
+      i = Long.bitCount(present & (bit - 1));
+      System.arraycopy(values, i, values, i + 1, size - i);
+      present |= bit;
+    } else {
+      // add to end ...
+      i = size;
+      int extra = size - Long.bitCount(present);
+      if (extraKeys == null) {
+        extraKeys = new Class<?>[INITIAL_CAPACITY];
+      } else if (extra >= extraKeys.length) {
+        Class<?>[] newKeys = new Class<?>[2 * extraKeys.length];
+        System.arraycopy(extraKeys, 0, newKeys, 0, extra);
+        extraKeys = newKeys;
+      }
+      extraKeys[extra] = key;
+    }
+
     // store value
-    keys[size] = key;
-    values[size] = value;
+    values[i] = value;
     size++;
 
     return null;
@@ -179,23 +213,36 @@ public class ArrayCoreMap implements CoreMap, Serializable {
       @Override
       public Iterator<Class<?>> iterator() {
         return new Iterator<Class<?>>() {
-          private int i; // = 0;
+          private long direct = present; // ids not yet returned
+          private int extra; // = 0;
+          private Class<?> last; // = null;
 
           public boolean hasNext() {
-            return i < size;
+            return direct != 0 || extra < size - Long.bitCount(present);
           }
 
           public Class<?> next() {
-            try {
-              return keys[i++];
-            } catch (ArrayIndexOutOfBoundsException aioobe) {
+            if (direct != 0) {
+              last = KeyRegistry.key(Long.numberOfTrailingZeros(direct));
+              direct &= direct - 1;
+            } else if (extra < size - Long.bitCount(present)) {
+              last = extraKeys[extra++];
+            } else {
               throw new NoSuchElementException("ArrayCoreMap keySet iterator exhausted");
             }
+            return last;
           }
 
           @SuppressWarnings("unchecked")
           public void remove() {
-            ArrayCoreMap.this.remove((Class)keys[i]);
+            if (last == null) {
+              throw new IllegalStateException();
+            }
+            if (direct == 0 && extra > 0 && extraKeys[extra - 1] == last) {
+              extra--;
+            }
+            ArrayCoreMap.this.remove((Class)last);
+            last = null;
           }
         };
       }
@@ -214,17 +261,20 @@ public class ArrayCoreMap implements CoreMap, Serializable {
   public <VALUE, KEY extends Key<CoreMap, VALUE>>
     VALUE remove(Class<KEY> key) {
 
-    Object rv = null;
-    for (int i = 0; i < size; i++) {
-      if (keys[i] == key) {
-        rv = values[i];
-        if (i < size - 1) {
-          System.arraycopy(keys,   i+1, keys,   i, size-(i+1));
-          System.arraycopy(values, i+1, values, i, size-(i+1));
-        }
-        size--;
-        break;
-      }
+    int id = KeyRegistry.find(key);
+    int i = indexOf(id, key);
+    if (i < 0) {
+      return null;
+    }
+    Object rv = values[i];
+    System.arraycopy(values, i+1, values, i, size-(i+1));
+    values[--size] = null;
+    if (id < KeyRegistry.DIRECT_KEYS) {
+      present &= ~(1L << id);
+    } else {
+      int extra = i - Long.bitCount(present);
+      System.arraycopy(extraKeys, extra+1, extraKeys, extra, size-i);
+      extraKeys[size - Long.bitCount(present)] = null;
     }
     return (VALUE)rv;
   }
@@ -234,12 +284,7 @@ public class ArrayCoreMap implements CoreMap, Serializable {
    */
   public <VALUE, KEY extends Key<CoreMap, VALUE>>
   boolean containsKey(Class<KEY> key) {
-    for (int i = 0; i < size; i++) {
-      if (keys[i] == key) {
-        return true;
-      }
-    }
-    return false;
+    return has(key);
   }
 
 
@@ -248,23 +293,26 @@ public class ArrayCoreMap implements CoreMap, Serializable {
    * currently stored stored in this object.
    */
   public void compact() {
-    if (keys.length > size) {
-      Class<?>[] newKeys = new Class<?>[size];
+    if (values.length > size) {
       Object[] newVals = new Object[size];
-      System.arraycopy(keys, 0, newKeys, 0, size);
       System.arraycopy(values, 0, newVals, 0, size);
-      keys = newKeys;
       values = newVals;
     }
+    int extra = size - Long.bitCount(present);
+    if (extraKeys != null && extraKeys.length > extra) {
+      Class<?>[] newKeys = null;
+      if (extra > 0) {
+        newKeys = new Class<?>[extra];
+        System.arraycopy(extraKeys, 0, newKeys, 0, extra);
+      }
+      extraKeys = newKeys;
+    }
   }
 
   public void setCapacity(int newSize) {
     if (size > newSize) { throw new RuntimeException("You cannot set capacity to smaller than the current size."); }
-    Class<?>[] newKeys = new Class<?>[size];
-    Object[] newVals = new Object[size];
-    System.arraycopy(keys, 0, newKeys, 0, size);
+    Object[] newVals = new Object[newSize];
     System.arraycopy(values, 0, newVals, 0, size);
-    keys = newKeys;
     values = newVals;
   }
 
@@ -276,8 +324,22 @@ public class ArrayCoreMap implements CoreMap, Serializable {
     return size;
   }
 
+  /** The keys in the order of values. */
+  private Class<?>[] keys() {
+    Class<?>[] keys = new Class<?>[size];
+    int i = 0;
+    for (long bits = present; bits != 0; bits &= bits - 1) {
+      keys[i++] = KeyRegistry.key(Long.numberOfTrailingZeros(bits));
+    }
+    if (i < size) {
+      System.arraycopy(extraKeys, 0, keys, i, size - i);
+    }
+    return keys;
+  }
+
   @Override
   public String toString() {
+    Class<?>[] keys = keys();
     StringBuilder s = new StringBuilder("[");
     for (int i = 0; i < size; i++) {
       s.append(keys[i].getSimpleName());
@@ -292,6 +354,7 @@ public class ArrayCoreMap implements CoreMap, Serializable {
   }
 
   public String toShorterString(String... what) {
+    Class<?>[] keys = keys();
     StringBuilder s = new StringBuilder("[");
     for (int i = 0; i < size; i++) {
       String name = keys[i].getSimpleName();
@@ -372,30 +435,24 @@ public class ArrayCoreMap implements CoreMap, Serializable {
   }
 
   private boolean equals(ArrayCoreMap other) {
-    if (this.size != other.size) {
+    if (this.size != other.size || this.present != other.present) {
       return false;
     }
 
+    int direct = Long.bitCount(present);
     for (int i = 0; i < this.size; i++) {
-      // test if other contains this key,value pair
-      boolean matched = false;
-      for (int j = 0; j < other.size; j++) {
-        if (this.keys[i] == other.keys[j]) {
-          if ((this.values[i] == null && other.values[j] != null) ||
-              (this.values[i] != null && other.values[j] == null)) {
-            matched = false;
-            break;
-          }
-
-          if ((this.values[i] == null && other.values[j] == null) ||
-              (this.values[i].equals(other.values[j]))) {
-            matched = true;
-            break;
-          }
+      // values of the same direct keys are at the same positions; extra
+      // keys may have been added in a different order
+      int j = i;
+      if (i >= direct) {
+        Class<?> key = this.extraKeys[i - direct];
+        j = other.indexOf(KeyRegistry.find(key), key);
+        if (j < 0) {
+          return false;
         }
       }
-
-      if (!matched) {
+      Object thisV = this.values[i], otherV = other.values[j];
+      if (thisV == null ? otherV != null : ! thisV.equals(otherV)) {
         return false;
       }
     }
@@ -410,6 +467,7 @@ public class ArrayCoreMap implements CoreMap, Serializable {
    */
   @Override
   public int hashCode() {
+    Class<?>[] keys = keys();
     int keyscode = 0;
     int valuescode = 0;
     for (int i = 0; i < size; i++) {
@@ -426,6 +484,17 @@ public class ArrayCoreMap implements CoreMap, Serializable {
   /** Serialization version id */
   private static final long serialVersionUID = 1L;
 
+  /**
+   * The serialized form is that of the original ArrayCoreMap, which kept
+   * parallel arrays of keys and values in the order they were set, so
+   * that serialized maps can be read by either implementation.
+   */
+  private static final ObjectStreamField[] serialPersistentFields = {
+    new ObjectStreamField("keys", Class[].class),
+    new ObjectStreamField("values", Object[].class),
+    new ObjectStreamField("size", Integer.TYPE),
+  };
+
   /**
    * Overridden serialization method: compacts our map before writing.
    *
@@ -434,7 +503,22 @@ public class ArrayCoreMap implements CoreMap, Serializable {
    */
   private void writeObject(ObjectOutputStream out) throws IOException {
     compact();
-    out.defaultWriteObject();
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("keys", keys());
+    fields.put("values", values);
+    fields.put("size", size);
+    out.writeFields();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    Class<?>[] keys = (Class<?>[]) fields.get("keys", null);
+    Object[] vals = (Object[]) fields.get("values", null);
+    int n = fields.get("size", 0);
+    values = new Object[n];
+    for (int i = 0; i < n; i++) {
+      put(keys[i], vals[i]);
+    }
   }
 
 }
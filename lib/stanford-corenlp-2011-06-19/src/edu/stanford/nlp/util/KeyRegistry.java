@@ -0,0 +1,121 @@
+package edu.stanford.nlp.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Gives each {@link CoreMap} key class a small integer id, in the order in
+ * which the keys are first seen.  {@link ArrayCoreMap} finds the values of
+ * the first {@link #DIRECT_KEYS} ids without searching, and searches for
+ * the others, so keys that are used on every token should be
+ * {@link #register registered} early; the pipeline does this for the
+ * annotations its annotators will set.
+ * <p>
+ * Looking up an id takes no lock and allocates nothing; only giving an id
+ * to a new key synchronizes, and replaces the table with a new one.  Ids
+ * are never taken back, so key classes stay reachable from here.
+ */
+public final class KeyRegistry {
+
+  /** The number of ids that ArrayCoreMap indexes directly. */
+  public static final int DIRECT_KEYS = 64;
+
+  private static volatile Table table = new Table(new Class<?>[0], 256);
+
+  private KeyRegistry() {} // static methods only
+
+
+  /** Returns the id of a key, giving it the next free id if it has none. */
+  public static int id(Class<?> key) {
+    int id = find(key);
+    return id >= 0 ? id : add(key);
+  }
+
+  /** Returns the id of a key, or -1 if it has not been given one. */
+  public static int find(Class<?> key) {
+    Table t = table;
+    Class<?>[] slots = t.slots;
+    int mask = slots.length - 1;
+    int i = System.identityHashCode(key) & mask;
+    while (true) {
+      Class<?> k = slots[i];
+      if (k == key) {
+        return t.ids[i];
+      }
+      if (k == null) {
+        return -1;
+      }
+      i = (i + 1) & mask;
+    }
+  }
+
+  /** Returns the key with the given id, which must have been given out. */
+  public static Class<?> key(int id) {
+    return table.keys[id];
+  }
+
+  /** The number of ids given out so far. */
+  public static int size() {
+    return table.keys.length;
+  }
+
+  /** Gives ids to those of the keys that have none yet, in order. */
+  public static void register(Collection<? extends Class<?>> keys) {
+    for (Class<?> key : keys) {
+      id(key);
+    }
+  }
+
+  public static void register(Class<?>... keys) {
+    register(Arrays.asList(keys));
+  }
+
+  private static synchronized int add(Class<?> key) {
+    if (key == null) {
+      throw new NullPointerException("CoreMap keys cannot be null");
+    }
+    int id = find(key);
+    if (id >= 0) {
+      return id;
+    }
+    Table t = table;
+    id = t.keys.length;
+    Class<?>[] keys = Arrays.copyOf(t.keys, id + 1);
+    keys[id] = key;
+    int capacity = t.slots.length;
+    if (2 * (id + 1) > capacity) {
+      capacity *= 2;
+    }
+    table = new Table(keys, capacity);
+    return id;
+  }
+
+
+  /** Keys and their ids by open addressing with linear probing.  A table
+   *  is never changed once it is made; adding a key makes a new one, which
+   *  is cheap enough as there are only a few hundred keys.
+   */
+  private static class Table {
+
+    final Class<?>[] keys; // key by id
+    final Class<?>[] slots;
+    final int[] ids;
+
+    Table(Class<?>[] keys, int capacity) {
+      this.keys = keys;
+      slots = new Class<?>[capacity];
+      ids = new int[capacity];
+      int mask = capacity - 1;
+      for (int id = 0; id < keys.length; id++) {
+        int i = System.identityHashCode(keys[id]) & mask;
+        while (slots[i] != null) {
+          i = (i + 1) & mask;
+        }
+        slots[i] = keys[id];
+        ids[i] = id;
+      }
+    }
+
+  } // end class Table
+
+}
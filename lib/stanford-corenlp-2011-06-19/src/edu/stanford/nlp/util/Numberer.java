@@ -1,10 +1,19 @@
 package edu.stanford.nlp.util;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Gives unique integer serial numbers to a family of objects, identified
@@ -16,8 +25,13 @@ import java.util.Set;
  * across numberings within that space.  At any rate, it's widely used in
  * some existing packages.
  * <p>
- * This implementation is not thread-safe and should be externally
- * synchronised if a Numberer is being accessed from multiple threads.
+ * A Numberer can be shared by several threads, e.g., parsers sharing one
+ * grammar.  Looking up objects and numbers takes no lock and allocates
+ * nothing; only numbering an unseen object synchronizes.  Objects are kept
+ * in an open-addressed table that is only ever appended to, and which is
+ * replaced by a larger copy when it fills up, so readers never see a
+ * half-written entry.  Replacing the global numberers with
+ * {@link #setNumberers} while other threads are using them is not supported.
  *
  * @author Dan Klein
  */
@@ -26,28 +40,31 @@ import java.util.Set;
 //some kind of Label
 public class Numberer implements Serializable {
 
-  private static Map<String,Numberer> numbererMap = new HashMap<String,Numberer>();
-  // private boolean changed = false;
-  private int total;
-  private Map<MutableInteger, Object> intToObject;
-  private Map<Object, MutableInteger> objectToInt;
-  private MutableInteger tempInt;  // should really be transient
-  private boolean locked; // = false;
+  private static volatile ConcurrentMap<String,Numberer> numbererMap = new ConcurrentHashMap<String,Numberer>();
+
+  /** Stands in for null in the table, which uses null for empty slots. */
+  private static final Object NULL_KEY = new Object();
+
+  private transient volatile Table table;
+  private transient volatile Object[] objects; // object by number
+  private transient volatile int total;
+  private volatile boolean locked; // = false;
 
 
   public static Map<String,Numberer> getNumberers() {
     return numbererMap;
   }
 
-  public static  void clearGlobalNumberers() {
-    numbererMap = new HashMap<String,Numberer>();
+  public static void clearGlobalNumberers() {
+    numbererMap = new ConcurrentHashMap<String,Numberer>();
   }
 
   /** You need to call this after deserializing Numberer objects to
    *  restore the global namespace, since static objects aren't serialized.
+   *  The contents of numbs are copied; later changes to it are not seen.
    */
   public static void setNumberers(Map<String,Numberer> numbs) {
-    numbererMap = numbs;
+    numbererMap = new ConcurrentHashMap<String,Numberer>(numbs);
   }
 
   public static void setGlobalNumberer(String key, Numberer numb) {
@@ -55,10 +72,14 @@ public class Numberer implements Serializable {
   }
 
   public static Numberer getGlobalNumberer(String type) {
-    Numberer n = numbererMap.get(type);
+    ConcurrentMap<String,Numberer> numbs = numbererMap;
+    Numberer n = numbs.get(type);
     if (n == null) {
-      n = new Numberer();
-      numbererMap.put(type, n);
+      Numberer newN = new Numberer();
+      n = numbs.putIfAbsent(type, newN);
+      if (n == null) {
+        n = newN;
+      }
     }
     return n;
   }
@@ -104,36 +125,142 @@ public class Numberer implements Serializable {
   }
 
 
+  public boolean isLocked() {
+    return locked;
+  }
+
+
   public boolean hasSeen(Object o) {
-    return objectToInt.keySet().contains(o);
+    return find(table, o == null ? NULL_KEY : o) >= 0;
   }
 
+  /** A live view of the objects numbered so far, in order of number. */
   public Set<Object> objects() {
-    return objectToInt.keySet();
+    return new AbstractSet<Object>() {
+      @Override
+      public Iterator<Object> iterator() {
+        int size = total;
+        return Arrays.asList(objects).subList(0, size).iterator();
+      }
+
+      @Override
+      public int size() {
+        return total;
+      }
+
+      @Override
+      public boolean contains(Object o) {
+        return hasSeen(o);
+      }
+    };
   }
 
 
   public int number(Object o) {
-    MutableInteger i = objectToInt.get(o);
-    if (i == null) {
-      if (locked) {
-        throw new NoSuchElementException("Numberer locked but trying to number unseen object " + o.toString());
-      }
-      i = new MutableInteger(total);
-      total++;
-      objectToInt.put(o, i);
-      intToObject.put(i, o);
+    int n = find(table, o == null ? NULL_KEY : o);
+    if (n >= 0) {
+      return n;
     }
-    return i.intValue();
+    return add(o);
   }
 
 
   public Object object(int n) {
-    tempInt.set(n);
-    return intToObject.get(tempInt);
+    Object[] objs = objects;
+    if (n < 0 || n >= objs.length) {
+      return null;
+    }
+    return objs[n];
   }
 
 
+  private static int find(Table t, Object key) {
+    int mask = t.ids.length - 1;
+    int i = hash(key) & mask;
+    while (true) {
+      Object k = t.keys.get(i);
+      if (k == null) {
+        return -1;
+      }
+      if (k == key || k.equals(key)) {
+        return t.ids[i];
+      }
+      i = (i + 1) & mask;
+    }
+  }
+
+  /** Scrambles hashCode() (the murmur3 finalizer), since keys like Strings
+   *  have runs of nearby hash codes that would cluster under linear probing.
+   */
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    return h ^ (h >>> 16);
+  }
+
+  /** Numbers an object that was not in the table when number() looked. */
+  private synchronized int add(Object o) {
+    Object key = o == null ? NULL_KEY : o;
+    Table t = table;
+    int n = find(t, key);
+    if (n >= 0) {
+      return n;
+    }
+    if (locked) {
+      throw new NoSuchElementException("Numberer locked but trying to number unseen object " + o.toString());
+    }
+    n = total;
+    Object[] objs = objects;
+    if (n == objs.length) {
+      objs = Arrays.copyOf(objs, 2 * n);
+      objects = objs;
+    }
+    objs[n] = o;
+    total = n + 1;
+    if (2 * (n + 1) > t.ids.length) {
+      t = new Table(2 * t.ids.length);
+      for (int i = 0; i < n; i++) {
+        t.put(objs[i] == null ? NULL_KEY : objs[i], i);
+      }
+      t.put(key, n);
+      table = t;
+    } else {
+      t.put(key, n);
+    }
+    return n;
+  }
+
+
+  /** Keys and their numbers by open addressing with linear probing.  An
+   *  entry's number is written before its key, and the key is written with
+   *  volatile semantics, so a reader that finds the key also sees the number.
+   */
+  private static class Table {
+
+    final AtomicReferenceArray<Object> keys;
+    final int[] ids;
+
+    Table(int capacity) {
+      keys = new AtomicReferenceArray<Object>(capacity);
+      ids = new int[capacity];
+    }
+
+    void put(Object key, int id) {
+      int mask = ids.length - 1;
+      int i = hash(key) & mask;
+      while (keys.get(i) != null) {
+        i = (i + 1) & mask;
+      }
+      ids[i] = id;
+      keys.set(i, key);
+    }
+
+  } // end class Table
+
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
@@ -152,10 +279,17 @@ public class Numberer implements Serializable {
 
 
   public Numberer() {
+    this(16);
+  }
+
+  private Numberer(int capacity) {
     // total = 0; // by default
-    tempInt = new MutableInteger();
-    intToObject = Generics.newHashMap();
-    objectToInt = Generics.newHashMap();
+    int tableSize = 16;
+    while (tableSize < 2 * capacity) {
+      tableSize <<= 1;
+    }
+    table = new Table(tableSize);
+    objects = new Object[Math.max(capacity, 8)];
   }
 
 
@@ -164,10 +298,7 @@ public class Numberer implements Serializable {
    *  the objects stored in the Numberer are the same.
    */
   public Numberer(Numberer numb) {
-    // total = 0; // by default
-    tempInt = new MutableInteger();
-    intToObject = Generics.newHashMap(numb.total());
-    objectToInt = Generics.newHashMap(numb.total());
+    this(numb.total());
     for (int i = 0; i < numb.total(); i++) {
       Object obj = numb.object(i);
       int x = number(obj);
@@ -178,6 +309,52 @@ public class Numberer implements Serializable {
   }
 
 
+  /* Numberers are serialized in grammars, so they keep the serialized form
+   * of the original HashMap-based implementation.
+   */
+  private static final ObjectStreamField[] serialPersistentFields = {
+    new ObjectStreamField("total", Integer.TYPE),
+    new ObjectStreamField("intToObject", Map.class),
+    new ObjectStreamField("objectToInt", Map.class),
+    new ObjectStreamField("tempInt", MutableInteger.class),
+    new ObjectStreamField("locked", Boolean.TYPE),
+  };
+
+  private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+    int size = total;
+    Map<MutableInteger,Object> intToObject = Generics.newHashMap(size);
+    Map<Object,MutableInteger> objectToInt = Generics.newHashMap(size);
+    for (int i = 0; i < size; i++) {
+      MutableInteger mi = new MutableInteger(i);
+      intToObject.put(mi, objects[i]);
+      objectToInt.put(objects[i], mi);
+    }
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("total", size);
+    fields.put("intToObject", intToObject);
+    fields.put("objectToInt", objectToInt);
+    fields.put("tempInt", new MutableInteger());
+    fields.put("locked", locked);
+    out.writeFields();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    int size = fields.get("total", 0);
+    Map<?,?> intToObject = (Map<?,?>) fields.get("intToObject", null);
+    table = new Table(16);
+    objects = new Object[8];
+    MutableInteger mi = new MutableInteger();
+    for (int i = 0; i < size; i++) {
+      mi.set(i);
+      if (number(intToObject.get(mi)) != i) {
+        throw new IllegalStateException("Numberer has a gap or duplicate at " + i);
+      }
+    }
+    locked = fields.get("locked", false);
+  }
+
+
   private static final long serialVersionUID = 1L;
 
 }
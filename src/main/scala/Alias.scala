@@ -37,15 +37,20 @@ object Alias    {
 
 	def fromXML(node: scala.xml.Node): Alias =  {
 		// pass in a mention node
-		return new Alias {
-			val representative = node.attribute("representative") match {
+		return Alias(node.attribute("representative") match {
 				case None => false
 				case _ => true
-			}
-			val sentence = (node \ "sentence").text.toInt
-			val start = (node \ "start").text.toInt
-			val end = (node \ "end").text.toInt
-			val head = (node \ "head").text.toInt
+			}, (node \ "sentence").text.toInt, (node \ "start").text.toInt, (node \ "end").text.toInt,
+			(node \ "head").text.toInt)
+	}
+
+	def apply(isRep: Boolean, s: Int, b: Int, e: Int, h: Int): Alias = {
+		return new Alias {
+			val representative = isRep
+			val sentence = s
+			val start = b
+			val end = e
+			val head = h
                         var rep:Alias = new EmptyAlias()
 		}
 	}
@@ -0,0 +1,265 @@
+package thesis
+
+import java.io.{BufferedInputStream, File, FileInputStream}
+import javax.xml.stream.{XMLInputFactory, XMLStreamException, XMLStreamReader}
+import javax.xml.stream.XMLStreamConstants._
+import scala.collection.JavaConversions._
+import scala.collection.mutable.ListBuffer
+import edu.stanford.nlp.dcoref.CorefChain
+import edu.stanford.nlp.pipeline.BinaryAnnotationSerializer
+
+/**
+ * Reads CoreNLP XML output with a StAX pull parser rather than building a scala.xml DOM of
+ * the whole file first.  Only one <sentence> is held at a time, and the basic and collapsed
+ * dependency blocks, which are most of each file, are skipped without being kept.
+ *
+ * Sentences and documents still come out of Sentence.build and Document.build, so they are
+ * the same as what the DOM path (Document.fromFileDOM) makes.
+ *
+ * Files written with -outputFormat binary (BinaryAnnotationSerializer, ".bin" or ".bin.gz")
+ * are read the same way, sentence by sentence, and give the same sentences and chains.
+ */
+object CoreNLPReader {
+
+  private val factory = XMLInputFactory.newInstance()
+  factory.setProperty(XMLInputFactory.SUPPORT_DTD, false)
+  factory.setProperty(XMLInputFactory.IS_COALESCING, true)
+
+  /** A sentence as read off the stream, before it is turned into a parse tree. */
+  class SentenceParts(val id: Int, val tokens: List[Token], val parse: String, val deps: List[(Int,Int,String)]) {
+    def toSentence: Sentence = Sentence.build(id, tokens, parse, deps)
+  }
+
+  def readDocument(file: File): Document = {
+    val sentences = new ListBuffer[Sentence]
+    val chains = new ListBuffer[List[Alias]]
+    read(file, { s => sentences += s.toSentence }, { c => chains += c })
+    return Document.build(sentences.toList, chains.toList, file.getPath)
+  }
+
+  /**
+   * Hands each sentence of file to f.  A sentence that cannot be read is handed to onBad
+   * instead, and the sentences after it are still read.
+   */
+  def foreachSentence(file: File)(f: SentenceParts => Unit, onBad: Exception => Unit) {
+    read(file, f, { _ => }, onBad)
+  }
+
+  /** Whether file is BinaryAnnotationSerializer output rather than XML, going by its name. */
+  def isBinary(file: File): Boolean = {
+    val name = file.getName
+    return name.endsWith(".bin") || name.endsWith(".bin.gz")
+  }
+
+  /**
+   * Walks the file once, handing each document sentence to onSentence and each coreference
+   * chain (its mentions in file order) to onChain as soon as it has been read.
+   */
+  def read(file: File, onSentence: SentenceParts => Unit, onChain: List[Alias] => Unit) {
+    read(file, onSentence, onChain, { e => throw e })
+  }
+
+  private def read(file: File, onSentence: SentenceParts => Unit, onChain: List[Alias] => Unit,
+                   onBad: Exception => Unit) {
+    if (isBinary(file)) {
+      readBinary(file, onSentence, onChain, onBad)
+      return
+    }
+    val in = new BufferedInputStream(new FileInputStream(file))
+    val r = factory.synchronized { factory.createXMLStreamReader(in) }
+    try {
+      var inSentences = false
+      var inCoref = false
+      while (r.hasNext) {
+        r.next() match {
+          case START_ELEMENT => r.getLocalName match {
+            case "sentences" => inSentences = true
+            case "sentence" if inSentences => readSentence(r, onBad) foreach onSentence
+            case "coreference" if inCoref => onChain(readChain(r))
+            case "coreference" => inCoref = true
+            case _ =>
+          }
+          case END_ELEMENT => r.getLocalName match {
+            case "sentences" => inSentences = false
+            case "coreference" => inCoref = false
+            case _ =>
+          }
+          case _ =>
+        }
+      }
+    } finally {
+      r.close()
+      in.close()
+    }
+  }
+
+  /**
+   * Reads the sentence at r, or hands the failure to onBad and skips to the sentence's end
+   * tag if it cannot be read.  A stream that is not well-formed still fails the whole file.
+   */
+  private def readSentence(r: XMLStreamReader, onBad: Exception => Unit): Option[SentenceParts] = {
+    try {
+      return Some(readSentence(r))
+    } catch {
+      case e: XMLStreamException => throw e
+      case e: Exception =>
+        skipTo(r, "sentence")
+        onBad(e)
+        return None
+    }
+  }
+
+  private def readSentence(r: XMLStreamReader): SentenceParts = {
+    val id = r.getAttributeValue(null, "id").toInt
+    val tokens = new ListBuffer[Token]
+    val deps = new ListBuffer[(Int,Int,String)]
+    val parse = new StringBuilder
+    children(r, "sentence") {
+      case "token" => tokens += readToken(r, id)
+      case "parse" => parse append r.getElementText
+      case "basic-dependencies" | "collapsed-dependencies" => skip(r)
+      case "collapsed-ccprocessed-dependencies" => children(r, "collapsed-ccprocessed-dependencies") {
+        case "dep" => deps += readDep(r)
+        case _ =>
+      }
+      case _ =>
+    }
+    return new SentenceParts(id, tokens.toList, parse.toString, deps.toList)
+  }
+
+  private def readToken(r: XMLStreamReader, sent: Int): Token = {
+    val id = r.getAttributeValue(null, "id").toInt
+    var word, lemma, begin, end, pos, ner = ""
+    children(r, "token") {
+      case "word" => word = r.getElementText
+      case "lemma" => lemma = r.getElementText
+      case "CharacterOffsetBegin" => begin = r.getElementText
+      case "CharacterOffsetEnd" => end = r.getElementText
+      case "POS" => pos = r.getElementText
+      case "NER" => ner = r.getElementText
+      case _ =>
+    }
+    return Token(sent, id, word, lemma, begin.toInt, end.toInt, pos, ner)
+  }
+
+  private def readDep(r: XMLStreamReader): (Int,Int,String) = {
+    val relType = r.getAttributeValue(null, "type")
+    var gov, dep = ""
+    children(r, "dep") {
+      case "governor" => gov = r.getAttributeValue(null, "idx")
+      case "dependent" => dep = r.getAttributeValue(null, "idx")
+      case _ =>
+    }
+    return (gov.toInt, dep.toInt, relType)
+  }
+
+  private def readChain(r: XMLStreamReader): List[Alias] = {
+    val mentions = new ListBuffer[Alias]
+    children(r, "coreference") {
+      case "mention" => mentions += readMention(r)
+      case _ =>
+    }
+    return mentions.toList
+  }
+
+  private def readMention(r: XMLStreamReader): Alias = {
+    val representative = r.getAttributeValue(null, "representative") != null
+    var sentence, start, end, head = ""
+    children(r, "mention") {
+      case "sentence" => sentence = r.getElementText
+      case "start" => start = r.getElementText
+      case "end" => end = r.getElementText
+      case "head" => head = r.getElementText
+      case _ =>
+    }
+    return Alias(representative, sentence.toInt, start.toInt, end.toInt, head.toInt)
+  }
+
+  /**
+   * read for BinaryAnnotationSerializer output.  Tokens, the parse and the cc-processed
+   * dependencies come straight off the Reader, without building CoreLabels or graphs.
+   */
+  private def readBinary(file: File, onSentence: SentenceParts => Unit, onChain: List[Alias] => Unit,
+                         onBad: Exception => Unit) {
+    val r = new BinaryAnnotationSerializer.Reader(new FileInputStream(file))
+    try {
+      var record = r.next()
+      while (record != BinaryAnnotationSerializer.END) {
+        if (record == BinaryAnnotationSerializer.SENTENCE)
+          readSentence(r, onBad) foreach onSentence
+        else if (record == BinaryAnnotationSerializer.COREF_CHAINS)
+          r.corefChainList foreach { c => readChain(c) foreach onChain }
+        record = r.next()
+      }
+    } finally {
+      r.close()
+    }
+  }
+
+  /** next() has already decoded the whole record, so there is nothing to skip on a failure. */
+  private def readSentence(r: BinaryAnnotationSerializer.Reader, onBad: Exception => Unit): Option[SentenceParts] = {
+    try {
+      return Some(readSentence(r))
+    } catch {
+      case e: Exception =>
+        onBad(e)
+        return None
+    }
+  }
+
+  private def readSentence(r: BinaryAnnotationSerializer.Reader): SentenceParts = {
+    val id = r.sentenceIndex + 1
+    val tokens = (0 until r.tokenCount) map { i =>
+      Token(id, i + 1, orEmpty(r.word(i)), orEmpty(r.lemma(i)), r.beginPosition(i), r.endPosition(i),
+        orEmpty(r.tag(i)), orEmpty(r.ner(i)))
+    }
+    val g = BinaryAnnotationSerializer.CC_PROCESSED_DEPENDENCIES
+    // relation names lose their whitespace in the XML, so here too
+    val deps = (0 until r.edgeCount(g)) map { e =>
+      (r.governor(g, e), r.dependent(g, e), r.relation(g, e).replaceAll("\\s+", ""))
+    }
+    return new SentenceParts(id, tokens.toList, orEmpty(r.treeString), deps.toList)
+  }
+
+  /** A chain as the XML has it: left out if it has one mention, representative first. */
+  private def readChain(chain: CorefChain): Option[List[Alias]] = {
+    val mentions = chain.getCorefMentions.toList
+    if (mentions.size <= 1)
+      return None
+    val rep = chain.getRepresentativeMention
+    def alias(m: CorefChain.CorefMention, isRep: Boolean) = Alias(isRep, m.sentNum, m.startIndex, m.endIndex, m.headIndex)
+    return Some(alias(rep, true) :: (mentions filter { _ ne rep } map { alias(_, false) }))
+  }
+
+  private def orEmpty(s: String): String = if (s == null) "" else s
+
+  /** Calls f with the name of each element under the current one, up to its end tag. */
+  private def children(r: XMLStreamReader, name: String)(f: String => Unit) {
+    var done = false
+    while (!done) {
+      r.next() match {
+        case START_ELEMENT => f(r.getLocalName)
+        case END_ELEMENT => done = r.getLocalName == name
+        case _ =>
+      }
+    }
+  }
+
+  /** Reads up to the end tag of the enclosing element called name. */
+  private def skipTo(r: XMLStreamReader, name: String) {
+    while (!(r.getEventType == END_ELEMENT && r.getLocalName == name))
+      r.next()
+  }
+
+  private def skip(r: XMLStreamReader) {
+    var depth = 1
+    while (depth > 0) {
+      r.next() match {
+        case START_ELEMENT => depth += 1
+        case END_ELEMENT => depth -= 1
+        case _ =>
+      }
+    }
+  }
+
+}
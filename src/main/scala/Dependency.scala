@@ -21,10 +21,14 @@ abstract class Dependency	{
 
 object Dependency	{
   def fromXML(node: scala.xml.Node, nodes: Map[Int,ParseTreeNode]): Dependency =
+    Dependency((node \ "governor" \ "@idx").text.toInt, (node \ "dependent" \ "@idx").text.toInt,
+      (node \ "@type") text, nodes)
+
+  def apply(govIdx: Int, depIdx: Int, rel: String, nodes: Map[Int,ParseTreeNode]): Dependency =
     new Dependency	{
-		val gov = nodes.getOrElse((node \ "governor" \ "@idx").text.toInt,null)
-		val dep = nodes.getOrElse((node \ "dependent" \ "@idx").text.toInt,null)
-		val relType = (node \ "@type") text
+		val gov = nodes.getOrElse(govIdx,null)
+		val dep = nodes.getOrElse(depIdx,null)
+		val relType = rel
 		val relFunc = Relations.handler(relType)
 		//println(relType)
     }
@@ -24,11 +24,38 @@ abstract class Document {
 	}
         
 
+        // Every alias, dependents before their representative, and for each (sentence id,
+        // token id) the aliases covering that token in the same order.  Built once, instead
+        // of filtering all the aliases for every property token.
+        lazy val allAliases: List[Alias] = aliases map { kv => kv._2 :+ kv._1 } reduceLeft { (acc,l) => acc ++ l }
+
+        lazy val aliasIndex: Map[(Int,Int),List[Alias]] = {
+          val index = scala.collection.mutable.HashMap[(Int,Int),List[Alias]]()
+          allAliases.reverse foreach { a =>
+            for (t <- a.start until a.end)
+              index((a.sentence,t)) = a :: index.getOrElse((a.sentence,t),List[Alias]())
+          }
+          index.toMap
+        }
+
+        // sentence id -> the dependent aliases of each coreference chain that has any there,
+        // one list per chain in the order of aliases.values
+        lazy val chainIndex: Map[Int,List[List[Alias]]] = {
+          val index = scala.collection.mutable.HashMap[Int,List[List[Alias]]]()
+          aliases.values.toList.reverse foreach { chain =>
+            chain groupBy { _.sentence } foreach { case (s,l) => index(s) = l :: index.getOrElse(s,List[List[Alias]]()) }
+          }
+          index.toMap
+        }
+
+        def aliasesAt(tok: Token, s: Int): List[Alias] = aliasIndex.getOrElse((s,tok.id),List[Alias]())
+
+        def chainsIn(s: Int): List[List[Alias]] = chainIndex.getOrElse(s,List[List[Alias]]())
+
         def aliasProps(): Map[Alias,List[Property]] = {
-          val fal = aliases map { kv => kv._2 :+ kv._1 } reduceLeft { (acc,l) => acc ++ l }
           val aps = sentences map {
 	          s => val ap = (s.properties map {
-		          tp => fal filter { _.tokenIsInRange(tp._1,s.id) } map { (_ -> tp._2) }
+		          tp => aliasesAt(tp._1,s.id) map { (_ -> tp._2) }
 	          }).foldLeft(List[(thesis.Alias, List[thesis.Property])]())((acc,l) => acc ++ l); ap
           }
           val mps = aps map {
@@ -53,7 +80,7 @@ abstract class Document {
 		def printConnections = {
 			nerFilter() map { ner => println("\n" + resolve(ner._1)); 
 				ner._2 map { 
-					p => println("\t" + (aliases.values.toList map { _ filter { _.sentence == p.quality.sent } } filter { _.size > 0 } map { _ map { resolve(_) } }));
+					p => println("\t" + (chainsIn(p.quality.sent) map { _ map { resolve(_) } }));
 						 println("\t\t" + sentences(p.quality.sent).tokens.mkString(" ")); } }
 		}
 
@@ -61,13 +88,12 @@ abstract class Document {
             nerFilter() map { case (ner, props) =>
                 // Making a map of tuples: (Entity stuff) -> (dependent entities, properties connecting them)
                 ((resolve(ner), true, ner.sentence),((props map { p => sentences(p.quality.sent).tokens }),
-                  Utilities.multiFlatten((props map { p => aliases.values.toList map { _ filter { _.sentence == p.quality.sent } } filter { _.size > 0 } map { _ map { resolve(_) } } } ))),id)
+                  Utilities.multiFlatten((props map { p => chainsIn(p.quality.sent) map { _ map { resolve(_) } } } ))),id)
             }
         }
 		
 		def connections = {
-			nerFilter() map { ner => (ner._1 -> (ner._2 map { p => aliases.values.toList map { _ filter { _.sentence == p.quality.sent }} filter {
-				_.size > 0} apply(0) apply(0) } )) }
+			nerFilter() map { ner => (ner._1 -> (ner._2 map { p => chainsIn(p.quality.sent) apply(0) apply(0) } )) }
 		}
 		
 /*		def aliasesForToken(tok: Token): List[Alias] = {
@@ -83,22 +109,33 @@ abstract class Document {
 
 object Document {
 
-    var nextId = 0L
+    private val ids = new java.util.concurrent.atomic.AtomicLong
+
+    def nextId: Long = ids.get
 
 	def fromXML(node: xml.NodeSeq, fileName: String): Document = {
+		val sentences = ((node \ "document" \ "sentences" \\  "sentence") map { s => Sentence
+				.fromXML(s)}).toList
+		val chains = ((node \ "document" \ "coreference" \ "coreference") map { cof => ((cof \\ "mention") map {
+			Alias.fromXML(_) }).toList }).toList
+		return build(sentences, chains, fileName)
+	}
+
+	/**
+	 * Puts a document together from its sentences and coreference chains (mentions in file
+	 * order), wherever they were read from.
+	 */
+	def build(sents: List[Sentence], chains: List[List[Alias]], fileName: String): Document = {
 		return new Document {
-			val sentences = ((node \ "document" \ "sentences" \\  "sentence") map { s => Sentence
-					.fromXML(s)}).toList
-			var temp = (node \ "document" \ "coreference" \ "coreference") map { cof => (cof \\ "mention") map { Alias.fromXML(_) } } 
+			val sentences = sents
+			var temp = chains
                         temp foreach { t => t.tail map { a => a.rep = t.head }}
 			val aliases = Map[Alias,List[Alias]]() ++ (temp map { l => (l filter { _.representative == true } apply
 					(0)) -> (l filter { _.representative == false } toList)})
 			
             val filePath = fileName       
 
-            val id = nextId
-
-            nextId = nextId + 1
+            val id = ids.getAndIncrement
 		}
 	}
         
@@ -107,6 +144,11 @@ object Document {
         }
 
 		def fromFile(file: java.io.File): Document = {
+			return CoreNLPReader.readDocument(file)
+		}
+
+		/** The old whole-DOM loader, kept to check CoreNLPReader against. */
+		def fromFileDOM(file: java.io.File): Document = {
 			import scala.xml.parsing.ConstructingParser
 
 			val p = ConstructingParser.fromFile(file, true /*preserve whitespace*/)
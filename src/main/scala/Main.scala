@@ -48,20 +48,19 @@ object Main {
 	}
 	
 	def initMany(file: java.io.File): List[Sentence] = {
-		import scala.xml.parsing.ConstructingParser
-
-		val p = ConstructingParser.fromFile(file, true /*preserve whitespace*/)
-		val d: scala.xml.Document = p.document()
-
-
-		return ((d \ "document" \ "sentences" \\  "sentence") map { s => 
+		val sents = new scala.collection.mutable.ListBuffer[Sentence]
+		def skip(e: Throwable) = e match {
+			case e: NullPointerException => println(e)
+			case _ =>
+		}
+		CoreNLPReader.foreachSentence(file)({ s =>
 			try { 
-			  Sentence.fromXML(s)
+			  sents += s.toSentence
 			} catch {
-			  	case e: NullPointerException => println(e); new EmptySentence()
-				case _ => new EmptySentence()
+			  	case e => skip(e)
 			}
-		}).toList filter { _.getClass != classOf[EmptySentence] }
+		}, skip)
+		return sents.toList
 	}
         
   
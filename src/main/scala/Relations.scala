@@ -47,28 +47,65 @@ object Relations	{
 		return map + (tok -> (nProp :: (map.getOrElse(tok,List[Property]()) filterNot rmFunc)))
 	}
 
+  /**
+   * The properties of one sentence as they are collected.  One of these is passed down the whole
+   * dependency walk in place of the maps the handlers used to build and merge at every edge.
+   * A handler that looks at or rewrites what its own subtree produced for a token takes a mark
+   * before walking the subtree and only touches what came after it, which is what the subtree's
+   * map used to hold.
+   */
+  class PropertyBuffer {
+	import scala.collection.mutable.{ArrayBuffer, HashMap}
+
+	private val props = new HashMap[Token,ArrayBuffer[Property]]
+
+	def mark(tok: Token): Int = props.get(tok) match {
+		case Some(buf) => buf.length
+		case None => 0
+	}
+
+	def since(tok: Token, mark: Int): List[Property] = props.get(tok) match {
+		case Some(buf) => buf.view(mark,buf.length).toList
+		case None => List()
+	}
+
+	// Same as Relations.add.  Its duplicate check never fires here: Property has reference
+	// equality and every handler adds a property it has just made.
+	def add(tok: Token, prop: Property) {
+		props.getOrElseUpdate(tok,new ArrayBuffer[Property]) += prop
+	}
+
+	// Same as the rmFunc version of Relations.add, over what was added to tok since mark.
+	def add(tok: Token, prop: Property, mark: Int, rmFunc: (Property) => Boolean) {
+		val buf = props.getOrElseUpdate(tok,new ArrayBuffer[Property])
+		val rest = buf.slice(mark,buf.length).toList filterNot rmFunc
+		buf.remove(mark,buf.length - mark)
+		buf += prop
+		buf ++= rest
+	}
+
+	def toMap: Map[Token,List[Property]] = Map[Token,List[Property]]() ++ (props map { kv => (kv._1 -> kv._2.toList) })
+  }
+
   class dep extends Function2[ParseTreeNode, ParseTreeNode, Map[Token,List[Property]]]	{
     // Most basic dependency, all others inherit from this
     def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
-	  ////println(gov + "\t" + dep)
-      ////println("dep")
-	  // use dep.dependents to make list of PTNs which are the dependents of dep, reduce over this calling relFunc to produce props
-      //val props = (List[Property]() /: Sentence.sent.dependencies.getOrElse(dep.word.id,List())) { (list,
-                                                                                                    // rel) => list ++
-		//      rel.relFunc.apply(dep,rel.dep)(gov.token) }
+      val props = new PropertyBuffer
+      collect(gov,dep,props)
+      return props.toMap
+    }
 
+    /**
+     * Adds the properties of the edge gov -> dep, and of everything under dep, to props.
+     * Handlers that make properties override this and call super.collect first.
+     */
+    def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
 	  if (gov.word.id == dep.word.id)   {
-		  return Map[Token,List[Property]]()
+		  return
 	  }
 
-	  return  (Map[Token,List[Property]]() /: (Sentence.sent.dependencies.getOrElse(dep.word.id,
-		  List()) map { rel => rel.relFunc.apply(dep,
-		  rel.dep) }) ) ((acc,m) => (acc /: m) { (map,kv) => map + (kv._1 -> (map.getOrElse(kv._1,List[Property]()) ++ kv._2)) } )
-
-      //return Map((gov.token -> props))
+	  Sentence.sent.dependencies.getOrElse(dep.word.id,List()) foreach { rel => rel.relFunc.collect(dep,rel.dep,props) }
     }
-
-
   }
 
 
@@ -95,11 +132,12 @@ object Relations	{
 
   class cop extends aux	{
 	// Copula
-    override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
+    override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
       //println("cop")
-		val props = super.apply(gov,dep)
+		super.collect(gov,dep,props)
 		/* Connects be-verbs to their subjects.  VERY useful.  */
-	    return add(add(props,gov.word,new Relation(dep.word)),gov.word,new IsOfType(gov.word))
+	    props.add(gov.word,new Relation(dep.word))
+	    props.add(gov.word,new IsOfType(gov.word))
     }
   }
 
@@ -114,16 +152,15 @@ object Relations	{
 
   class agent extends arg	{
 	// Agent
-    override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
+    override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
       //println("agent")
 		/* Provides "extra" information to the verb
 		 * e.g., "The man has been killed by the police" agent(killed,police)
 		 * Introduced by preposition "by"
 		 */
-		val props = super.apply(gov,dep)
+		super.collect(gov,dep,props)
 
-		return add(props,gov.word,new AgentRelation(gov.word,dep.word))
-//      return super.apply(gov,dep)
+		props.add(gov.word,new AgentRelation(gov.word,dep.word))
     }
   }
 
@@ -138,22 +175,23 @@ object Relations	{
 
   class acomp extends comp	{
 	// Adjectival complement
-    override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
+    override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
       //println("acomp")
 /* Object of the verb
  * "She looks beautiful" acomp(looks,beautiful)
 */
-      return add(super.apply(gov,dep),gov.word,new IsOfType(dep.word))
+      super.collect(gov,dep,props)
+      props.add(gov.word,new IsOfType(dep.word))
     }
   }
 
   class abbrev extends dep	{
-    override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
+    override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
       /* Abbreviation */
       //println("abbrev")
-      val props = super.apply(gov,dep)
+      super.collect(gov,dep,props)
 
-      return add(props, gov.word, new AlternativePhrase(dep.word))
+      props.add(gov.word,new AlternativePhrase(dep.word))
     }
   }
 
@@ -169,32 +207,31 @@ object Relations	{
   }
 
   class advmod extends dep	{
-    override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
+    override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
       /* Adverbial modifier 
        * Adds information to verb, very useful */
       //println("advmod")
-      val props = super.apply(gov,dep)
+      super.collect(gov,dep,props)
 
-      return add(props,gov.word,new IsOfType(dep.word))
+      props.add(gov.word,new IsOfType(dep.word))
     }
   }
 
   class amod extends dep	{
-    override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
-        val props = super.apply(gov,dep)
-	    //println("amod")
+    override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
+      //println("amod")
+      super.collect(gov,dep,props)
 
-      //return props + (gov.word -> (new IsOfType(dep.word) :: props.getOrElse(gov.word,List[Property]())))
-	  return add(props,gov.word,new IsOfType(dep.word))
+      props.add(gov.word,new IsOfType(dep.word))
     }
   }
 
   class appos extends dep	{
-    override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
-      val props = super.apply(gov,dep)
-	    //println("appos")
+    override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
+      //println("appos")
+      super.collect(gov,dep,props)
 
-	    return add(props,gov.word,new IsOfType(dep.word))
+      props.add(gov.word,new IsOfType(dep.word))
     }
   }
 
@@ -238,11 +275,11 @@ object Relations	{
   }
 
   class csubj extends dep	{
-    override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
+    override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
       //println("csubj")
-      val props = super.apply(gov,dep)
+      super.collect(gov,dep,props)
 
-      return add(props, gov.word, new NounProperty(dep.word))
+      props.add(gov.word,new NounProperty(dep.word))
     }
   }
 
@@ -262,9 +299,11 @@ object Relations	{
   }
 
   class dobj extends dep	{
-    override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
+    override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
       //println("dobj")
-      return add(super.apply(gov,dep), gov.word, new Subject(new NounProperty(dep.word)))
+      super.collect(gov,dep,props)
+
+      props.add(gov.word,new Subject(new NounProperty(dep.word)))
     }
   }
 
@@ -314,11 +353,11 @@ object Relations	{
   }
 
   class nn extends dep	{
-    override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
-        //println("nn")
-        val props = super.apply(gov,dep)
-	    //return props + (gov.word -> (props.getOrElse(gov.word,List[Property]()) :+ new NounProperty(dep.word)))
-	    return add(props,gov.word,new NounProperty(dep.word))
+    override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
+      //println("nn")
+      super.collect(gov,dep,props)
+
+      props.add(gov.word,new NounProperty(dep.word))
     }
   }
 
@@ -331,22 +370,19 @@ object Relations	{
   }
 
   class nsubj extends dep	{
-    override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
+    override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
       //println("nsubj")
 
-	    val props = super.apply(gov,dep)
+	    val mark = props.mark(dep.word)
+	    super.collect(gov,dep,props)
 	    //dep is "thing"
 	    //    dep should be some property saying it is a "thing" for a clause
-	    val nns = (new NounProperty(dep.word) /: (props.getOrElse(dep.word,List[Property]()) filter { _.getClass ==
+	    val nns = (new NounProperty(dep.word) /: (props.since(dep.word,mark) filter { _.getClass ==
 			    classOf[NounProperty] } map { np:Property => np match { case np2: NounProperty => np2; case _ =>
 		    throw new ClassCastException } } ) ) { (np:NounProperty,nn:NounProperty) => nn ++ np }
 
-	    //return props + (dep.word -> (nns :: (props.getOrElse(dep.word,List[Property]()) filterNot { p => p.getClass
-	    // ==
-		//	    classOf[NounProperty] })))
-	    val temp = add(props,dep.word,nns,{ p:Property => p.getClass == classOf[NounProperty] })
-	    return add(temp,gov.word,new Subject(nns))
-      //return super.apply(gov,dep)
+	    props.add(dep.word,nns,mark,{ p:Property => p.getClass == classOf[NounProperty] })
+	    props.add(gov.word,new Subject(nns))
     }
   }
 
@@ -358,29 +394,31 @@ object Relations	{
   }
 
   class num extends dep	{
-		override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
+		override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
 			//println("num")
-			val props = super.apply(gov, dep)
-			val nm = props.getOrElse(dep.word, List())
+			val govMark = props.mark(gov.word)
+			val depMark = props.mark(dep.word)
+			super.collect(gov,dep,props)
+			val nm = props.since(dep.word,depMark)
 			if (!nm.isEmpty)    {
-				return nm(0) match {
-					case a: NumberModifier => add(props,gov.word,new Quantity(a,List(gov.word)),
+				nm(0) match {
+					case a: NumberModifier => props.add(gov.word,new Quantity(a,List(gov.word)),govMark,
 							{ p:Property => p.getClass ==
 							classOf[NumberModifier]})
-					case _ => add(props,gov.word,new Number(dep.word))
+					case _ => props.add(gov.word,new Number(dep.word))
 				}
+				return
 			}
-			return add(props,gov.word,new Number(dep.word))
+			props.add(gov.word,new Number(dep.word))
 		}
   }
 
   class number extends dep	{
-    override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
+    override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
       //println("number")
-	    val props = super.apply(gov,dep)
-
-	  return  add(props,gov.word,new NumberModifier(dep.word, List(gov.word)))
+      super.collect(gov,dep,props)
 
+      props.add(gov.word,new NumberModifier(dep.word, List(gov.word)))
     }
   }
 
@@ -525,52 +563,46 @@ object Relations	{
   }
 
 	class conj_or extends conj  {
-		override def apply(gov: ParseTreeNode, dep:ParseTreeNode): Map[Token,List[Property]] = {
+		override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
 			//println("conj_or")
-			val props = super.apply(gov,dep)
+			super.collect(gov,dep,props)
 
-			return add(props,gov.word,new AlternativePhrase(dep.word))
+			props.add(gov.word,new AlternativePhrase(dep.word))
 		}
 	}
 
 	class prep_as extends prep  {
-		override def apply(gov: ParseTreeNode, dep:ParseTreeNode): Map[Token,List[Property]] = {
+		override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
 			//println("prep_as")
-			val props = super.apply(gov,dep)
+			super.collect(gov,dep,props)
 
-			return add(props,gov.word,new As(dep.word))
+			props.add(gov.word,new As(dep.word))
 		}
 	}
 
 	class prep_from extends prep    {
-		override def apply(gov: ParseTreeNode, dep: ParseTreeNode): Map[Token,List[Property]] = {
+		override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
 			//println("prep_from")
-			val props = super.apply(gov, dep)
+			val mark = props.mark(dep.word)
+			super.collect(gov,dep,props)
 
 			if (dep.word.ner == "DATE") {
 				 // get deps whose rel is num
 				// turn into date
-
-				/*val date = new DateRange(dep.word, (dep.dependents map { Sentence.sent
-						.dependencies.getOrElse(_,List[Dependency]()) } reduceLeft { (acc,
-				                                                                      l) => acc ++ (l filter { _
-						.relType == "num"})}).head.dep.word)*/
-				if (props.isDefinedAt(dep.word))	{
-					val date = new DateRange(dep.word,props(dep.word)(0).quality)
-					return add(props,gov.word,date)
+				val depProps = props.since(dep.word,mark)
+				if (!depProps.isEmpty)	{
+					props.add(gov.word,new DateRange(dep.word,depProps(0).quality))
 				}
 			}
-			return props
-
 		}
 	}
 
 	class prep_with extends prep  {
-		override def apply(gov: ParseTreeNode, dep:ParseTreeNode): Map[Token,List[Property]] = {
+		override def collect(gov: ParseTreeNode, dep: ParseTreeNode, props: PropertyBuffer) {
 			//println("prep_with")
-			val props = super.apply(gov,dep)
+			super.collect(gov,dep,props)
 
-			return add(props,gov.word,new PartsOfEntity(List(dep.word)))
+			props.add(gov.word,new PartsOfEntity(List(dep.word)))
 		}
 	}
 
@@ -53,19 +53,35 @@ object Sentence	{
   val dependencies: List[Dependency] = (List[Dependency]() /: depNode) (_ :+ Dependency.fromXML(_))
 */
 
-	var sent:Sentence = new EmptySentence()
+	// The sentence being built, which Relations reads back.  Kept per thread so that
+	// Loader can parse several documents at once.
+	private val current = new ThreadLocal[Sentence] { override def initialValue: Sentence = new EmptySentence() }
+	def sent: Sentence = current.get
+	def sent_=(s: Sentence) { current.set(s) }
 
 	def fromXML(node: scala.xml.Node): Sentence =  {
+		Token.curSentence = (node \ "@id").text.toInt
+		return build(Token.curSentence, ((node \\ "token") map { Token.fromXML(_) }).toList, (node \\ "parse").text,
+			((node \\ "collapsed-ccprocessed-dependencies" \\ "dep") map { dep => ((dep \ "governor" \ "@idx").text.toInt,
+				(dep \ "dependent" \ "@idx").text.toInt, (dep \ "@type").text) }).toList)
+	}
+
+	/**
+	 * Builds a sentence from its already-read parts, so that both the DOM path above and
+	 * CoreNLPReader end up with the same object.  deps are (governor, dependent, type)
+	 * triples from the collapsed-ccprocessed-dependencies.
+	 */
+	def build(sid: Int, toks: List[Token], parse: String, deps: List[(Int,Int,String)]): Sentence =  {
 		sent = new Sentence {
-			val id: Int = (node \ "@id").text.toInt
+			val id: Int = sid
 			Token.curSentence = id
-			val tokens = (List[Token](new EmptyToken) /: (node \\ "token")) (_ :+ Token.fromXML(_))
-			val (parseTree:ParseTreeNode, nodes:Map[Int,ParseTreeNode]) = ParseTreeNode.parse(node \\ "parse" text, tokens, dependencies)
-			val dependencies = 	(Map[Int,List[Dependency]]() /: (node \\ "collapsed-ccprocessed-dependencies" \\ "dep")) (
-			(map:Map[Int,List[Dependency]],dep:scala.xml.Node) => { map + (((dep \ "governor" \ "@idx").text.toInt)
+			val tokens = new EmptyToken :: toks
+			val (parseTree:ParseTreeNode, nodes:Map[Int,ParseTreeNode]) = ParseTreeNode.parse(parse, tokens, dependencies)
+			val dependencies = 	(Map[Int,List[Dependency]]() /: deps) (
+			(map:Map[Int,List[Dependency]],dep:(Int,Int,String)) => { map + (dep._1
 					->
-				(map.getOrElse(((dep \ "governor" \ "@idx").text.toInt),List())
-						  ++ List(Dependency.fromXML(dep,nodes)) filter { n => (n.dep != null && n.gov != null) } ))})
+				(map.getOrElse(dep._1,List())
+						  ++ List(Dependency(dep._1,dep._2,dep._3,nodes)) filter { n => (n.dep != null && n.gov != null) } ))})
 			// build parsetree first, then dependencies.  after built, go back and add indices to deps
 			if (nodes != null) nodes foreach { node => if (node._2.word != null) { node._2.dependents = dependencies.getOrElse(node._2.word.id,List[Dependency]()) map { _.dep.word.id } } }
 			var entities = Entity.entityMap(tokens)
@@ -77,9 +93,10 @@ object Sentence	{
 
 		sent.properties = sent.root.isEmpty match {
 			case true =>   Map[Token,List[Property]]()
-			case false =>   (Map[Token,List[Property]]() /: (sent.dependencies(sent.root(0)) map { e => e.relFunc(e
-					.gov,
-				e.dep) } )) { (acc,dep) => (acc /: dep) { (sacc,kv) => sacc + (kv._1 -> (sacc.getOrElse(kv._1,List[Property]()) ++ kv._2)) } }
+			case false =>
+				val props = new Relations.PropertyBuffer
+				sent.dependencies(sent.root(0)) foreach { e => e.relFunc.collect(e.gov,e.dep,props) }
+				props.toMap
 		}
 
 		return sent
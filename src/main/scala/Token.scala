@@ -37,18 +37,26 @@ abstract class Token extends Ordered[Token]	{
 
 object Token	{
 	
-	var curSentence:Int = -1
+	// per thread, like Sentence.sent
+	private val current = new ThreadLocal[Int] { override def initialValue: Int = -1 }
+	def curSentence: Int = current.get
+	def curSentence_=(s: Int) { current.set(s) }
 
   def fromXML(node: scala.xml.Node): Token =
+    Token(curSentence, (node \ "@id").text.toInt, (node \ "word").text, (node \ "lemma").text,
+      (node \ "CharacterOffsetBegin").text.toInt, (node \ "CharacterOffsetEnd").text.toInt,
+      (node \ "POS").text, (node \ "NER").text)
+
+  def apply(s: Int, i: Int, w: String, l: String, b: Int, e: Int, p: String, n: String): Token =
     new Token {
-	  val sent = curSentence
-      val id = (node \ "@id").text.toInt
-      val word = (node \ "word").text
-      val lemma = (node \ "lemma").text
-      val begin = (node \ "CharacterOffsetBegin").text.toInt
-      val end = (node \ "CharacterOffsetEnd").text.toInt
-      val pos = (node \ "POS").text
-      val ner = (node \ "NER").text
+	  val sent = s
+      val id = i
+      val word = w
+      val lemma = l
+      val begin = b
+      val end = e
+      val pos = p
+      val ner = n
     }
 
 }
@@ -13,6 +13,8 @@ object Utilities {
 
 import scala.concurrent._
 import java.io.File
+import java.util.concurrent.{ConcurrentLinkedQueue, LinkedBlockingQueue}
+import java.util.concurrent.atomic.{AtomicInteger, AtomicLong, AtomicReference}
 
 class LockN(n: Int) extends Lock {
     var currentN = n
@@ -28,9 +30,175 @@ class LockN(n: Int) extends Lock {
     }
 }
 
-class DocRunner(f: File) {
+class DocRunner(val f: File) {
+    var doc: thesis.Document = null
+
+    def parse = {
+      doc = thesis.Document.fromFile(f)
+    }
+
+    def insert: Boolean = ORMTests.insertAllFromDocument(doc)
+
     def run = {
-      val doc = Document.fromFile(f)
-      ORMTests.insertAllFromDocument(doc)
+      parse
+      insert
+    }
+}
+
+/**
+ * Loads CoreNLP .xml (or binary, see CoreNLPReader) files with DocRunners, parsing and inserting on separate threads.
+ * At most window parsed documents wait for a writer (a LockN permit is taken before parsing
+ * and given back once the document is written), so memory stays bounded however far the
+ * parsers get ahead of the database.  Each writer keeps one session from ThesisSession.
+ * A document that cannot be parsed is counted and skipped.  A document is inserted in one
+ * transaction (see ORMTests.insertAllFromDocument), so one that fails leaves nothing behind;
+ * it is tried once more and then counted as failed, and the next run loads it.  A writer
+ * that cannot keep going (say it cannot open its session) stops, and if no writers are left
+ * the parsers stop too and load throws.
+ */
+class Loader(parsers: Int, writers: Int, window: Int) {
+
+    private val permits = new LockN(window)
+    private val files = new ConcurrentLinkedQueue[File]
+    private val parsed = new LinkedBlockingQueue[Option[DocRunner]]
+
+    val filesParsed, parseFailures, docsInserted, docsSkipped, insertFailures = new AtomicLong
+    private var startTime = 0L
+
+    private val liveWriters = new AtomicInteger(writers)
+    private val writerFailure = new AtomicReference[Throwable]
+    @volatile private var aborted = false
+
+    def load(dir: File) {
+      load((dir.listFiles filter { f => f.getName.endsWith(".xml") || CoreNLPReader.isBinary(f) }).toList)
+    }
+
+    def load(fs: List[File]) {
+      fs foreach { files.add(_) }
+      startTime = System.nanoTime
+      val parserThreads = (1 to parsers) map { _ => thread(parseLoop) }
+      val writerThreads = (1 to writers) map { _ => thread(writeLoop) }
+      val progress = new Thread(new Runnable {
+        def run() {
+          try {
+            while (true) {
+              Thread.sleep(10000)
+              println(status)
+            }
+          } catch {
+            case e: InterruptedException =>
+          }
+        }
+      })
+      progress.setDaemon(true)
+      progress.start()
+
+      parserThreads foreach { _.join() }
+      writerThreads foreach { _ => parsed.put(None) }
+      writerThreads foreach { _.join() }
+      progress.interrupt()
+      println(status)
+      println(BulkInsert.report)
+      if (aborted)
+        throw new RuntimeException("All writers stopped; not every document was loaded", writerFailure.get)
+    }
+
+    private def parseLoop() {
+      var f = files.poll()
+      while (f != null && !aborted) {
+        permits.acquire
+        // the permit goes to the writer with the document, or back here if it is not queued
+        var queued = false
+        try {
+          if (!aborted) {
+            val runner = new DocRunner(f)
+            runner.parse
+            filesParsed.incrementAndGet
+            parsed.put(Some(runner))
+            queued = true
+          }
+        } catch {
+          case e: Exception =>
+            println("Could not parse " + f + ": " + e)
+            parseFailures.incrementAndGet
+        } finally {
+          if (!queued) permits.release
+        }
+        f = files.poll()
+      }
+    }
+
+    private def writeLoop() {
+      try {
+        val session = ThesisSession.newSession()
+        session.bindToCurrentThread
+        try {
+          var next = parsed.take()
+          while (next != None) {
+            try {
+              if (insert(next.get)) docsInserted.incrementAndGet else docsSkipped.incrementAndGet
+            } catch {
+              case e: Exception =>
+                println("Could not insert " + next.get.f + ": " + e)
+                insertFailures.incrementAndGet
+            } finally {
+              permits.release
+            }
+            next = parsed.take()
+          }
+        } finally {
+          session.unbindFromCurrentThread
+          session.close
+        }
+      } catch {
+        case t: Throwable =>
+          println("Writer stopped: " + t)
+          writerFailure.compareAndSet(null, t)
+          if (liveWriters.decrementAndGet == 0) abort()
+      }
+    }
+
+    /** Inserts the document of runner, trying once more if the first attempt is rolled back. */
+    private def insert(runner: DocRunner): Boolean = {
+      try {
+        return runner.insert
+      } catch {
+        case e: Exception =>
+          println("Retrying " + runner.f + ": " + e)
+          return runner.insert
+      }
+    }
+
+    /**
+     * Stops the parsers once no writer is left to take their documents: each parser takes at
+     * most one more permit, sees aborted and stops, so one permit each is enough to wake them.
+     */
+    private def abort() {
+      aborted = true
+      (1 to parsers) foreach { _ => permits.release }
+    }
+
+    def status: String = {
+      val secs = (System.nanoTime - startTime) / 1e9
+      "parsed %d (%d failed), inserted %d (%d failed), skipped %d, %.1f docs/sec".format(filesParsed.get,
+        parseFailures.get, docsInserted.get, insertFailures.get, docsSkipped.get,
+        if (secs > 0) docsInserted.get / secs else 0.0)
+    }
+
+    private def thread(body: => Unit): Thread = {
+      val t = new Thread(new Runnable { def run() { body } })
+      t.start()
+      return t
+    }
+}
+
+object Loader {
+
+    /** Usage: Loader dir [writers [parsers]].  Parsers default to one per core. */
+    def main(args: Array[String]) {
+      val cores = Runtime.getRuntime.availableProcessors
+      val writers = if (args.length > 1) args(1).toInt else math.max(1, cores / 2)
+      val parsers = if (args.length > 2) args(2).toInt else cores
+      new Loader(parsers, writers, 2 * writers).load(new File(args(0)))
     }
 }
@@ -0,0 +1,179 @@
+package thesis.db
+
+import java.sql.Statement
+import org.squeryl.Session
+import org.squeryl.PrimitiveTypeMode._
+import scala.collection.mutable.HashMap
+
+/**
+ * Writes everything for one document with a handful of JDBC batches instead of one Squeryl
+ * insert per row.  Batches that need their rows' ids back ask for the generated keys, so
+ * nothing has to be selected again afterwards.  Column names are Squeryl's defaults, which
+ * are the field names of the classes in ORM.scala.
+ *
+ * resolveKeys makes its own transaction; insertContents must be called inside one.
+ */
+object BulkInsert {
+
+    class TableStats {
+        var rows = 0L
+        var statements = 0L
+        var nanos = 0L
+    }
+
+    private val stats = new HashMap[String,TableStats]
+
+    /** One entry of Document.conMap: the representative, its properties and aliases, and the document id. */
+    type ConMapEntry = ((String, Boolean, Int), (List[List[thesis.Token]], List[List[List[String]]]), Long)
+
+    /**
+     * Inserts the sentences, locations, entities and properties of d under the document row
+     * dId.  cons is d.conMap, and keys must map every entity value in it to its EntityKey id
+     * (see resolveKeys).
+     */
+    def insertContents(d: thesis.Document, dId: Long, cons: List[ConMapEntry], keys: Map[String,Long]) {
+        val sIds = batch(EntityGraph.sentences.name, List("documentId", "sent", "outputId"),
+            d.sentences map { s => List(dId, ThesisSession.sentenceText(s), s.id.toLong) }, true)
+
+        // (loc, sentenceId) is the key of a location, so a location named twice in a sentence is
+        // stored once, as ThesisSession.insertLocation does by looking it up first
+        batch(EntityGraph.locations.name, List("loc", "sentenceId", "lat", "lng"),
+            (d.sentences zip sIds) flatMap { case (s, sId) => s.locations.distinct map { l => List(l, sId, None, None) } },
+            false)
+
+        // representatives first: their ids are the masters of the dependent aliases
+        val repIds = batch(EntityGraph.entities.name, entityColumns,
+            cons map { case (rep, _, docId) => entityRow(rep._1, true, None, rep._3, keys(rep._1), docId) }, true)
+        val depIds = batch(EntityGraph.entities.name, entityColumns,
+            (cons zip repIds) flatMap { case ((rep, deps, docId), eId) =>
+                deps._2.asInstanceOf[List[String]] map { dep => entityRow(dep, false, Some(eId), rep._3, keys(dep), docId) }
+            }, true)
+
+        batch(EntityGraph.entitiesFromDocs.name, List("entityId", "documentId"),
+            (repIds ++ depIds).toList map { eId => List(eId, dId) }, false)
+
+        batch(EntityGraph.properties.name, List("value", "entityId"),
+            (cons zip repIds) flatMap { case ((_, deps, _), eId) => deps._1 map { tokenList => List(tokenList.tail.mkString(" "), eId) } },
+            false)
+    }
+
+    private val entityColumns = List("value", "location", "representative", "master", "sentenceId", "keyId", "documentId")
+
+    private def entityRow(value: String, representative: Boolean, master: Option[Long], sentenceId: Int, keyId: Long,
+                          documentId: Long): List[Any] = {
+        return List(value, None, representative, master, sentenceId.toLong, keyId, documentId)
+    }
+
+    // EntityKey.value is TEXT, which MySQL cannot give a unique index, so concurrent writers
+    // could each select a missing key and insert it; new keys are made under this lock instead
+    private val keyLock = new Object
+
+    /**
+     * Returns the EntityKey ids of the entity values of cons (a document's conMap), inserting
+     * the missing keys.  New keys are inserted and committed in their own transaction, under a
+     * lock, and then cached, so no two writers of this loader insert the same key value.  Must
+     * be called outside a transaction, on a thread with a bound session (see
+     * ThesisSession.newSession).
+     */
+    def resolveKeys(cons: List[ConMapEntry]): Map[String,Long] = {
+        val values = (cons flatMap { case (rep, deps, _) =>
+            rep._1 :: deps._2.asInstanceOf[List[String]] }).distinct
+        keyLock.synchronized {
+            val (keys, newKeys) = ThesisSession.withTransaction { keyIds(values) }
+            ThesisSession.cacheKeys(newKeys)
+            keys
+        }
+    }
+
+    /**
+     * Resolves entity key values to ids: from ThesisSession's cache, then with one select for
+     * the rest, then by inserting whatever is still missing.  Returns all of them and,
+     * separately, the new ones.
+     */
+    private def keyIds(values: List[String]): (Map[String,Long], Map[String,Long]) = {
+        var keys = Map[String,Long]()
+        val uncached = values filter { v => ThesisSession.cachedKey(v) match {
+            case Some(id) => keys += (v -> id); false
+            case None => true
+        } }
+        if (uncached.isEmpty) return (keys, Map[String,Long]())
+
+        val t0 = System.nanoTime
+        val found = from(EntityGraph.entityKeys)(ek => where(ek.value in uncached) select(ek)).toList
+        record(EntityGraph.entityKeys.name + " (select)", found.size, System.nanoTime - t0)
+        found foreach { ek => keys += (ek.value -> ek.id) }
+        ThesisSession.cacheKeys((found map { ek => (ek.value -> ek.id) }).toMap)
+
+        val missing = uncached filterNot { keys contains _ }
+        val newIds = batch(EntityGraph.entityKeys.name, List("value"), missing map { List(_) }, true)
+        val newKeys = (missing zip newIds).toMap
+        return (keys ++ newKeys, newKeys)
+    }
+
+    /**
+     * Runs one batched insert of rows into table, and returns the generated ids in row order
+     * if generatedKeys is set (an empty array otherwise).  Throws an SQLException if the driver
+     * does not give back exactly one key per row, as then the ids cannot be matched to the rows.
+     */
+    private def batch(table: String, columns: List[String], rows: List[List[Any]], generatedKeys: Boolean): Array[Long] = {
+        if (rows.isEmpty) return Array[Long]()
+
+        val sql = "insert into " + table + " (" + columns.mkString(", ") + ") values (" +
+            (columns map { _ => "?" }).mkString(", ") + ")"
+        val conn = Session.currentSession.connection
+        val st = if (generatedKeys) conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+            else conn.prepareStatement(sql)
+        val t0 = System.nanoTime
+        try {
+            rows foreach { row =>
+                row.zipWithIndex foreach {
+                    case (None, i) => st.setObject(i + 1, null)
+                    case (Some(v), i) => st.setObject(i + 1, v.asInstanceOf[AnyRef])
+                    case (v, i) => st.setObject(i + 1, v.asInstanceOf[AnyRef])
+                }
+                st.addBatch()
+            }
+            st.executeBatch()
+
+            // some drivers return fewer keys (or none) for batched or rewritten statements
+            val ids = new Array[Long](if (generatedKeys) rows.size else 0)
+            if (generatedKeys) {
+                val rs = st.getGeneratedKeys
+                var i = 0
+                try {
+                    while (rs.next()) {
+                        if (i < rows.size) ids(i) = rs.getLong(1)
+                        i += 1
+                    }
+                } finally {
+                    rs.close()
+                }
+                if (i != rows.size)
+                    throw new java.sql.SQLException("Got " + i + " generated keys for " + rows.size + " rows in " +
+                        table + "; the JDBC driver must return one key per row of a batch")
+            }
+            return ids
+        } finally {
+            st.close()
+            record(table, rows.size, System.nanoTime - t0)
+        }
+    }
+
+    private def record(table: String, rows: Int, nanos: Long) {
+        stats.synchronized {
+            val s = stats.getOrElseUpdate(table, new TableStats)
+            s.rows += rows
+            s.statements += 1
+            s.nanos += nanos
+        }
+    }
+
+    /** Rows, statements and rows/sec so far for each table, one line per table. */
+    def report: String = stats.synchronized {
+        (stats.toList sortBy { _._1 } map { case (table, s) =>
+            "%s: %d rows in %d statements, %.0f rows/sec".format(table, s.rows, s.statements,
+                if (s.nanos == 0) 0.0 else s.rows * 1e9 / s.nanos)
+        }).mkString("\n")
+    }
+
+}
@@ -20,76 +20,24 @@ object ORMTests     {
     }
     */
 
-    def insertAllFromDocument(d: thesis.Document)  {
-        var dId:Long = 0
-        try {
-        transaction {
-            
-            if(ThesisSession.getDocumentId(d.filePath).head == 0) return
-
-            // Insert aliases
-/*
-            d.aliases foreach { case (rep, deps) =>
-                val eId = ThesisSession.insertAlias(d.resolve(rep), rep.representative, d.filePath, None)
-
-                // Get master alias ID for dependent insertion
-
-                deps foreach { dep =>
-                    ThesisSession.insertAlias(d.resolve(dep), 
-                                               dep.representative, 
-                                               d.filePath,
-                                               Some(eId))
-                }
-
-            }
-*/
-            dId = ThesisSession.insertDocument(d)
-        }
-      transaction {
-            d.sentences foreach { s =>
-                val sId = ThesisSession.insertSentence(s, dId)
-
-                  s.locations foreach { l =>
-                    ThesisSession.insertLocation(l, sId)
-                  }
-            
-            }
-            //println("Inserted sentences and locations")
-            d.conMap foreach { case (rep, deps, docId) =>
-
-                //println(rep._1)
-                val eId = ThesisSession.insertAlias(rep._1, true, dId, None, rep._3, docId)
-
-                //println("Inserted master alias")
-                //println(rep._1)
-                //println(deps._1)
-                deps._1 match {
-                    case Nil => {}
-                    case d :: tail =>
-                        deps._1 map { tokenList =>
-                          ThesisSession.insertProperty(tokenList.tail.mkString(" "), eId);
-                        }
-                        //println("Inserted property")
-                }
-                //println(deps._2)
-                //println(deps._2.getClass)
-                deps._2.asInstanceOf[List[String]] foreach { dep =>
-//                    dep match {
-//                        case s:String => 
-//                            ThesisSession.insertAlias(s, false, d.filePath, Some(eId))
-//                        case l:List[String]   =>
-//                            ThesisSession.insertAlias(l.mkString(" "), false, d.filePath, Some(eId))
-//                        case ll:List[List[String]] =>
-                    ThesisSession.insertAlias(dep, false, dId, Some(eId), rep._3, docId)
-//                    }
-                    //println("inserted dependent alias")
-                }
-            }
-        }
-
-        } catch {
-            case e:Exception => //println("Error on document: " + e.getMessage())
+    /**
+     * Loads one document with BulkInsert, about ten statements per document instead of
+     * several per sentence and alias.  Documents whose path is already in the database
+     * are skipped.  The document row and everything under it go in one transaction, so a
+     * document that fails leaves nothing behind and is loaded again by the next run.
+     * Returns whether the document was inserted; throws if inserting it failed.
+     */
+    def insertAllFromDocument(d: thesis.Document): Boolean = {
+        if (ThesisSession.withTransaction { ThesisSession.getDocumentId(d.filePath).nonEmpty })
+            return false
+
+        val cons = d.conMap.toList
+        val keys = BulkInsert.resolveKeys(cons)
+        ThesisSession.withTransaction {
+            val dId = ThesisSession.insertDocument(d)
+            BulkInsert.insertContents(d, dId, cons, keys)
         }
+        return true
     }
 
 }
@@ -12,7 +12,11 @@ import java.io.File
 object ThesisSession	{
 	val dbUser = "root"
 	val dbPass = ""
-	val dbConn = "jdbc:mysql://127.0.0.1/thesispar2"
+	// rewriteBatchedStatements turns a JDBC batch into one multi-row insert (see BulkInsert)
+	val dbConn = "jdbc:mysql://127.0.0.1/thesispar2?rewriteBatchedStatements=true"
+
+    // EntityKey value -> id, for keys known to be committed
+    private val keyCache = new java.util.concurrent.ConcurrentHashMap[String,java.lang.Long]
 	
 	def startDbSession():Unit = {
         if(!Session.hasCurrentSession)  {
@@ -24,6 +28,35 @@ object ThesisSession	{
         }
 	}
     
+    /**
+     * A session on its own connection, for a loader worker to bind to its thread and keep.
+     * Use withTransaction rather than transaction on such a thread; transaction opens a new
+     * connection every time.
+     */
+    def newSession(): Session = {
+        startDbSession()
+        val conn = java.sql.DriverManager.getConnection(dbConn,dbUser,dbPass)
+        conn.setAutoCommit(false)
+        return Session.create(conn, new MySQLAdapter)
+    }
+
+    /**
+     * Runs a in a transaction on the session bound to this thread, committing at the end or
+     * rolling back if it throws.  Falls back to transaction when no session is bound.
+     */
+    def withTransaction[A](a: => A): A = {
+        if (!Session.hasCurrentSession)
+            return transaction(a)
+        val conn = Session.currentSession.connection
+        try {
+            val ret = a
+            conn.commit()
+            return ret
+        } catch {
+            case e: Exception => conn.rollback(); throw e
+        }
+    }
+
 	def initSchema = {
 
 		startDbSession()
@@ -42,11 +75,14 @@ object ThesisSession	{
     }
 
     def insertSentence(s: thesis.Sentence, dId: Long): Long = {
-        val sent = s.tokens.mkString(" ").replace("-LRB- ","[").replace(" -RRB-","]")
-        val newS = EntityGraph.sentences.insert(new Sentence(dId, sent, s.id))
+        val newS = EntityGraph.sentences.insert(new Sentence(dId, sentenceText(s), s.id))
         return newS.id
     }
 
+    def sentenceText(s: thesis.Sentence): String = {
+        return s.tokens.mkString(" ").replace("-LRB- ","[").replace(" -RRB-","]")
+    }
+
     def insertAlias(entityValue: String, representative: Boolean, docId: Long, masterId: Option[Long], sentenceId: Long, documentId: Long): Long = {
 
         val keyId = key(entityValue) match {
@@ -68,15 +104,31 @@ object ThesisSession	{
     }
 
     def key(value: String): Option[Long] = {
-        
+
+        cachedKey(value) match {
+          case Some(id) => return Some(id)
+          case None =>
+        }
         val qKey = from(EntityGraph.entityKeys)(ek => where(ek.value === value) select(ek))
         if(qKey.isEmpty)
             None
-        else
+        else {
+            cacheKeys(Map(value -> qKey.head.id))
             Option(qKey.head.id)
+        }
         
     }
 
+    def cachedKey(value: String): Option[Long] = {
+        val id = keyCache.get(value)
+        if (id == null) None else Some(id.longValue)
+    }
+
+    /** Only cache keys once the transaction that inserted them has committed. */
+    def cacheKeys(keys: Map[String,Long]) {
+        keys foreach { case (value, id) => keyCache.putIfAbsent(value, id) }
+    }
+
     def getDocumentId(fp: String): Query[Long] = {
         val d = from(EntityGraph.documents)(doc => where(doc.documentPath === fp) select (doc.id))
         return d
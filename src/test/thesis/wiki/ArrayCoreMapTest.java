@@ -0,0 +1,269 @@
+package test.thesis.wiki;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import edu.stanford.nlp.ling.CoreAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.util.ArrayCoreMap;
+import edu.stanford.nlp.util.KeyRegistry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ArrayCoreMap Tester: checks the map against a LinkedHashMap over all the CoreAnnotations,
+ * more than KeyRegistry indexes directly, including serialization; checks that maps written by
+ * the 2011-06-19 jar, which kept an array of keys, read back and the other way round; and
+ * checks that KeyRegistry gives each key one id, also when several threads ask at once.
+ */
+public class ArrayCoreMapTest extends TestCase {
+
+    private static final String OLD_JAR = "lib/stanford-corenlp-2011-06-19/stanford-corenlp-2011-06-19.jar";
+
+    private static List<Class<?>> keys;
+
+    public ArrayCoreMapTest(String name) {
+        super(name);
+    }
+
+    public void setUp() throws Exception {
+        super.setUp();
+        if (keys == null) {
+            keys = new ArrayList<Class<?>>();
+            for (Class<?> c : CoreAnnotations.class.getClasses()) {
+                if (CoreAnnotation.class.isAssignableFrom(c)) {
+                    keys.add(c);
+                }
+            }
+            Collections.sort(keys, new Comparator<Class<?>>() {
+                public int compare(Class<?> a, Class<?> b) {
+                    return a.getName().compareTo(b.getName());
+                }
+            });
+        }
+    }
+
+    public void testEnoughKeys() {
+        assertTrue(keys.size() > KeyRegistry.DIRECT_KEYS);
+    }
+
+    public void testMatchesLinkedHashMap() throws Exception {
+        Random random = new Random(17);
+        for (int round = 0; round < 200; round++) {
+            ArrayCoreMap map = new ArrayCoreMap(random.nextInt(6));
+            Map<Class<?>, Object> expected = new LinkedHashMap<Class<?>, Object>();
+            for (int op = 0, ops = random.nextInt(300); op < ops; op++) {
+                Class<?> key = keys.get(random.nextInt(keys.size()));
+                switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    Integer value = random.nextInt(1000);
+                    assertEquals(expected.put(key, value), set(map, key, value));
+                    break;
+                case 2:
+                    assertEquals(expected.remove(key), remove(map, key));
+                    break;
+                default:
+                    assertEquals(expected.containsKey(key), has(map, key));
+                    assertEquals(expected.get(key), get(map, key));
+                }
+            }
+            if (round % 5 == 0 && ! expected.isEmpty()) {
+                // remove every other key through the key set
+                Iterator<Class<?>> it = map.keySet().iterator();
+                for (boolean drop = false; it.hasNext(); drop = ! drop) {
+                    Class<?> key = it.next();
+                    if (drop) {
+                        it.remove();
+                        expected.remove(key);
+                    }
+                }
+            }
+            assertSame(expected, map);
+            assertSame(expected, new ArrayCoreMap(map));
+            ArrayCoreMap copy = roundTrip(map);
+            assertSame(expected, copy);
+            assertEquals(map, copy);
+            assertEquals(map.hashCode(), copy.hashCode());
+            copy.set(CoreAnnotations.TextAnnotation.class, "changed");
+            assertFalse(map.equals(copy));
+        }
+    }
+
+    public void testCoreLabelRoundTrip() throws Exception {
+        CoreLabel label = new CoreLabel();
+        label.setWord("forget");
+        label.setTag("VBP");
+        label.setBeginPosition(8);
+        label.setEndPosition(14);
+        label.set(CoreAnnotations.NamedEntityTagAnnotation.class, "O");
+        CoreLabel copy = roundTrip(label);
+        assertEquals(label, copy);
+        assertEquals(new ArrayList<Class<?>>(label.keySet()), new ArrayList<Class<?>>(copy.keySet()));
+        assertEquals("VBP", copy.tag());
+    }
+
+    /** A map written by the old ArrayCoreMap, with its keys array, is read by the new one. */
+    public void testReadsOldForm() throws Exception {
+        ClassLoader old = oldLoader();
+        Object oldMap = old.loadClass(ArrayCoreMap.class.getName()).newInstance();
+        Method set = oldMap.getClass().getMethod("set", Class.class, Object.class);
+        Map<Class<?>, Object> expected = new LinkedHashMap<Class<?>, Object>();
+        for (int i = 0; i < keys.size(); i += 2) {
+            set.invoke(oldMap, old.loadClass(keys.get(i).getName()), keys.get(i).getSimpleName());
+            expected.put(keys.get(i), keys.get(i).getSimpleName());
+        }
+        ArrayCoreMap map = (ArrayCoreMap) new ObjectInputStream(new ByteArrayInputStream(write(oldMap))).readObject();
+        assertSame(expected, map);
+    }
+
+    /** A map written by the new ArrayCoreMap is read by the old one. */
+    public void testWritesOldForm() throws Exception {
+        ArrayCoreMap map = new ArrayCoreMap();
+        Map<String, Object> expected = new LinkedHashMap<String, Object>();
+        for (int i = 1; i < keys.size(); i += 2) {
+            set(map, keys.get(i), i);
+            expected.put(keys.get(i).getName(), i);
+        }
+        final ClassLoader old = oldLoader();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(write(map))) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                return Class.forName(desc.getName(), false, old);
+            }
+        };
+        Object oldMap = in.readObject();
+        assertSame(old, oldMap.getClass().getClassLoader());
+        Method get = oldMap.getClass().getMethod("get", Class.class);
+        Map<String, Object> actual = new LinkedHashMap<String, Object>();
+        for (Object key : (Set<?>) oldMap.getClass().getMethod("keySet").invoke(oldMap)) {
+            actual.put(((Class<?>) key).getName(), get.invoke(oldMap, key));
+        }
+        assertEquals(expected, actual);
+    }
+
+    public void testRegistryIds() {
+        int id = KeyRegistry.id(CoreAnnotations.TextAnnotation.class);
+        assertEquals(id, KeyRegistry.id(CoreAnnotations.TextAnnotation.class));
+        assertEquals(id, KeyRegistry.find(CoreAnnotations.TextAnnotation.class));
+        assertSame(CoreAnnotations.TextAnnotation.class, KeyRegistry.key(id));
+        assertEquals(-1, KeyRegistry.find(UnusedKey.class));
+    }
+
+    public void testConcurrentRegistration() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger failures = new AtomicInteger();
+        int before = KeyRegistry.size();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < keys.size(); i++) {
+                            Class<?> key = keys.get((i + offset * 37) % keys.size());
+                            if (KeyRegistry.key(KeyRegistry.id(key)) != key) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, failures.get());
+        assertTrue(KeyRegistry.size() >= keys.size());
+        assertTrue(KeyRegistry.size() <= before + keys.size());
+        for (int id = 0; id < KeyRegistry.size(); id++) {
+            assertEquals(id, KeyRegistry.find(KeyRegistry.key(id)));
+        }
+    }
+
+    /** A key that no map is ever given. */
+    private static class UnusedKey implements CoreAnnotation<String> {
+        public Class<String> getType() {
+            return String.class;
+        }
+    }
+
+    private static void assertSame(Map<Class<?>, Object> expected, ArrayCoreMap map) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.keySet(), map.keySet());
+        for (Map.Entry<Class<?>, Object> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), get(map, entry.getKey()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object get(ArrayCoreMap map, Class<?> key) {
+        return map.get((Class) key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean has(ArrayCoreMap map, Class<?> key) {
+        return map.has((Class) key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object set(ArrayCoreMap map, Class<?> key, Object value) {
+        return map.set((Class) key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object remove(ArrayCoreMap map, Class<?> key) {
+        return map.remove((Class) key);
+    }
+
+    private static ClassLoader oldLoader() throws Exception {
+        return new URLClassLoader(new URL[] { new File(OLD_JAR).toURI().toURL() }, null);
+    }
+
+    private static byte[] write(Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(o);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T roundTrip(T o) throws Exception {
+        InputStream in = new ByteArrayInputStream(write(o));
+        return (T) new ObjectInputStream(in).readObject();
+    }
+
+    public static Test suite() {
+        return new TestSuite(ArrayCoreMapTest.class);
+    }
+}
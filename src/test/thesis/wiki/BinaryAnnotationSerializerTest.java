@@ -0,0 +1,268 @@
+package test.thesis.wiki;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import edu.stanford.nlp.dcoref.CorefChain;
+import edu.stanford.nlp.dcoref.CorefChain.CorefMention;
+import edu.stanford.nlp.dcoref.Dictionaries.Animacy;
+import edu.stanford.nlp.dcoref.Dictionaries.Gender;
+import edu.stanford.nlp.dcoref.Dictionaries.MentionType;
+import edu.stanford.nlp.dcoref.Dictionaries.Number;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.CorefCoreAnnotations;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.BinaryAnnotationSerializer;
+import edu.stanford.nlp.pipeline.MorphaAnnotator;
+import edu.stanford.nlp.pipeline.ParserAnnotator;
+import edu.stanford.nlp.pipeline.PTBTokenizerAnnotator;
+import edu.stanford.nlp.pipeline.WordsToSentencesAnnotator;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.semgraph.SemanticGraph;
+import edu.stanford.nlp.trees.semgraph.SemanticGraphCoreAnnotations;
+import edu.stanford.nlp.trees.semgraph.SemanticGraphEdge;
+import edu.stanford.nlp.util.CoreMap;
+import edu.stanford.nlp.util.IntTuple;
+import edu.stanford.nlp.util.Pair;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BinaryAnnotationSerializer Tester: annotates a short document (tokens, lemmas, tags, parse
+ * trees, dependencies, and hand-made NER tags and coreference chains, as there are no NER or
+ * coref models here), writes it compressed and uncompressed, and checks that everything
+ * comes back the same, both through load and through a Reader, one sentence at a time.
+ */
+public class BinaryAnnotationSerializerTest extends TestCase {
+
+    private static final String GRAMMAR = "lib/stanford-parser-2011-06-27/grammar/englishPCFG.ser.gz";
+
+    private static final String TEXT =
+        "Japan surrendered on 15 August 1945. " +
+        "It had lost the war in the Pacific. " +
+        "Old men forget.";
+
+    private static Annotation document;
+
+    public BinaryAnnotationSerializerTest(String name) {
+        super(name);
+    }
+
+    public void setUp() throws Exception {
+        super.setUp();
+        if (document == null) {
+            document = annotate();
+        }
+    }
+
+    public void testRoundTrip() throws Exception {
+        assertSameDocument(document, roundTrip(document, false));
+    }
+
+    public void testCompressedRoundTrip() throws Exception {
+        byte[] plain = save(document, false);
+        byte[] compressed = save(document, true);
+        assertFalse(Arrays.equals(plain, compressed));
+        assertSameDocument(document, new BinaryAnnotationSerializer(false).load(new ByteArrayInputStream(compressed)));
+    }
+
+    public void testEmptyDocument() throws Exception {
+        Annotation empty = roundTrip(new Annotation(""), false);
+        assertEquals(0, empty.get(CoreAnnotations.SentencesAnnotation.class).size());
+        assertNull(empty.get(CorefCoreAnnotations.CorefChainAnnotation.class));
+        assertNull(empty.get(CoreAnnotations.DocIDAnnotation.class));
+    }
+
+    public void testReader() throws Exception {
+        BinaryAnnotationSerializer.Reader reader =
+            new BinaryAnnotationSerializer.Reader(new ByteArrayInputStream(save(document, true)));
+        assertEquals(BinaryAnnotationSerializer.VERSION, reader.version());
+        List<CoreMap> sentences = document.get(CoreAnnotations.SentencesAnnotation.class);
+        int sentence = 0;
+        int record;
+        while ((record = reader.next()) != BinaryAnnotationSerializer.END) {
+            if (record != BinaryAnnotationSerializer.SENTENCE) {
+                continue;
+            }
+            CoreMap expected = sentences.get(sentence);
+            assertEquals(sentence, reader.sentenceIndex());
+            List<CoreLabel> tokens = expected.get(CoreAnnotations.TokensAnnotation.class);
+            assertEquals(tokens.size(), reader.tokenCount());
+            for (int i = 0; i < tokens.size(); i++) {
+                assertEquals(tokens.get(i).word(), reader.word(i));
+                assertEquals(tokens.get(i).tag(), reader.tag(i));
+                assertEquals(tokens.get(i).beginPosition(), reader.beginPosition(i));
+            }
+            assertEquals(expected.get(CoreAnnotations.TreeAnnotation.class).toString(), reader.treeString());
+            SemanticGraph basic = expected.get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class);
+            assertTrue(reader.hasDependencies(BinaryAnnotationSerializer.BASIC_DEPENDENCIES));
+            List<String> edges = new ArrayList<String>();
+            for (SemanticGraphEdge edge : basic.edgeList()) {
+                edges.add(edge.getRelation() + "(" + edge.getGovernor().index() + "," + edge.getDependent().index() + ")");
+            }
+            List<String> read = new ArrayList<String>();
+            for (int e = 0; e < reader.edgeCount(BinaryAnnotationSerializer.BASIC_DEPENDENCIES); e++) {
+                read.add(reader.relation(BinaryAnnotationSerializer.BASIC_DEPENDENCIES, e) + "(" +
+                         reader.governor(BinaryAnnotationSerializer.BASIC_DEPENDENCIES, e) + "," +
+                         reader.dependent(BinaryAnnotationSerializer.BASIC_DEPENDENCIES, e) + ")");
+            }
+            assertEquals(edges, read);
+            sentence++;
+        }
+        assertEquals(sentences.size(), sentence);
+        reader.close();
+    }
+
+    private static Annotation annotate() throws Exception {
+        Annotation annotation = new Annotation(TEXT);
+        annotation.set(CoreAnnotations.DocIDAnnotation.class, "surrender");
+        new PTBTokenizerAnnotator(false).annotate(annotation);
+        new WordsToSentencesAnnotator(false).annotate(annotation);
+        LexicalizedParser lp = new LexicalizedParser(GRAMMAR);
+        lp.setOptionFlags(ParserAnnotator.DEFAULT_FLAGS);
+        new ParserAnnotator(lp, false, 100, 1).annotate(annotation);
+        for (CoreMap sentence : annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
+            // the parser does not tag the tokens; lemmas need the tags
+            List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+            Tree tree = sentence.get(CoreAnnotations.TreeAnnotation.class);
+            List<Tree> leaves = tree.getLeaves();
+            for (int i = 0; i < tokens.size(); i++) {
+                tokens.get(i).setTag(leaves.get(i).parent(tree).value());
+                tokens.get(i).setNER("O");
+            }
+        }
+        new MorphaAnnotator(false).annotate(annotation);
+
+        List<CoreLabel> first = annotation.get(CoreAnnotations.SentencesAnnotation.class).get(0)
+            .get(CoreAnnotations.TokensAnnotation.class);
+        first.get(0).setNER("LOCATION");
+        for (int i = 3; i < 6; i++) {
+            first.get(i).setNER("DATE");
+            first.get(i).set(CoreAnnotations.NormalizedNamedEntityTagAnnotation.class, "1945-08-15");
+        }
+
+        CorefMention japan = mention(MentionType.PROPER, Number.SINGULAR, Gender.NEUTRAL, Animacy.INANIMATE, 1, 1);
+        CorefMention it = mention(MentionType.PRONOMINAL, Number.SINGULAR, Gender.NEUTRAL, null, 2, 1);
+        CorefMention men = mention(MentionType.NOMINAL, Number.PLURAL, Gender.UNKNOWN, Animacy.ANIMATE, 3, 1);
+        men.position = null;
+        Map<Integer, CorefChain> chains = new HashMap<Integer, CorefChain>();
+        chains.put(1, new CorefChain(1, Arrays.asList(japan, it), japan));
+        chains.put(3, new CorefChain(3, Arrays.asList(men), null));
+        annotation.set(CorefCoreAnnotations.CorefChainAnnotation.class, chains);
+        List<Pair<IntTuple, IntTuple>> graph = new ArrayList<Pair<IntTuple, IntTuple>>();
+        graph.add(new Pair<IntTuple, IntTuple>(it.position, japan.position));
+        annotation.set(CorefCoreAnnotations.CorefGraphAnnotation.class, graph);
+        return annotation;
+    }
+
+    private static CorefMention mention(MentionType type, Number number, Gender gender, Animacy animacy,
+                                        int sentNum, int start) {
+        IntTuple position = new IntTuple(2);
+        position.set(0, sentNum);
+        position.set(1, start);
+        return new CorefMention(type, number, gender, animacy, start, start + 1, start, sentNum, sentNum, sentNum, position);
+    }
+
+    private static byte[] save(Annotation annotation, boolean compress) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BinaryAnnotationSerializer(compress).save(annotation, bytes);
+        return bytes.toByteArray();
+    }
+
+    private static Annotation roundTrip(Annotation annotation, boolean compress) throws Exception {
+        return new BinaryAnnotationSerializer(compress).load(new ByteArrayInputStream(save(annotation, compress)));
+    }
+
+    private static void assertSameDocument(Annotation expected, Annotation actual) {
+        assertEquals(expected.get(CoreAnnotations.DocIDAnnotation.class), actual.get(CoreAnnotations.DocIDAnnotation.class));
+        List<CoreMap> expectedSentences = expected.get(CoreAnnotations.SentencesAnnotation.class);
+        List<CoreMap> actualSentences = actual.get(CoreAnnotations.SentencesAnnotation.class);
+        assertEquals(expectedSentences.size(), actualSentences.size());
+        for (int s = 0; s < expectedSentences.size(); s++) {
+            assertSameSentence(expectedSentences.get(s), actualSentences.get(s));
+        }
+        assertSameChains(expected.get(CorefCoreAnnotations.CorefChainAnnotation.class),
+                         actual.get(CorefCoreAnnotations.CorefChainAnnotation.class));
+        assertEquals(expected.get(CorefCoreAnnotations.CorefGraphAnnotation.class).toString(),
+                     actual.get(CorefCoreAnnotations.CorefGraphAnnotation.class).toString());
+    }
+
+    private static void assertSameSentence(CoreMap expected, CoreMap actual) {
+        List<CoreLabel> expectedTokens = expected.get(CoreAnnotations.TokensAnnotation.class);
+        List<CoreLabel> actualTokens = actual.get(CoreAnnotations.TokensAnnotation.class);
+        assertEquals(expectedTokens.size(), actualTokens.size());
+        for (int i = 0; i < expectedTokens.size(); i++) {
+            CoreLabel e = expectedTokens.get(i);
+            CoreLabel a = actualTokens.get(i);
+            assertEquals(e.word(), a.word());
+            assertEquals(e.lemma(), a.lemma());
+            assertEquals(e.tag(), a.tag());
+            assertEquals(e.ner(), a.ner());
+            assertEquals(e.get(CoreAnnotations.NormalizedNamedEntityTagAnnotation.class),
+                         a.get(CoreAnnotations.NormalizedNamedEntityTagAnnotation.class));
+            assertEquals(e.beginPosition(), a.beginPosition());
+            assertEquals(e.endPosition(), a.endPosition());
+        }
+        assertEquals(expected.get(CoreAnnotations.TreeAnnotation.class), actual.get(CoreAnnotations.TreeAnnotation.class));
+        assertSameGraph(expected.get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class),
+                        actual.get(SemanticGraphCoreAnnotations.BasicDependenciesAnnotation.class));
+        assertSameGraph(expected.get(SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation.class),
+                        actual.get(SemanticGraphCoreAnnotations.CollapsedDependenciesAnnotation.class));
+        assertSameGraph(expected.get(SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation.class),
+                        actual.get(SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation.class));
+    }
+
+    private static void assertSameGraph(SemanticGraph expected, SemanticGraph actual) {
+        assertNotNull(actual);
+        assertEquals(expected.toList(), actual.toList());
+        assertEquals(expected.vertexSet().size(), actual.vertexSet().size());
+        assertEquals(expected.getRoots().toString(), actual.getRoots().toString());
+    }
+
+    private static void assertSameChains(Map<Integer, CorefChain> expected, Map<Integer, CorefChain> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Integer id : expected.keySet()) {
+            CorefChain e = expected.get(id);
+            CorefChain a = actual.get(id);
+            assertEquals(e.getChainID(), a.getChainID());
+            List<CorefMention> em = e.getCorefMentions();
+            List<CorefMention> am = a.getCorefMentions();
+            assertEquals(em.size(), am.size());
+            for (int m = 0; m < em.size(); m++) {
+                assertSameMention(em.get(m), am.get(m));
+            }
+            if (e.getRepresentativeMention() == null) {
+                assertNull(a.getRepresentativeMention());
+            } else {
+                assertSameMention(e.getRepresentativeMention(), a.getRepresentativeMention());
+            }
+        }
+    }
+
+    private static void assertSameMention(CorefMention e, CorefMention a) {
+        assertEquals(e.mentionType, a.mentionType);
+        assertEquals(e.number, a.number);
+        assertEquals(e.gender, a.gender);
+        assertEquals(e.animacy, a.animacy);
+        assertEquals(e.sentNum, a.sentNum);
+        assertEquals(e.startIndex, a.startIndex);
+        assertEquals(e.endIndex, a.endIndex);
+        assertEquals(e.headIndex, a.headIndex);
+        assertEquals(e.corefClusterID, a.corefClusterID);
+        assertEquals(e.mentionID, a.mentionID);
+        assertEquals(String.valueOf(e.position), String.valueOf(a.position));
+    }
+
+    public static Test suite() {
+        return new TestSuite(BinaryAnnotationSerializerTest.class);
+    }
+}
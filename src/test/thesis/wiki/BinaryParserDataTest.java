@@ -0,0 +1,103 @@
+package test.thesis.wiki;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import edu.stanford.nlp.parser.lexparser.BaseLexicon;
+import edu.stanford.nlp.parser.lexparser.BinaryParserData;
+import edu.stanford.nlp.parser.lexparser.IntTaggedWord;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.parser.lexparser.Options;
+import edu.stanford.nlp.parser.lexparser.ParserData;
+import edu.stanford.nlp.stats.Counter;
+
+import java.io.File;
+
+/**
+ * BinaryParserData Tester: converts the englishPCFG grammar to the binary format, loads it
+ * back, and checks that the lexicon counts read from the mapped file are the serialized ones
+ * and that both grammars give the same parses.
+ */
+public class BinaryParserDataTest extends TestCase {
+
+    private static final String GRAMMAR = "lib/stanford-parser-2011-06-27/grammar/englishPCFG.ser.gz";
+
+    private static final String[] SENTENCES = {
+        "World War II was a global military conflict lasting from 1939 to 1945 .",
+        "The war in Europe ended with the capture of Berlin by Soviet and Polish troops .",
+        "Old men forget .",
+    };
+
+    private static File binary;
+    private static ParserData serialized;
+    private static ParserData mapped;
+
+    public BinaryParserDataTest(String name) {
+        super(name);
+    }
+
+    public void setUp() throws Exception {
+        super.setUp();
+        if (binary == null) {
+            serialized = LexicalizedParser.getParserDataFromFile(GRAMMAR, new Options());
+            binary = File.createTempFile("englishPCFG", ".bin");
+            binary.deleteOnExit();
+            BinaryParserData.save(serialized, binary.getPath());
+            mapped = BinaryParserData.load(binary.getPath());
+        }
+    }
+
+    public void testIsBinaryFile() throws Exception {
+        assertTrue(BinaryParserData.isBinaryFile(binary.getPath()));
+        assertFalse(BinaryParserData.isBinaryFile(GRAMMAR));
+    }
+
+    public void testSeenCounts() throws Exception {
+        assertSameCounts(((BaseLexicon) serialized.lex).seenCounter, ((BaseLexicon) mapped.lex).seenCounter);
+    }
+
+    public void testUnseenCounts() throws Exception {
+        assertSameCounts(serialized.lex.getUnknownWordModel().unSeenCounter(),
+                         mapped.lex.getUnknownWordModel().unSeenCounter());
+    }
+
+    public void testCountsAreReadOnly() throws Exception {
+        Counter<IntTaggedWord> seen = ((BaseLexicon) mapped.lex).seenCounter;
+        IntTaggedWord key = seen.keySet().iterator().next();
+        try {
+            seen.incrementCount(key, 1.0);
+            fail("a mapped count was changed");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    public void testSameParses() throws Exception {
+        LexicalizedParser fromSerialized = new LexicalizedParser(GRAMMAR);
+        LexicalizedParser fromBinary = new LexicalizedParser(binary.getPath());
+        for (String s : SENTENCES) {
+            assertEquals(fromSerialized.apply(s).toString(), fromBinary.apply(s).toString());
+        }
+    }
+
+    private static void assertSameCounts(Counter<IntTaggedWord> expected, Counter<IntTaggedWord> actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.totalCount(), actual.totalCount(), 1e-6 * Math.abs(expected.totalCount()));
+        for (IntTaggedWord itw : expected.keySet()) {
+            assertEquals(name(itw), expected.getCount(itw), actual.getCount(itw), 0.0);
+        }
+        for (IntTaggedWord itw : actual.keySet()) {
+            assertTrue(name(itw), expected.containsKey(itw));
+        }
+    }
+
+    /** The data's Numberers are not installed globally, so IntTaggedWord.toString can't be used. */
+    private static String name(IntTaggedWord itw) {
+        return itw.word() + "/" + itw.tag();
+    }
+
+    public static Test suite() {
+        return new TestSuite(BinaryParserDataTest.class);
+    }
+}
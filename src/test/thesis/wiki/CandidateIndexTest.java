@@ -0,0 +1,242 @@
+package test.thesis.wiki;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import edu.stanford.nlp.dcoref.CandidateIndex;
+import edu.stanford.nlp.dcoref.CorefCluster;
+import edu.stanford.nlp.dcoref.Dictionaries;
+import edu.stanford.nlp.dcoref.Dictionaries.Animacy;
+import edu.stanford.nlp.dcoref.Dictionaries.Gender;
+import edu.stanford.nlp.dcoref.Dictionaries.MentionType;
+import edu.stanford.nlp.dcoref.Dictionaries.Number;
+import edu.stanford.nlp.dcoref.Document;
+import edu.stanford.nlp.dcoref.Mention;
+import edu.stanford.nlp.dcoref.sievepasses.DeterministicCorefSieve;
+import edu.stanford.nlp.dcoref.sievepasses.ExactStringMatch;
+import edu.stanford.nlp.dcoref.sievepasses.PronounMatch;
+import edu.stanford.nlp.dcoref.sievepasses.RelaxedExactStringMatch;
+import edu.stanford.nlp.dcoref.sievepasses.RelaxedHeadMatch;
+import edu.stanford.nlp.dcoref.sievepasses.StrictHeadMatch1;
+import edu.stanford.nlp.dcoref.sievepasses.StrictHeadMatch2;
+import edu.stanford.nlp.dcoref.sievepasses.StrictHeadMatch3;
+import edu.stanford.nlp.dcoref.sievepasses.StrictHeadMatch4;
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * CandidateIndex Tester: checks the lookups of the index, and checks on random documents that
+ * for each of the string and head match sieves, every antecedent that the sieve's match test
+ * accepts is among the plausible antecedents found through the index.  The mentions are made by
+ * hand, as there are no coref models here, and the dictionaries are empty but for the pronouns,
+ * which are built in.
+ */
+public class CandidateIndexTest extends TestCase {
+
+    private static final String[][] WORDS = {
+        { "Mr.", "NNP" }, { "Bush", "NNP" }, { "George", "NNP" }, { "Georgetown", "NNP" },
+        { "the", "DT" }, { "The", "DT" }, { "president", "NN" }, { "company", "NN" }, { "Company", "NNP" },
+        { ",", "," }, { "who", "WP" }, { "'s", "POS" }, { "he", "PRP" }, { "it", "PRP" }, { "new", "JJ" },
+    };
+
+    private static final String[] NERS = { "O", "O", "PERSON", "ORGANIZATION" };
+
+    private static Dictionaries dict;
+
+    public CandidateIndexTest(String name) {
+        super(name);
+    }
+
+    public void setUp() throws Exception {
+        super.setUp();
+        if (dict == null) {
+            File empty = File.createTempFile("dict", ".txt");
+            empty.deleteOnExit();
+            String e = empty.getPath();
+            dict = new Dictionaries(e, e, e, e, e, e, e, e, e, e, e, e, e, false);
+        }
+    }
+
+    public void testLookups() throws Exception {
+        Mention bush = mention(1, 0, 0, 1, 1, "PERSON", "Mr.", "Bush");
+        Mention veteran = mention(2, 1, 0, 1, 1, "PERSON", "Mr.", "Bush", ",", "a", "veteran");
+        Mention company = mention(3, 1, 5, 6, 0, "O", "The", "company");
+        Mention it = mention(4, 2, 0, 0, 0, "O", "it");
+        CandidateIndex index = new CandidateIndex(new MentionDocument(bush, veteran, company, it));
+
+        assertEquals(Collections.singletonList(bush), index.withSpan("mr. bush"));
+        assertEquals(Collections.singletonList(company), index.withSpan("the company"));
+        assertTrue(index.withSpan("The company").isEmpty());
+        assertEquals(list(bush, veteran), index.withRelaxedSpan("Mr. Bush"));
+        assertEquals(list(bush, veteran), index.withHead("bush"));
+        assertEquals(Collections.singletonList(it), index.withHead("it"));
+        assertEquals(list(bush, veteran), index.withNer("PERSON"));
+        assertTrue(index.withNer("O").isEmpty());
+        assertTrue(index.withHead("president").isEmpty());
+    }
+
+    public void testOtherSievesSeeEveryAntecedent() throws Exception {
+        MentionDocument document = randomDocument(new Random(5));
+        CandidateIndex index = new CandidateIndex(document);
+        Mention m1 = document.getOrderedMentions().get(1).get(0);
+        assertNull(new PronounMatch().plausibleAntecedents(index, m1, document.corefClusters, dict, document.roleSet));
+    }
+
+    /** For each string and head match sieve, the index never hides an antecedent that matches. */
+    public void testPlausibleAntecedentsAreComplete() throws Exception {
+        DeterministicCorefSieve[] sieves = {
+            new ExactStringMatch(), new RelaxedExactStringMatch(), new StrictHeadMatch1(), new StrictHeadMatch2(),
+            new StrictHeadMatch3(), new StrictHeadMatch4(), new RelaxedHeadMatch(),
+        };
+        Random random = new Random(11);
+        int matches = 0;
+        for (int round = 0; round < 100; round++) {
+            MentionDocument document = randomDocument(random);
+            CandidateIndex index = new CandidateIndex(document);
+            Map<Integer, CorefCluster> clusters = document.corefClusters;
+            for (DeterministicCorefSieve sieve : sieves) {
+                for (List<Mention> sentence : document.getOrderedMentions()) {
+                    for (Mention m1 : sentence) {
+                        Set<Mention> plausible = sieve.plausibleAntecedents(index, m1, clusters, dict, document.roleSet);
+                        assertNotNull(sieve.getClass().getSimpleName(), plausible);
+                        CorefCluster c1 = clusters.get(m1.corefClusterID);
+                        Mention mention = c1.getRepresentativeMention();
+                        for (List<Mention> antecedents : document.getOrderedMentions()) {
+                            for (Mention ant : antecedents) {
+                                if (ant.corefClusterID == m1.corefClusterID) {
+                                    assertFalse(plausible.contains(ant));
+                                    continue;
+                                }
+                                CorefCluster c2 = clusters.get(ant.corefClusterID);
+                                if (matches(sieve, c1, c2, mention, ant, document.roleSet)) {
+                                    matches++;
+                                    assertTrue(sieve.getClass().getSimpleName() + ": " + mention.spanToString() +
+                                               " -> " + ant.spanToString(), plausible.contains(ant));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(matches > 100);
+    }
+
+    /** The tests through which DeterministicCorefSieve.coreferent can accept a pair for these sieves. */
+    private static boolean matches(DeterministicCorefSieve sieve, CorefCluster c1, CorefCluster c2,
+                                   Mention mention, Mention ant, Set<Mention> roleSet) {
+        return (sieve.flags.USE_EXACTSTRINGMATCH && CorefCluster.exactStringMatch(c1, c2, dict, roleSet)) ||
+            (sieve.flags.USE_RELAXED_EXACTSTRINGMATCH &&
+             CorefCluster.relaxedExactStringMatch(c1, c2, mention, ant, dict, roleSet)) ||
+            (sieve.flags.USE_INCLUSION_HEADMATCH && CorefCluster.headsAgree(c1, c2, mention, ant, dict)) ||
+            (sieve.flags.USE_RELAXED_HEADMATCH && CorefCluster.relaxedHeadsAgreeBetweenMentions(c1, c2, mention, ant));
+    }
+
+    /** Three to six sentences of random mentions, some of them merged into clusters. */
+    private static MentionDocument randomDocument(Random random) {
+        List<Mention> mentions = new ArrayList<Mention>();
+        int id = 0;
+        for (int sentence = 0, sentences = 3 + random.nextInt(4); sentence < sentences; sentence++) {
+            for (int i = 0, n = 1 + random.nextInt(4); i < n; i++) {
+                String[] words = new String[1 + random.nextInt(4)];
+                String[] tags = new String[words.length];
+                for (int w = 0; w < words.length; w++) {
+                    String[] word = WORDS[random.nextInt(WORDS.length)];
+                    words[w] = word[0];
+                    tags[w] = word[1];
+                }
+                int start = 3 * i;
+                Mention m = mention(id++, sentence, start, start + random.nextInt(words.length), 0,
+                                   NERS[random.nextInt(NERS.length)], words);
+                for (int w = 0; w < words.length; w++) {
+                    m.originalSpan.get(w).setTag(tags[w]);
+                }
+                type(m);
+                mentions.add(m);
+            }
+        }
+        MentionDocument document = new MentionDocument(mentions.toArray(new Mention[mentions.size()]));
+        for (int merge = 0, merges = random.nextInt(mentions.size()); merge < merges; merge++) {
+            Mention a = mentions.get(random.nextInt(mentions.size()));
+            Mention b = mentions.get(random.nextInt(mentions.size()));
+            if (a.corefClusterID != b.corefClusterID) {
+                CorefCluster from = document.corefClusters.remove(b.corefClusterID);
+                CorefCluster.mergeClusters(document.corefClusters.get(a.corefClusterID), from);
+            }
+        }
+        for (Mention m : mentions) {
+            if (random.nextInt(10) == 0) {
+                document.roleSet.add(m);
+            }
+        }
+        return document;
+    }
+
+    /**
+     * A mention of the given words.  head is the index of the head word in the sentence, and
+     * the words other than commas are tagged NNP if tag is 1, NN otherwise.
+     */
+    private static Mention mention(int id, int sentNum, int start, int head, int tag, String ner, String... words) {
+        List<CoreLabel> span = new ArrayList<CoreLabel>();
+        for (String word : words) {
+            CoreLabel label = new CoreLabel();
+            label.setWord(word);
+            label.setValue(word);
+            label.setTag(word.equals(",") ? "," : (tag == 1 ? "NNP" : "NN"));
+            span.add(label);
+        }
+        Mention m = new Mention(id, start, start + words.length, null, span);
+        m.sentNum = sentNum;
+        m.headIndex = head;
+        m.headWord = span.get(head - start);
+        m.headString = m.headWord.word().toLowerCase();
+        m.nerString = ner;
+        m.corefClusterID = id;
+        m.number = Number.UNKNOWN;
+        m.gender = Gender.UNKNOWN;
+        m.animacy = Animacy.UNKNOWN;
+        type(m);
+        return m;
+    }
+
+    private static void type(Mention m) {
+        String tag = m.headWord.tag();
+        m.mentionType = tag.startsWith("PRP") ? MentionType.PRONOMINAL :
+            tag.equals("NNP") ? MentionType.PROPER : MentionType.NOMINAL;
+    }
+
+    private static List<Mention> list(Mention... mentions) {
+        List<Mention> list = new ArrayList<Mention>();
+        Collections.addAll(list, mentions);
+        return list;
+    }
+
+    /** A document of hand-made mentions, each in a cluster of its own. */
+    private static class MentionDocument extends Document {
+        MentionDocument(Mention... mentions) {
+            predictedOrderedMentionsBySentence = new ArrayList<List<Mention>>();
+            for (Mention m : mentions) {
+                while (predictedOrderedMentionsBySentence.size() <= m.sentNum) {
+                    predictedOrderedMentionsBySentence.add(new ArrayList<Mention>());
+                }
+                predictedOrderedMentionsBySentence.get(m.sentNum).add(m);
+                Set<Mention> cluster = new HashSet<Mention>();
+                cluster.add(m);
+                corefClusters.put(m.corefClusterID, new CorefCluster(m.corefClusterID, cluster));
+            }
+        }
+    }
+
+    public static Test suite() {
+        return new TestSuite(CandidateIndexTest.class);
+    }
+}
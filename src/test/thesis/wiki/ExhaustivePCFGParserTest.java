@@ -0,0 +1,74 @@
+package test.thesis.wiki;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.trees.Tree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ExhaustivePCFGParser Tester: parses a few sentences with the englishPCFG grammar, with and
+ * without -pcfgBeam.  A beam too wide to drop anything must give the same trees as the
+ * exhaustive parser, and a beam so narrow that it loses parses must still parse every sentence.
+ */
+public class ExhaustivePCFGParserTest extends TestCase {
+
+    private static final String GRAMMAR = "lib/stanford-parser-2011-06-27/grammar/englishPCFG.ser.gz";
+
+    private static final String[] SENTENCES = {
+        "World War II was a global military conflict lasting from 1939 to 1945 .",
+        "It was the most widespread war in history , with more than 100 million military personnel mobilised .",
+        "The war in Europe ended with the capture of Berlin by Soviet and Polish troops .",
+        "Japan surrendered on 15 August 1945 , after the atomic bombings of Hiroshima and Nagasaki .",
+        "Old men forget .",
+    };
+
+    private static LexicalizedParser lp;
+
+    public ExhaustivePCFGParserTest(String name) {
+        super(name);
+    }
+
+    public void setUp() throws Exception {
+        super.setUp();
+        if (lp == null) {
+            lp = new LexicalizedParser(GRAMMAR);
+        }
+    }
+
+    public void tearDown() throws Exception {
+        lp.setOptionFlags("-pcfgBeam", "0");
+        super.tearDown();
+    }
+
+    public void testWideBeamKeepsTrees() throws Exception {
+        List<String> exhaustive = parse();
+        lp.setOptionFlags("-pcfgBeam", "1000");
+        assertEquals(exhaustive, parse());
+    }
+
+    public void testNarrowBeamStillParses() throws Exception {
+        lp.setOptionFlags("-pcfgBeam", "0.5");
+        for (String s : SENTENCES) {
+            Tree t = lp.apply(s);
+            assertEquals("ROOT", t.value());
+            assertEquals(s.split(" ").length, t.yield().size());
+        }
+    }
+
+    private static List<String> parse() {
+        List<String> trees = new ArrayList<String>();
+        for (String s : SENTENCES) {
+            trees.add(lp.apply(s).toString());
+        }
+        return trees;
+    }
+
+    public static Test suite() {
+        return new TestSuite(ExhaustivePCFGParserTest.class);
+    }
+}
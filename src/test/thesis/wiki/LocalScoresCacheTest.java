@@ -0,0 +1,119 @@
+package test.thesis.wiki;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import edu.stanford.nlp.ling.Sentence;
+import edu.stanford.nlp.ling.TaggedWord;
+import edu.stanford.nlp.tagger.maxent.LocalScoresCache;
+import edu.stanford.nlp.tagger.maxent.MaxentTagger;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LocalScoresCache Tester: trains a small tagger on a few hand-tagged sentences (there is no
+ * tagger model in the tree), then tags text with the cache off, on, and so small that words
+ * keep displacing each other, and checks that the tags are the same every time.
+ */
+public class LocalScoresCacheTest extends TestCase {
+
+    private static final String[] TRAIN = {
+        "The/DT war/NN in/IN Europe/NNP ended/VBD with/IN the/DT capture/NN of/IN Berlin/NNP ./.",
+        "Japan/NNP surrendered/VBD on/IN 15/CD August/NNP 1945/CD ./.",
+        "Old/JJ men/NNS forget/VBP ./.",
+        "Some/DT sentences/NNS are/VBP short/JJ ./.",
+        "The/DT war/NN was/VBD the/DT most/RBS widespread/JJ war/NN in/IN history/NN ./.",
+        "It/PRP involved/VBD most/JJS of/IN the/DT nations/NNS of/IN the/DT world/NN ./.",
+        "The/DT men/NNS of/IN the/DT army/NN forget/VBP the/DT war/NN ./.",
+        "Soviet/JJ troops/NNS captured/VBD the/DT city/NN in/IN 1945/CD ./.",
+    };
+
+    private static final String[] TEXT = {
+        "Old men forget the war in Europe .",
+        "The troops of Japan surrendered in August .",
+        "The capture of the city ended the war .",
+        "Some men of the army captured Berlin in 1945 .",
+        "Polish and Soviet troops involved most of the nations of Europe .",
+        "The war was short .",
+    };
+
+    private static MaxentTagger tagger;
+
+    public LocalScoresCacheTest(String name) {
+        super(name);
+    }
+
+    public void setUp() throws Exception {
+        super.setUp();
+        if (tagger == null) {
+            File train = File.createTempFile("tagger", ".txt");
+            train.deleteOnExit();
+            FileWriter w = new FileWriter(train);
+            for (String s : TRAIN) {
+                w.write(s + "\n");
+            }
+            w.close();
+            File model = File.createTempFile("tagger", ".model");
+            model.deleteOnExit();
+            new File(model.getPath() + ".props").deleteOnExit();
+            MaxentTagger.main(new String[] { "-trainFile", train.getPath(), "-model", model.getPath(),
+                                             "-arch", "left3words,naacl2003unknowns", "-search", "qn" });
+            tagger = new MaxentTagger(model.getPath());
+        }
+    }
+
+    public void testCacheKeepsTags() throws Exception {
+        tagger.setLocalScoresCacheSize(0);
+        assertNull(tagger.getLocalScoresCache());
+        List<String> uncached = tag();
+        tagger.setLocalScoresCacheSize(1000);
+        assertEquals(uncached, tag());
+        assertEquals(uncached, tag());
+        LocalScoresCache cache = tagger.getLocalScoresCache();
+        assertTrue(cache.hits() > 0);
+        assertTrue(cache.size() > 0);
+        assertTrue(cache.size() <= cache.capacity());
+    }
+
+    public void testFullCacheKeepsTags() throws Exception {
+        tagger.setLocalScoresCacheSize(0);
+        List<String> uncached = tag();
+        tagger.setLocalScoresCacheSize(1);
+        LocalScoresCache cache = tagger.getLocalScoresCache();
+        assertEquals(16, cache.capacity());
+        for (int run = 0; run < 3; run++) {
+            assertEquals(uncached, tag());
+        }
+        assertTrue(cache.hits() > 0);
+        assertTrue(cache.size() <= cache.capacity());
+    }
+
+    public void testHitRate() throws Exception {
+        tagger.setLocalScoresCacheSize(1000);
+        LocalScoresCache cache = tagger.getLocalScoresCache();
+        assertEquals(0.0, cache.hitRate(), 0.0);
+        tag();
+        long misses = cache.misses();
+        assertTrue(misses > 0);
+        tag();
+        assertTrue(cache.hits() > 0);
+        assertEquals(((double) cache.hits()) / (cache.hits() + cache.misses()), cache.hitRate(), 1e-12);
+    }
+
+    private static List<String> tag() {
+        List<String> tagged = new ArrayList<String>();
+        for (String s : TEXT) {
+            List<TaggedWord> words = tagger.tagSentence(Sentence.toWordList(s.split(" ")));
+            tagged.add(Sentence.listToString(words, false));
+        }
+        return tagged;
+    }
+
+    public static Test suite() {
+        return new TestSuite(LocalScoresCacheTest.class);
+    }
+}
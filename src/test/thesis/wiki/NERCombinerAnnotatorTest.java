@@ -0,0 +1,124 @@
+package test.thesis.wiki;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import edu.stanford.nlp.ie.NERClassifierCombiner;
+import edu.stanford.nlp.ie.regexp.NumberSequenceClassifier;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreAnnotations.NormalizedNamedEntityTagAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.NERCombinerAnnotator;
+import edu.stanford.nlp.util.ArrayCoreMap;
+import edu.stanford.nlp.util.CoreMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * NERCombinerAnnotator Tester: labels numeric and date sentences on one thread and on
+ * several, and checks that both give the same tags.  The combiner has only the rule-based
+ * NumberSequenceClassifier, so no model files are needed; QuantifiableEntityNormalizer
+ * still runs on every sentence, including its edit distance matching of number words.
+ */
+public class NERCombinerAnnotatorTest extends TestCase {
+
+    // word/tag pairs; some number words are misspelled so that they go to the edit distance
+    private static final String[] SENTENCES = {
+        "The/DT company/NN paid/VBD $/$ 5/CD milion/CD on/IN March/NNP 3/CD ,/, 2005/CD ./.",
+        "He/PRP finished/VBD fourty-second/JJ on/IN the/DT 2nd/JJ of/IN May/NNP ./.",
+        "About/IN twenty/CD five/CD thousand/CD people/NNS came/VBD at/IN 10:30/CD ./.",
+        "It/PRP costs/VBZ 300/CD pounds/NNS ,/, or/CC three/CD hundred/CD and/CC fifty/CD dollars/NNS ./.",
+        "The/DT war/NN ended/VBD on/IN 02/09/1945/CD after/IN sixx/CD years/NNS ./.",
+        "They/PRP sold/VBD 1.5/CD bilion/CD shares/NNS in/IN 1999/CD ./.",
+    };
+
+    public NERCombinerAnnotatorTest(String name) {
+        super(name);
+    }
+
+    public void testParallelMatchesSequential() throws Exception {
+        Annotation sequential = annotation(20);
+        Annotation parallel = annotation(20);
+        annotator(1).annotate(sequential);
+        annotator(4).annotate(parallel);
+
+        List<String> expected = tags(sequential);
+        assertEquals(expected, tags(parallel));
+
+        boolean numeric = false, normalized = false;
+        for (String tag : expected) {
+            numeric |= tag.contains("DATE") || tag.contains("MONEY") || tag.contains("NUMBER");
+            normalized |= !tag.endsWith("/null");
+        }
+        assertTrue("no numeric entities found", numeric);
+        assertTrue("no normalized values found", normalized);
+    }
+
+    public void testParallelRunsAgree() throws Exception {
+        NERCombinerAnnotator ner = annotator(4);
+        Annotation first = annotation(20);
+        ner.annotate(first);
+        for (int run = 0; run < 5; run++) {
+            Annotation again = annotation(20);
+            ner.annotate(again);
+            assertEquals(tags(first), tags(again));
+        }
+    }
+
+    private static NERCombinerAnnotator annotator(int nThreads) throws Exception {
+        return new NERCombinerAnnotator(new NERClassifierCombiner(true, new NumberClassifier()),
+                                        false, nThreads);
+    }
+
+    /** ClassifierCombiner asks its base classifiers for their labels, which only trained ones keep. */
+    private static class NumberClassifier extends NumberSequenceClassifier {
+        @Override
+        public Set<String> labels() {
+            return new HashSet<String>(Arrays.asList(flags.backgroundSymbol, "MONEY", "TIME", "DATE", "NUMBER", "ORDINAL"));
+        }
+    }
+
+    /** The test sentences, repeated copies times, as a tokenized and tagged document. */
+    private static Annotation annotation(int copies) {
+        List<CoreMap> sentences = new ArrayList<CoreMap>();
+        for (int c = 0; c < copies; c++) {
+            for (String s : SENTENCES) {
+                List<CoreLabel> tokens = new ArrayList<CoreLabel>();
+                for (String wordTag : s.split(" ")) {
+                    int slash = wordTag.lastIndexOf('/');
+                    CoreLabel token = new CoreLabel();
+                    token.setWord(wordTag.substring(0, slash));
+                    token.setTag(wordTag.substring(slash + 1));
+                    tokens.add(token);
+                }
+                CoreMap sentence = new ArrayCoreMap();
+                sentence.set(CoreAnnotations.TokensAnnotation.class, tokens);
+                sentences.add(sentence);
+            }
+        }
+        Annotation annotation = new Annotation("");
+        annotation.set(CoreAnnotations.SentencesAnnotation.class, sentences);
+        return annotation;
+    }
+
+    /** word/NER/normalized NER of every token, in document order. */
+    private static List<String> tags(Annotation annotation) {
+        List<String> tags = new ArrayList<String>();
+        for (CoreMap sentence : annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
+            for (CoreLabel token : sentence.get(CoreAnnotations.TokensAnnotation.class)) {
+                tags.add(token.word() + '/' + token.ner() + '/' + token.get(NormalizedNamedEntityTagAnnotation.class));
+            }
+        }
+        return tags;
+    }
+
+    public static Test suite() {
+        return new TestSuite(NERCombinerAnnotatorTest.class);
+    }
+}
@@ -0,0 +1,175 @@
+package test.thesis.wiki;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.ParseCache;
+import edu.stanford.nlp.trees.Tree;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ParseCache Tester: puts trees in a cache and checks that they come back the same from memory
+ * and from the file, after the file is opened again, after its last line is cut short, and
+ * after they have been dropped from memory.
+ */
+public class ParseCacheTest extends TestCase {
+
+    private static final String CONTEXT = "englishPCFG.ser.gz -maxLength 100";
+
+    private static final String[] TREES = {
+        "(ROOT (S (NP (JJ Old) (NNS men)) (VP (VBP forget)) (. .)))",
+        "(ROOT (S (NP (DT Some) (NNS sentences)) (VP (VBP are) (ADJP (JJ short))) (. .)))",
+        "(ROOT (S (NP (NNP Japan)) (VP (VBD surrendered)) (. .)))",
+    };
+
+    private File file;
+
+    public ParseCacheTest(String name) {
+        super(name);
+    }
+
+    public void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("parsecache", ".txt");
+        file.delete();
+    }
+
+    public void tearDown() throws Exception {
+        file.delete();
+        super.tearDown();
+    }
+
+    public void testMemoryRoundTrip() throws Exception {
+        ParseCache cache = new ParseCache(10, CONTEXT);
+        for (String s : TREES) {
+            Tree tree = tree(s);
+            String key = cache.key(words(tree));
+            assertNull(cache.get(key));
+            cache.put(key, tree);
+            assertEquals(tree, cache.get(key));
+            assertEquals(tree.score(), cache.get(key).score(), 0.0);
+        }
+        assertEquals(TREES.length, cache.size());
+        assertEquals(0, cache.diskSize());
+        assertEquals(2 * TREES.length, cache.memoryHits());
+        assertEquals(TREES.length, cache.misses());
+    }
+
+    public void testReturnsCopies() throws Exception {
+        ParseCache cache = new ParseCache(10, CONTEXT);
+        Tree tree = tree(TREES[0]);
+        String key = cache.key(words(tree));
+        cache.put(key, tree);
+        tree.firstChild().setValue("FRAG");
+        cache.get(key).firstChild().setValue("SINV");
+        assertEquals(tree(TREES[0]), cache.get(key));
+    }
+
+    public void testKeyDependsOnContextAndTags() throws Exception {
+        List<CoreLabel> words = words(tree(TREES[0]));
+        String key = new ParseCache(10, CONTEXT).key(words);
+        assertEquals(key, new ParseCache(10, CONTEXT).key(words));
+        assertFalse(key.equals(new ParseCache(10, CONTEXT + " -pcfgBeam 20").key(words)));
+        words.get(0).setTag("NN");
+        assertFalse(key.equals(new ParseCache(10, CONTEXT).key(words)));
+    }
+
+    public void testFileRoundTrip() throws Exception {
+        ParseCache cache = new ParseCache(10, CONTEXT, file.getPath());
+        List<String> keys = putAll(cache);
+        assertEquals(TREES.length, cache.diskSize());
+        cache.close();
+
+        ParseCache reopened = new ParseCache(10, CONTEXT, file.getPath());
+        assertEquals(0, reopened.size());
+        assertEquals(TREES.length, reopened.diskSize());
+        for (int i = 0; i < TREES.length; i++) {
+            assertEquals(tree(TREES[i]), reopened.get(keys.get(i)));
+        }
+        assertEquals(TREES.length, reopened.diskHits());
+        assertEquals(0, reopened.misses());
+        reopened.close();
+    }
+
+    public void testTruncatedLastLine() throws Exception {
+        ParseCache cache = new ParseCache(10, CONTEXT, file.getPath());
+        List<String> keys = putAll(cache);
+        cache.close();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 5);
+        raf.close();
+
+        ParseCache reopened = new ParseCache(10, CONTEXT, file.getPath());
+        int last = TREES.length - 1;
+        assertEquals(last, reopened.diskSize());
+        assertNull(reopened.get(keys.get(last)));
+        reopened.put(keys.get(last), tree(TREES[last]));
+        reopened.close();
+
+        reopened = new ParseCache(10, CONTEXT, file.getPath());
+        assertEquals(TREES.length, reopened.diskSize());
+        for (int i = 0; i < TREES.length; i++) {
+            assertEquals(tree(TREES[i]), reopened.get(keys.get(i)));
+        }
+        reopened.close();
+    }
+
+    public void testEvictedTreesAreReadFromFile() throws Exception {
+        ParseCache cache = new ParseCache(1, CONTEXT, file.getPath());
+        List<String> keys = putAll(cache);
+        assertEquals(1, cache.size());
+        assertEquals(TREES.length, cache.diskSize());
+        assertEquals(tree(TREES[0]), cache.get(keys.get(0)));
+        assertEquals(1, cache.diskHits());
+        assertEquals(tree(TREES[0]), cache.get(keys.get(0)));
+        assertEquals(1, cache.memoryHits());
+        cache.close();
+    }
+
+    public void testEvictedTreesAreLostWithoutFile() throws Exception {
+        ParseCache cache = new ParseCache(1, CONTEXT);
+        List<String> keys = putAll(cache);
+        assertEquals(1, cache.size());
+        assertNull(cache.get(keys.get(0)));
+        assertEquals(tree(TREES[TREES.length - 1]), cache.get(keys.get(TREES.length - 1)));
+    }
+
+    private static List<String> putAll(ParseCache cache) {
+        List<String> keys = new ArrayList<String>();
+        for (String s : TREES) {
+            Tree tree = tree(s);
+            String key = cache.key(words(tree));
+            cache.put(key, tree);
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    private static Tree tree(String s) {
+        Tree tree = Tree.valueOf(s);
+        tree.setScore(-42.5);
+        return tree;
+    }
+
+    /** The words of a tree, tagged with their preterminals. */
+    private static List<CoreLabel> words(Tree tree) {
+        List<CoreLabel> words = new ArrayList<CoreLabel>();
+        for (Tree leaf : tree.getLeaves()) {
+            CoreLabel word = new CoreLabel();
+            word.setWord(leaf.value());
+            word.setTag(leaf.parent(tree).value());
+            words.add(word);
+        }
+        return words;
+    }
+
+    public static Test suite() {
+        return new TestSuite(ParseCacheTest.class);
+    }
+}
@@ -0,0 +1,92 @@
+package test.thesis.wiki;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.ParserAnnotator;
+import edu.stanford.nlp.pipeline.PTBTokenizerAnnotator;
+import edu.stanford.nlp.pipeline.WordsToSentencesAnnotator;
+import edu.stanford.nlp.trees.semgraph.SemanticGraph;
+import edu.stanford.nlp.trees.semgraph.SemanticGraphCoreAnnotations;
+import edu.stanford.nlp.util.CoreMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ParserAnnotator Tester: parses a document with the englishPCFG grammar on one thread and on
+ * several, and checks that each sentence gets the same tree and dependencies either way.
+ */
+public class ParserAnnotatorTest extends TestCase {
+
+    private static final String GRAMMAR = "lib/stanford-parser-2011-06-27/grammar/englishPCFG.ser.gz";
+
+    private static final String TEXT =
+        "World War II was a global military conflict lasting from 1939 to 1945. " +
+        "It involved most of the world's nations, including all of the great powers. " +
+        "Old men forget. " +
+        "The war in Europe ended with the capture of Berlin by Soviet and Polish troops. " +
+        "Japan surrendered on 15 August 1945, after the atomic bombings of Hiroshima and Nagasaki. " +
+        "The United Nations was established to foster international cooperation and prevent future conflicts. " +
+        "Some sentences are short. " +
+        "Others, like this one, run on for a while before they finally come to an end.";
+
+    private static LexicalizedParser lp;
+
+    public ParserAnnotatorTest(String name) {
+        super(name);
+    }
+
+    public void setUp() throws Exception {
+        super.setUp();
+        if (lp == null) {
+            lp = new LexicalizedParser(GRAMMAR);
+            lp.setOptionFlags(ParserAnnotator.DEFAULT_FLAGS);
+        }
+    }
+
+    public void testParallelMatchesSequential() throws Exception {
+        Annotation sequential = annotation();
+        Annotation parallel = annotation();
+        new ParserAnnotator(lp, false, 100, 1).annotate(sequential);
+        new ParserAnnotator(lp, false, 100, 3).annotate(parallel);
+        assertEquals(parses(sequential), parses(parallel));
+    }
+
+    public void testParallelRunsAgree() throws Exception {
+        ParserAnnotator parser = new ParserAnnotator(lp, false, 100, 3);
+        Annotation first = annotation();
+        parser.annotate(first);
+        for (int run = 0; run < 2; run++) {
+            Annotation again = annotation();
+            parser.annotate(again);
+            assertEquals(parses(first), parses(again));
+        }
+    }
+
+    private static Annotation annotation() {
+        Annotation annotation = new Annotation(TEXT);
+        new PTBTokenizerAnnotator(false).annotate(annotation);
+        new WordsToSentencesAnnotator(false).annotate(annotation);
+        return annotation;
+    }
+
+    /** The tree and collapsed, cc-processed dependencies of each sentence. */
+    private static List<String> parses(Annotation annotation) {
+        List<String> parses = new ArrayList<String>();
+        for (CoreMap sentence : annotation.get(CoreAnnotations.SentencesAnnotation.class)) {
+            parses.add(sentence.get(CoreAnnotations.TreeAnnotation.class).toString());
+            SemanticGraph deps = sentence.get(SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation.class);
+            parses.add(deps.toList());
+        }
+        return parses;
+    }
+
+    public static Test suite() {
+        return new TestSuite(ParserAnnotatorTest.class);
+    }
+}
@@ -0,0 +1,241 @@
+package test.thesis.wiki;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import edu.stanford.nlp.ie.regexp.RegexNERSequenceClassifier;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * RegexNERSequenceClassifier Tester: checks phrases (looked up in the trie) and regular
+ * expressions, priorities, overwritable types and ignoreCase on a small mapping, and checks that
+ * random gazetteers of phrases and regexes label random documents exactly as the classifier of
+ * the 2011-06-19 jar, which tried every entry at every position, does.
+ */
+public class RegexNERSequenceClassifierTest extends TestCase {
+
+    private static final String OLD_JAR = "lib/stanford-corenlp-2011-06-19/stanford-corenlp-2011-06-19.jar";
+
+    private static final String MAPPING =
+        "World War II\tWAR\n" +
+        "Battle of [A-Z]\\w+\tBATTLE\n" +
+        "Berlin\tCAPITAL\tLOCATION\t1\n" +
+        "Berlin\tCITY\t\t2\n" +
+        "U\\.S\\. Army\tARMY\n" +
+        "Army\tORGANIZATION\n" +
+        "Soviet Union\tCOUNTRY\tLOCATION\n";
+
+    private static final String[] WORDS = {
+        "World", "war", "War", "II", "Battle", "of", "Berlin", "berlin", "U.S.", "Army", "army",
+        "Soviet", "Union", "the", "in", "1945", ",", "Stalingrad", "Britain", "men",
+    };
+
+    private static final String[] TAGS = { "NNP", "NN", "JJ", "DT", "IN", "VBD", "CD" };
+
+    private static final String[] NERS = { "O", "O", "O", "LOCATION", "PERSON", "DATE" };
+
+    private static final String[] REGEXES = {
+        "[A-Z]\\w+", "\\d+", "[Ww]ar", "B.*", "U\\.S\\.", "(?:the|of)", "[a-z]+",
+    };
+
+    private static final String[] TYPES = { "A", "B", "C", "LOCATION", "PERSON" };
+
+    private File mapping;
+
+    public RegexNERSequenceClassifierTest(String name) {
+        super(name);
+    }
+
+    public void setUp() throws Exception {
+        super.setUp();
+        mapping = File.createTempFile("regexner", ".txt");
+    }
+
+    public void tearDown() throws Exception {
+        mapping.delete();
+        super.tearDown();
+    }
+
+    public void testPhrasesAndRegexes() throws Exception {
+        write(MAPPING);
+        RegexNERSequenceClassifier classifier = new RegexNERSequenceClassifier(mapping.getPath(), false, false);
+        List<CoreLabel> doc = document(
+            "The/DT/O World/NNP/O War/NNP/O II/NNP/O Battle/NN/O of/IN/O Stalingrad/NNP/O " +
+            "world/NN/O war/NN/O ii/NN/O Battle/NN/O of/IN/O berlin/NN/O Battle/NN/O of/IN/O Britain/NNP/LOCATION");
+        classifier.classify(doc);
+        assertEquals("null WAR WAR WAR BATTLE BATTLE BATTLE null null null null null null null null null", answers(doc));
+    }
+
+    public void testPriorityAndOverwritableTypes() throws Exception {
+        write(MAPPING);
+        RegexNERSequenceClassifier classifier = new RegexNERSequenceClassifier(mapping.getPath(), false, false);
+        List<CoreLabel> doc = document(
+            "Berlin/NNP/O Berlin/NNP/LOCATION the/DT/O U.S./NNP/LOCATION Army/NNP/ORGANIZATION " +
+            "U.S./NNP/O Army/NNP/O Army/NNP/O Soviet/NNP/LOCATION Union/NNP/LOCATION");
+        classifier.classify(doc);
+        assertEquals("CITY CAPITAL null null null ARMY ARMY ORGANIZATION COUNTRY COUNTRY", answers(doc));
+    }
+
+    public void testIgnoreCase() throws Exception {
+        write(MAPPING);
+        RegexNERSequenceClassifier classifier = new RegexNERSequenceClassifier(mapping.getPath(), true, false);
+        List<CoreLabel> doc = document(
+            "world/NN/O war/NN/O ii/NN/O battle/NN/O of/IN/O stalingrad/NN/O WORLD/VB/O WAR/VB/O II/VB/O " +
+            "battle/NN/O of/IN/O BERLIN/NNP/O");
+        classifier.classify(doc);
+        // a match is only labeled if one of its words is a noun or an adjective; CITY comes first
+        assertEquals("WAR WAR WAR BATTLE BATTLE BATTLE null null null null null CITY", answers(doc));
+    }
+
+    public void testOverwriteMyLabels() throws Exception {
+        write(MAPPING);
+        List<CoreLabel> doc = document("Berlin/NNP/CAPITAL Army/NNP/O");
+        new RegexNERSequenceClassifier(mapping.getPath(), false, false).classify(doc);
+        assertEquals("null ORGANIZATION", answers(doc));
+        doc = document("Berlin/NNP/CAPITAL Army/NNP/O");
+        new RegexNERSequenceClassifier(mapping.getPath(), false, true).classify(doc);
+        assertEquals("CITY ORGANIZATION", answers(doc));
+    }
+
+    /** Random gazetteers and documents get the same labels as from the old classifier. */
+    public void testMatchesOldClassifier() throws Exception {
+        ClassLoader old = new URLClassLoader(new URL[] { new File(OLD_JAR).toURI().toURL() }, null);
+        Constructor<?> oldClassifier = old.loadClass(RegexNERSequenceClassifier.class.getName())
+            .getConstructor(String.class, Boolean.TYPE, Boolean.TYPE);
+        Class<?> oldLabel = old.loadClass(CoreLabel.class.getName());
+        Random random = new Random(23);
+        for (int round = 0; round < 40; round++) {
+            write(gazetteer(random));
+            String doc = randomDocument(random);
+            for (int flags = 0; flags < 4; flags++) {
+                boolean ignoreCase = (flags & 1) != 0;
+                boolean overwrite = (flags & 2) != 0;
+                List<CoreLabel> tokens = document(doc);
+                new RegexNERSequenceClassifier(mapping.getPath(), ignoreCase, overwrite).classify(tokens);
+                Object classifier = oldClassifier.newInstance(mapping.getPath(), ignoreCase, overwrite);
+                List<?> oldTokens = oldDocument(oldLabel, doc);
+                classifier.getClass().getMethod("classify", List.class).invoke(classifier, oldTokens);
+                assertEquals("round " + round + ", ignoreCase " + ignoreCase + ", overwrite " + overwrite,
+                             oldAnswers(old, oldTokens), answers(tokens));
+            }
+        }
+    }
+
+    private static String gazetteer(Random random) {
+        StringBuilder sb = new StringBuilder();
+        for (int e = 0, entries = 5 + random.nextInt(30); e < entries; e++) {
+            for (int w = 0, words = 1 + random.nextInt(3); w < words; w++) {
+                if (w > 0) {
+                    sb.append(' ');
+                }
+                if (random.nextInt(5) == 0) {
+                    sb.append(REGEXES[random.nextInt(REGEXES.length)]);
+                } else {
+                    String word = WORDS[random.nextInt(WORDS.length)];
+                    sb.append(random.nextBoolean() ? word.replace(".", "\\.") : word);
+                }
+            }
+            sb.append('\t').append(TYPES[random.nextInt(TYPES.length)]);
+            switch (random.nextInt(3)) {
+            case 0:
+                break;
+            case 1:
+                sb.append('\t').append(TYPES[random.nextInt(TYPES.length)]);
+                break;
+            default:
+                sb.append('\t').append(TYPES[random.nextInt(TYPES.length)]).append(',')
+                  .append(TYPES[random.nextInt(TYPES.length)]).append('\t').append(random.nextInt(3));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String randomDocument(Random random) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]).append('/')
+              .append(TAGS[random.nextInt(TAGS.length)]).append('/')
+              .append(random.nextInt(4) == 0 ? TYPES[random.nextInt(TYPES.length)] : NERS[random.nextInt(NERS.length)]);
+        }
+        return sb.toString();
+    }
+
+    /** Tokens given as word/tag/ner, separated by spaces. */
+    private static List<CoreLabel> document(String tokens) {
+        List<CoreLabel> doc = new ArrayList<CoreLabel>();
+        for (String token : tokens.split(" ")) {
+            String[] parts = token.split("/");
+            CoreLabel label = new CoreLabel();
+            label.setWord(parts[0]);
+            label.setTag(parts[1]);
+            label.setNER(parts[2]);
+            doc.add(label);
+        }
+        return doc;
+    }
+
+    private static List<Object> oldDocument(Class<?> oldLabel, String tokens) throws Exception {
+        Method setWord = oldLabel.getMethod("setWord", String.class);
+        Method setTag = oldLabel.getMethod("setTag", String.class);
+        Method setNER = oldLabel.getMethod("setNER", String.class);
+        List<Object> doc = new ArrayList<Object>();
+        for (String token : tokens.split(" ")) {
+            String[] parts = token.split("/");
+            Object label = oldLabel.newInstance();
+            setWord.invoke(label, parts[0]);
+            setTag.invoke(label, parts[1]);
+            setNER.invoke(label, parts[2]);
+            doc.add(label);
+        }
+        return doc;
+    }
+
+    private static String answers(List<CoreLabel> doc) {
+        StringBuilder sb = new StringBuilder();
+        for (CoreLabel token : doc) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(token.get(CoreAnnotations.AnswerAnnotation.class));
+        }
+        return sb.toString();
+    }
+
+    private static String oldAnswers(ClassLoader old, List<?> doc) throws Exception {
+        Class<?> answer = old.loadClass(CoreAnnotations.AnswerAnnotation.class.getName());
+        StringBuilder sb = new StringBuilder();
+        for (Object token : doc) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(token.getClass().getMethod("get", Class.class).invoke(token, answer));
+        }
+        return sb.toString();
+    }
+
+    private void write(String text) throws Exception {
+        FileWriter w = new FileWriter(mapping);
+        w.write(text);
+        w.close();
+    }
+
+    public static Test suite() {
+        return new TestSuite(RegexNERSequenceClassifierTest.class);
+    }
+}
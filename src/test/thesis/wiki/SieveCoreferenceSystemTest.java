@@ -0,0 +1,282 @@
+package test.thesis.wiki;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import edu.stanford.nlp.dcoref.Constants;
+import edu.stanford.nlp.dcoref.CorefChain;
+import edu.stanford.nlp.dcoref.CorefCluster;
+import edu.stanford.nlp.dcoref.Dictionaries.Animacy;
+import edu.stanford.nlp.dcoref.Dictionaries.Gender;
+import edu.stanford.nlp.dcoref.Dictionaries.MentionType;
+import edu.stanford.nlp.dcoref.Dictionaries.Number;
+import edu.stanford.nlp.dcoref.Document;
+import edu.stanford.nlp.dcoref.Mention;
+import edu.stanford.nlp.dcoref.SieveCoreferenceSystem;
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.ling.HasWord;
+import edu.stanford.nlp.ling.Sentence;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.pipeline.ParserAnnotator;
+import edu.stanford.nlp.util.IntTuple;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * SieveCoreferenceSystem Tester: resolves random documents with one shared system, first on one
+ * thread and then on four, and checks that each document gets the same chains either way; and
+ * checks that a parser constraint set for one thread, as mention finding does, leaves the parses
+ * of the other threads alone.  The mentions are made by hand, as there are no coref models here,
+ * so the system only runs the string and head match sieves, with empty dictionaries.
+ */
+public class SieveCoreferenceSystemTest extends TestCase {
+
+    private static final String GRAMMAR = "lib/stanford-parser-2011-06-27/grammar/englishPCFG.ser.gz";
+
+    private static final String SIEVES = "ExactStringMatch, RelaxedExactStringMatch, StrictHeadMatch1, " +
+        "StrictHeadMatch2, StrictHeadMatch3, StrictHeadMatch4, RelaxedHeadMatch";
+
+    private static final String[] DICTIONARIES = {
+        Constants.DEMONYM_PROP, Constants.ANIMATE_PROP, Constants.INANIMATE_PROP, Constants.MALE_PROP,
+        Constants.NEUTRAL_PROP, Constants.FEMALE_PROP, Constants.PLURAL_PROP, Constants.SINGULAR_PROP,
+        Constants.STATES_PROP, Constants.GENDER_NUMBER_PROP, Constants.COUNTRIES_PROP,
+        Constants.STATES_PROVINCES_PROP, Constants.EXTRA_GENDER_PROP,
+    };
+
+    private static final String[][] WORDS = {
+        { "Mr.", "NNP" }, { "Bush", "NNP" }, { "George", "NNP" }, { "Berlin", "NNP" }, { "the", "DT" },
+        { "The", "DT" }, { "president", "NN" }, { "city", "NN" }, { "army", "NN" }, { "Army", "NNP" },
+        { ",", "," }, { "'s", "POS" }, { "new", "JJ" }, { "Soviet", "JJ" },
+    };
+
+    private static final String[] NERS = { "O", "O", "PERSON", "LOCATION", "ORGANIZATION" };
+
+    private static final String SENTENCE = "Old men forget the war in Europe .";
+
+    private static SieveCoreferenceSystem coref;
+
+    private static LexicalizedParser lp;
+
+    public SieveCoreferenceSystemTest(String name) {
+        super(name);
+    }
+
+    public void setUp() throws Exception {
+        super.setUp();
+        if (coref == null) {
+            File empty = File.createTempFile("dict", ".txt");
+            empty.deleteOnExit();
+            Properties props = new Properties();
+            props.setProperty(Constants.SIEVES_PROP, SIEVES);
+            for (String dictionary : DICTIONARIES) {
+                props.setProperty(dictionary, empty.getPath());
+            }
+            coref = new SieveCoreferenceSystem(props);
+            lp = new LexicalizedParser(GRAMMAR);
+            lp.setOptionFlags(ParserAnnotator.DEFAULT_FLAGS);
+        }
+    }
+
+    public void testParallelMatchesSequential() throws Exception {
+        final int documents = 1000;
+        final List<String> sequential = new ArrayList<String>();
+        int merged = 0;
+        for (int i = 0; i < documents; i++) {
+            MentionDocument document = randomDocument(new Random(i));
+            sequential.add(chains(coref.coref(document)));
+            merged += document.mentions - document.corefClusters.size();
+        }
+        assertTrue(merged > 1000);
+
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = offset; i < documents; i += 4) {
+                            String chains = chains(coref.coref(randomDocument(new Random(i))));
+                            if ( ! sequential.get(i).equals(chains)) {
+                                failure.compareAndSet(null, "document " + i + ": " + sequential.get(i) + " vs " + chains);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e.toString());
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+    }
+
+    /** A constrained parse on one thread while the others parse the same sentence freely. */
+    public void testThreadConstraints() throws Exception {
+        final List<HasWord> words = Sentence.toWordList(SENTENCE.split(" "));
+        final String free = lp.apply(words).toString();
+        final List<edu.stanford.nlp.parser.lexparser.Test.Constraint> constraints =
+            Collections.singletonList(new edu.stanford.nlp.parser.lexparser.Test.Constraint(1, 4, Pattern.compile(".*")));
+        edu.stanford.nlp.parser.lexparser.Test.setThreadConstraints(constraints);
+        final String constrained;
+        try {
+            constrained = lp.apply(words).toString();
+        } finally {
+            edu.stanford.nlp.parser.lexparser.Test.setThreadConstraints(null);
+        }
+        assertFalse(free.equals(constrained));
+        assertNull(edu.stanford.nlp.parser.lexparser.Test.constraints());
+
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final boolean constrain = t == 0;
+            final LexicalizedParser parser = lp.parserQuery();
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 20; i++) {
+                            String tree;
+                            if (constrain) {
+                                edu.stanford.nlp.parser.lexparser.Test.setThreadConstraints(constraints);
+                                try {
+                                    tree = parser.apply(words).toString();
+                                } finally {
+                                    edu.stanford.nlp.parser.lexparser.Test.setThreadConstraints(null);
+                                }
+                            } else {
+                                tree = parser.apply(words).toString();
+                            }
+                            if ( ! tree.equals(constrain ? constrained : free)) {
+                                failure.compareAndSet(null, tree);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e.toString());
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+    }
+
+    /** The mention ids of each chain, by chain id. */
+    private static String chains(Map<Integer, CorefChain> chains) {
+        List<Integer> ids = new ArrayList<Integer>(chains.keySet());
+        Collections.sort(ids);
+        StringBuilder sb = new StringBuilder();
+        for (Integer id : ids) {
+            List<Integer> mentions = new ArrayList<Integer>();
+            for (CorefChain.CorefMention m : chains.get(id).getCorefMentions()) {
+                mentions.add(m.mentionID);
+            }
+            Collections.sort(mentions);
+            sb.append(id).append('=').append(mentions).append(' ');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Five to fourteen sentences of one to four random mentions each, the mentions separated by a
+     * filler word.
+     */
+    private static MentionDocument randomDocument(Random random) {
+        MentionDocument document = new MentionDocument();
+        int id = 0;
+        for (int sentence = 0, sentences = 5 + random.nextInt(10); sentence < sentences; sentence++) {
+            document.predictedOrderedMentionsBySentence().add(new ArrayList<Mention>());
+            List<CoreLabel> sentenceWords = new ArrayList<CoreLabel>();
+            for (int i = 0, n = 1 + random.nextInt(4); i < n; i++) {
+                if (i > 0) {
+                    sentenceWords.add(word("and", "CC", "O"));
+                }
+                String ner = NERS[random.nextInt(NERS.length)];
+                List<CoreLabel> span = new ArrayList<CoreLabel>();
+                for (int w = 0, words = 1 + random.nextInt(4); w < words; w++) {
+                    String[] word = WORDS[random.nextInt(WORDS.length)];
+                    span.add(word(word[0], word[1], word[1].equals("NNP") ? ner : "O"));
+                }
+                int start = sentenceWords.size();
+                sentenceWords.addAll(span);
+                int head = random.nextInt(span.size());
+                Mention m = new Mention(id++, start, start + span.size(), null, span);
+                m.sentNum = sentence;
+                m.sentenceWords = sentenceWords;
+                m.headIndex = start + head;
+                m.headWord = span.get(head);
+                m.headString = m.headWord.word().toLowerCase();
+                m.nerString = ner;
+                m.number = Number.UNKNOWN;
+                m.gender = Gender.UNKNOWN;
+                m.animacy = Animacy.UNKNOWN;
+                m.mentionType = m.headWord.tag().equals("NNP") ? MentionType.PROPER : MentionType.NOMINAL;
+                document.add(m);
+            }
+        }
+        return document;
+    }
+
+    /** A token of narrative text: one utterance, with no speaker. */
+    private static CoreLabel word(String word, String tag, String ner) {
+        CoreLabel label = new CoreLabel();
+        label.setWord(word);
+        label.setValue(word);
+        label.setTag(tag);
+        label.setNER(ner);
+        label.set(CoreAnnotations.UtteranceAnnotation.class, 0);
+        label.set(CoreAnnotations.SpeakerAnnotation.class, "");
+        return label;
+    }
+
+    /** A document of hand-made mentions, each in a cluster of its own. */
+    private static class MentionDocument extends Document {
+        int mentions;
+
+        MentionDocument() {
+            predictedOrderedMentionsBySentence = new ArrayList<List<Mention>>();
+        }
+
+        List<List<Mention>> predictedOrderedMentionsBySentence() {
+            return predictedOrderedMentionsBySentence;
+        }
+
+        void add(Mention m) {
+            List<Mention> sentence = predictedOrderedMentionsBySentence.get(m.sentNum);
+            IntTuple position = new IntTuple(2);
+            position.set(0, m.sentNum);
+            position.set(1, sentence.size());
+            positions.put(m, position);
+            sentence.add(m);
+            m.corefClusterID = m.mentionID;
+            Set<Mention> cluster = new HashSet<Mention>();
+            cluster.add(m);
+            corefClusters.put(m.corefClusterID, new CorefCluster(m.corefClusterID, cluster));
+            mentions++;
+        }
+    }
+
+    public static Test suite() {
+        return new TestSuite(SieveCoreferenceSystemTest.class);
+    }
+}
@@ -0,0 +1,205 @@
+package test.thesis.wiki;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.tregex.TregexMatcher;
+import edu.stanford.nlp.trees.tregex.TregexPattern;
+import edu.stanford.nlp.trees.tregex.TregexPatternSet;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * TregexPatternSet Tester: runs a set of patterns (plain, disjunctive and regex labels, negated
+ * and optional nodes, named nodes and back references) over hand-written and random trees, and
+ * checks that the set finds the same matches, in the same order, as each pattern on its own, and
+ * that it does so when several threads share it.
+ */
+public class TregexPatternSetTest extends TestCase {
+
+    private static final String[] PATTERNS = {
+        "NP < NN",
+        "NP|NX < NNP",
+        "/^VB/ > VP",
+        "S < (NP $++ VP)",
+        "NP !< DT",
+        "NP ?< DT=d",
+        "PP << (NP < NNP)",
+        "@NP",
+        "NP=np < (NN=n $- JJ)",
+        "WHNP",
+        "__ < __",
+        "VP < (VBD !$ NP)",
+        "/NN/ , /DT/",
+        "ROOT <<, NNP",
+        "NP < (NP $+ (/,/ $+ NP))",
+        "SBAR <: S",
+        "NP < NN=a : =a > NP",
+        "!NP < NN",
+        "QP",
+        "S < (NP=subj < NNP) < (VP < (NP < NN=obj))",
+    };
+
+    private static final String[] TREES = {
+        "(ROOT (S (NP (JJ Old) (NNS men)) (VP (VBP forget)) (. .)))",
+        "(ROOT (S (NP (NNP Japan)) (VP (VBD surrendered) (PP (IN on) (NP (CD 15) (NNP August) (CD 1945)))) (. .)))",
+        "(ROOT (S (NP (NP (DT The) (NN war)) (PP (IN in) (NP (NNP Europe)))) (VP (VBD ended) (PP (IN with) " +
+            "(NP (NP (DT the) (NN capture)) (PP (IN of) (NP (NNP Berlin)))))) (. .)))",
+        "(ROOT (S (NP (NNP Stalin)) (VP (VBD met) (NP (NP (NNP Churchill)) (, ,) (NP (DT the) (JJ British) " +
+            "(NN leader)))) (. .)))",
+        "(ROOT (S (NP (DT The) (NN city)) (VP (VBD fell) (SBAR (IN because) (S (NP (PRP it)) (VP (VBD was) " +
+            "(VP (VBN surrounded)))))) (. .)))",
+        "(ROOT (NP (NP (DT the) (NN army)) (SBAR (WHNP (WDT that)) (S (VP (VBD won))))))",
+    };
+
+    private static final String[] PHRASES = { "S", "NP", "VP", "PP", "SBAR", "ADJP", "NX" };
+    private static final String[] TAGS = { "NN", "NNP", "DT", "JJ", "VBD", "IN", ",", "CC", "PRP" };
+
+    private static TregexPatternSet set;
+
+    public TregexPatternSetTest(String name) {
+        super(name);
+    }
+
+    public void setUp() throws Exception {
+        super.setUp();
+        if (set == null) {
+            List<TregexPattern> patterns = new ArrayList<TregexPattern>();
+            for (String p : PATTERNS) {
+                patterns.add(TregexPattern.compile(p));
+            }
+            set = new TregexPatternSet(patterns);
+        }
+    }
+
+    public void testSize() throws Exception {
+        assertEquals(PATTERNS.length, set.size());
+        assertEquals(TregexPattern.compile(PATTERNS[3]).toString(), set.get(3).toString());
+    }
+
+    public void testHandWrittenTrees() {
+        for (String s : TREES) {
+            Tree tree = Tree.valueOf(s);
+            assertEquals(s, separately(tree), together(tree));
+            assertEquals(s, separatelyMatching(tree), set.matching(tree));
+        }
+    }
+
+    public void testRandomTrees() {
+        Random random = new Random(3);
+        int matches = 0;
+        for (int i = 0; i < 300; i++) {
+            Tree tree = Tree.valueOf("(ROOT " + randomTree(random, 0) + ")");
+            List<String> expected = separately(tree);
+            assertEquals(tree.toString(), expected, together(tree));
+            assertEquals(tree.toString(), separatelyMatching(tree), set.matching(tree));
+            matches += expected.size();
+        }
+        assertTrue(matches > 1000);
+    }
+
+    public void testSharedByThreads() throws Exception {
+        final List<Tree> trees = new ArrayList<Tree>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100; i++) {
+            trees.add(Tree.valueOf("(ROOT " + randomTree(random, 0) + ")"));
+        }
+        final List<List<String>> expected = new ArrayList<List<String>>();
+        for (Tree tree : trees) {
+            expected.add(separately(tree));
+        }
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < trees.size(); i++) {
+                            int j = (i + 25 * offset) % trees.size();
+                            if ( ! expected.get(j).equals(together(trees.get(j)))) {
+                                failure.compareAndSet(null, trees.get(j).toString());
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e.toString());
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+    }
+
+    /** The matches of each pattern on its own, in order. */
+    private static List<String> separately(Tree tree) {
+        List<String> matches = new ArrayList<String>();
+        for (int i = 0; i < set.size(); i++) {
+            TregexMatcher m = set.get(i).matcher(tree);
+            while (m.find()) {
+                matches.add(describe(i, m, tree));
+            }
+        }
+        return matches;
+    }
+
+    private static BitSet separatelyMatching(Tree tree) {
+        BitSet matching = new BitSet();
+        for (int i = 0; i < set.size(); i++) {
+            if (set.get(i).matcher(tree).find()) {
+                matching.set(i);
+            }
+        }
+        return matching;
+    }
+
+    private static List<String> together(final Tree tree) {
+        final List<String> matches = new ArrayList<String>();
+        int n = set.find(tree, new TregexPatternSet.Handler() {
+            public void handle(int pattern, TregexMatcher matcher) {
+                matches.add(describe(pattern, matcher, tree));
+            }
+        });
+        assertEquals(matches.size(), n);
+        return matches;
+    }
+
+    /** The pattern, the matched node and the named nodes, by their numbers in the tree. */
+    private static String describe(int pattern, TregexMatcher m, Tree tree) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(pattern).append(':').append(m.getMatch().nodeNumber(tree));
+        for (String name : new String[] { "d", "np", "n", "a", "subj", "obj" }) {
+            Tree node = m.getNode(name);
+            if (node != null) {
+                sb.append(' ').append(name).append('=').append(node.nodeNumber(tree));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String randomTree(Random random, int depth) {
+        if (depth >= 4 || random.nextInt(3) == 0) {
+            String tag = TAGS[random.nextInt(TAGS.length)];
+            return "(" + tag + " w" + random.nextInt(5) + ")";
+        }
+        StringBuilder sb = new StringBuilder("(").append(PHRASES[random.nextInt(PHRASES.length)]);
+        for (int i = 0, children = 1 + random.nextInt(3); i < children; i++) {
+            sb.append(' ').append(randomTree(random, depth + 1));
+        }
+        return sb.append(')').toString();
+    }
+
+    public static Test suite() {
+        return new TestSuite(TregexPatternSetTest.class);
+    }
+}